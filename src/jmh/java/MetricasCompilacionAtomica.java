@@ -0,0 +1,137 @@
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Copia del lado de registro de {@link MetricasCompilacion} tal como era
+ * antes de repartir los contadores en franjas: un {@link AtomicLong} por
+ * contador, computeIfAbsent en cada petición e histogramas con un solo
+ * arreglo de cubetas más un contador de muestras.
+ *
+ * <p>Sólo existe como referencia para {@code benchmarks.MetricasBenchmark};
+ * no se usa en el servicio.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class MetricasCompilacionAtomica {
+
+    private static final int MAX_HISTOGRAMAS_LENGUAJE = 32;
+    private static final String LENGUAJE_OTRO = "OTRO";
+
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong requestsExitosos = new AtomicLong();
+    private final AtomicLong requestsFallidos = new AtomicLong();
+    private final AtomicLong sumaLatenciasNs = new AtomicLong();
+    private final HistogramaAtomico histogramaLatencia = new HistogramaAtomico();
+    private final Map<String, HistogramaAtomico> histogramasPorLenguaje = new ConcurrentHashMap<>();
+    private final Map<FaseCompilacion, HistogramaAtomico> histogramasPorFase =
+        new EnumMap<>(FaseCompilacion.class);
+    private final VentanaDeslizante ventana = new VentanaDeslizante(300);
+
+    private final Map<String, AtomicLong> lenguajesUtilizados = new ConcurrentHashMap<>();
+    private final AtomicLong totalTokensProcesados = new AtomicLong();
+    private final AtomicLong erroresSintacticos = new AtomicLong();
+    private final AtomicLong cacheAciertos = new AtomicLong();
+
+    public MetricasCompilacionAtomica() {
+        for (FaseCompilacion fase : FaseCompilacion.values()) {
+            histogramasPorFase.put(fase, new HistogramaAtomico());
+        }
+    }
+
+    public void registrarCompilacionExitosa(String lenguaje, int tokens, long latenciaNs) {
+        totalRequests.incrementAndGet();
+        requestsExitosos.incrementAndGet();
+        totalTokensProcesados.addAndGet(tokens);
+        registrarLatencia(lenguaje, latenciaNs);
+        ventana.registrar(latenciaNs, false);
+
+        lenguajesUtilizados
+            .computeIfAbsent(lenguaje, k -> new AtomicLong(0))
+            .incrementAndGet();
+    }
+
+    public void registrarCompilacionFallida(String lenguaje, long latenciaNs) {
+        totalRequests.incrementAndGet();
+        requestsFallidos.incrementAndGet();
+        erroresSintacticos.incrementAndGet();
+        registrarLatencia(lenguaje, latenciaNs);
+        ventana.registrar(latenciaNs, true);
+
+        lenguajesUtilizados
+            .computeIfAbsent(lenguaje, k -> new AtomicLong(0))
+            .incrementAndGet();
+    }
+
+    public void registrarFase(FaseCompilacion fase, long latenciaNs) {
+        histogramasPorFase.get(fase).registrar(latenciaNs);
+    }
+
+    public void registrarAciertoCache() {
+        cacheAciertos.incrementAndGet();
+    }
+
+    /**
+     * @return total de requests registrados, para comprobar que el
+     *         benchmark no fue eliminado como código muerto
+     */
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    private void registrarLatencia(String lenguaje, long latenciaNs) {
+        sumaLatenciasNs.addAndGet(latenciaNs);
+        histogramaLatencia.registrar(latenciaNs);
+        histogramaDeLenguaje(lenguaje).registrar(latenciaNs);
+    }
+
+    private HistogramaAtomico histogramaDeLenguaje(String lenguaje) {
+        HistogramaAtomico histograma = histogramasPorLenguaje.get(lenguaje);
+        if (histograma != null) {
+            return histograma;
+        }
+        if (histogramasPorLenguaje.size() >= MAX_HISTOGRAMAS_LENGUAJE) {
+            return histogramasPorLenguaje.computeIfAbsent(
+                LENGUAJE_OTRO, k -> new HistogramaAtomico());
+        }
+        return histogramasPorLenguaje.computeIfAbsent(lenguaje, k -> new HistogramaAtomico());
+    }
+
+    /**
+     * Registro del histograma anterior: una cubeta compartida por todos los
+     * hilos más un contador de muestras y el máximo.
+     */
+    private static final class HistogramaAtomico {
+        private static final int BITS = HistogramaLatencia.BITS_PRECISION_DEFECTO;
+
+        private final AtomicLongArray cubetas = new AtomicLongArray((64 - BITS) << BITS);
+        private final AtomicLong muestras = new AtomicLong();
+        private final AtomicLong maximo = new AtomicLong();
+
+        void registrar(long valorNs) {
+            long valor = Math.max(0, valorNs);
+            cubetas.incrementAndGet(indice(valor));
+            muestras.incrementAndGet();
+
+            long actual = maximo.get();
+            while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+                actual = maximo.get();
+            }
+        }
+
+        private static int indice(long valor) {
+            int subCubetas = 1 << BITS;
+            if (valor < subCubetas) {
+                return (int) valor;
+            }
+            int exponente = 63 - Long.numberOfLeadingZeros(valor);
+            int desplazamiento = exponente - BITS;
+            int mantisa = (int) (valor >>> desplazamiento) - subCubetas;
+            return ((desplazamiento + 1) << BITS) + mantisa;
+        }
+    }
+}
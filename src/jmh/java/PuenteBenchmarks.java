@@ -0,0 +1,729 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+import com.google.gson.Gson;
+
+import jdk.jfr.Recording;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.DoubleExemplarData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+
+/**
+ * Punto de acceso de los benchmarks a las clases del servicio.
+ *
+ * <p>JMH no acepta benchmarks en el paquete por defecto y desde un paquete
+ * con nombre no se pueden importar las clases del servicio, así que los
+ * benchmarks cargan esta clase por reflexión una sola vez en su
+ * {@code @Setup} y trabajan con las interfaces funcionales del JDK que
+ * devuelven sus métodos.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class PuenteBenchmarks {
+
+    private static final char[] OPERADORES = {'+', '-', '*', '/'};
+
+    private PuenteBenchmarks() {}
+
+    /**
+     * Genera una expresión válida de forma determinista.
+     *
+     * <p>Cada nivel de anidamiento toma una parte de los operandos y pone el
+     * resto entre paréntesis, de modo que la profundidad real es
+     * min(profundidad, operandos - 1). Los números mezclan enteros y
+     * decimales. Sólo se divide entre números literales, nunca entre un
+     * paréntesis, así que la evaluación no puede dividir entre cero.</p>
+     *
+     * @param operandos cantidad de números de la expresión
+     * @param profundidad niveles máximos de paréntesis anidados
+     * @param semilla semilla del generador pseudoaleatorio
+     * @return la expresión
+     */
+    public static String generarExpresion(int operandos, int profundidad, long semilla) {
+        StringBuilder sb = new StringBuilder(operandos * 8);
+        generar(sb, Math.max(1, operandos), profundidad, new Random(semilla));
+        return sb.toString();
+    }
+
+    private static void generar(StringBuilder sb, int operandos, int profundidad, Random azar) {
+        int planos = profundidad > 0 && operandos > 1
+            ? Math.max(1, operandos / (profundidad + 1))
+            : operandos;
+        for (int i = 0; i < planos; i++) {
+            if (i > 0) {
+                sb.append(' ').append(OPERADORES[azar.nextInt(4)]).append(' ');
+            }
+            if (azar.nextBoolean()) {
+                sb.append(1 + azar.nextInt(999));
+            } else {
+                sb.append(1 + azar.nextInt(99)).append('.').append(azar.nextInt(1000));
+            }
+        }
+        if (planos < operandos) {
+            sb.append(' ').append(OPERADORES[azar.nextInt(3)]).append(" (");
+            generar(sb, operandos - planos, profundidad - 1, azar);
+            sb.append(')');
+        }
+    }
+
+    /**
+     * Genera una expresión anidada a la izquierda, {@code ((1 + 2) * 3) ...},
+     * con un nivel de paréntesis por operando: el peor caso del parser
+     * recursivo.
+     *
+     * @param operandos cantidad de números de la expresión
+     * @param semilla semilla del generador pseudoaleatorio
+     * @return la expresión
+     */
+    public static String generarExpresionProfunda(int operandos, long semilla) {
+        Random azar = new Random(semilla);
+        StringBuilder sb = new StringBuilder(operandos * 9);
+        for (int i = 1; i < operandos; i++) {
+            sb.append('(');
+        }
+        sb.append(1 + azar.nextInt(999));
+        for (int i = 1; i < operandos; i++) {
+            sb.append(' ').append(OPERADORES[azar.nextInt(3)]).append(' ')
+                .append(1 + azar.nextInt(999)).append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param modo "RECURSIVO" o "ITERATIVO"
+     * @return función que analiza y parsea una expresión sin optimizarla y
+     *         devuelve la cantidad de tokens; no es thread-safe
+     */
+    public static ToIntFunction<String> parsear(String modo) {
+        CompiladorExpresiones compilador = new CompiladorExpresiones(
+            CompiladorExpresiones.ModoParseo.valueOf(modo),
+            Integer.MAX_VALUE, Integer.MAX_VALUE);
+        return expresion -> {
+            try {
+                return compilador.compilarExpresion(expresion, false).getTokens();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Compara el parser iterativo con el recursivo sobre expresiones
+     * pseudoaleatorias, válidas e inválidas: ambos deben dar el mismo árbol
+     * y las mismas variables, o el mismo diagnóstico (código, posición y
+     * mensaje), y la excepción de la API anterior debe llevar ese mensaje.
+     *
+     * @param casos cantidad de expresiones a comparar
+     * @param semilla semilla del generador pseudoaleatorio
+     * @return cantidad de expresiones válidas entre las comparadas
+     * @throws IllegalStateException con la primera expresión en que difieren
+     */
+    public static int verificarParsers(int casos, long semilla) {
+        String[] piezas = {"(", "(", ")", ")", "+", "-", "*", "/", "1", "2.5", "0", "x", "y_2",
+            "1.2.3", ".", " "};
+        CompiladorExpresiones recursivo = new CompiladorExpresiones(
+            CompiladorExpresiones.ModoParseo.RECURSIVO, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        CompiladorExpresiones iterativo = new CompiladorExpresiones(
+            CompiladorExpresiones.ModoParseo.ITERATIVO, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        Random azar = new Random(semilla);
+        int validas = 0;
+        for (int i = 0; i < casos; i++) {
+            String expresion;
+            if (azar.nextInt(4) == 0) {
+                expresion = generarExpresion(1 + azar.nextInt(64), azar.nextInt(8), azar.nextLong());
+            } else {
+                StringBuilder sb = new StringBuilder();
+                for (int j = azar.nextInt(24); j > 0; j--) {
+                    sb.append(piezas[azar.nextInt(piezas.length)]);
+                }
+                expresion = sb.toString();
+            }
+            String esperado = describirParseo(recursivo, expresion);
+            String obtenido = describirParseo(iterativo, expresion);
+            if (!esperado.equals(obtenido)) {
+                throw new IllegalStateException("Los parsers difieren en \"" + expresion
+                    + "\": " + esperado + " / " + obtenido);
+            }
+            if (!esperado.startsWith("error:")) {
+                validas++;
+            }
+        }
+        return validas;
+    }
+
+    /**
+     * Describe el árbol o el diagnóstico de una expresión, y comprueba que
+     * {@link CompiladorExpresiones#compilarExpresion(String)} lance el mismo
+     * mensaje que reporta el diagnóstico.
+     */
+    private static String describirParseo(CompiladorExpresiones compilador, String expresion) {
+        ResultadoCompilacion resultado = compilador.analizar(expresion, false);
+        String mensaje;
+        try {
+            compilador.compilarExpresion(expresion, false);
+            mensaje = null;
+        } catch (Exception e) {
+            mensaje = e.getMessage();
+        }
+        if (resultado.esExitoso()) {
+            if (mensaje != null) {
+                throw new IllegalStateException("Sólo la excepción falla en \"" + expresion + "\"");
+            }
+            ExpresionCompilada compilada = resultado.getExpresion();
+            return compilada.getRaiz() + " " + compilada.getVariables() + " " + compilada.getTokens();
+        }
+        DiagnosticoCompilacion diagnostico = resultado.getDiagnostico();
+        if (!diagnostico.getMensaje().equals(mensaje)) {
+            throw new IllegalStateException("El diagnóstico difiere de la excepción en \""
+                + expresion + "\": " + diagnostico + " / " + mensaje);
+        }
+        return "error: " + diagnostico + " esperado " + diagnostico.getEsperado();
+    }
+
+    /**
+     * @return función que ejecuta sólo el análisis léxico y devuelve la
+     *         cantidad de tokens; usa un compilador propio, no es thread-safe
+     */
+    public static ToIntFunction<String> lexico() {
+        CompiladorExpresiones compilador = new CompiladorExpresiones();
+        return expresion -> {
+            try {
+                return compilador.tokenizar(expresion);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * @return función que analiza, parsea y evalúa una expresión como
+     *         {@link CompiladorExpresiones#compilar(String)}; no es thread-safe
+     */
+    public static ToDoubleFunction<String> compilarYEvaluar() {
+        CompiladorExpresiones compilador = new CompiladorExpresiones();
+        return expresion -> {
+            try {
+                return compilador.compilar(expresion);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * @return función que compila y evalúa con
+     *         {@link CompiladorExpresiones#compilar(String)} y convierte la
+     *         excepción en NaN; no es thread-safe
+     */
+    public static ToDoubleFunction<String> compilarConExcepcion() {
+        CompiladorExpresiones compilador = new CompiladorExpresiones();
+        return expresion -> {
+            try {
+                return compilador.compilar(expresion);
+            } catch (Exception e) {
+                return e.getMessage().length() > 0 ? Double.NaN : 0;
+            }
+        };
+    }
+
+    /**
+     * @return función que compila y evalúa con
+     *         {@link CompiladorExpresiones#intentarCompilar(String)}; un
+     *         error da NaN; no es thread-safe
+     */
+    public static ToDoubleFunction<String> compilarConResultado() {
+        CompiladorExpresiones compilador = new CompiladorExpresiones();
+        return expresion -> {
+            ResultadoCompilacion resultado = compilador.intentarCompilar(expresion);
+            if (resultado.esExitoso()) {
+                return resultado.getValor();
+            }
+            return resultado.getDiagnostico().getMensaje().length() > 0 ? Double.NaN : 0;
+        };
+    }
+
+    /**
+     * Compila una expresión una vez y devuelve su evaluación, el trabajo que
+     * queda en una petición atendida desde la caché.
+     *
+     * @param expresion expresión válida
+     * @param optimizar si se aplica {@link OptimizadorExpresiones}, como
+     *                  en la caché, o se evalúa el AST tal como sale del parser
+     * @return función que evalúa el AST ya construido
+     * @throws Exception si la expresión no compila
+     */
+    public static DoubleSupplier evaluarCompilada(String expresion, boolean optimizar)
+            throws Exception {
+        ExpresionCompilada compilada =
+            new CompiladorExpresiones().compilarExpresion(expresion, optimizar);
+        return () -> {
+            try {
+                return compilada.evaluar();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Prepara columnas pseudoaleatorias para una expresión con variables y
+     * devuelve una función que la evalúa sobre todas las filas.
+     *
+     * @param expresion expresión válida con variables
+     * @param filas cantidad de filas
+     * @param evaluador "ARBOL" para recorrer el AST fila por fila, como
+     *                  antes de {@link EvaluadorColumnar}, o "ESCALAR" o
+     *                  "VECTORIAL" para el evaluador correspondiente
+     * @return función que evalúa todas las filas y devuelve cuántas fallaron
+     * @throws Exception si la expresión no compila o el evaluador no está disponible
+     */
+    public static IntSupplier evaluarColumnas(String expresion, int filas, String evaluador)
+            throws Exception {
+        ExpresionCompilada compilada =
+            new CompiladorExpresiones().compilarExpresion(expresion, true);
+        Random azar = new Random(42);
+        double[][] columnas = new double[compilada.getVariables().size()][filas];
+        for (double[] columna : columnas) {
+            for (int i = 0; i < filas; i++) {
+                columna[i] = 1 + azar.nextInt(10_000) / 100.0;
+            }
+        }
+        ProgramaColumnar programa = compilada.getPrograma();
+        switch (evaluador) {
+            case "ARBOL":
+                return () -> {
+                    int errores = 0;
+                    double[] fila = new double[columnas.length];
+                    for (int i = 0; i < filas; i++) {
+                        for (int v = 0; v < fila.length; v++) {
+                            fila[v] = columnas[v][i];
+                        }
+                        try {
+                            compilada.evaluar(fila);
+                        } catch (Exception e) {
+                            errores++;
+                        }
+                    }
+                    return errores;
+                };
+            case "ESCALAR":
+            case "VECTORIAL": {
+                EvaluadorColumnar motor = "ESCALAR".equals(evaluador)
+                    ? EvaluadorColumnar.escalar() : EvaluadorColumnar.vectorial();
+                if (motor == null) {
+                    throw new IllegalStateException("Evaluador vectorial no disponible");
+                }
+                return () -> {
+                    BitSet errores = new BitSet();
+                    motor.evaluar(programa, columnas, filas, errores);
+                    return errores.cardinality();
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Evaluador desconocido: " + evaluador);
+        }
+    }
+
+    /**
+     * @param json cuerpo de una petición a /api/compilar
+     * @return función que lo decodifica a {@link SolicitudCompilacion} con
+     *         la misma configuración de Gson que el servicio
+     */
+    public static Supplier<Object> decodificarSolicitud(String json) {
+        Gson gson = new Gson();
+        return () -> gson.fromJson(json, SolicitudCompilacion.class);
+    }
+
+    /**
+     * @param json cuerpo de una petición a /api/compilar
+     * @return función que lo decodifica con {@link CodecJson} desde los bytes,
+     *         como lo hace HandlerCompilar
+     */
+    public static Supplier<Object> decodificarSolicitudCodec(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return () -> CodecJson.leerSolicitud(bytes, bytes.length);
+    }
+
+    /**
+     * @param expresion expresión de la solicitud
+     * @return función que codifica la solicitud a JSON y la vuelve a
+     *         decodificar
+     */
+    public static Supplier<Object> idaYVueltaSolicitud(String expresion) {
+        Gson gson = new Gson();
+        SolicitudCompilacion solicitud = new SolicitudCompilacion(expresion, "ARITMETICA");
+        return () -> gson.fromJson(gson.toJson(solicitud), SolicitudCompilacion.class);
+    }
+
+    /**
+     * @return función que codifica una respuesta exitosa a JSON, como al
+     *         final de cada petición
+     */
+    public static Supplier<String> codificarRespuesta() {
+        Gson gson = new Gson();
+        RespuestaCompilacion respuesta = RespuestaCompilacion.exito(1234.5678, 17, 3);
+        return () -> gson.toJson(respuesta);
+    }
+
+    /**
+     * @return función que codifica una respuesta exitosa con
+     *         {@link CodecJson} en el buffer del hilo y devuelve su tamaño
+     */
+    public static IntSupplier codificarRespuestaCodec() {
+        RespuestaCompilacion respuesta = RespuestaCompilacion.exito(1234.5678, 17, 3);
+        return () -> {
+            CodecJson.Buffer buffer = CodecJson.buffer();
+            CodecJson.escribirRespuesta(respuesta, buffer);
+            return buffer.getTamano();
+        };
+    }
+
+    /**
+     * @return función que codifica una respuesta a JSON y la vuelve a
+     *         decodificar, como lo haría un cliente
+     */
+    public static Supplier<Object> idaYVueltaRespuesta() {
+        Gson gson = new Gson();
+        RespuestaCompilacion respuesta = RespuestaCompilacion.exito(1234.5678, 17, 3);
+        return () -> gson.fromJson(gson.toJson(respuesta), RespuestaCompilacion.class);
+    }
+
+    /**
+     * @param implementacion "printf", como el TelemetriaManager.log original
+     *                       sobre un PrintStream con autoflush, o "asincrono"
+     *                       ({@link RegistroAsincrono} con política DESCARTAR)
+     * @return función que registra un mensaje INFO en un archivo temporal
+     * @throws IOException si no se puede crear el archivo
+     */
+    public static Consumer<String> registroLog(String implementacion) throws IOException {
+        File archivo = File.createTempFile("caas-log", ".jsonl");
+        archivo.deleteOnExit();
+        switch (implementacion) {
+            case "printf": {
+                PrintStream salida = new PrintStream(new FileOutputStream(archivo), true);
+                return mensaje -> salida.printf("[%s] %s: %s%n",
+                    java.time.Instant.now().toString(), "INFO", mensaje);
+            }
+            case "asincrono": {
+                RegistroAsincrono registro = new RegistroAsincrono(
+                    8192, RegistroAsincrono.Politica.DESCARTAR, archivo.toPath());
+                return mensaje -> registro.registrar("INFO", mensaje);
+            }
+            default:
+                throw new IllegalArgumentException("Implementación desconocida: " + implementacion);
+        }
+    }
+
+    /**
+     * Crea una función que registra las métricas de una petición atendida
+     * desde la caché, como lo hace HandlerCompilar: acierto de caché, tres
+     * fases y el resultado. Una de cada 32 latencias se registra como fallo.
+     *
+     * @param implementacion "franjada" para {@link MetricasCompilacion} o
+     *                       "atomica" para {@link MetricasCompilacionAtomica}
+     * @return función que recibe la latencia de la petición en nanosegundos
+     */
+    public static LongConsumer registroPorPeticion(String implementacion) {
+        switch (implementacion) {
+            case "franjada": {
+                MetricasCompilacion metricas = new MetricasCompilacion();
+                return latenciaNs -> {
+                    metricas.registrarAciertoCache();
+                    metricas.registrarFase(FaseCompilacion.DECODIFICACION_JSON, latenciaNs >>> 3);
+                    metricas.registrarFase(FaseCompilacion.EVALUACION, latenciaNs >>> 4);
+                    metricas.registrarFase(FaseCompilacion.ESCRITURA_RESPUESTA, latenciaNs >>> 2);
+                    if ((latenciaNs & 31) == 0) {
+                        metricas.registrarCompilacionFallida("ARITMETICA", latenciaNs);
+                    } else {
+                        metricas.registrarCompilacionExitosa("ARITMETICA", 7, latenciaNs);
+                    }
+                };
+            }
+            case "atomica": {
+                MetricasCompilacionAtomica metricas = new MetricasCompilacionAtomica();
+                return latenciaNs -> {
+                    metricas.registrarAciertoCache();
+                    metricas.registrarFase(FaseCompilacion.DECODIFICACION_JSON, latenciaNs >>> 3);
+                    metricas.registrarFase(FaseCompilacion.EVALUACION, latenciaNs >>> 4);
+                    metricas.registrarFase(FaseCompilacion.ESCRITURA_RESPUESTA, latenciaNs >>> 2);
+                    if ((latenciaNs & 31) == 0) {
+                        metricas.registrarCompilacionFallida("ARITMETICA", latenciaNs);
+                    } else {
+                        metricas.registrarCompilacionExitosa("ARITMETICA", 7, latenciaNs);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Implementación desconocida: " + implementacion);
+        }
+    }
+
+    /**
+     * Crea métricas con {@code lenguajes} lenguajes, cada uno con latencias
+     * en todo el rango del histograma, y una función que genera una
+     * exposición completa de ellas.
+     *
+     * @param lenguajes cantidad de lenguajes distintos registrados
+     * @param formato "json" para {@code generarSnapshot()} con Gson, como
+     *                /api/metricas, u "openmetrics" para
+     *                {@link ExpositorOpenMetrics} reutilizado, como /metrics
+     * @return función que devuelve el tamaño de la exposición en bytes
+     */
+    public static IntSupplier exponerMetricas(int lenguajes, String formato) {
+        MetricasCompilacion metricas = new MetricasCompilacion();
+        Random azar = new Random(42);
+        for (int i = 0; i < lenguajes; i++) {
+            String lenguaje = "LENGUAJE_" + i;
+            for (int j = 0; j < 200; j++) {
+                long latenciaNs = 1_000L << azar.nextInt(24);
+                metricas.registrarCompilacionExitosa(lenguaje, 7, latenciaNs);
+                metricas.registrarFase(FaseCompilacion.EVALUACION, latenciaNs >>> 2);
+            }
+            metricas.registrarCompilacionFallida(lenguaje, 5_000);
+        }
+        switch (formato) {
+            case "json": {
+                Gson gson = new Gson();
+                return () -> gson.toJson(metricas.generarSnapshot()).length();
+            }
+            case "openmetrics": {
+                ExpositorOpenMetrics expositor = new ExpositorOpenMetrics();
+                return () -> {
+                    expositor.iniciar();
+                    metricas.exponer(expositor);
+                    return expositor.terminar().getTamano();
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Formato desconocido: " + formato);
+        }
+    }
+
+    /**
+     * Registra una compilación exitosa con un span activo y una fallida
+     * sin span en {@link MetricasOpenTelemetry}, y comprueba con
+     * {@link LectorMetricasMemoria} que el histograma de duración tenga el
+     * exemplar del span sólo en la serie exitosa.
+     *
+     * @return cantidad de exemplars encontrados
+     * @throws IllegalStateException si falta el exemplar o sobra alguno
+     */
+    public static int verificarExemplars() {
+        LectorMetricasMemoria lector = new LectorMetricasMemoria();
+        try (SdkMeterProvider proveedor = MetricasOpenTelemetry.crearProveedor(Resource.empty(), lector);
+             SdkTracerProvider trazas = SdkTracerProvider.builder().build()) {
+            MetricasOpenTelemetry instrumentos = new MetricasOpenTelemetry(proveedor);
+            Span span = trazas.get("verificacion").spanBuilder("compilar_expresion").startSpan();
+            try (Scope alcance = span.makeCurrent()) {
+                instrumentos.registrarExitosa("ARITMETICA", 7, 2_000_000);
+            }
+            span.end();
+            instrumentos.registrarFallida("ARITMETICA", 30_000);
+
+            int exemplars = 0;
+            for (MetricData metrica : lector.recolectar()) {
+                if (!MetricasOpenTelemetry.DURACION.equals(metrica.getName())) {
+                    continue;
+                }
+                for (HistogramPointData punto : metrica.getHistogramData().getPoints()) {
+                    String resultado = punto.getAttributes().get(AttributeKey.stringKey("resultado"));
+                    List<DoubleExemplarData> lista = punto.getExemplars();
+                    if ("fallido".equals(resultado) && !lista.isEmpty()) {
+                        throw new IllegalStateException("Exemplar sin span activo: " + lista);
+                    }
+                    if ("exitoso".equals(resultado) && (lista.size() != 1
+                            || !lista.get(0).getSpanContext().getTraceId()
+                                .equals(span.getSpanContext().getTraceId()))) {
+                        throw new IllegalStateException("Falta el exemplar del span: " + lista);
+                    }
+                    exemplars += lista.size();
+                }
+            }
+            if (exemplars != 1) {
+                throw new IllegalStateException("Se esperaba un exemplar y hubo " + exemplars);
+            }
+            return exemplars;
+        }
+    }
+
+    /**
+     * Crea instrumentos de OpenTelemetry leídos por un
+     * {@link LectorMetricasMemoria} y una función que registra la duración
+     * de una compilación exitosa y sus tokens con un span muestreado
+     * activo, como HandlerCompilar.
+     *
+     * @param atributos "prearmados" para {@link MetricasOpenTelemetry}, que
+     *                  reutiliza los {@link Attributes} de cada lenguaje, o
+     *                  "por_llamada" para crearlos en cada medición
+     * @return función que recibe la latencia en nanosegundos
+     */
+    public static LongConsumer registroOpenTelemetry(String atributos) {
+        SdkMeterProvider proveedor = MetricasOpenTelemetry.crearProveedor(
+            Resource.empty(), new LectorMetricasMemoria());
+        Span span = SdkTracerProvider.builder().build()
+            .get("benchmark").spanBuilder("compilar_expresion").startSpan();
+        Context contexto = Context.root().with(span);
+        switch (atributos) {
+            case "prearmados": {
+                MetricasOpenTelemetry instrumentos = new MetricasOpenTelemetry(proveedor);
+                return latenciaNs -> {
+                    try (Scope alcance = contexto.makeCurrent()) {
+                        instrumentos.registrarExitosa("ARITMETICA", 7, latenciaNs);
+                    }
+                };
+            }
+            case "por_llamada": {
+                Meter medidor = proveedor.get("compiladores");
+                DoubleHistogram duracion = medidor
+                    .histogramBuilder(MetricasOpenTelemetry.DURACION).setUnit("s").build();
+                LongHistogram tokens = medidor
+                    .histogramBuilder(MetricasOpenTelemetry.TOKENS).ofLongs().build();
+                return latenciaNs -> {
+                    try (Scope alcance = contexto.makeCurrent()) {
+                        duracion.record(latenciaNs / 1e9, Attributes.of(
+                            AttributeKey.stringKey("lenguaje"), "ARITMETICA",
+                            AttributeKey.stringKey("resultado"), "exitoso"));
+                        tokens.record(7, Attributes.of(AttributeKey.stringKey("lenguaje"), "ARITMETICA"));
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Atributos desconocidos: " + atributos);
+        }
+    }
+
+    /**
+     * Graba con {@link GrabacionJfr} una petición de compilación armada a
+     * mano con {@link TrazaPeticion} y comprueba que el resumen tenga su
+     * evento con las fases y el resultado. También comprueba que el evento
+     * esté deshabilitado antes y después de la grabación.
+     *
+     * @return cantidad de eventos de compilación grabados
+     * @throws Exception si la expresión no compila o no se puede guardar la grabación
+     * @throws IllegalStateException si el evento no se grabó como se esperaba
+     */
+    public static long verificarEventosCompilacion() throws Exception {
+        if (EventoCompilacion.estaHabilitado()) {
+            throw new IllegalStateException("El evento está habilitado sin grabación");
+        }
+        Path directorio = Files.createTempDirectory("caas-jfr");
+        GrabacionJfr grabacion = new GrabacionJfr(directorio, Duration.ofMinutes(1));
+        ExpresionCompilada compilada = new CompiladorExpresiones().compilarExpresion("(1 + 2) * 3", true);
+        try {
+            grabacion.iniciar(null);
+            if (!EventoCompilacion.estaHabilitado()) {
+                throw new IllegalStateException("La grabación no habilitó el evento");
+            }
+            TrazaPeticion traza = TrazaPeticion.actual();
+            traza.iniciar(Span.getInvalid(), "compilar_expresion");
+            traza.setExpresion("(1 + 2) * 3");
+            traza.fase(FaseCompilacion.LEXICO, 5_000);
+            traza.fase(FaseCompilacion.EVALUACION, 2_000_000);
+            traza.setAciertoCache(false);
+            traza.setCompilada(compilada);
+            traza.posponerMedicion(true, "ARITMETICA", compilada.getTokens(), 3_000_000);
+            traza.registrarEvento(null);
+            traza.terminar();
+
+            ResumenGrabacion resumen = grabacion.detener();
+            if (resumen.getCompilaciones() != 1 || resumen.getExitosas() != 1
+                    || resumen.getFallosCache() != 1 || !resumen.getFases().containsKey("lexico")
+                    || resumen.getFases().containsKey("parseo")) {
+                throw new IllegalStateException("Resumen inesperado: " + new Gson().toJson(resumen));
+            }
+            CompilacionLenta lenta = resumen.getMasLentas().get(0);
+            if (!"(1 + 2) * 3".equals(lenta.getExpresion()) || lenta.getTokens() != compilada.getTokens()
+                    || !"evaluacion".equals(lenta.getFaseMasLenta())) {
+                throw new IllegalStateException("Evento inesperado: " + new Gson().toJson(lenta));
+            }
+            if (EventoCompilacion.estaHabilitado()) {
+                throw new IllegalStateException("El evento sigue habilitado al detener la grabación");
+            }
+            return resumen.getCompilaciones();
+        } finally {
+            grabacion.cerrar();
+            try (Stream<Path> archivos = Files.list(directorio)) {
+                for (Path archivo : (Iterable<Path>) archivos::iterator) {
+                    Files.delete(archivo);
+                }
+            }
+            Files.delete(directorio);
+        }
+    }
+
+    /**
+     * Devuelve una función que registra en {@link TrazaPeticion} lo que
+     * registra una petición a /api/compilar: inicio, fases, expresión,
+     * caché, medición y fin, incluido el evento de Flight Recorder.
+     *
+     * @param evento "deshabilitado" para medir lo que cuesta el evento sin
+     *               grabación, o "habilitado" para medirlo con una grabación
+     *               en memoria que lo incluye
+     * @return función que registra una petición; no es thread-safe
+     * @throws Exception si la expresión no compila
+     */
+    public static Runnable registroPeticion(String evento) throws Exception {
+        switch (evento) {
+            case "deshabilitado":
+                break;
+            case "habilitado": {
+                Recording grabacion = new Recording();
+                grabacion.setToDisk(false);
+                grabacion.enable(EventoCompilacion.class);
+                grabacion.start();
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Estado del evento desconocido: " + evento);
+        }
+        String expresion = "(1 + 2) * 3 - 4 / 5";
+        ExpresionCompilada compilada = new CompiladorExpresiones().compilarExpresion(expresion, true);
+        Span raiz = Span.getInvalid();
+        return () -> {
+            TrazaPeticion traza = TrazaPeticion.actual();
+            traza.iniciar(raiz, "compilar_expresion");
+            traza.fase(FaseCompilacion.LECTURA_CUERPO, 1_000);
+            traza.setBytesCuerpo(52);
+            traza.fase(FaseCompilacion.DECODIFICACION_JSON, 2_000);
+            traza.setExpresion(expresion);
+            traza.setAciertoCache(true);
+            traza.setCompilada(compilada);
+            traza.fase(FaseCompilacion.EVALUACION, 500);
+            traza.posponerMedicion(true, "ARITMETICA", compilada.getTokens(), 20_000);
+            traza.fase(FaseCompilacion.ESCRITURA_RESPUESTA, 3_000);
+            traza.registrarEvento(null);
+            traza.terminar();
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluación de una expresión con variables sobre columnas: recorriendo el
+ * AST fila por fila, y con el evaluador por bloques escalar y vectorial.
+ * El fork se inicia con el módulo de la Vector API.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ColumnasBenchmark {
+
+    @Param({"precio * (1 + iva) - descuento / 2", "((a * b + c) * d - a / c) * (b - d) + a * a"})
+    public String expresion;
+
+    @Param({"1000", "1000000"})
+    public int filas;
+
+    @Param({"ARBOL", "ESCALAR", "VECTORIAL"})
+    public String evaluador;
+
+    private IntSupplier evaluar;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        evaluar = Puente.invocar("evaluarColumnas", expresion, filas, evaluador);
+    }
+
+    @Benchmark
+    public int evaluar() {
+        return evaluar.getAsInt();
+    }
+}
@@ -0,0 +1,78 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fases del compilador sobre expresiones de distintos tamaños y niveles de
+ * anidamiento: sólo léxico, léxico + parseo + evaluación, y evaluación de
+ * un AST ya compilado (el caso de un acierto de caché), con y sin
+ * optimizar.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiladorBenchmark {
+
+    @Param({"8", "64", "512"})
+    public int operandos;
+
+    @Param({"0", "4", "32"})
+    public int profundidad;
+
+    private String expresion;
+    private ToIntFunction<String> lexico;
+    private ToDoubleFunction<String> compilarYEvaluar;
+    private DoubleSupplier evaluarCompilada;
+    private DoubleSupplier evaluarSinOptimizar;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        expresion = Puente.invocar("generarExpresion", operandos, profundidad, 42L);
+        lexico = Puente.invocar("lexico");
+        compilarYEvaluar = Puente.invocar("compilarYEvaluar");
+        evaluarCompilada = Puente.invocar("evaluarCompilada", expresion, true);
+        evaluarSinOptimizar = Puente.invocar("evaluarCompilada", expresion, false);
+    }
+
+    @Benchmark
+    public int lexico() {
+        return lexico.applyAsInt(expresion);
+    }
+
+    @Benchmark
+    public double compilarYEvaluar() {
+        return compilarYEvaluar.applyAsDouble(expresion);
+    }
+
+    @Benchmark
+    public double evaluarCompilada() {
+        return evaluarCompilada.getAsDouble();
+    }
+
+    @Benchmark
+    public double evaluarSinOptimizar() {
+        return evaluarSinOptimizar.getAsDouble();
+    }
+}
@@ -0,0 +1,51 @@
+package benchmarks;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta los benchmarks y guarda los resultados en JSON para poder
+ * compararlos entre corridas.
+ *
+ * <p>Acepta las mismas opciones que {@code org.openjdk.jmh.Main} (filtro de
+ * benchmarks, -f, -wi, -i, -p, -t, ...). Si no se indica -rf/-rff, los
+ * resultados se escriben en {@code target/jmh/resultados-AAAAMMDD-HHMMSS.json}.</p>
+ *
+ * <pre>
+ *   java -cp target/compilador-telemetria-1.0.jar benchmarks.EjecutarBenchmarks
+ *   java -cp target/compilador-telemetria-1.0.jar benchmarks.EjecutarBenchmarks Compilador -p operandos=64
+ * </pre>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class EjecutarBenchmarks {
+
+    private static final String DIRECTORIO = "target/jmh";
+
+    private EjecutarBenchmarks() {}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        OptionsBuilder opciones = new OptionsBuilder();
+        opciones.parent(linea);
+
+        if (!linea.getResultFormat().hasValue() && !linea.getResult().hasValue()) {
+            new File(DIRECTORIO).mkdirs();
+            String marca = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            opciones.resultFormat(ResultFormatType.JSON)
+                .result(DIRECTORIO + "/resultados-" + marca + ".json");
+        }
+
+        Options finales = opciones.build();
+        new Runner(finales).run();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compilar y evaluar con la API que lanza excepciones contra la que
+ * devuelve un diagnóstico, sobre una entrada válida y tres inválidas: un
+ * error léxico, uno sintáctico y uno de evaluación.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErroresBenchmark {
+
+    @Param({"(1 + 2) * 3 - 4 / 5", "(1 + 2) * 3 $ 4 / 5", "(1 + 2) * (3 - 4 / 5", "(1 + 2) * 3 - 4 / 0"})
+    public String entrada;
+
+    @Param({"EXCEPCION", "RESULTADO"})
+    public String api;
+
+    private ToDoubleFunction<String> compilar;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        compilar = "EXCEPCION".equals(api)
+            ? Puente.invocar("compilarConExcepcion")
+            : Puente.invocar("compilarConResultado");
+    }
+
+    @Benchmark
+    public double compilar() {
+        return compilar.applyAsDouble(entrada);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de registrar las fases y atributos de una petición en
+ * TrazaPeticion con el evento de Flight Recorder deshabilitado, como en
+ * producción sin grabación, y habilitado por una grabación en memoria.
+ * Con {@code -prof gc} se ve que deshabilitado no reserva memoria.
+ *
+ * <p>Antes de medir graba una petición con GrabacionJfr y comprueba su
+ * resumen.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventosBenchmark {
+
+    @Param({"deshabilitado", "habilitado"})
+    public String evento;
+
+    private Runnable peticion;
+
+    @Setup(Level.Trial)
+    public void preparar() throws ReflectiveOperationException {
+        Puente.invocar("verificarEventosCompilacion");
+        peticion = Puente.invocar("registroPeticion", evento);
+    }
+
+    @Benchmark
+    public void registrarPeticion() {
+        peticion.run();
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de un scrape: el snapshot JSON de /api/metricas contra la
+ * exposición OpenMetrics de /metrics, con pocos y con muchos lenguajes.
+ *
+ * <p>Con 64 lenguajes la exposición OpenMetrics tiene más de 1,500 series
+ * (un histograma de 21 series por lenguaje más los contadores).</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExposicionBenchmark {
+
+    @Param({"1", "64"})
+    public int lenguajes;
+
+    @Param({"json", "openmetrics"})
+    public String formato;
+
+    private IntSupplier exposicion;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        exposicion = Puente.invocar("exponerMetricas", lenguajes, formato);
+    }
+
+    @Benchmark
+    public int exponer() {
+        return exposicion.getAsInt();
+    }
+}
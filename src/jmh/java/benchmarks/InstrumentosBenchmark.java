@@ -0,0 +1,68 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de registrar una compilación en los instrumentos de OpenTelemetry
+ * con un span activo, reutilizando los atributos de cada lenguaje o
+ * creándolos en cada medición. Con {@code -prof gc} se ve la memoria
+ * reservada por medición.
+ *
+ * <p>Antes de medir comprueba que el histograma guarde el span activo
+ * como exemplar.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentosBenchmark {
+
+    @Param({"prearmados", "por_llamada"})
+    public String atributos;
+
+    private LongConsumer registro;
+    private long latenciaNs;
+
+    @Setup(Level.Trial)
+    public void verificar() throws ReflectiveOperationException {
+        Puente.invocar("verificarExemplars");
+    }
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        registro = Puente.invocar("registroOpenTelemetry", atributos);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void registrar1Hilo() {
+        registro.accept(20_000 + (latenciaNs++ & 0xFFFF));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrar4Hilos() {
+        registro.accept(250_000);
+    }
+}
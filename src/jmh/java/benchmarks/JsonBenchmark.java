@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Codificación JSON de SolicitudCompilacion y RespuestaCompilacion con la
+ * configuración de Gson del servicio: la decodificación del cuerpo, la
+ * codificación de la respuesta y las idas y vueltas completas. Los
+ * métodos *Codec miden lo mismo con CodecJson, que es lo que usa
+ * /api/compilar.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    /** Operandos de la expresión de la solicitud; la respuesta no depende de él. */
+    @Param({"8", "512"})
+    public int operandos;
+
+    private Supplier<Object> decodificarSolicitud;
+    private Supplier<Object> decodificarSolicitudCodec;
+    private Supplier<Object> idaYVueltaSolicitud;
+    private Supplier<String> codificarRespuesta;
+    private IntSupplier codificarRespuestaCodec;
+    private Supplier<Object> idaYVueltaRespuesta;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        String expresion = Puente.invocar("generarExpresion", operandos, 4, 42L);
+        String json = "{\"expresion\":\"" + expresion + "\",\"lenguaje\":\"ARITMETICA\"}";
+        decodificarSolicitud = Puente.invocar("decodificarSolicitud", json);
+        decodificarSolicitudCodec = Puente.invocar("decodificarSolicitudCodec", json);
+        idaYVueltaSolicitud = Puente.invocar("idaYVueltaSolicitud", expresion);
+        codificarRespuesta = Puente.invocar("codificarRespuesta");
+        codificarRespuestaCodec = Puente.invocar("codificarRespuestaCodec");
+        idaYVueltaRespuesta = Puente.invocar("idaYVueltaRespuesta");
+    }
+
+    @Benchmark
+    public Object decodificarSolicitud() {
+        return decodificarSolicitud.get();
+    }
+
+    @Benchmark
+    public Object decodificarSolicitudCodec() {
+        return decodificarSolicitudCodec.get();
+    }
+
+    @Benchmark
+    public Object idaYVueltaSolicitud() {
+        return idaYVueltaSolicitud.get();
+    }
+
+    @Benchmark
+    public String codificarRespuesta() {
+        return codificarRespuesta.get();
+    }
+
+    @Benchmark
+    public int codificarRespuestaCodec() {
+        return codificarRespuestaCodec.getAsInt();
+    }
+
+    @Benchmark
+    public Object idaYVueltaRespuesta() {
+        return idaYVueltaRespuesta.get();
+    }
+}
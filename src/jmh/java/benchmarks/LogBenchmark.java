@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de un log en el hilo que lo registra: printf sincrónico contra
+ * {@link RegistroAsincrono}, con 1 y 4 hilos escribiendo a la vez.
+ *
+ * <p>El asíncrono descarta lo que no cabe en su buffer, así que su
+ * throughput es el de encolar, no el de escribir al disco.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+    @Param({"printf", "asincrono"})
+    public String implementacion;
+
+    private Consumer<String> registro;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        registro = Puente.invocar("registroLog", implementacion);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void registrar1Hilo() {
+        registro.accept("Compilación terminada en 42 µs");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrar4Hilos() {
+        registro.accept("Compilación terminada en 42 µs");
+    }
+}
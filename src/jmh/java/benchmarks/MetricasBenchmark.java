@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Registro de métricas de una petición con 1 a 8 hilos escribiendo sobre el
+ * mismo colector, comparando los contadores en franjas de
+ * MetricasCompilacion contra la versión anterior con AtomicLong.
+ *
+ * <pre>
+ *   mvn -Pjmh package
+ *   java -cp target/compilador-telemetria-1.0.jar org.openjdk.jmh.Main MetricasBenchmark
+ * </pre>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricasBenchmark {
+
+    @Param({"franjada", "atomica"})
+    public String implementacion;
+
+    private LongConsumer registro;
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        registro = Puente.invocar("registroPorPeticion", implementacion);
+    }
+
+    /**
+     * Latencias pseudoaleatorias por hilo entre ~65 µs y ~1 ms, para que los
+     * hilos no escriban siempre en la misma cubeta del histograma.
+     */
+    @State(Scope.Thread)
+    public static class Latencias {
+        private long semilla = System.nanoTime() | 1;
+
+        long siguiente() {
+            semilla ^= semilla << 13;
+            semilla ^= semilla >>> 7;
+            semilla ^= semilla << 17;
+            return 65_536 + (semilla & 0xFFFFF);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void registrar1Hilo(Latencias latencias) {
+        registro.accept(latencias.siguiente());
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void registrar2Hilos(Latencias latencias) {
+        registro.accept(latencias.siguiente());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void registrar4Hilos(Latencias latencias) {
+        registro.accept(latencias.siguiente());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void registrar8Hilos(Latencias latencias) {
+        registro.accept(latencias.siguiente());
+    }
+}
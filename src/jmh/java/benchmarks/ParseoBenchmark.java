@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Léxico + parseo sin optimizar con el parser recursivo y el iterativo,
+ * sobre expresiones anchas (sin paréntesis) y profundas (un nivel de
+ * paréntesis por operando).
+ *
+ * <p>Antes de medir se comparan ambos parsers sobre 20,000 expresiones
+ * pseudoaleatorias, válidas e inválidas; si difieren en alguna, el
+ * benchmark falla.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseoBenchmark {
+
+    @Param({"ancha", "profunda"})
+    public String forma;
+
+    @Param({"64", "1000"})
+    public int operandos;
+
+    @Param({"RECURSIVO", "ITERATIVO"})
+    public String parser;
+
+    private String expresion;
+    private ToIntFunction<String> parsear;
+
+    @Setup(Level.Trial)
+    public void verificar() throws ReflectiveOperationException {
+        Puente.invocar("verificarParsers", 20_000, 7L);
+    }
+
+    @Setup
+    public void preparar() throws ReflectiveOperationException {
+        expresion = "ancha".equals(forma)
+            ? Puente.invocar("generarExpresion", operandos, 0, 42L)
+            : Puente.invocar("generarExpresionProfunda", operandos, 42L);
+        parsear = Puente.invocar("parsear", parser);
+    }
+
+    @Benchmark
+    public int parsear() {
+        return parsear.applyAsInt(expresion);
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+
+/**
+ * Invoca por reflexión los métodos estáticos de PuenteBenchmarks, que vive
+ * en el paquete por defecto y no puede importarse desde aquí. Sólo se usa
+ * en los {@code @Setup}, nunca dentro de un método medido.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+final class Puente {
+
+    private static final String CLASE = "PuenteBenchmarks";
+
+    private Puente() {}
+
+    /**
+     * @param metodo nombre del método estático
+     * @param argumentos argumentos; se busca el único método con ese nombre
+     *                   y esa cantidad de parámetros
+     * @return el valor devuelto, con el tipo que espera quien llama
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T invocar(String metodo, Object... argumentos) throws ReflectiveOperationException {
+        for (Method m : Class.forName(CLASE).getMethods()) {
+            if (m.getName().equals(metodo) && m.getParameterCount() == argumentos.length) {
+                return (T) m.invoke(null, argumentos);
+            }
+        }
+        throw new NoSuchMethodException(CLASE + "." + metodo + "/" + argumentos.length);
+    }
+}
@@ -0,0 +1,206 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché acotada de expresiones compiladas con política LRU segmentada.
+ *
+ * <p>Las entradas nuevas entran al segmento de prueba; un segundo acierto
+ * las promueve al segmento protegido. Cuando el protegido se llena, su
+ * entrada menos reciente regresa al de prueba, y los desalojos siempre
+ * salen del de prueba primero. Así una ráfaga de expresiones únicas no
+ * desplaza a las fórmulas que se repiten.</p>
+ *
+ * <p>La caché está acotada tanto por número de entradas como por memoria
+ * estimada. Thread-safe mediante un único monitor; la compilación en caso
+ * de fallo ocurre fuera del monitor.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class CacheExpresiones {
+
+    private static final int PORCENTAJE_PROTEGIDO = 80;
+
+    private final int maxEntradas;
+    private final long maxBytes;
+    private final int maxProtegido;
+    private final MetricasCompilacion metricas;
+
+    private final LinkedHashMap<String, Entrada> prueba;
+    private final LinkedHashMap<String, Entrada> protegido;
+    private long bytesUsados;
+
+    /**
+     * @param maxEntradas número máximo de expresiones almacenadas
+     * @param maxBytes memoria estimada máxima que pueden ocupar las entradas
+     * @param metricas colector donde se registran aciertos, fallos y desalojos
+     */
+    public CacheExpresiones(int maxEntradas, long maxBytes, MetricasCompilacion metricas) {
+        this.maxEntradas = Math.max(1, maxEntradas);
+        this.maxBytes = maxBytes;
+        this.maxProtegido = this.maxEntradas * PORCENTAJE_PROTEGIDO / 100;
+        this.metricas = metricas;
+        this.prueba = new LinkedHashMap<>(16, 0.75f, true);
+        this.protegido = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Obtiene la forma compilada de una expresión, compilándola con el
+     * compilador dado si no está en la caché. No lanza excepciones: un
+     * error de compilación se devuelve como diagnóstico.
+     *
+     * @param lenguaje lenguaje de la solicitud
+     * @param expresion texto de la expresión
+     * @param compilador compilador a usar en caso de fallo
+     * @return la expresión compilada, o el diagnóstico si no compila; los
+     *         errores no se guardan
+     */
+    public ResultadoCompilacion analizar(String lenguaje, String expresion,
+                                         CompiladorExpresiones compilador) {
+        String clave = lenguaje + '\u0000' + normalizar(expresion);
+
+        TrazaPeticion traza = TrazaPeticion.actual();
+        ExpresionCompilada encontrada = buscar(clave);
+        if (encontrada != null) {
+            metricas.registrarAciertoCache();
+            traza.setAciertoCache(true);
+            return ResultadoCompilacion.compilada(encontrada);
+        }
+
+        metricas.registrarFalloCache();
+        traza.setAciertoCache(false);
+        ResultadoCompilacion resultado = compilador.analizar(expresion);
+        if (!resultado.esExitoso()) {
+            return resultado;
+        }
+        long lexicoNs = compilador.getNanosLexico();
+        long parseoNs = compilador.getNanosParseo();
+        long optimizacionNs = compilador.getNanosOptimizacion();
+        metricas.registrarFase(FaseCompilacion.LEXICO, lexicoNs);
+        metricas.registrarFase(FaseCompilacion.PARSEO, parseoNs);
+        metricas.registrarFase(FaseCompilacion.OPTIMIZACION, optimizacionNs);
+        // Las tres fases son consecutivas y la optimización acaba de terminar.
+        long finNs = System.nanoTime();
+        traza.fase(FaseCompilacion.OPTIMIZACION, finNs, optimizacionNs);
+        traza.fase(FaseCompilacion.PARSEO, finNs - optimizacionNs, parseoNs);
+        traza.fase(FaseCompilacion.LEXICO, finNs - optimizacionNs - parseoNs, lexicoNs);
+        guardar(clave, resultado.getExpresion());
+        return resultado;
+    }
+
+    /**
+     * @return número de entradas almacenadas actualmente
+     */
+    public synchronized int tamano() {
+        return prueba.size() + protegido.size();
+    }
+
+    /**
+     * @return memoria estimada ocupada por las entradas, en bytes
+     */
+    public synchronized long getBytesUsados() {
+        return bytesUsados;
+    }
+
+    private synchronized ExpresionCompilada buscar(String clave) {
+        Entrada entrada = protegido.get(clave);
+        if (entrada != null) {
+            return entrada.compilada;
+        }
+
+        entrada = prueba.remove(clave);
+        if (entrada == null) {
+            return null;
+        }
+
+        protegido.put(clave, entrada);
+        if (protegido.size() > maxProtegido) {
+            Iterator<Map.Entry<String, Entrada>> it = protegido.entrySet().iterator();
+            Map.Entry<String, Entrada> masAntigua = it.next();
+            it.remove();
+            prueba.put(masAntigua.getKey(), masAntigua.getValue());
+        }
+        return entrada.compilada;
+    }
+
+    private synchronized void guardar(String clave, ExpresionCompilada compilada) {
+        if (prueba.containsKey(clave) || protegido.containsKey(clave)) {
+            return;
+        }
+
+        Entrada entrada = new Entrada(compilada, estimarBytes(clave, compilada));
+        if (entrada.bytes > maxBytes) {
+            return;
+        }
+
+        prueba.put(clave, entrada);
+        bytesUsados += entrada.bytes;
+
+        while (prueba.size() + protegido.size() > maxEntradas || bytesUsados > maxBytes) {
+            LinkedHashMap<String, Entrada> segmento = prueba.isEmpty() ? protegido : prueba;
+            Iterator<Entrada> it = segmento.values().iterator();
+            bytesUsados -= it.next().bytes;
+            it.remove();
+            metricas.registrarDesalojoCache();
+        }
+    }
+
+    /**
+     * Normaliza el texto de la expresión para usarlo como clave: elimina
+     * espacios, excepto uno entre dos caracteres de número contiguos para
+     * que "1 2" (inválida) no se confunda con "12".
+     *
+     * @param expresion texto original
+     * @return texto normalizado
+     */
+    static String normalizar(String expresion) {
+        StringBuilder sb = null;
+        char anterior = 0;
+        boolean espacioPendiente = false;
+
+        for (int i = 0; i < expresion.length(); i++) {
+            char c = expresion.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (sb == null) {
+                    sb = new StringBuilder(expresion.length());
+                    sb.append(expresion, 0, i);
+                }
+                espacioPendiente = true;
+                continue;
+            }
+            if (sb != null) {
+                if (espacioPendiente && esParteDeNumero(anterior) && esParteDeNumero(c)) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+            }
+            espacioPendiente = false;
+            anterior = c;
+        }
+        return sb == null ? expresion : sb.toString();
+    }
+
+    private static boolean esParteDeNumero(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_';
+    }
+
+    private static long estimarBytes(String clave, ExpresionCompilada compilada) {
+        return 96 + 2L * (clave.length() + compilada.getExpresion().length())
+            + 32L * compilada.getRaiz().contarNodos();
+    }
+
+    /**
+     * Entrada de la caché con su tamaño estimado.
+     */
+    private static final class Entrada {
+        final ExpresionCompilada compilada;
+        final long bytes;
+
+        Entrada(ExpresionCompilada compilada, long bytes) {
+            this.compilada = compilada;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,735 @@
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Codificación JSON especializada para {@link SolicitudCompilacion} y
+ * {@link RespuestaCompilacion}, sin reflexión ni cadenas intermedias.
+ *
+ * <p>La solicitud se analiza directamente sobre los bytes del cuerpo, y la
+ * respuesta se escribe en un buffer de bytes reutilizable por hilo (con
+ * {@link ModoEjecucion#VIRTUAL} cada petición estrena el suyo). Ambas
+ * producen exactamente lo mismo que Gson con la configuración por defecto
+ * del servicio, incluido el escape de caracteres HTML. Todo lo que no
+ * cubre el camino rápido se delega en Gson: si {@link #leerSolicitud}
+ * devuelve null o {@link #escribirRespuesta} devuelve false, quien llama
+ * usa Gson.</p>
+ *
+ * <p>Las columnas de {@link SolicitudEvaluacion} y {@link RespuestaEvaluacion}
+ * no tienen equivalente con Gson: se leen con su {@link JsonReader} directo
+ * a {@code double[]}, sin pasar por Double, y se escriben aquí.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class CodecJson {
+
+    /** Capacidad inicial de los buffers por hilo. */
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    /** Un buffer que creció más allá de esto se descarta al reiniciarlo. */
+    private static final int RETENCION_MAXIMA = 64 * 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS =
+        ThreadLocal.withInitial(() -> new Buffer(CAPACIDAD_INICIAL));
+
+    private static final byte[] CLAVE_EXPRESION = "expresion".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLAVE_LENGUAJE = "lenguaje".getBytes(StandardCharsets.US_ASCII);
+
+    /** U+2028 y U+2029, que Gson escapa por ser saltos de línea en JavaScript. */
+    private static final char SEPARADOR_LINEA = (char) 0x2028;
+    private static final char SEPARADOR_PARRAFO = (char) 0x2029;
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /** Potencias de diez exactas como double y como long. */
+    private static final double[] POTENCIAS_DIEZ = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+    private static final long[] POTENCIAS_DIEZ_ENTERAS = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+        1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+        10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L
+    };
+
+    /** Mayor mantisa del camino rápido de doubles: 15 dígitos significativos. */
+    private static final long MAX_MANTISA = 1_000_000_000_000_000L;
+
+    private CodecJson() {}
+
+    /**
+     * @return el buffer de este hilo, vacío
+     */
+    public static Buffer buffer() {
+        Buffer buffer = BUFFERS.get();
+        if (buffer.datos.length > RETENCION_MAXIMA) {
+            buffer = new Buffer(CAPACIDAD_INICIAL);
+            BUFFERS.set(buffer);
+        }
+        buffer.tamano = 0;
+        return buffer;
+    }
+
+    // ---------------------------------------------------------------------
+    // Lectura
+    // ---------------------------------------------------------------------
+
+    /**
+     * Analiza una solicitud de la forma
+     * {@code {"expresion": "...", "lenguaje": "..."}}.
+     *
+     * <p>Acepta JSON estricto con esas dos claves en cualquier orden, cada
+     * una con una cadena o null. Cualquier otra cosa (claves desconocidas,
+     * otros tipos, JSON no estricto o mal formado) devuelve null para que
+     * quien llama delegue en Gson, que decide si es válida.</p>
+     *
+     * @param datos bytes UTF-8 del cuerpo
+     * @param longitud cantidad de bytes válidos
+     * @return la solicitud, o null si debe usarse Gson
+     */
+    public static SolicitudCompilacion leerSolicitud(byte[] datos, int longitud) {
+        Lector lector = new Lector(datos, longitud);
+        try {
+            return lector.solicitud();
+        } catch (NoSoportado e) {
+            return null;
+        }
+    }
+
+    /**
+     * Analiza una solicitud de la forma
+     * {@code {"expresion": "...", "lenguaje": "...", "variables": {"x": [1, 2], ...}}}.
+     * Las claves desconocidas se ignoran.
+     *
+     * <p>Los límites se revisan mientras se lee, así que un cuerpo que los
+     * excede se deja de leer sin reservar sus columnas completas.</p>
+     *
+     * @param entrada cuerpo de la petición
+     * @param filasMaximas valores máximos por columna
+     * @param variablesMaximas columnas máximas
+     * @param valoresMaximos valores máximos sumando todas las columnas
+     * @return la solicitud, o null si el cuerpo es vacío o el literal null
+     * @throws IOException si falla la lectura
+     * @throws JsonSyntaxException si el cuerpo no es JSON válido, no tiene la
+     *                             forma esperada o excede alguno de los
+     *                             límites; ver {@link #esLimiteExcedido}
+     */
+    public static SolicitudEvaluacion leerSolicitudEvaluacion(Reader entrada, int filasMaximas,
+                                                              int variablesMaximas, int valoresMaximos)
+            throws IOException {
+        JsonReader lector = new JsonReader(entrada);
+        try {
+            JsonToken primero;
+            try {
+                primero = lector.peek();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (primero == JsonToken.NULL) {
+                return null;
+            }
+            SolicitudEvaluacion solicitud = new SolicitudEvaluacion();
+            lector.beginObject();
+            while (lector.hasNext()) {
+                String clave = lector.nextName();
+                if (lector.peek() == JsonToken.NULL) {
+                    lector.nextNull();
+                    continue;
+                }
+                switch (clave) {
+                    case "expresion":
+                        solicitud.setExpresion(lector.nextString());
+                        break;
+                    case "lenguaje":
+                        solicitud.setLenguaje(lector.nextString());
+                        break;
+                    case "variables":
+                        int valoresLeidos = 0;
+                        lector.beginObject();
+                        while (lector.hasNext()) {
+                            String nombre = lector.nextName();
+                            if (solicitud.getVariables().size() == variablesMaximas
+                                    && !solicitud.getVariables().containsKey(nombre)) {
+                                throw limiteExcedido("Más de " + variablesMaximas + " variables");
+                            }
+                            double[] columna = leerColumna(
+                                lector, nombre, filasMaximas, valoresLeidos, valoresMaximos);
+                            valoresLeidos += columna.length;
+                            double[] anterior = solicitud.getVariables().put(nombre, columna);
+                            if (anterior != null) {
+                                valoresLeidos -= anterior.length;
+                            }
+                        }
+                        lector.endObject();
+                        break;
+                    default:
+                        lector.skipValue();
+                }
+            }
+            lector.endObject();
+            if (lector.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("Contenido después del objeto");
+            }
+            return solicitud;
+        } catch (MalformedJsonException | EOFException
+                 | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Lee una columna de hasta {@code filasMaximas} valores sin que el total
+     * pase de {@code valoresMaximos}; el arreglo crece al doble, sin pasar
+     * de lo que aún cabe.
+     */
+    private static double[] leerColumna(JsonReader lector, String nombre, int filasMaximas,
+                                        int valoresLeidos, int valoresMaximos) throws IOException {
+        int maximo = Math.min(filasMaximas, valoresMaximos - valoresLeidos);
+        double[] valores = new double[Math.min(16, maximo)];
+        int cantidad = 0;
+        lector.beginArray();
+        while (lector.hasNext()) {
+            if (cantidad == maximo) {
+                throw limiteExcedido(maximo == filasMaximas
+                    ? "La columna " + nombre + " tiene más de " + filasMaximas + " filas"
+                    : "Las columnas tienen más de " + valoresMaximos + " valores en total");
+            }
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, (int) Math.min(maximo, cantidad * 2L));
+            }
+            valores[cantidad++] = lector.nextDouble();
+        }
+        lector.endArray();
+        return cantidad == valores.length ? valores : Arrays.copyOf(valores, cantidad);
+    }
+
+    /**
+     * Analizador de un solo uso sobre un arreglo de bytes.
+     */
+    private static final class Lector {
+        private final byte[] datos;
+        private final int fin;
+        private int pos;
+
+        Lector(byte[] datos, int fin) {
+            this.datos = datos;
+            this.fin = fin;
+        }
+
+        SolicitudCompilacion solicitud() {
+            SolicitudCompilacion solicitud = new SolicitudCompilacion();
+            espacios();
+            esperar('{');
+            espacios();
+            if (!consumir('}')) {
+                do {
+                    espacios();
+                    esperar('"');
+                    int inicioClave = pos;
+                    int finClave = finDeClave();
+                    espacios();
+                    esperar(':');
+                    espacios();
+                    String valor = valorCadena();
+                    if (igual(inicioClave, finClave, CLAVE_EXPRESION)) {
+                        solicitud.setExpresion(valor);
+                    } else if (igual(inicioClave, finClave, CLAVE_LENGUAJE)) {
+                        solicitud.setLenguaje(valor);
+                    } else {
+                        throw NoSoportado.INSTANCIA;
+                    }
+                    espacios();
+                } while (consumir(','));
+                esperar('}');
+            }
+            espacios();
+            if (pos != fin) {
+                throw NoSoportado.INSTANCIA;
+            }
+            return solicitud;
+        }
+
+        /** Avanza hasta la comilla de cierre de una clave sin escapes. */
+        private int finDeClave() {
+            int inicio = pos;
+            while (pos < fin) {
+                byte b = datos[pos];
+                if (b == '"') {
+                    pos++;
+                    return pos - 1;
+                }
+                if (b == '\\' || (b & 0xFF) < 0x20) {
+                    throw NoSoportado.INSTANCIA;
+                }
+                pos++;
+            }
+            pos = inicio;
+            throw NoSoportado.INSTANCIA;
+        }
+
+        /** Lee una cadena JSON o null. */
+        private String valorCadena() {
+            if (pos + 4 <= fin && datos[pos] == 'n' && datos[pos + 1] == 'u'
+                    && datos[pos + 2] == 'l' && datos[pos + 3] == 'l') {
+                pos += 4;
+                return null;
+            }
+            esperar('"');
+            int inicio = pos;
+            while (pos < fin) {
+                byte b = datos[pos];
+                if (b == '"') {
+                    pos++;
+                    return new String(datos, inicio, pos - 1 - inicio, StandardCharsets.UTF_8);
+                }
+                if (b == '\\') {
+                    return cadenaConEscapes(inicio);
+                }
+                if ((b & 0xFF) < 0x20) {
+                    throw NoSoportado.INSTANCIA;
+                }
+                pos++;
+            }
+            throw NoSoportado.INSTANCIA;
+        }
+
+        /** Camino lento de una cadena que contiene escapes. */
+        private String cadenaConEscapes(int inicio) {
+            StringBuilder sb = new StringBuilder(pos - inicio + 16);
+            int segmento = inicio;
+            while (pos < fin) {
+                byte b = datos[pos];
+                if (b == '"') {
+                    sb.append(new String(datos, segmento, pos - segmento, StandardCharsets.UTF_8));
+                    pos++;
+                    return sb.toString();
+                }
+                if ((b & 0xFF) < 0x20) {
+                    throw NoSoportado.INSTANCIA;
+                }
+                if (b != '\\') {
+                    pos++;
+                    continue;
+                }
+                sb.append(new String(datos, segmento, pos - segmento, StandardCharsets.UTF_8));
+                if (pos + 1 >= fin) {
+                    throw NoSoportado.INSTANCIA;
+                }
+                byte escape = datos[pos + 1];
+                pos += 2;
+                switch (escape) {
+                    case '"': sb.append('"'); break;
+                    case '\\': sb.append('\\'); break;
+                    case '/': sb.append('/'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u': sb.append(unicode()); break;
+                    default: throw NoSoportado.INSTANCIA;
+                }
+                segmento = pos;
+            }
+            throw NoSoportado.INSTANCIA;
+        }
+
+        private char unicode() {
+            if (pos + 4 > fin) {
+                throw NoSoportado.INSTANCIA;
+            }
+            int valor = 0;
+            for (int i = 0; i < 4; i++) {
+                int digito = Character.digit(datos[pos++], 16);
+                if (digito < 0) {
+                    throw NoSoportado.INSTANCIA;
+                }
+                valor = (valor << 4) | digito;
+            }
+            return (char) valor;
+        }
+
+        private boolean igual(int inicio, int finClave, byte[] clave) {
+            return Arrays.equals(datos, inicio, finClave, clave, 0, clave.length);
+        }
+
+        private void espacios() {
+            while (pos < fin) {
+                byte b = datos[pos];
+                if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private boolean consumir(char c) {
+            if (pos < fin && datos[pos] == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void esperar(char c) {
+            if (!consumir(c)) {
+                throw NoSoportado.INSTANCIA;
+            }
+        }
+    }
+
+    /**
+     * @param e excepción de {@link #leerSolicitudEvaluacion}
+     * @return true si el cuerpo es JSON válido hasta donde se leyó pero
+     *         excede alguno de los límites
+     */
+    public static boolean esLimiteExcedido(JsonSyntaxException e) {
+        return e.getCause() == LimiteExcedido.INSTANCIA;
+    }
+
+    private static JsonSyntaxException limiteExcedido(String mensaje) {
+        return new JsonSyntaxException(mensaje, LimiteExcedido.INSTANCIA);
+    }
+
+    /**
+     * Causa de la {@link JsonSyntaxException} de un cuerpo por columnas que
+     * excede las filas, variables o valores máximos. Es una sola instancia
+     * sin stack trace, como {@link NoSoportado}.
+     */
+    private static final class LimiteExcedido extends RuntimeException {
+        static final LimiteExcedido INSTANCIA = new LimiteExcedido();
+
+        private LimiteExcedido() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Señala que la entrada debe delegarse en Gson. Es una sola instancia
+     * sin stack trace, así que lanzarla no reserva memoria.
+     */
+    private static final class NoSoportado extends RuntimeException {
+        static final NoSoportado INSTANCIA = new NoSoportado();
+
+        private NoSoportado() {
+            super(null, null, false, false);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Escritura
+    // ---------------------------------------------------------------------
+
+    /**
+     * Escribe una respuesta con los campos en el mismo orden que Gson y sin
+     * los nulos.
+     *
+     * @param respuesta respuesta a codificar
+     * @param destino buffer donde se agrega el JSON
+     * @return false si el resultado no es finito; Gson decide qué hacer
+     *         con esos valores y el buffer debe descartarse
+     */
+    public static boolean escribirRespuesta(RespuestaCompilacion respuesta, Buffer destino) {
+        Double resultado = respuesta.getResultado();
+        if (resultado != null && !Double.isFinite(resultado)) {
+            return false;
+        }
+
+        destino.ascii("{\"exitoso\":").ascii(respuesta.isExitoso() ? "true" : "false");
+        if (resultado != null) {
+            destino.ascii(",\"resultado\":");
+            escribirDouble(resultado, destino);
+        }
+        if (respuesta.getMensaje() != null) {
+            destino.ascii(",\"mensaje\":");
+            escribirCadena(respuesta.getMensaje(), destino);
+        }
+        if (respuesta.getCodigoError() != null) {
+            destino.ascii(",\"codigoError\":");
+            escribirCadena(respuesta.getCodigoError(), destino);
+        }
+        if (respuesta.getPosicionError() != null) {
+            destino.ascii(",\"posicionError\":").entero(respuesta.getPosicionError());
+        }
+        if (respuesta.getEsperado() != null) {
+            destino.ascii(",\"esperado\":");
+            escribirCadena(respuesta.getEsperado(), destino);
+        }
+        destino.ascii(",\"tokensGenerados\":").entero(respuesta.getTokensGenerados());
+        if (respuesta.getNodosEliminados() != null) {
+            destino.ascii(",\"nodosEliminados\":").entero(respuesta.getNodosEliminados());
+        }
+        destino.ascii(",\"tiempoMs\":").entero(respuesta.getTiempoMs());
+        destino.agregar('}');
+        return true;
+    }
+
+    /**
+     * Escribe una respuesta de evaluación por columnas. Los resultados no
+     * finitos, que JSON no puede representar, se escriben como null.
+     *
+     * @param respuesta respuesta a codificar
+     * @param destino buffer donde se agrega el JSON
+     */
+    public static void escribirRespuestaEvaluacion(RespuestaEvaluacion respuesta, Buffer destino) {
+        destino.ascii("{\"exitoso\":").ascii(respuesta.isExitoso() ? "true" : "false");
+        double[] resultados = respuesta.getResultados();
+        if (resultados != null) {
+            destino.ascii(",\"resultados\":[");
+            for (int i = 0; i < resultados.length; i++) {
+                if (i > 0) {
+                    destino.agregar(',');
+                }
+                if (Double.isFinite(resultados[i])) {
+                    escribirDouble(resultados[i], destino);
+                } else {
+                    destino.ascii("null");
+                }
+            }
+            destino.agregar(']');
+        }
+        int[] filasConError = respuesta.getFilasConError();
+        if (filasConError != null) {
+            destino.ascii(",\"filasConError\":[");
+            for (int i = 0; i < filasConError.length; i++) {
+                if (i > 0) {
+                    destino.agregar(',');
+                }
+                destino.entero(filasConError[i]);
+            }
+            destino.agregar(']');
+        }
+        if (respuesta.getMensaje() != null) {
+            destino.ascii(",\"mensaje\":");
+            escribirCadena(respuesta.getMensaje(), destino);
+        }
+        destino.ascii(",\"tokensGenerados\":").entero(respuesta.getTokensGenerados());
+        if (respuesta.getNodosEliminados() != null) {
+            destino.ascii(",\"nodosEliminados\":").entero(respuesta.getNodosEliminados());
+        }
+        destino.ascii(",\"tiempoMs\":").entero(respuesta.getTiempoMs());
+        destino.agregar('}');
+    }
+
+    /**
+     * Escribe un double finito igual que {@link Double#toString(double)}.
+     *
+     * <p>Entre 10^-3 y 10^7, donde Java usa notación decimal, se busca la
+     * menor cantidad de decimales k tal que m / 10^k sea exactamente el
+     * valor, con m de a lo sumo 15 dígitos. Como m y 10^k son exactos, la
+     * división está correctamente redondeada y "m·10^-k" es la
+     * representación más corta. El resto de los valores usa Double.toString.</p>
+     *
+     * @param valor valor finito
+     * @param destino buffer donde se agrega
+     */
+    static void escribirDouble(double valor, Buffer destino) {
+        double absoluto = Math.abs(valor);
+        if (absoluto >= 1e-3 && absoluto < 1e7) {
+            for (int k = 0; k < POTENCIAS_DIEZ.length; k++) {
+                double escalado = absoluto * POTENCIAS_DIEZ[k];
+                if (escalado >= MAX_MANTISA) {
+                    break;
+                }
+                long mantisa = Math.round(escalado);
+                if (mantisa / POTENCIAS_DIEZ[k] == absoluto) {
+                    if (valor < 0) {
+                        destino.agregar('-');
+                    }
+                    destino.entero(mantisa / POTENCIAS_DIEZ_ENTERAS[k]).agregar('.');
+                    if (k == 0) {
+                        destino.agregar('0');
+                    } else {
+                        destino.decimales(mantisa % POTENCIAS_DIEZ_ENTERAS[k], k);
+                    }
+                    return;
+                }
+            }
+        }
+        destino.ascii(Double.toString(valor));
+    }
+
+    /**
+     * Escribe una cadena JSON con los mismos escapes que Gson: comillas,
+     * barra invertida, caracteres de control, U+2028, U+2029 y los
+     * caracteres HTML {@code < > & = '}.
+     *
+     * @param texto cadena a escribir
+     * @param destino buffer donde se agrega
+     */
+    static void escribirCadena(String texto, Buffer destino) {
+        destino.agregar('"');
+        int longitud = texto.length();
+        for (int i = 0; i < longitud; i++) {
+            char c = texto.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"': destino.ascii("\\\""); break;
+                    case '\\': destino.ascii("\\\\"); break;
+                    case '\t': destino.ascii("\\t"); break;
+                    case '\b': destino.ascii("\\b"); break;
+                    case '\n': destino.ascii("\\n"); break;
+                    case '\r': destino.ascii("\\r"); break;
+                    case '\f': destino.ascii("\\f"); break;
+                    case '<': case '>': case '&': case '=': case '\'':
+                        escribirUnicode(c, destino);
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            escribirUnicode(c, destino);
+                        } else {
+                            destino.agregar(c);
+                        }
+                }
+            } else if (c == SEPARADOR_LINEA || c == SEPARADOR_PARRAFO) {
+                escribirUnicode(c, destino);
+            } else if (c < 0x800) {
+                destino.agregar(0xC0 | (c >> 6)).agregar(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < longitud
+                    && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, texto.charAt(++i));
+                destino.agregar(0xF0 | (cp >> 18)).agregar(0x80 | ((cp >> 12) & 0x3F))
+                    .agregar(0x80 | ((cp >> 6) & 0x3F)).agregar(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                destino.agregar('?');
+            } else {
+                destino.agregar(0xE0 | (c >> 12)).agregar(0x80 | ((c >> 6) & 0x3F))
+                    .agregar(0x80 | (c & 0x3F));
+            }
+        }
+        destino.agregar('"');
+    }
+
+    private static void escribirUnicode(char c, Buffer destino) {
+        destino.ascii("\\u")
+            .agregar(HEX[(c >> 12) & 0xF]).agregar(HEX[(c >> 8) & 0xF])
+            .agregar(HEX[(c >> 4) & 0xF]).agregar(HEX[c & 0xF]);
+    }
+
+    /**
+     * Arreglo de bytes que crece según se necesita. Se obtiene con
+     * {@link CodecJson#buffer()} y pertenece al hilo que lo pidió hasta su
+     * siguiente llamada; quien necesita conservar uno más grande que la
+     * retención máxima, como {@link ExpositorOpenMetrics}, crea el suyo.
+     */
+    public static final class Buffer {
+        private byte[] datos;
+        private int tamano;
+
+        Buffer(int capacidad) {
+            this.datos = new byte[capacidad];
+        }
+
+        /**
+         * Vacía el buffer conservando su capacidad.
+         */
+        void reiniciar() {
+            tamano = 0;
+        }
+
+        /**
+         * Lee el resto de un stream al final del buffer.
+         *
+         * @param entrada stream a leer
+         * @return este buffer
+         * @throws IOException si falla la lectura
+         */
+        public Buffer leerDe(InputStream entrada) throws IOException {
+            int leidos;
+            while (true) {
+                asegurar(1);
+                leidos = entrada.read(datos, tamano, datos.length - tamano);
+                if (leidos < 0) {
+                    return this;
+                }
+                tamano += leidos;
+            }
+        }
+
+        /**
+         * @param salida stream donde se escriben los bytes del buffer
+         * @throws IOException si falla la escritura
+         */
+        public void escribirEn(OutputStream salida) throws IOException {
+            salida.write(datos, 0, tamano);
+        }
+
+        /**
+         * @return arreglo subyacente; sólo los primeros {@link #getTamano()} bytes son válidos
+         */
+        public byte[] getDatos() {
+            return datos;
+        }
+
+        /**
+         * @return cantidad de bytes escritos
+         */
+        public int getTamano() {
+            return tamano;
+        }
+
+        /**
+         * @return el contenido decodificado como UTF-8
+         */
+        public String comoTexto() {
+            return new String(datos, 0, tamano, StandardCharsets.UTF_8);
+        }
+
+        Buffer agregar(int b) {
+            asegurar(1);
+            datos[tamano++] = (byte) b;
+            return this;
+        }
+
+        Buffer ascii(String texto) {
+            int longitud = texto.length();
+            asegurar(longitud);
+            for (int i = 0; i < longitud; i++) {
+                datos[tamano++] = (byte) texto.charAt(i);
+            }
+            return this;
+        }
+
+        Buffer entero(long valor) {
+            if (valor == Long.MIN_VALUE) {
+                return ascii(Long.toString(valor));
+            }
+            if (valor < 0) {
+                agregar('-');
+                valor = -valor;
+            }
+            int digitos = 1;
+            for (long v = valor; v >= 10; v /= 10) {
+                digitos++;
+            }
+            return decimales(valor, digitos);
+        }
+
+        /** Escribe exactamente {@code digitos} dígitos, con ceros a la izquierda. */
+        Buffer decimales(long valor, int digitos) {
+            asegurar(digitos);
+            for (int i = tamano + digitos - 1; i >= tamano; i--) {
+                datos[i] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            }
+            tamano += digitos;
+            return this;
+        }
+
+        private void asegurar(int adicionales) {
+            if (tamano + adicionales > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, tamano + adicionales));
+            }
+        }
+    }
+}
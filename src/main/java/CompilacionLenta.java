@@ -0,0 +1,152 @@
+/**
+ * DTO con una de las compilaciones más lentas de una grabación de
+ * Flight Recorder, tomada de su {@link EventoCompilacion}.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class CompilacionLenta {
+
+    private String expresion;
+    private int longitudExpresion;
+    private int tokens;
+    private int profundidad;
+    private boolean exitosa;
+    private String cache;
+    private double duracionMs;
+    private String faseMasLenta;
+    private double faseMasLentaMs;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public CompilacionLenta() {}
+
+    /**
+     * @return primeros caracteres de la expresión
+     */
+    public String getExpresion() {
+        return expresion;
+    }
+
+    /**
+     * @param expresion establece la expresión
+     */
+    public void setExpresion(String expresion) {
+        this.expresion = expresion;
+    }
+
+    /**
+     * @return longitud completa de la expresión
+     */
+    public int getLongitudExpresion() {
+        return longitudExpresion;
+    }
+
+    /**
+     * @param longitudExpresion establece la longitud de la expresión
+     */
+    public void setLongitudExpresion(int longitudExpresion) {
+        this.longitudExpresion = longitudExpresion;
+    }
+
+    /**
+     * @return tokens de la expresión compilada
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @param tokens establece los tokens
+     */
+    public void setTokens(int tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @return altura del AST optimizado
+     */
+    public int getProfundidad() {
+        return profundidad;
+    }
+
+    /**
+     * @param profundidad establece la altura del AST
+     */
+    public void setProfundidad(int profundidad) {
+        this.profundidad = profundidad;
+    }
+
+    /**
+     * @return true si la compilación fue exitosa
+     */
+    public boolean isExitosa() {
+        return exitosa;
+    }
+
+    /**
+     * @param exitosa establece si la compilación fue exitosa
+     */
+    public void setExitosa(boolean exitosa) {
+        this.exitosa = exitosa;
+    }
+
+    /**
+     * @return acierto, fallo o sin_consulta
+     */
+    public String getCache() {
+        return cache;
+    }
+
+    /**
+     * @param cache establece el resultado de la consulta a la caché
+     */
+    public void setCache(String cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return duración de la petición en milisegundos
+     */
+    public double getDuracionMs() {
+        return duracionMs;
+    }
+
+    /**
+     * @param duracionMs establece la duración de la petición
+     */
+    public void setDuracionMs(double duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    /**
+     * @return nombre de la fase que más tardó
+     */
+    public String getFaseMasLenta() {
+        return faseMasLenta;
+    }
+
+    /**
+     * @param faseMasLenta establece la fase que más tardó
+     */
+    public void setFaseMasLenta(String faseMasLenta) {
+        this.faseMasLenta = faseMasLenta;
+    }
+
+    /**
+     * @return duración de la fase que más tardó en milisegundos
+     */
+    public double getFaseMasLentaMs() {
+        return faseMasLentaMs;
+    }
+
+    /**
+     * @param faseMasLentaMs establece la duración de la fase que más tardó
+     */
+    public void setFaseMasLentaMs(double faseMasLentaMs) {
+        this.faseMasLentaMs = faseMasLentaMs;
+    }
+}
@@ -1,224 +1,785 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * 
+ *
  * <p>Este compilador implementa un analizador léxico y sintáctico para evaluar
- * expresiones aritméticas con los operadores básicos (+, -, *, /) y paréntesis.</p>
- * 
+ * expresiones aritméticas con los operadores básicos (+, -, *, /), paréntesis
+ * y variables.</p>
+ *
  * <p>Gramática soportada:</p>
  * <pre>
  *   Expr   ::= Term (('+' | '-') Term)*
  *   Term   ::= Factor (('*' | '/') Factor)*
- *   Factor ::= Numero | '(' Expr ')'
+ *   Factor ::= Numero | Identificador | '(' Expr ')'
  * </pre>
- * 
+ *
+ * <p>Un identificador empieza con letra o guion bajo y sigue con letras,
+ * dígitos o guiones bajos. Cada identificador distinto es una variable de
+ * la expresión compilada; sus valores se dan al evaluarla con
+ * {@link ExpresionCompilada#evaluar(double...)} o
+ * {@link ExpresionCompilada#evaluarColumnas}.</p>
+ *
+ * <p>El parser construye un AST ({@link Nodo}); la división por cero se
+ * detecta al evaluarlo. {@link #compilarExpresion(String)} además lo
+ * optimiza con {@link OptimizadorExpresiones}, ya que su resultado se
+ * evalúa muchas veces.</p>
+ *
+ * <p>Por defecto el parser es iterativo ({@link ModoParseo#ITERATIVO}): usa
+ * pilas explícitas en lugar de recursión, así que el anidamiento no puede
+ * desbordar la pila del hilo. Rechaza las expresiones con más tokens o con
+ * más paréntesis anidados que los límites configurados. Una cadena sin
+ * paréntesis como {@code 1+1+...+1} no cuenta como anidamiento aunque su
+ * AST tenga un nivel por término: {@link Nodo} y el optimizador recorren
+ * los árboles altos sin recursión. El parser recursivo original se
+ * conserva como {@link ModoParseo#RECURSIVO} y produce el mismo árbol y los
+ * mismos errores dentro de esos límites.</p>
+ *
+ * <p>El análisis léxico escribe el tipo, las posiciones y el valor numérico
+ * de cada token en arreglos primitivos que se reutilizan entre llamadas, de
+ * modo que una instancia por hilo compila sin crear objetos {@link Token}.
+ * Éstos se construyen sólo si se llama a {@link #getTokens()}. Una instancia
+ * no es thread-safe.</p>
+ *
  */
 public class CompiladorExpresiones {
-    
+
+    /**
+     * Implementación del análisis sintáctico.
+     */
+    public enum ModoParseo {
+        /** Descenso recursivo: una llamada por nivel de paréntesis. */
+        RECURSIVO,
+        /** Precedencia de operadores con pilas explícitas. */
+        ITERATIVO
+    }
+
+    /**
+     * Paréntesis anidados máximos por defecto. El parser recursivo usa tres
+     * llamadas por paréntesis; con la pila por defecto de un hilo caben
+     * varias veces este anidamiento.
+     */
+    public static final int PROFUNDIDAD_MAXIMA_DEFECTO = 4096;
+
+    /** Tokens máximos por expresión por defecto, incluido el de fin. */
+    public static final int TOKENS_MAXIMOS_DEFECTO = 100_000;
+
+    private static final int NUMERO = 0;
+    private static final int NUMERO_INVALIDO = 1;
+    private static final int SUMA = 2;
+    private static final int RESTA = 3;
+    private static final int MULTIPLICACION = 4;
+    private static final int DIVISION = 5;
+    private static final int PARENTESIS_ABRE = 6;
+    private static final int PARENTESIS_CIERRA = 7;
+    private static final int FIN = 8;
+    private static final int IDENTIFICADOR = 9;
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    /** Lo que se espera donde falta un factor, para los diagnósticos. */
+    private static final String FACTOR = "número, variable o '('";
+
+    private static final int PROFUNDIDAD_MAXIMA = ServicioCompilador.configuracionEntera(
+        "CAAS_PARSEO_PROFUNDIDAD_MAXIMA", PROFUNDIDAD_MAXIMA_DEFECTO);
+    private static final int TOKENS_MAXIMOS = ServicioCompilador.configuracionEntera(
+        "CAAS_PARSEO_TOKENS_MAXIMOS", TOKENS_MAXIMOS_DEFECTO);
+
+    /** Mayor mantisa que se representa exactamente como double (2^53). */
+    private static final long MAX_MANTISA_EXACTA = 1L << 53;
+
+    /** Potencias de diez exactamente representables como double. */
+    private static final double[] POTENCIAS_DIEZ = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
     private String entrada;
     private int posicionActual;
-    private List<Token> tokens;
     private int indiceParseo;
 
+    private int[] tipos = new int[CAPACIDAD_INICIAL];
+    private int[] inicios = new int[CAPACIDAD_INICIAL];
+    private int[] fines = new int[CAPACIDAD_INICIAL];
+    private double[] valores = new double[CAPACIDAD_INICIAL];
+    private int cantidadTokens;
+    private List<Token> tokens;
+    private final Map<String, Integer> variables = new LinkedHashMap<>();
+
+    private final ModoParseo modo;
+    private final int profundidadMaxima;
+    private final int tokensMaximos;
+
+    private Nodo[] pilaOperandos = new Nodo[CAPACIDAD_INICIAL];
+    private int[] pilaOperadores = new int[CAPACIDAD_INICIAL];
+    private int cimaOperandos;
+    private int cimaOperadores;
+
+    private long nanosLexico;
+    private long nanosParseo;
+    private long nanosOptimizacion;
+
+    /** Error de la compilación en curso; null mientras no haya. */
+    private DiagnosticoCompilacion diagnostico;
+
+    /**
+     * Crea un compilador con el parser iterativo y los límites de las
+     * variables de entorno CAAS_PARSEO_PROFUNDIDAD_MAXIMA y
+     * CAAS_PARSEO_TOKENS_MAXIMOS.
+     */
+    public CompiladorExpresiones() {
+        this(ModoParseo.ITERATIVO, PROFUNDIDAD_MAXIMA, TOKENS_MAXIMOS);
+    }
+
+    /**
+     * @param modo implementación del parser
+     * @param profundidadMaxima paréntesis anidados máximos; el parser
+     *                          recursivo no la revisa
+     * @param tokensMaximos tokens máximos por expresión, incluido el de fin
+     */
+    public CompiladorExpresiones(ModoParseo modo, int profundidadMaxima, int tokensMaximos) {
+        this.modo = modo;
+        this.profundidadMaxima = profundidadMaxima;
+        this.tokensMaximos = tokensMaximos;
+    }
+
      /**
      * Compila y evalúa una expresión aritmética.
-     * 
+     *
      * @param expresion la cadena que contiene la expresión aritmética a evaluar
      * @return el resultado numérico de evaluar la expresión
      * @throws Exception si la expresión es inválida, está mal formada
-     *                   
+     *
      */
     public double compilar(String expresion) throws Exception {
+        return compilarExpresion(expresion, false).evaluar();
+    }
+
+    /**
+     * Compila y evalúa una expresión como {@link #compilar(String)}, pero
+     * devuelve los errores como diagnóstico en lugar de lanzarlos.
+     *
+     * @param expresion la cadena que contiene la expresión aritmética a evaluar
+     * @return el valor de la expresión, o el diagnóstico del primer error
+     */
+    public ResultadoCompilacion intentarCompilar(String expresion) {
+        ResultadoCompilacion resultado = analizar(expresion, false);
+        return resultado.esExitoso() ? resultado.getExpresion().intentarEvaluar() : resultado;
+    }
+
+    /**
+     * Compila una expresión a su AST optimizado sin evaluarla, como
+     * {@link #compilarExpresion(String)}, sin lanzar excepciones.
+     *
+     * @param expresion la cadena que contiene la expresión aritmética
+     * @return la expresión compilada, o el diagnóstico del error
+     */
+    public ResultadoCompilacion analizar(String expresion) {
+        return analizar(expresion, true);
+    }
+
+    /**
+     * Compila una expresión aritmética a su AST optimizado sin evaluarla.
+     *
+     * <p>La forma compilada es inmutable y puede evaluarse repetidamente
+     * con {@link ExpresionCompilada#evaluar()} sin repetir el análisis.</p>
+     *
+     * @param expresion la cadena que contiene la expresión aritmética
+     * @return la expresión compilada
+     * @throws Exception si la expresión es léxica o sintácticamente inválida
+     */
+    public ExpresionCompilada compilarExpresion(String expresion) throws Exception {
+        return compilarExpresion(expresion, true);
+    }
+
+    /**
+     * Compila una expresión, optimizando el AST sólo si se pide. Evaluar
+     * una sola vez el árbol sin optimizar cuesta lo mismo que plegarlo.
+     *
+     * @param expresion la cadena que contiene la expresión aritmética
+     * @param optimizar si se aplica {@link OptimizadorExpresiones}
+     * @return la expresión compilada
+     * @throws Exception si la expresión es léxica o sintácticamente inválida
+     */
+    ExpresionCompilada compilarExpresion(String expresion, boolean optimizar) throws Exception {
+        ResultadoCompilacion resultado = analizar(expresion, optimizar);
+        if (!resultado.esExitoso()) {
+            throw new Exception(resultado.getDiagnostico().getMensaje());
+        }
+        return resultado.getExpresion();
+    }
+
+    /**
+     * Compila una expresión, optimizando el AST sólo si se pide. Los
+     * errores se registran en {@link #diagnostico} conforme se detectan y
+     * ninguna fase lanza excepciones.
+     *
+     * @param expresion la cadena que contiene la expresión aritmética
+     * @param optimizar si se aplica {@link OptimizadorExpresiones}
+     * @return la expresión compilada, o el diagnóstico del error
+     */
+    ResultadoCompilacion analizar(String expresion, boolean optimizar) {
         this.entrada = expresion;
         this.posicionActual = 0;
-        this.tokens = new ArrayList<>();
+        this.cantidadTokens = 0;
+        this.tokens = null;
         this.indiceParseo = 0;
-        
-        analizarLexico();
-        double resultado = parsearExpresion();
-        
-        if (indiceParseo < tokens.size() - 1) {
-            throw new Exception("Expresión mal formada: tokens sobrantes");
-        }
-        
-        return resultado;
+        this.variables.clear();
+        this.diagnostico = null;
+
+        long inicioNs = System.nanoTime();
+        if (!analizarLexico()) {
+            return ResultadoCompilacion.fallida(null, diagnostico);
+        }
+        long finLexicoNs = System.nanoTime();
+        Nodo raiz = modo == ModoParseo.ITERATIVO ? parsearIterativo() : parsearExpresion();
+        if (raiz == null) {
+            return ResultadoCompilacion.fallida(null, diagnostico);
+        }
+
+        if (indiceParseo < cantidadTokens - 1) {
+            return ResultadoCompilacion.fallida(null, new DiagnosticoCompilacion(
+                DiagnosticoCompilacion.Codigo.TOKENS_SOBRANTES, inicios[indiceParseo],
+                "fin de la expresión", "Expresión mal formada: tokens sobrantes"));
+        }
+        long finParseoNs = System.nanoTime();
+        this.nanosLexico = finLexicoNs - inicioNs;
+        this.nanosParseo = finParseoNs - finLexicoNs;
+        this.nanosOptimizacion = 0;
+
+        String[] nombres = variables.keySet().toArray(new String[0]);
+        if (!optimizar) {
+            return ResultadoCompilacion.compilada(
+                new ExpresionCompilada(expresion, raiz, cantidadTokens, 0, nombres));
+        }
+        Nodo optimizada = OptimizadorExpresiones.optimizar(raiz);
+        int eliminados = optimizada == raiz ? 0 : raiz.contarNodos() - optimizada.contarNodos();
+        this.nanosOptimizacion = System.nanoTime() - finParseoNs;
+        return ResultadoCompilacion.compilada(
+            new ExpresionCompilada(expresion, optimizada, cantidadTokens, eliminados, nombres));
+    }
+
+    /**
+     * Ejecuta sólo el análisis léxico de una expresión, sin parsearla.
+     * Permite medir esta fase por separado.
+     *
+     * @param expresion la cadena a analizar
+     * @return cantidad de tokens generados, incluido el de fin
+     * @throws Exception si se encuentra un carácter no reconocido o hay
+     *                   demasiados tokens
+     */
+    int tokenizar(String expresion) throws Exception {
+        this.entrada = expresion;
+        this.posicionActual = 0;
+        this.cantidadTokens = 0;
+        this.tokens = null;
+        if (!analizarLexico()) {
+            throw new Exception(diagnostico.getMensaje());
+        }
+        return cantidadTokens;
     }
 
       /**
      * Realiza el análisis léxico de la expresión de entrada.
-     * 
+     *
      * Este método recorre la cadena de entrada carácter por carácter,
-     * identificando y clasificando los tokens: números, operadores, paréntesis.
-     * @throws Exception si se encuentra un carácter no reconocido en la entrada
+     * identificando y clasificando los tokens: números, identificadores,
+     * operadores y paréntesis.
+     * Los números se convierten a double aquí mismo, sin crear subcadenas.
+     * @return false si se encontró un carácter no reconocido en la entrada
+     *         o la expresión excede el límite de tokens
      */
-    private void analizarLexico() throws Exception {
+    private boolean analizarLexico() {
         while (posicionActual < entrada.length()) {
             char c = entrada.charAt(posicionActual);
-            
+
             if (Character.isWhitespace(c)) {
                 posicionActual++;
                 continue;
             }
-            
+
             if (Character.isDigit(c) || c == '.') {
-                StringBuilder numero = new StringBuilder();
+                if (!analizarNumero()) {
+                    return false;
+                }
+                continue;
+            }
+
+            if (Character.isLetter(c) || c == '_') {
                 int inicio = posicionActual;
-                
-                while (posicionActual < entrada.length() && 
-                       (Character.isDigit(entrada.charAt(posicionActual)) || 
-                        entrada.charAt(posicionActual) == '.')) {
-                    numero.append(entrada.charAt(posicionActual));
+                do {
                     posicionActual++;
+                } while (posicionActual < entrada.length()
+                    && (Character.isLetterOrDigit(entrada.charAt(posicionActual))
+                        || entrada.charAt(posicionActual) == '_'));
+                if (!agregarToken(IDENTIFICADOR, inicio, posicionActual, 0)) {
+                    return false;
                 }
-                
-                tokens.add(new Token(Token.Tipo.NUMERO, numero.toString(), inicio));
                 continue;
             }
-            
-            if (c == '+' || c == '-' || c == '*' || c == '/') {
-                tokens.add(new Token(Token.Tipo.OPERADOR, String.valueOf(c), posicionActual));
-                posicionActual++;
-                continue;
+
+            int tipo;
+            switch (c) {
+                case '+': tipo = SUMA; break;
+                case '-': tipo = RESTA; break;
+                case '*': tipo = MULTIPLICACION; break;
+                case '/': tipo = DIVISION; break;
+                case '(': tipo = PARENTESIS_ABRE; break;
+                case ')': tipo = PARENTESIS_CIERRA; break;
+                default:
+                    fallar(DiagnosticoCompilacion.Codigo.CARACTER_NO_RECONOCIDO, posicionActual, null,
+                        "Carácter no reconocido en posición " + posicionActual + ": " + c);
+                    return false;
             }
-            
-            if (c == '(' || c == ')') {
-                tokens.add(new Token(Token.Tipo.PARENTESIS, String.valueOf(c), posicionActual));
-                posicionActual++;
-                continue;
+            if (!agregarToken(tipo, posicionActual, posicionActual + 1, 0)) {
+                return false;
             }
-            
-            throw new Exception("Carácter no reconocido en posición " + posicionActual + ": " + c);
+            posicionActual++;
         }
-        
-        tokens.add(new Token(Token.Tipo.FIN, "", posicionActual));
+
+        return agregarToken(FIN, posicionActual, posicionActual, 0);
     }
 
     /**
-     * Parsea y evalúa una expresión aritmética completa.
-     * 
-     * <p>Implementa la regla gramatical: Expr ::= Term (('+' | '-') Term)*</p>
-     * @return el resultado numérico de evaluar la expresión
-     * @throws Exception si la expresión está mal formada o incompleta
-     * 
-     */
-    private double parsearExpresion() throws Exception {
-        double resultado = parsearTermino();
-        
-        while (indiceParseo < tokens.size()) {
-            Token token = tokens.get(indiceParseo);
-            
-            if (token.getTipo() != Token.Tipo.OPERADOR) {
+     * Reconoce un número a partir de la posición actual y calcula su valor.
+     *
+     * <p>Cuando la mantisa cabe en 53 bits y hay a lo sumo 22 decimales, el
+     * cociente mantisa / 10^decimales es exacto y coincide con
+     * {@link Double#parseDouble(String)}; en otro caso se delega en éste.
+     * Un número con más de un punto, sin dígitos o con dígitos no ASCII
+     * (que parseDouble rechaza) se marca como inválido y el error se
+     * reporta al parsearlo, igual que antes.</p>
+     *
+     * @return false si la expresión excede el límite de tokens
+     */
+    private boolean analizarNumero() {
+        int inicio = posicionActual;
+        long mantisa = 0;
+        int digitos = 0;
+        int decimales = 0;
+        int puntos = 0;
+        boolean rapido = true;
+        boolean soloAscii = true;
+
+        while (posicionActual < entrada.length()) {
+            char c = entrada.charAt(posicionActual);
+            if (c == '.') {
+                puntos++;
+            } else if (c >= '0' && c <= '9') {
+                digitos++;
+                if (puntos > 0) {
+                    decimales++;
+                }
+                mantisa = mantisa * 10 + (c - '0');
+                if (mantisa >= MAX_MANTISA_EXACTA) {
+                    rapido = false;
+                }
+            } else if (Character.isDigit(c)) {
+                soloAscii = false;
+            } else {
                 break;
             }
-            
-            String op = token.getValor();
-            if (!op.equals("+") && !op.equals("-")) {
+            posicionActual++;
+        }
+
+        if (puntos > 1 || digitos == 0 || !soloAscii) {
+            return agregarToken(NUMERO_INVALIDO, inicio, posicionActual, 0);
+        }
+
+        if (rapido && decimales < POTENCIAS_DIEZ.length) {
+            return agregarToken(NUMERO, inicio, posicionActual, mantisa / POTENCIAS_DIEZ[decimales]);
+        }
+
+        // Sólo dígitos ASCII y a lo sumo un punto: parseDouble no puede fallar.
+        return agregarToken(NUMERO, inicio, posicionActual,
+            Double.parseDouble(entrada.substring(inicio, posicionActual)));
+    }
+
+    /**
+     * Agrega un token a los arreglos, duplicando su capacidad si es necesario.
+     *
+     * @return false si la expresión excede el límite de tokens
+     */
+    private boolean agregarToken(int tipo, int inicio, int fin, double valor) {
+        if (cantidadTokens >= tokensMaximos) {
+            fallar(DiagnosticoCompilacion.Codigo.EXPRESION_DEMASIADO_LARGA, inicio, null,
+                "Expresión demasiado larga: más de " + tokensMaximos + " tokens");
+            return false;
+        }
+        if (cantidadTokens == tipos.length) {
+            int capacidad = tipos.length * 2;
+            tipos = Arrays.copyOf(tipos, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            fines = Arrays.copyOf(fines, capacidad);
+            valores = Arrays.copyOf(valores, capacidad);
+        }
+        tipos[cantidadTokens] = tipo;
+        inicios[cantidadTokens] = inicio;
+        fines[cantidadTokens] = fin;
+        valores[cantidadTokens] = valor;
+        cantidadTokens++;
+        return true;
+    }
+
+    /**
+     * Parsea una expresión aritmética completa.
+     *
+     * <p>Implementa la regla gramatical: Expr ::= Term (('+' | '-') Term)*</p>
+     * @return el nodo raíz de la expresión, o null si está mal formada o
+     *         incompleta; el error queda en {@link #diagnostico}
+     *
+     */
+    private Nodo parsearExpresion() {
+        Nodo resultado = parsearTermino();
+        if (resultado == null) {
+            return null;
+        }
+
+        while (indiceParseo < cantidadTokens) {
+            int tipo = tipos[indiceParseo];
+            if (tipo != SUMA && tipo != RESTA) {
                 break;
             }
-            
+
             indiceParseo++;
-            double derecha = parsearTermino();
-            
-            if (op.equals("+")) {
-                resultado += derecha;
-            } else {
-                resultado -= derecha;
+            Nodo derecha = parsearTermino();
+            if (derecha == null) {
+                return null;
             }
+            resultado = new Nodo.Binario(tipo == SUMA ? '+' : '-', resultado, derecha);
         }
-        
+
         return resultado;
     }
 
     /**
-     * Parsea y evalúa un término aritmético.
-     * 
+     * Parsea un término aritmético.
+     *
      * <p>Implementa la regla gramatical: Term ::= Factor (('*' | '/') Factor)*</p>
-     * 
-     * @return el resultado numérico de evaluar el término
-     * @throws Exception si el término está mal formado, incompleto, 
-     *                   o si se intenta realizar una división por cero
-     */
-    private double parsearTermino() throws Exception {
-        double resultado = parsearFactor();
-        
-        while (indiceParseo < tokens.size()) {
-            Token token = tokens.get(indiceParseo);
-            
-            if (token.getTipo() != Token.Tipo.OPERADOR) {
-                break;
-            }
-            
-            String op = token.getValor();
-            if (!op.equals("*") && !op.equals("/")) {
+     *
+     * @return el nodo raíz del término, o null si está mal formado o incompleto
+     */
+    private Nodo parsearTermino() {
+        Nodo resultado = parsearFactor();
+        if (resultado == null) {
+            return null;
+        }
+
+        while (indiceParseo < cantidadTokens) {
+            int tipo = tipos[indiceParseo];
+            if (tipo != MULTIPLICACION && tipo != DIVISION) {
                 break;
             }
-            
+
             indiceParseo++;
-            double derecha = parsearFactor();
-            
-            if (op.equals("*")) {
-                resultado *= derecha;
-            } else {
-                if (derecha == 0) {
-                    throw new Exception("División por cero");
-                }
-                resultado /= derecha;
+            Nodo derecha = parsearFactor();
+            if (derecha == null) {
+                return null;
             }
+            resultado = new Nodo.Binario(tipo == MULTIPLICACION ? '*' : '/', resultado, derecha);
         }
-        
+
         return resultado;
     }
 
     /**
-     * Parsea y evalúa un factor aritmético.
-     * 
-     * Implementa la regla gramatical: Factor ::= Numero | '(' Expr ')'
-     * 
-     * @return el resultado numérico de evaluar el factor
-     * @throws Exception si el factor está mal formado, si se encuentra un token inesperado,
-     *                   si hay paréntesis sin cerrar, o si el número no es válido
+     * Parsea un factor aritmético.
+     *
+     * Implementa la regla gramatical: Factor ::= Numero | Identificador | '(' Expr ')'
+     *
+     * @return el nodo del factor, o null si el factor está mal formado, si se
+     *         encuentra un token inesperado, si hay paréntesis sin cerrar, o si
+     *         el número no es válido
      *
      */
-    private double parsearFactor() throws Exception {
-        if (indiceParseo >= tokens.size()) {
-            throw new Exception("Expresión incompleta");
+    private Nodo parsearFactor() {
+        if (indiceParseo >= cantidadTokens) {
+            return expresionIncompleta();
         }
-        
-        Token token = tokens.get(indiceParseo);
-        
-        if (token.getTipo() == Token.Tipo.NUMERO) {
+
+        if (tipos[indiceParseo] == PARENTESIS_ABRE) {
             indiceParseo++;
-            try {
-                return Double.parseDouble(token.getValor());
-            } catch (NumberFormatException e) {
-                throw new Exception("Número mal formado: " + token.getValor());
+            Nodo resultado = parsearExpresion();
+            if (resultado == null) {
+                return null;
             }
-        }
-        
-        if (token.getTipo() == Token.Tipo.PARENTESIS && token.getValor().equals("(")) {
-            indiceParseo++;
-            double resultado = parsearExpresion();
-            
-            if (indiceParseo >= tokens.size() || 
-                !tokens.get(indiceParseo).getValor().equals(")")) {
-                throw new Exception("Paréntesis sin cerrar");
+
+            if (indiceParseo >= cantidadTokens || tipos[indiceParseo] != PARENTESIS_CIERRA) {
+                return parentesisSinCerrar();
             }
-            
+
             indiceParseo++;
             return resultado;
         }
-        
-        throw new Exception("Factor esperado en posición " + token.getPosicion());
+
+        return parsearHoja();
+    }
+
+    /**
+     * Parsea un factor que no es un paréntesis: Numero | Identificador.
+     * Los identificadores reciben índices de variable en orden de primera
+     * aparición.
+     *
+     * @return el nodo hoja, o null si el número no es válido o el token no
+     *         es un factor
+     */
+    private Nodo parsearHoja() {
+        int tipo = tipos[indiceParseo];
+
+        if (tipo == NUMERO) {
+            return new Nodo.Numero(valores[indiceParseo++]);
+        }
+
+        if (tipo == IDENTIFICADOR) {
+            String nombre = textoToken(indiceParseo++);
+            Integer indice = variables.putIfAbsent(nombre, variables.size());
+            return new Nodo.Variable(nombre, indice != null ? indice : variables.size() - 1);
+        }
+
+        if (tipo == NUMERO_INVALIDO) {
+            return fallar(DiagnosticoCompilacion.Codigo.NUMERO_MAL_FORMADO, inicios[indiceParseo],
+                "número", "Número mal formado: " + textoToken(indiceParseo));
+        }
+
+        return fallar(DiagnosticoCompilacion.Codigo.FACTOR_ESPERADO, inicios[indiceParseo],
+            FACTOR, "Factor esperado en posición " + inicios[indiceParseo]);
+    }
+
+    /**
+     * Parsea la expresión completa sin recursión, con una pila de operandos
+     * y otra de operadores y paréntesis abiertos.
+     *
+     * <p>Reconoce la misma gramática que {@link #parsearExpresion()} y
+     * construye el mismo árbol: un operador reduce antes de apilarse a los
+     * de igual o mayor precedencia (asociatividad izquierda), y un token
+     * que no continúa la expresión reduce todo hasta el paréntesis abierto
+     * más cercano. Los errores se detectan en el mismo token y con el
+     * mismo diagnóstico que en el parser recursivo.</p>
+     *
+     * @return el nodo raíz de la expresión, o null si está mal formada o
+     *         excede el anidamiento máximo de paréntesis
+     */
+    private Nodo parsearIterativo() {
+        cimaOperandos = 0;
+        cimaOperadores = 0;
+        Nodo raiz = parsearConPilas();
+        // Tras un error quedan nodos en la pila; no deben retenerse.
+        Arrays.fill(pilaOperandos, 0, cimaOperandos, null);
+        return raiz;
+    }
+
+    private Nodo parsearConPilas() {
+        int anidamiento = 0;
+
+        while (true) {
+            // Factor: paréntesis que abren y después una hoja.
+            while (indiceParseo < cantidadTokens && tipos[indiceParseo] == PARENTESIS_ABRE) {
+                if (++anidamiento > profundidadMaxima) {
+                    return demasiadoProfunda();
+                }
+                apilarOperador(PARENTESIS_ABRE);
+                indiceParseo++;
+            }
+            if (indiceParseo >= cantidadTokens) {
+                return expresionIncompleta();
+            }
+            Nodo hoja = parsearHoja();
+            if (hoja == null) {
+                return null;
+            }
+            apilarOperando(hoja);
+
+            // Después de un factor: un operador o el cierre de paréntesis.
+            while (true) {
+                int tipo = indiceParseo < cantidadTokens ? tipos[indiceParseo] : FIN;
+                if (tipo == MULTIPLICACION || tipo == DIVISION) {
+                    reducirMientras(MULTIPLICACION);
+                    apilarOperador(tipo);
+                    indiceParseo++;
+                    break;
+                }
+                if (tipo == SUMA || tipo == RESTA) {
+                    reducirMientras(SUMA);
+                    apilarOperador(tipo);
+                    indiceParseo++;
+                    break;
+                }
+
+                reducirMientras(SUMA);
+                if (cimaOperadores == 0) {
+                    Nodo raiz = pilaOperandos[0];
+                    pilaOperandos[0] = null;
+                    cimaOperandos = 0;
+                    return raiz;
+                }
+                if (tipo != PARENTESIS_CIERRA) {
+                    return parentesisSinCerrar();
+                }
+                cimaOperadores--;
+                anidamiento--;
+                indiceParseo++;
+            }
+        }
+    }
+
+    /**
+     * Reduce los operadores de la cima mientras su precedencia sea al
+     * menos la indicada. SUMA y RESTA valen 0; MULTIPLICACION y DIVISION, 1;
+     * un paréntesis abierto detiene la reducción.
+     *
+     * @param minimo SUMA para reducir todos los operadores, MULTIPLICACION
+     *               para sólo los multiplicativos
+     */
+    private void reducirMientras(int minimo) {
+        while (cimaOperadores > 0) {
+            int operador = pilaOperadores[cimaOperadores - 1];
+            if (operador == PARENTESIS_ABRE
+                    || (minimo == MULTIPLICACION && operador != MULTIPLICACION && operador != DIVISION)) {
+                return;
+            }
+            cimaOperadores--;
+            Nodo derecho = pilaOperandos[--cimaOperandos];
+            pilaOperandos[cimaOperandos] = null;
+            pilaOperandos[cimaOperandos - 1] = new Nodo.Binario(
+                simbolo(operador), pilaOperandos[cimaOperandos - 1], derecho);
+        }
+    }
+
+    private void apilarOperando(Nodo nodo) {
+        if (cimaOperandos == pilaOperandos.length) {
+            pilaOperandos = Arrays.copyOf(pilaOperandos, cimaOperandos * 2);
+        }
+        pilaOperandos[cimaOperandos++] = nodo;
+    }
+
+    private void apilarOperador(int tipo) {
+        if (cimaOperadores == pilaOperadores.length) {
+            pilaOperadores = Arrays.copyOf(pilaOperadores, cimaOperadores * 2);
+        }
+        pilaOperadores[cimaOperadores++] = tipo;
+    }
+
+    /**
+     * Registra el error de la compilación en curso.
+     *
+     * @return null, para que quien parsea lo devuelva directamente
+     */
+    private Nodo fallar(DiagnosticoCompilacion.Codigo codigo, int posicion, String esperado,
+                        String mensaje) {
+        diagnostico = new DiagnosticoCompilacion(codigo, posicion, esperado, mensaje);
+        return null;
+    }
+
+    private Nodo expresionIncompleta() {
+        return fallar(DiagnosticoCompilacion.Codigo.EXPRESION_INCOMPLETA, entrada.length(),
+            FACTOR, "Expresión incompleta");
+    }
+
+    private Nodo parentesisSinCerrar() {
+        return fallar(DiagnosticoCompilacion.Codigo.PARENTESIS_SIN_CERRAR, posicionToken(),
+            "')'", "Paréntesis sin cerrar");
+    }
+
+    private Nodo demasiadoProfunda() {
+        return fallar(DiagnosticoCompilacion.Codigo.EXPRESION_DEMASIADO_ANIDADA, posicionToken(),
+            null, "Expresión demasiado anidada: más de " + profundidadMaxima + " paréntesis anidados");
+    }
+
+    /**
+     * @return posición en la entrada del token actual del parser
+     */
+    private int posicionToken() {
+        return indiceParseo < cantidadTokens ? inicios[indiceParseo] : entrada.length();
+    }
+
+    private static char simbolo(int operador) {
+        switch (operador) {
+            case SUMA:
+                return '+';
+            case RESTA:
+                return '-';
+            case MULTIPLICACION:
+                return '*';
+            default:
+                return '/';
+        }
+    }
+
+    /**
+     * @param indice índice del token
+     * @return texto del token en la entrada
+     */
+    private String textoToken(int indice) {
+        return entrada.substring(inicios[indice], fines[indice]);
     }
 
     /**
      * Obtiene la lista de tokens generados durante el análisis léxico.
-     * 
+     * Los objetos {@link Token} se construyen en la primera llamada
+     * después de cada compilación.
+     *
      * @return lista inmutable de tokens identificados en la expresión
-     * 
+     *
      */
     public List<Token> getTokens() {
+        if (tokens == null) {
+            List<Token> lista = new ArrayList<>(cantidadTokens);
+            for (int i = 0; i < cantidadTokens; i++) {
+                lista.add(new Token(tipoPublico(tipos[i]), textoToken(i), inicios[i]));
+            }
+            tokens = lista;
+        }
         return tokens;
     }
+
+    /**
+     * @return cantidad de tokens generados por la última compilación,
+     *         sin construir la lista de {@link Token}
+     */
+    public int getCantidadTokens() {
+        return cantidadTokens;
+    }
+
+    /**
+     * @return duración en nanosegundos del análisis léxico de la última
+     *         compilación exitosa
+     */
+    public long getNanosLexico() {
+        return nanosLexico;
+    }
+
+    /**
+     * @return duración en nanosegundos del parseo de la última compilación exitosa
+     */
+    public long getNanosParseo() {
+        return nanosParseo;
+    }
+
+    /**
+     * @return duración en nanosegundos de la optimización del AST en la
+     *         última compilación exitosa; 0 si no se optimizó
+     */
+    public long getNanosOptimizacion() {
+        return nanosOptimizacion;
+    }
+
+    private static Token.Tipo tipoPublico(int tipo) {
+        switch (tipo) {
+            case NUMERO:
+            case NUMERO_INVALIDO:
+                return Token.Tipo.NUMERO;
+            case PARENTESIS_ABRE:
+            case PARENTESIS_CIERRA:
+                return Token.Tipo.PARENTESIS;
+            case FIN:
+                return Token.Tipo.FIN;
+            case IDENTIFICADOR:
+                return Token.Tipo.IDENTIFICADOR;
+            default:
+                return Token.Tipo.OPERADOR;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Cuerpo de una petición de {@link ServidorNio}: el hilo del selector
+ * agrega los bytes conforme llegan y el handler los lee bloqueándose hasta
+ * que haya datos.
+ *
+ * <p>Si se acumulan más de {@link #LIMITE} bytes sin leer, {@link #alimentar}
+ * pide pausar la lectura del socket; cuando el handler consume la mitad se
+ * ejecuta la acción de reanudar.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+final class CuerpoNio extends InputStream {
+
+    /** Bytes pendientes de leer a partir de los cuales se pausa el socket. */
+    static final int LIMITE = 256 * 1024;
+
+    private final Runnable reanudar;
+    private byte[] datos = new byte[0];
+    private int inicio;
+    private int fin;
+    private boolean terminado;
+    private boolean descartando;
+    private boolean pausado;
+    private boolean ilimitado;
+    private IOException error;
+
+    /**
+     * @param reanudar acción que reanuda la lectura del socket tras una pausa
+     */
+    CuerpoNio(Runnable reanudar) {
+        this.reanudar = reanudar;
+    }
+
+    /**
+     * Agrega bytes del buffer, avanzando su posición.
+     *
+     * @param origen buffer en modo lectura
+     * @param longitud bytes a tomar
+     * @return false si hay que pausar la lectura hasta que el handler consuma
+     */
+    synchronized boolean alimentar(ByteBuffer origen, int longitud) {
+        if (descartando || error != null) {
+            origen.position(origen.position() + longitud);
+            return true;
+        }
+        if (fin + longitud > datos.length) {
+            int pendientes = fin - inicio;
+            if (pendientes + longitud > datos.length) {
+                byte[] nuevos = new byte[Math.max(pendientes + longitud, Math.max(4096, datos.length * 2))];
+                System.arraycopy(datos, inicio, nuevos, 0, pendientes);
+                datos = nuevos;
+            } else {
+                System.arraycopy(datos, inicio, datos, 0, pendientes);
+            }
+            inicio = 0;
+            fin = pendientes;
+        }
+        origen.get(datos, fin, longitud);
+        fin += longitud;
+        notifyAll();
+        if (!ilimitado && fin - inicio >= LIMITE) {
+            pausado = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Marca el fin del cuerpo.
+     */
+    synchronized void terminar() {
+        terminado = true;
+        notifyAll();
+    }
+
+    /**
+     * Hace que las lecturas pendientes y siguientes fallen.
+     *
+     * @param causa error a lanzar
+     */
+    synchronized void fallar(IOException causa) {
+        if (!terminado && error == null) {
+            error = causa;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return true si el cuerpo falló por un encuadre inválido o porque la
+     *         conexión se cerró antes de terminarlo
+     */
+    synchronized boolean fallo() {
+        return error != null;
+    }
+
+    /**
+     * El handler ya respondió: lo que falte del cuerpo se descarta.
+     */
+    synchronized void descartar() {
+        descartando = true;
+        datos = new byte[0];
+        inicio = 0;
+        fin = 0;
+        pausado = false;
+        notifyAll();
+    }
+
+    /**
+     * Desactiva la pausa: el handler no leerá hasta tener el cuerpo completo.
+     */
+    synchronized void sinLimite() {
+        ilimitado = true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] uno = new byte[1];
+        return read(uno, 0, 1) < 0 ? -1 : uno[0] & 0xFF;
+    }
+
+    @Override
+    public synchronized int read(byte[] destino, int desde, int longitud) throws IOException {
+        if (longitud == 0) {
+            return 0;
+        }
+        while (inicio == fin) {
+            if (error != null) {
+                throw error;
+            }
+            if (terminado || descartando) {
+                return -1;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Lectura del cuerpo interrumpida");
+            }
+        }
+        int n = Math.min(longitud, fin - inicio);
+        System.arraycopy(datos, inicio, destino, desde, n);
+        inicio += n;
+        if (inicio == fin) {
+            inicio = 0;
+            fin = 0;
+        }
+        if (pausado && fin - inicio <= LIMITE / 2) {
+            pausado = false;
+            reanudar.run();
+        }
+        return n;
+    }
+
+    @Override
+    public synchronized int available() {
+        return fin - inicio;
+    }
+}
@@ -0,0 +1,156 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+
+/**
+ * Destino de los mensajes OTLP/JSON que arman {@link ExportadorSpansOtlp}
+ * y {@link ExportadorMetricasOtlp}: un archivo JSON Lines, un mensaje por
+ * línea, o un receptor OTLP/HTTP al que se envía cada mensaje con POST.
+ *
+ * <p>No es thread-safe; cada exportador lo usa desde un solo hilo.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+final class DestinoOtlp {
+
+    private final Path archivo;
+    private final URI url;
+    private final HttpClient cliente;
+    private final Duration timeout;
+    private BufferedWriter escritor;
+
+    private DestinoOtlp(Path archivo, URI url, Duration timeout) {
+        this.archivo = archivo;
+        this.url = url;
+        this.timeout = timeout;
+        this.cliente = url == null ? null : HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * @param archivo archivo JSON Lines; se crea si no existe y se agrega al final
+     * @return destino que escribe cada mensaje en el archivo
+     */
+    static DestinoOtlp archivo(Path archivo) {
+        return new DestinoOtlp(archivo, null, null);
+    }
+
+    /**
+     * @param url endpoint OTLP/HTTP
+     * @param timeout tiempo máximo para conectar y para cada envío
+     * @return destino que envía cada mensaje al receptor
+     */
+    static DestinoOtlp http(URI url, Duration timeout) {
+        return new DestinoOtlp(null, url, timeout);
+    }
+
+    /**
+     * @param cuerpo mensaje OTLP/JSON en una sola línea
+     * @return éxito si se escribió o si el receptor respondió 2xx
+     */
+    CompletableResultCode enviar(String cuerpo) {
+        try {
+            if (url != null) {
+                HttpRequest peticion = HttpRequest.newBuilder(url)
+                    .timeout(timeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo, StandardCharsets.UTF_8))
+                    .build();
+                int codigo = cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+                return codigo / 100 == 2 ? CompletableResultCode.ofSuccess() : CompletableResultCode.ofFailure();
+            }
+            if (escritor == null) {
+                escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            escritor.write(cuerpo);
+            escritor.newLine();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    CompletableResultCode flush() {
+        if (escritor == null) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            escritor.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    CompletableResultCode cerrar() {
+        if (escritor == null) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            escritor.close();
+            escritor = null;
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    /**
+     * Escribe el campo {@code attributes} como arreglo de {@code KeyValue}.
+     */
+    static void escribirAtributos(JsonWriter json, String campo, Attributes atributos) throws IOException {
+        json.name(campo).beginArray();
+        for (Map.Entry<AttributeKey<?>, Object> atributo : atributos.asMap().entrySet()) {
+            json.beginObject().name("key").value(atributo.getKey().getKey()).name("value");
+            escribirValor(json, atributo.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static void escribirValor(JsonWriter json, Object valor) throws IOException {
+        json.beginObject();
+        if (valor instanceof Boolean) {
+            json.name("boolValue").value((Boolean) valor);
+        } else if (valor instanceof Long) {
+            json.name("intValue").value(valor.toString());
+        } else if (valor instanceof Double && Double.isFinite((Double) valor)) {
+            json.name("doubleValue").value((Double) valor);
+        } else if (valor instanceof List) {
+            json.name("arrayValue").beginObject().name("values").beginArray();
+            for (Object elemento : (List<?>) valor) {
+                escribirValor(json, elemento);
+            }
+            json.endArray().endObject();
+        } else {
+            json.name("stringValue").value(String.valueOf(valor));
+        }
+        json.endObject();
+    }
+
+    @Override
+    public String toString() {
+        return url != null ? "OTLP/HTTP " + url : "OTLP/JSON " + archivo;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Descripción estructurada de por qué una expresión no compiló o no pudo
+ * evaluarse. Es inmutable y no captura stack trace, así que reportar un
+ * error cuesta lo mismo que construir cualquier otro objeto pequeño.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class DiagnosticoCompilacion {
+
+    /**
+     * Tipos de error del compilador y de la evaluación.
+     */
+    public enum Codigo {
+        CARACTER_NO_RECONOCIDO,
+        NUMERO_MAL_FORMADO,
+        FACTOR_ESPERADO,
+        PARENTESIS_SIN_CERRAR,
+        EXPRESION_INCOMPLETA,
+        TOKENS_SOBRANTES,
+        EXPRESION_DEMASIADO_LARGA,
+        EXPRESION_DEMASIADO_ANIDADA,
+        DIVISION_POR_CERO,
+        VARIABLE_SIN_VALOR
+    }
+
+    private final Codigo codigo;
+    private final int posicion;
+    private final String esperado;
+    private final String mensaje;
+
+    /**
+     * @param codigo tipo de error
+     * @param posicion posición en la expresión donde se detectó, o -1 si
+     *                 el error no corresponde a una posición
+     * @param esperado descripción de lo que se esperaba en esa posición, o null
+     * @param mensaje mensaje legible, el mismo que lleva la excepción de
+     *                {@link CompiladorExpresiones#compilar(String)}
+     */
+    public DiagnosticoCompilacion(Codigo codigo, int posicion, String esperado, String mensaje) {
+        this.codigo = codigo;
+        this.posicion = posicion;
+        this.esperado = esperado;
+        this.mensaje = mensaje;
+    }
+
+    /**
+     * @return tipo de error
+     */
+    public Codigo getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * @return posición en la expresión, o -1 si no aplica
+     */
+    public int getPosicion() {
+        return posicion;
+    }
+
+    /**
+     * @return lo que se esperaba en la posición del error, o null
+     */
+    public String getEsperado() {
+        return esperado;
+    }
+
+    /**
+     * @return mensaje legible del error
+     */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    @Override
+    public String toString() {
+        return codigo + (posicion >= 0 ? " en posición " + posicion : "") + ": " + mensaje;
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Evalúa un {@link ProgramaColumnar} sobre columnas de valores, un bloque
+ * de filas a la vez: cada instrucción recorre el bloque completo antes de
+ * pasar a la siguiente, en lugar de recorrer el árbol una vez por fila.
+ *
+ * <p>Esta clase es la implementación escalar. {@link #predeterminado()}
+ * devuelve la implementación con la Vector API
+ * ({@code EvaluadorColumnarVectorial}) si la JVM se inició con
+ * {@code --add-modules jdk.incubator.vector}, y ésta en otro caso.</p>
+ *
+ * <p>Ambas dan exactamente los mismos resultados que
+ * {@link ExpresionCompilada#evaluar(double...)} fila por fila: se aplican
+ * las mismas operaciones IEEE en el mismo orden, y una división entre cero
+ * (incluido -0.0) marca la fila como error sin detener las demás.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class EvaluadorColumnar {
+
+    /** Filas por bloque como máximo. */
+    private static final int BLOQUE_MAXIMO = 1024;
+
+    /** Doubles que pueden ocupar entre todos los temporales y constantes (256 KiB). */
+    private static final int MEMORIA_BLOQUE = 32 * 1024;
+
+    private static final EvaluadorColumnar ESCALAR = new EvaluadorColumnar();
+    private static final EvaluadorColumnar PREDETERMINADO = resolver();
+
+    /**
+     * Sólo para subclases; las instancias se obtienen con {@link #escalar()}
+     * y {@link #predeterminado()}.
+     */
+    EvaluadorColumnar() {}
+
+    /**
+     * @return el evaluador escalar
+     */
+    public static EvaluadorColumnar escalar() {
+        return ESCALAR;
+    }
+
+    /**
+     * @return el evaluador vectorial si está disponible y la variable de
+     *         entorno CAAS_EVALUADOR_COLUMNAR no es ESCALAR; si no, el escalar
+     */
+    public static EvaluadorColumnar predeterminado() {
+        return PREDETERMINADO;
+    }
+
+    /**
+     * @return por qué {@link #predeterminado()} es el evaluador escalar, para
+     *         el log de arranque, o null si es el vectorial
+     */
+    public static String motivoEscalar() {
+        if (PREDETERMINADO != ESCALAR) {
+            return null;
+        }
+        if (forzadoEscalar()) {
+            return "CAAS_EVALUADOR_COLUMNAR=ESCALAR";
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return "la JVM se inició sin --add-modules jdk.incubator.vector";
+        }
+        return "la CPU no tiene instrucciones SIMD de al menos dos carriles para double";
+    }
+
+    private static EvaluadorColumnar resolver() {
+        if (forzadoEscalar()) {
+            return ESCALAR;
+        }
+        EvaluadorColumnar vectorial = vectorial();
+        return vectorial != null ? vectorial : ESCALAR;
+    }
+
+    private static boolean forzadoEscalar() {
+        String configurado = System.getenv("CAAS_EVALUADOR_COLUMNAR");
+        return configurado != null && "ESCALAR".equals(configurado.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Carga el evaluador vectorial por reflexión, para que el resto del
+     * servicio no dependa del módulo incubador.
+     *
+     * @return el evaluador vectorial, o null si el módulo
+     *         jdk.incubator.vector no está cargado o no hay instrucciones
+     *         SIMD de al menos dos carriles
+     */
+    public static EvaluadorColumnar vectorial() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            EvaluadorColumnar evaluador = (EvaluadorColumnar) Class.forName("EvaluadorColumnarVectorial")
+                .getDeclaredConstructor().newInstance();
+            return evaluador.getCarriles() >= 2 ? evaluador : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return nombre del evaluador para logs y métricas
+     */
+    public String getNombre() {
+        return "ESCALAR";
+    }
+
+    /**
+     * @return doubles que procesa cada operación vectorial; 1 en el escalar
+     */
+    public int getCarriles() {
+        return 1;
+    }
+
+    /**
+     * Evalúa el programa una vez por fila.
+     *
+     * @param programa expresión traducida
+     * @param columnas una columna por variable, cada una con al menos
+     *                 {@code filas} valores
+     * @param filas cantidad de filas a evaluar
+     * @param errores recibe el índice de cada fila que dividió entre cero
+     * @return un resultado por fila; NaN en las filas con error
+     */
+    public final double[] evaluar(ProgramaColumnar programa, double[][] columnas, int filas,
+                                  BitSet errores) {
+        int temporales = programa.getTemporales();
+        double[] constantes = programa.getConstantes();
+        int bloque = tamanoBloque(temporales + constantes.length, filas);
+
+        double[][] fuentes = new double[temporales + constantes.length][];
+        for (int t = 0; t < temporales; t++) {
+            fuentes[t] = new double[bloque];
+        }
+        for (int c = 0; c < constantes.length; c++) {
+            fuentes[temporales + c] = new double[bloque];
+            Arrays.fill(fuentes[temporales + c], constantes[c]);
+        }
+        boolean[] errorBloque = new boolean[bloque];
+        double[] resultados = new double[filas];
+        int instrucciones = programa.getInstrucciones();
+        int raiz = programa.raiz();
+
+        for (int base = 0; base < filas; base += bloque) {
+            int n = Math.min(bloque, filas - base);
+            boolean huboError = false;
+            for (int k = 0; k < instrucciones; k++) {
+                int izquierdo = programa.izquierdo(k);
+                int derecho = programa.derecho(k);
+                huboError |= aplicar(programa.operador(k),
+                    izquierdo < 0 ? columnas[-izquierdo - 1] : fuentes[izquierdo],
+                    izquierdo < 0 ? base : 0,
+                    derecho < 0 ? columnas[-derecho - 1] : fuentes[derecho],
+                    derecho < 0 ? base : 0,
+                    fuentes[programa.destino(k)], n, errorBloque);
+            }
+            System.arraycopy(raiz < 0 ? columnas[-raiz - 1] : fuentes[raiz],
+                raiz < 0 ? base : 0, resultados, base, n);
+
+            if (huboError) {
+                for (int i = 0; i < n; i++) {
+                    if (errorBloque[i]) {
+                        resultados[base + i] = Double.NaN;
+                        errores.set(base + i);
+                        errorBloque[i] = false;
+                    }
+                }
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Los temporales y constantes de un bloque deben caber juntos en caché;
+     * con muchos se reduce el bloque, hasta 8 filas.
+     */
+    private static int tamanoBloque(int arreglos, int filas) {
+        int porMemoria = Math.max(8, (MEMORIA_BLOQUE / Math.max(1, arreglos)) & ~7);
+        int necesario = Math.max(8, (filas + 7) & ~7);
+        return Math.min(BLOQUE_MAXIMO, Math.min(porMemoria, necesario));
+    }
+
+    /**
+     * Calcula {@code destino[i] = a[ia + i] operador b[ib + i]} para
+     * {@code i} en [0, n). Una división entre cero marca {@code error[i]}.
+     *
+     * @return true si alguna fila dividió entre cero
+     */
+    boolean aplicar(char operador, double[] a, int ia, double[] b, int ib,
+                    double[] destino, int n, boolean[] error) {
+        return aplicarEscalar(operador, a, ia, b, ib, destino, 0, n, error);
+    }
+
+    /**
+     * Igual que {@link #aplicar}, pero sólo para {@code i} en [desde, n);
+     * las subclases lo usan para las filas que no llenan un vector.
+     */
+    static boolean aplicarEscalar(char operador, double[] a, int ia, double[] b, int ib,
+                                  double[] destino, int desde, int n, boolean[] error) {
+        switch (operador) {
+            case '+':
+                for (int i = desde; i < n; i++) {
+                    destino[i] = a[ia + i] + b[ib + i];
+                }
+                return false;
+            case '-':
+                for (int i = desde; i < n; i++) {
+                    destino[i] = a[ia + i] - b[ib + i];
+                }
+                return false;
+            case '*':
+                for (int i = desde; i < n; i++) {
+                    destino[i] = a[ia + i] * b[ib + i];
+                }
+                return false;
+            default:
+                boolean huboError = false;
+                for (int i = desde; i < n; i++) {
+                    double divisor = b[ib + i];
+                    if (divisor == 0) {
+                        error[i] = true;
+                        huboError = true;
+                    }
+                    destino[i] = a[ia + i] / divisor;
+                }
+                return huboError;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link EvaluadorColumnar} con la Vector API: cada operación procesa
+ * tantas filas como carriles tenga el registro SIMD más ancho de la CPU
+ * (8 doubles con AVX-512, 4 con AVX2). Las filas que no llenan un vector
+ * se procesan con el código escalar.
+ *
+ * <p>Requiere iniciar la JVM con {@code --add-modules jdk.incubator.vector};
+ * sólo se carga por reflexión desde {@link EvaluadorColumnar#vectorial()}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+final class EvaluadorColumnarVectorial extends EvaluadorColumnar {
+
+    private static final VectorSpecies<Double> ESPECIE = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public String getNombre() {
+        return "VECTORIAL";
+    }
+
+    @Override
+    public int getCarriles() {
+        return ESPECIE.length();
+    }
+
+    @Override
+    boolean aplicar(char operador, double[] a, int ia, double[] b, int ib,
+                    double[] destino, int n, boolean[] error) {
+        int limite = ESPECIE.loopBound(n);
+        int carriles = ESPECIE.length();
+        int i = 0;
+        boolean huboError = false;
+        switch (operador) {
+            case '+':
+                for (; i < limite; i += carriles) {
+                    DoubleVector.fromArray(ESPECIE, a, ia + i)
+                        .add(DoubleVector.fromArray(ESPECIE, b, ib + i))
+                        .intoArray(destino, i);
+                }
+                break;
+            case '-':
+                for (; i < limite; i += carriles) {
+                    DoubleVector.fromArray(ESPECIE, a, ia + i)
+                        .sub(DoubleVector.fromArray(ESPECIE, b, ib + i))
+                        .intoArray(destino, i);
+                }
+                break;
+            case '*':
+                for (; i < limite; i += carriles) {
+                    DoubleVector.fromArray(ESPECIE, a, ia + i)
+                        .mul(DoubleVector.fromArray(ESPECIE, b, ib + i))
+                        .intoArray(destino, i);
+                }
+                break;
+            default:
+                for (; i < limite; i += carriles) {
+                    DoubleVector divisor = DoubleVector.fromArray(ESPECIE, b, ib + i);
+                    // Igual que b == 0 en Java: true para 0.0 y -0.0, false para NaN.
+                    VectorMask<Double> cero = divisor.eq(0.0);
+                    if (cero.anyTrue()) {
+                        cero.or(VectorMask.fromArray(ESPECIE, error, i)).intoArray(error, i);
+                        huboError = true;
+                    }
+                    DoubleVector.fromArray(ESPECIE, a, ia + i).div(divisor).intoArray(destino, i);
+                }
+                break;
+        }
+        return aplicarEscalar(operador, a, ia, b, ib, destino, i, n, error) | huboError;
+    }
+}
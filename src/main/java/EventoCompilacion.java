@@ -0,0 +1,145 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de JDK Flight Recorder de una petición de compilación, con la
+ * expresión, sus tokens, la duración de cada fase, el resultado y si la
+ * expresión estaba en la caché. La duración del evento es la de la
+ * petición completa.
+ *
+ * <p>Está deshabilitado por defecto: las configuraciones {@code default}
+ * y {@code profile} del JDK no lo incluyen, y sólo lo graba quien lo
+ * habilita, como {@link GrabacionJfr}. Mientras está deshabilitado,
+ * {@link TrazaPeticion} sólo consulta {@link #estaHabilitado()} al iniciar
+ * la petición y no crea el evento.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+@Name(EventoCompilacion.NOMBRE)
+@Label("Compilación")
+@Category({"CaaS", "Compilador"})
+@Description("Petición de compilación con la duración de cada fase")
+@Enabled(false)
+@StackTrace(false)
+public final class EventoCompilacion extends jdk.jfr.Event {
+
+    /** Nombre del tipo de evento en las grabaciones. */
+    public static final String NOMBRE = "caas.Compilacion";
+
+    /** Caracteres de la expresión que se guardan en el evento. */
+    static final int MAX_EXPRESION = 256;
+
+    private static final EventType TIPO = EventType.getEventType(EventoCompilacion.class);
+
+    @Label("Operación")
+    String operacion;
+
+    @Label("Lenguaje")
+    String lenguaje;
+
+    @Label("Expresión")
+    @Description("Primeros " + MAX_EXPRESION + " caracteres de la expresión")
+    String expresion;
+
+    @Label("Longitud de la expresión")
+    int longitudExpresion;
+
+    @Label("Cuerpo")
+    @DataAmount
+    long bytesCuerpo;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Profundidad")
+    @Description("Altura del AST optimizado")
+    int profundidad;
+
+    @Label("Exitosa")
+    boolean exitosa;
+
+    @Label("Código de error")
+    String codigoError;
+
+    @Label("Caché")
+    @Description("acierto, fallo o sin_consulta")
+    String cache;
+
+    @Label("Lectura del cuerpo")
+    @Timespan
+    long lecturaCuerpo;
+
+    @Label("Decodificación JSON")
+    @Timespan
+    long decodificacionJson;
+
+    @Label("Léxico")
+    @Timespan
+    long lexico;
+
+    @Label("Parseo")
+    @Timespan
+    long parseo;
+
+    @Label("Optimización")
+    @Timespan
+    long optimizacion;
+
+    @Label("Evaluación")
+    @Timespan
+    long evaluacion;
+
+    @Label("Escritura de la respuesta")
+    @Timespan
+    long escrituraRespuesta;
+
+    /**
+     * @return true si alguna grabación en curso tiene habilitado el evento;
+     *         es una lectura de un campo, sin reservar memoria
+     */
+    public static boolean estaHabilitado() {
+        return TIPO.isEnabled();
+    }
+
+    /**
+     * Guarda la duración de una fase en su campo; las fases que no se
+     * midieron quedan en cero.
+     *
+     * @param fase fase medida
+     * @param duracionNs duración en nanosegundos
+     */
+    void setFase(FaseCompilacion fase, long duracionNs) {
+        switch (fase) {
+            case LECTURA_CUERPO:
+                lecturaCuerpo = duracionNs;
+                break;
+            case DECODIFICACION_JSON:
+                decodificacionJson = duracionNs;
+                break;
+            case LEXICO:
+                lexico = duracionNs;
+                break;
+            case PARSEO:
+                parseo = duracionNs;
+                break;
+            case OPTIMIZACION:
+                optimizacion = duracionNs;
+                break;
+            case EVALUACION:
+                evaluacion = duracionNs;
+                break;
+            default:
+                escrituraRespuesta = duracionNs;
+                break;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+
+import io.opentelemetry.exporter.logging.LoggingMetricExporter;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+/**
+ * Destinos disponibles para las métricas de OpenTelemetry.
+ *
+ * <ul>
+ *   <li><b>NINGUNO</b> - las métricas no se exportan; los instrumentos no
+ *       registran nada</li>
+ *   <li><b>LOGGING</b> - {@link LoggingMetricExporter}, una línea por
+ *       métrica en cada recolección</li>
+ *   <li><b>ARCHIVO</b> - {@link ExportadorMetricasOtlp#archivo}: OTLP/JSON,
+ *       una recolección por línea, en CAAS_METRICAS_ARCHIVO (por defecto
+ *       metricas.jsonl)</li>
+ *   <li><b>OTLP</b> - {@link ExportadorMetricasOtlp#http}: OTLP/HTTP con
+ *       JSON a CAAS_METRICAS_OTLP_URL (por defecto
+ *       http://localhost:4318/v1/metrics)</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public enum ExportadorMetricas {
+    NINGUNO,
+    LOGGING,
+    ARCHIVO,
+    OTLP;
+
+    /** Exportador usado si no se especifica otro. */
+    public static final ExportadorMetricas DEFECTO = NINGUNO;
+
+    /**
+     * Resuelve el exportador a partir de la variable de entorno
+     * CAAS_METRICAS_EXPORTADOR.
+     *
+     * @return exportador configurado, o {@link #DEFECTO} si no se reconoce
+     */
+    public static ExportadorMetricas resolver() {
+        String valor = System.getenv("CAAS_METRICAS_EXPORTADOR");
+        if (valor == null) {
+            return DEFECTO;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Exportador de métricas inválido: " + valor);
+            System.err.println("Usando exportador por defecto: " + DEFECTO);
+            return DEFECTO;
+        }
+    }
+
+    /**
+     * Crea el exportador de este destino.
+     *
+     * @param timeout tiempo máximo de cada envío, para OTLP
+     * @return exportador nuevo, o null en NINGUNO
+     */
+    public MetricExporter crear(Duration timeout) {
+        switch (this) {
+            case NINGUNO:
+                return null;
+            case ARCHIVO:
+                return ExportadorMetricasOtlp.archivo(Paths.get(
+                    configuracion("CAAS_METRICAS_ARCHIVO", "metricas.jsonl")));
+            case OTLP:
+                return ExportadorMetricasOtlp.http(URI.create(
+                    configuracion("CAAS_METRICAS_OTLP_URL", "http://localhost:4318/v1/metrics")), timeout);
+            default:
+                return LoggingMetricExporter.create();
+        }
+    }
+
+    private static String configuracion(String variable, String defecto) {
+        String valor = System.getenv(variable);
+        return valor == null || valor.isBlank() ? defecto : valor.trim();
+    }
+}
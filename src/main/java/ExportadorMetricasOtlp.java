@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.DoubleExemplarData;
+import io.opentelemetry.sdk.metrics.data.DoublePointData;
+import io.opentelemetry.sdk.metrics.data.ExemplarData;
+import io.opentelemetry.sdk.metrics.data.HistogramPointData;
+import io.opentelemetry.sdk.metrics.data.LongExemplarData;
+import io.opentelemetry.sdk.metrics.data.LongPointData;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.data.PointData;
+import io.opentelemetry.sdk.metrics.data.SumData;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Exportador de métricas en el formato JSON de OTLP
+ * ({@code ExportMetricsServiceRequest}), sin depender del exportador OTLP
+ * del SDK. Escribe a un archivo JSON Lines o envía a un receptor
+ * OTLP/HTTP, igual que {@link ExportadorSpansOtlp}.
+ *
+ * <p>Exporta contadores, gauges e histogramas de cubetas explícitas, con
+ * sus exemplars: el trace id y span id de una medición muestreada, que
+ * llevan de una cubeta lenta a la traza de la petición que cayó en ella.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ExportadorMetricasOtlp implements MetricExporter {
+
+    private final DestinoOtlp destino;
+
+    private ExportadorMetricasOtlp(DestinoOtlp destino) {
+        this.destino = destino;
+    }
+
+    /**
+     * @param archivo archivo JSON Lines; se crea si no existe y se agrega al final
+     * @return exportador que escribe cada recolección en el archivo
+     */
+    public static ExportadorMetricasOtlp archivo(Path archivo) {
+        return new ExportadorMetricasOtlp(DestinoOtlp.archivo(archivo));
+    }
+
+    /**
+     * @param url endpoint OTLP/HTTP de métricas
+     * @param timeout tiempo máximo para conectar y para cada envío
+     * @return exportador que envía cada recolección al receptor
+     */
+    public static ExportadorMetricasOtlp http(URI url, Duration timeout) {
+        return new ExportadorMetricasOtlp(DestinoOtlp.http(url, timeout));
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType tipo) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<MetricData> metricas) {
+        try {
+            return destino.enviar(codificar(metricas));
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return destino.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return destino.cerrar();
+    }
+
+    /**
+     * Codifica las métricas agrupadas por recurso y por alcance de
+     * instrumentación. Los tipos que el servicio no usa (resúmenes e
+     * histogramas exponenciales) se omiten.
+     *
+     * @param metricas métricas de una recolección
+     * @return JSON en una sola línea
+     */
+    static String codificar(Collection<MetricData> metricas) throws IOException {
+        Map<Resource, Map<InstrumentationScopeInfo, List<MetricData>>> grupos = new LinkedHashMap<>();
+        for (MetricData metrica : metricas) {
+            grupos.computeIfAbsent(metrica.getResource(), r -> new LinkedHashMap<>())
+                .computeIfAbsent(metrica.getInstrumentationScopeInfo(), s -> new ArrayList<>())
+                .add(metrica);
+        }
+
+        StringWriter texto = new StringWriter();
+        JsonWriter json = new JsonWriter(texto);
+        json.beginObject().name("resourceMetrics").beginArray();
+        for (Map.Entry<Resource, Map<InstrumentationScopeInfo, List<MetricData>>> recurso : grupos.entrySet()) {
+            json.beginObject().name("resource").beginObject();
+            DestinoOtlp.escribirAtributos(json, "attributes", recurso.getKey().getAttributes());
+            json.endObject().name("scopeMetrics").beginArray();
+            for (Map.Entry<InstrumentationScopeInfo, List<MetricData>> alcance : recurso.getValue().entrySet()) {
+                json.beginObject().name("scope").beginObject()
+                    .name("name").value(alcance.getKey().getName());
+                if (alcance.getKey().getVersion() != null) {
+                    json.name("version").value(alcance.getKey().getVersion());
+                }
+                json.endObject().name("metrics").beginArray();
+                for (MetricData metrica : alcance.getValue()) {
+                    escribirMetrica(json, metrica);
+                }
+                json.endArray().endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+        return texto.toString();
+    }
+
+    private static void escribirMetrica(JsonWriter json, MetricData metrica) throws IOException {
+        switch (metrica.getType()) {
+            case LONG_SUM:
+            case DOUBLE_SUM:
+            case LONG_GAUGE:
+            case DOUBLE_GAUGE:
+            case HISTOGRAM:
+                break;
+            default:
+                return;
+        }
+        json.beginObject()
+            .name("name").value(metrica.getName())
+            .name("description").value(metrica.getDescription())
+            .name("unit").value(metrica.getUnit());
+
+        switch (metrica.getType()) {
+            case LONG_SUM:
+                escribirSuma(json, metrica.getLongSumData());
+                break;
+            case DOUBLE_SUM:
+                escribirSuma(json, metrica.getDoubleSumData());
+                break;
+            case LONG_GAUGE:
+                json.name("gauge").beginObject();
+                escribirPuntos(json, metrica.getLongGaugeData().getPoints());
+                json.endObject();
+                break;
+            case DOUBLE_GAUGE:
+                json.name("gauge").beginObject();
+                escribirPuntos(json, metrica.getDoubleGaugeData().getPoints());
+                json.endObject();
+                break;
+            default:
+                json.name("histogram").beginObject().name("dataPoints").beginArray();
+                for (HistogramPointData punto : metrica.getHistogramData().getPoints()) {
+                    escribirHistograma(json, punto);
+                }
+                json.endArray();
+                escribirTemporalidad(json, metrica.getHistogramData().getAggregationTemporality());
+                json.endObject();
+                break;
+        }
+        json.endObject();
+    }
+
+    private static void escribirSuma(JsonWriter json, SumData<? extends PointData> suma) throws IOException {
+        json.name("sum").beginObject();
+        escribirPuntos(json, suma.getPoints());
+        escribirTemporalidad(json, suma.getAggregationTemporality());
+        json.name("isMonotonic").value(suma.isMonotonic()).endObject();
+    }
+
+    private static void escribirTemporalidad(JsonWriter json, AggregationTemporality temporalidad)
+            throws IOException {
+        // AGGREGATION_TEMPORALITY_DELTA = 1, CUMULATIVE = 2
+        json.name("aggregationTemporality")
+            .value(temporalidad == AggregationTemporality.DELTA ? 1 : 2);
+    }
+
+    private static void escribirPuntos(JsonWriter json, Collection<? extends PointData> puntos)
+            throws IOException {
+        json.name("dataPoints").beginArray();
+        for (PointData punto : puntos) {
+            json.beginObject();
+            escribirInicioPunto(json, punto);
+            if (punto instanceof LongPointData) {
+                json.name("asInt").value(Long.toString(((LongPointData) punto).getValue()));
+            } else {
+                json.name("asDouble").value(((DoublePointData) punto).getValue());
+            }
+            escribirExemplars(json, punto.getExemplars());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    private static void escribirHistograma(JsonWriter json, HistogramPointData punto) throws IOException {
+        json.beginObject();
+        escribirInicioPunto(json, punto);
+        json.name("count").value(Long.toString(punto.getCount()))
+            .name("sum").value(punto.getSum());
+        json.name("bucketCounts").beginArray();
+        for (Long cuenta : punto.getCounts()) {
+            json.value(cuenta.toString());
+        }
+        json.endArray().name("explicitBounds").beginArray();
+        for (Double limite : punto.getBoundaries()) {
+            json.value(limite);
+        }
+        json.endArray();
+        if (punto.hasMin()) {
+            json.name("min").value(punto.getMin());
+        }
+        if (punto.hasMax()) {
+            json.name("max").value(punto.getMax());
+        }
+        escribirExemplars(json, punto.getExemplars());
+        json.endObject();
+    }
+
+    private static void escribirInicioPunto(JsonWriter json, PointData punto) throws IOException {
+        DestinoOtlp.escribirAtributos(json, "attributes", punto.getAttributes());
+        json.name("startTimeUnixNano").value(Long.toString(punto.getStartEpochNanos()))
+            .name("timeUnixNano").value(Long.toString(punto.getEpochNanos()));
+    }
+
+    private static void escribirExemplars(JsonWriter json, List<? extends ExemplarData> exemplars)
+            throws IOException {
+        if (exemplars.isEmpty()) {
+            return;
+        }
+        json.name("exemplars").beginArray();
+        for (ExemplarData exemplar : exemplars) {
+            json.beginObject();
+            DestinoOtlp.escribirAtributos(json, "filteredAttributes", exemplar.getFilteredAttributes());
+            json.name("timeUnixNano").value(Long.toString(exemplar.getEpochNanos()));
+            if (exemplar instanceof LongExemplarData) {
+                json.name("asInt").value(Long.toString(((LongExemplarData) exemplar).getValue()));
+            } else {
+                json.name("asDouble").value(((DoubleExemplarData) exemplar).getValue());
+            }
+            if (exemplar.getSpanContext().isValid()) {
+                json.name("spanId").value(exemplar.getSpanContext().getSpanId())
+                    .name("traceId").value(exemplar.getSpanContext().getTraceId());
+            }
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    @Override
+    public String toString() {
+        return destino.toString();
+    }
+}
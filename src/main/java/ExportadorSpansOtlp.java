@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonWriter;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Exportador de spans en el formato JSON de OTLP ({@code ExportTraceServiceRequest}),
+ * sin depender del exportador OTLP del SDK.
+ *
+ * <ul>
+ *   <li><b>Archivo</b> - cada lote se agrega como una línea JSON, como el
+ *       exportador {@code file} del OpenTelemetry Collector</li>
+ *   <li><b>HTTP</b> - cada lote se envía con POST y {@code Content-Type:
+ *       application/json} a un receptor OTLP/HTTP, normalmente
+ *       {@code http://localhost:4318/v1/traces}</li>
+ * </ul>
+ *
+ * <p>Las llamadas a {@link #export(Collection)} son síncronas; se espera
+ * que las haga un solo hilo, el de {@link ProcesadorSpansPorLotes}. El
+ * envío lo hace {@link DestinoOtlp}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ExportadorSpansOtlp implements SpanExporter {
+
+    private final DestinoOtlp destino;
+
+    private ExportadorSpansOtlp(DestinoOtlp destino) {
+        this.destino = destino;
+    }
+
+    /**
+     * @param archivo archivo JSON Lines; se crea si no existe y se agrega al final
+     * @return exportador que escribe cada lote en el archivo
+     */
+    public static ExportadorSpansOtlp archivo(Path archivo) {
+        return new ExportadorSpansOtlp(DestinoOtlp.archivo(archivo));
+    }
+
+    /**
+     * @param url endpoint OTLP/HTTP de trazas
+     * @param timeout tiempo máximo para conectar y para cada envío
+     * @return exportador que envía cada lote al receptor
+     */
+    public static ExportadorSpansOtlp http(URI url, Duration timeout) {
+        return new ExportadorSpansOtlp(DestinoOtlp.http(url, timeout));
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            return destino.enviar(codificar(spans));
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return destino.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return destino.cerrar();
+    }
+
+    /**
+     * Codifica los spans como un {@code ExportTraceServiceRequest}, agrupados
+     * por recurso y por alcance de instrumentación. Los enteros de 64 bits
+     * van como cadenas, según el mapeo JSON de protobuf.
+     *
+     * @param spans spans a codificar
+     * @return JSON en una sola línea
+     */
+    static String codificar(Collection<SpanData> spans) throws IOException {
+        Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grupos = new LinkedHashMap<>();
+        for (SpanData span : spans) {
+            grupos.computeIfAbsent(span.getResource(), r -> new LinkedHashMap<>())
+                .computeIfAbsent(span.getInstrumentationScopeInfo(), s -> new ArrayList<>())
+                .add(span);
+        }
+
+        StringWriter texto = new StringWriter();
+        JsonWriter json = new JsonWriter(texto);
+        json.beginObject().name("resourceSpans").beginArray();
+        for (Map.Entry<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> recurso : grupos.entrySet()) {
+            json.beginObject().name("resource").beginObject();
+            DestinoOtlp.escribirAtributos(json, "attributes", recurso.getKey().getAttributes());
+            json.endObject().name("scopeSpans").beginArray();
+            for (Map.Entry<InstrumentationScopeInfo, List<SpanData>> alcance : recurso.getValue().entrySet()) {
+                json.beginObject().name("scope").beginObject()
+                    .name("name").value(alcance.getKey().getName());
+                if (alcance.getKey().getVersion() != null) {
+                    json.name("version").value(alcance.getKey().getVersion());
+                }
+                json.endObject().name("spans").beginArray();
+                for (SpanData span : alcance.getValue()) {
+                    escribirSpan(json, span);
+                }
+                json.endArray().endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+        return texto.toString();
+    }
+
+    private static void escribirSpan(JsonWriter json, SpanData span) throws IOException {
+        json.beginObject()
+            .name("traceId").value(span.getTraceId())
+            .name("spanId").value(span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.name("parentSpanId").value(span.getParentSpanId());
+        }
+        json.name("name").value(span.getName())
+            // SPAN_KIND_INTERNAL = 1, SERVER = 2, CLIENT = 3, PRODUCER = 4, CONSUMER = 5
+            .name("kind").value(span.getKind().ordinal() + 1)
+            .name("startTimeUnixNano").value(Long.toString(span.getStartEpochNanos()))
+            .name("endTimeUnixNano").value(Long.toString(span.getEndEpochNanos()));
+        DestinoOtlp.escribirAtributos(json, "attributes", span.getAttributes());
+
+        if (!span.getEvents().isEmpty()) {
+            json.name("events").beginArray();
+            for (EventData evento : span.getEvents()) {
+                json.beginObject()
+                    .name("timeUnixNano").value(Long.toString(evento.getEpochNanos()))
+                    .name("name").value(evento.getName());
+                DestinoOtlp.escribirAtributos(json, "attributes", evento.getAttributes());
+                json.endObject();
+            }
+            json.endArray();
+        }
+
+        // STATUS_CODE_UNSET = 0, OK = 1, ERROR = 2
+        json.name("status").beginObject();
+        switch (span.getStatus().getStatusCode()) {
+            case OK:
+                json.name("code").value(1);
+                break;
+            case ERROR:
+                json.name("code").value(2);
+                break;
+            default:
+                break;
+        }
+        if (!span.getStatus().getDescription().isEmpty()) {
+            json.name("message").value(span.getStatus().getDescription());
+        }
+        json.endObject().endObject();
+    }
+
+    @Override
+    public String toString() {
+        return destino.toString();
+    }
+}
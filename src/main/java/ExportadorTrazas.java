@@ -0,0 +1,80 @@
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Destinos disponibles para los spans.
+ *
+ * <ul>
+ *   <li><b>LOGGING</b> - {@link LoggingSpanExporter}, una línea por span en
+ *       la salida estándar</li>
+ *   <li><b>ARCHIVO</b> - {@link ExportadorSpansOtlp#archivo}: OTLP/JSON, un
+ *       lote por línea, en CAAS_TRAZAS_ARCHIVO (por defecto trazas.jsonl)</li>
+ *   <li><b>OTLP</b> - {@link ExportadorSpansOtlp#http}: OTLP/HTTP con JSON a
+ *       CAAS_TRAZAS_OTLP_URL (por defecto http://localhost:4318/v1/traces)</li>
+ *   <li><b>NINGUNO</b> - los spans no se exportan</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public enum ExportadorTrazas {
+    LOGGING,
+    ARCHIVO,
+    OTLP,
+    NINGUNO;
+
+    /** Exportador usado si no se especifica otro. */
+    public static final ExportadorTrazas DEFECTO = LOGGING;
+
+    /**
+     * Resuelve el exportador a partir de la variable de entorno
+     * CAAS_TRAZAS_EXPORTADOR.
+     *
+     * @return exportador configurado, o {@link #DEFECTO} si no se reconoce
+     */
+    public static ExportadorTrazas resolver() {
+        String valor = System.getenv("CAAS_TRAZAS_EXPORTADOR");
+        if (valor == null) {
+            return DEFECTO;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Exportador de trazas inválido: " + valor);
+            System.err.println("Usando exportador por defecto: " + DEFECTO);
+            return DEFECTO;
+        }
+    }
+
+    /**
+     * Crea el exportador de este destino.
+     *
+     * @param timeout tiempo máximo de cada envío, para OTLP
+     * @return exportador nuevo, o null en NINGUNO
+     */
+    public SpanExporter crear(Duration timeout) {
+        switch (this) {
+            case NINGUNO:
+                return null;
+            case ARCHIVO:
+                return ExportadorSpansOtlp.archivo(Paths.get(
+                    configuracion("CAAS_TRAZAS_ARCHIVO", "trazas.jsonl")));
+            case OTLP:
+                return ExportadorSpansOtlp.http(URI.create(
+                    configuracion("CAAS_TRAZAS_OTLP_URL", "http://localhost:4318/v1/traces")), timeout);
+            default:
+                return LoggingSpanExporter.create();
+        }
+    }
+
+    private static String configuracion(String variable, String defecto) {
+        String valor = System.getenv(variable);
+        return valor == null || valor.isBlank() ? defecto : valor.trim();
+    }
+}
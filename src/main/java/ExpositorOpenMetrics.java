@@ -0,0 +1,182 @@
+/**
+ * Escritor del formato de texto de OpenMetrics (el que lee Prometheus)
+ * sobre un buffer que se reutiliza entre exposiciones.
+ *
+ * <p>Los nombres, etiquetas y límites de cubeta son constantes y los
+ * valores se escriben como dígitos directo al buffer, así que una vez que
+ * el buffer alcanzó su tamaño, exponer las métricas no reserva memoria por
+ * serie. No es thread-safe: quien lo usa sincroniza las exposiciones.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ExpositorOpenMetrics {
+
+    /** Content-Type de la exposición. */
+    public static final String TIPO_CONTENIDO =
+        "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * Límites de las cubetas de los histogramas, de 10 µs a 10 s. Los
+     * histogramas de {@link MetricasOpenTelemetry} usan los mismos.
+     */
+    static final long[] LIMITES_NS = {
+        10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+        1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+        100_000_000L, 250_000_000L, 500_000_000L,
+        1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    /** Los mismos límites en segundos, como se escriben en la etiqueta le. */
+    private static final String[] ETIQUETAS_LE = {
+        "0.00001", "0.000025", "0.00005", "0.0001", "0.00025", "0.0005",
+        "0.001", "0.0025", "0.005", "0.01", "0.025", "0.05",
+        "0.1", "0.25", "0.5",
+        "1.0", "2.5", "5.0", "10.0"
+    };
+
+    private final CodecJson.Buffer buffer = new CodecJson.Buffer(16 * 1024);
+    private final long[] acumulados = new long[LIMITES_NS.length];
+
+    /**
+     * Vacía el buffer para una nueva exposición.
+     */
+    public void iniciar() {
+        buffer.reiniciar();
+    }
+
+    /**
+     * Escribe el terminador {@code # EOF} que exige OpenMetrics.
+     *
+     * @return el buffer con la exposición completa, válido hasta el
+     *         siguiente {@link #iniciar()}
+     */
+    public CodecJson.Buffer terminar() {
+        return buffer.ascii("# EOF\n");
+    }
+
+    /**
+     * Escribe las líneas TYPE y HELP de una familia de métricas.
+     *
+     * @param nombre nombre de la familia, sin sufijos (_total, _bucket, ...)
+     * @param tipo counter, gauge o histogram
+     * @param ayuda descripción en ASCII
+     */
+    public void familia(String nombre, String tipo, String ayuda) {
+        buffer.ascii("# TYPE ").ascii(nombre).agregar(' ').ascii(tipo).agregar('\n')
+            .ascii("# HELP ").ascii(nombre).agregar(' ').ascii(ayuda).agregar('\n');
+    }
+
+    /**
+     * Escribe una muestra sin etiquetas.
+     *
+     * @param nombre nombre de la muestra, con su sufijo
+     * @param valor valor entero
+     */
+    public void muestra(String nombre, long valor) {
+        buffer.ascii(nombre).agregar(' ').entero(valor).agregar('\n');
+    }
+
+    /**
+     * Escribe una muestra con una etiqueta.
+     *
+     * @param nombre nombre de la muestra, con su sufijo
+     * @param etiqueta nombre de la etiqueta
+     * @param valorEtiqueta valor de la etiqueta; se escapa
+     * @param valor valor entero
+     */
+    public void muestra(String nombre, String etiqueta, String valorEtiqueta, long valor) {
+        buffer.ascii(nombre);
+        etiqueta(etiqueta, valorEtiqueta);
+        buffer.agregar('}').agregar(' ').entero(valor).agregar('\n');
+    }
+
+    /**
+     * Escribe una muestra en segundos a partir de nanosegundos, con nueve
+     * decimales.
+     *
+     * @param nombre nombre de la muestra, con su sufijo
+     * @param nanos valor en nanosegundos, no negativo
+     */
+    public void segundos(String nombre, long nanos) {
+        buffer.ascii(nombre).agregar(' ');
+        escribirSegundos(nanos);
+        buffer.agregar('\n');
+    }
+
+    /**
+     * Escribe las cubetas, el conteo y, si se conoce, la suma de un
+     * histograma de latencias en segundos.
+     *
+     * @param nombre nombre de la familia
+     * @param etiqueta nombre de la etiqueta que distingue la serie, o null
+     * @param valorEtiqueta valor de la etiqueta
+     * @param histograma histograma a exponer
+     * @param sumaNs suma de las latencias en nanosegundos, o negativo si no
+     *               se lleva
+     */
+    public void histograma(String nombre, String etiqueta, String valorEtiqueta,
+                           HistogramaLatencia histograma, long sumaNs) {
+        long total = histograma.acumular(LIMITES_NS, acumulados);
+        for (int i = 0; i <= LIMITES_NS.length; i++) {
+            buffer.ascii(nombre).ascii("_bucket");
+            if (etiqueta != null) {
+                etiqueta(etiqueta, valorEtiqueta);
+                buffer.agregar(',');
+            } else {
+                buffer.agregar('{');
+            }
+            buffer.ascii("le=\"").ascii(i < LIMITES_NS.length ? ETIQUETAS_LE[i] : "+Inf")
+                .ascii("\"} ").entero(i < LIMITES_NS.length ? acumulados[i] : total).agregar('\n');
+        }
+        buffer.ascii(nombre).ascii("_count");
+        if (etiqueta != null) {
+            etiqueta(etiqueta, valorEtiqueta);
+            buffer.agregar('}');
+        }
+        buffer.agregar(' ').entero(total).agregar('\n');
+        if (sumaNs >= 0) {
+            buffer.ascii(nombre).ascii("_sum");
+            if (etiqueta != null) {
+                etiqueta(etiqueta, valorEtiqueta);
+                buffer.agregar('}');
+            }
+            buffer.agregar(' ');
+            escribirSegundos(sumaNs);
+            buffer.agregar('\n');
+        }
+    }
+
+    /** Escribe {@code {etiqueta="valor"} sin cerrar la llave. */
+    private void etiqueta(String etiqueta, String valor) {
+        buffer.agregar('{').ascii(etiqueta).ascii("=\"");
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '\\' || c == '"') {
+                buffer.agregar('\\').agregar(c);
+            } else if (c == '\n') {
+                buffer.ascii("\\n");
+            } else if (c < 0x80) {
+                buffer.agregar(c);
+            } else if (c < 0x800) {
+                buffer.agregar(0xC0 | (c >> 6)).agregar(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < valor.length()
+                    && Character.isLowSurrogate(valor.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, valor.charAt(++i));
+                buffer.agregar(0xF0 | (cp >> 18)).agregar(0x80 | ((cp >> 12) & 0x3F))
+                    .agregar(0x80 | ((cp >> 6) & 0x3F)).agregar(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.agregar('?');
+            } else {
+                buffer.agregar(0xE0 | (c >> 12)).agregar(0x80 | ((c >> 6) & 0x3F))
+                    .agregar(0x80 | (c & 0x3F));
+            }
+        }
+        buffer.agregar('"');
+    }
+
+    private void escribirSegundos(long nanos) {
+        buffer.entero(nanos / 1_000_000_000L).agregar('.').decimales(nanos % 1_000_000_000L, 9);
+    }
+}
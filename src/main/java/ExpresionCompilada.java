@@ -0,0 +1,183 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Forma compilada e inmutable de una expresión aritmética.
+ * Se obtiene una sola vez con {@link CompiladorExpresiones#compilarExpresion(String)}
+ * y después puede evaluarse cualquier número de veces sin análisis léxico
+ * ni sintáctico, con los mismos o distintos valores de sus variables.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ExpresionCompilada {
+
+    private static final String[] SIN_VARIABLES = new String[0];
+
+    private final String expresion;
+    private final Nodo raiz;
+    private final int tokens;
+    private final int nodosEliminados;
+    private final String[] variables;
+    private volatile ProgramaColumnar programa;
+
+    /**
+     * @param expresion texto original de la expresión
+     * @param raiz raíz del AST generado por el parser
+     * @param tokens cantidad de tokens producidos por el análisis léxico
+     */
+    public ExpresionCompilada(String expresion, Nodo raiz, int tokens) {
+        this(expresion, raiz, tokens, 0);
+    }
+
+    /**
+     * @param expresion texto original de la expresión
+     * @param raiz raíz del AST, posiblemente optimizado
+     * @param tokens cantidad de tokens producidos por el análisis léxico
+     * @param nodosEliminados nodos que quitó {@link OptimizadorExpresiones}
+     */
+    public ExpresionCompilada(String expresion, Nodo raiz, int tokens, int nodosEliminados) {
+        this(expresion, raiz, tokens, nodosEliminados, SIN_VARIABLES);
+    }
+
+    /**
+     * @param expresion texto original de la expresión
+     * @param raiz raíz del AST, posiblemente optimizado
+     * @param tokens cantidad de tokens producidos por el análisis léxico
+     * @param nodosEliminados nodos que quitó {@link OptimizadorExpresiones}
+     * @param variables nombres de las variables, en el orden de sus índices
+     */
+    public ExpresionCompilada(String expresion, Nodo raiz, int tokens, int nodosEliminados,
+                              String[] variables) {
+        this.expresion = expresion;
+        this.raiz = raiz;
+        this.tokens = tokens;
+        this.nodosEliminados = nodosEliminados;
+        this.variables = variables.length == 0 ? SIN_VARIABLES : variables.clone();
+    }
+
+    /**
+     * Evalúa la expresión recorriendo el AST ya construido.
+     *
+     * @return el resultado numérico de la expresión
+     * @throws Exception si ocurre una división por cero o la expresión
+     *                   tiene variables
+     */
+    public double evaluar() throws Exception {
+        return raiz.evaluar();
+    }
+
+    /**
+     * Evalúa la expresión con valores para sus variables.
+     *
+     * @param valores un valor por variable, en el orden de {@link #getVariables()}
+     * @return el resultado numérico de la expresión
+     * @throws Exception si ocurre una división por cero o faltan valores
+     */
+    public double evaluar(double... valores) throws Exception {
+        return raiz.evaluar(valores);
+    }
+
+    /**
+     * Evalúa la expresión como {@link #evaluar(double...)}, pero devuelve
+     * el error como diagnóstico en lugar de lanzarlo.
+     *
+     * @param valores un valor por variable, en el orden de {@link #getVariables()}
+     * @return resultado con el valor, o fallido con DIVISION_POR_CERO o
+     *         VARIABLE_SIN_VALOR
+     */
+    public ResultadoCompilacion intentarEvaluar(double... valores) {
+        int[] fallo = new int[1];
+        double valor = raiz.evaluar(valores, fallo);
+        if (fallo[0] == 0) {
+            return ResultadoCompilacion.evaluada(this, valor);
+        }
+        if (fallo[0] < 0) {
+            return ResultadoCompilacion.fallida(this, new DiagnosticoCompilacion(
+                DiagnosticoCompilacion.Codigo.DIVISION_POR_CERO, -1, null, "División por cero"));
+        }
+        String nombre = variables[fallo[0] - 1];
+        return ResultadoCompilacion.fallida(this, new DiagnosticoCompilacion(
+            DiagnosticoCompilacion.Codigo.VARIABLE_SIN_VALOR, -1, null, "Variable sin valor: " + nombre));
+    }
+
+    /**
+     * Evalúa la expresión una vez por fila sobre columnas de valores con
+     * {@link EvaluadorColumnar#predeterminado()}. Una fila que divide entre
+     * cero no detiene las demás: su resultado es NaN y se marca en
+     * {@code errores}.
+     *
+     * @param columnas una columna por variable, en el orden de
+     *                 {@link #getVariables()}, cada una con al menos
+     *                 {@code filas} valores
+     * @param filas cantidad de filas a evaluar
+     * @param errores recibe el índice de cada fila que falló
+     * @return un resultado por fila
+     * @throws IllegalArgumentException si faltan columnas o valores
+     */
+    public double[] evaluarColumnas(double[][] columnas, int filas, BitSet errores) {
+        if (columnas.length < variables.length) {
+            throw new IllegalArgumentException("Variable sin valor: " + variables[columnas.length]);
+        }
+        for (int v = 0; v < variables.length; v++) {
+            if (columnas[v].length < filas) {
+                throw new IllegalArgumentException("La columna " + variables[v] + " tiene "
+                    + columnas[v].length + " valores y se esperaban " + filas);
+            }
+        }
+
+        return EvaluadorColumnar.predeterminado().evaluar(getPrograma(), columnas, filas, errores);
+    }
+
+    /**
+     * @return el AST traducido para {@link EvaluadorColumnar}; se traduce
+     *         la primera vez que se pide
+     */
+    public ProgramaColumnar getPrograma() {
+        ProgramaColumnar actual = programa;
+        if (actual == null) {
+            actual = ProgramaColumnar.compilar(raiz);
+            programa = actual;
+        }
+        return actual;
+    }
+
+    /**
+     * @return texto original de la expresión
+     */
+    public String getExpresion() {
+        return expresion;
+    }
+
+    /**
+     * @return raíz del AST
+     */
+    public Nodo getRaiz() {
+        return raiz;
+    }
+
+    /**
+     * @return cantidad de tokens generados al compilar, incluyendo FIN
+     */
+    public int getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return nodos del AST original que quitó la optimización
+     */
+    public int getNodosEliminados() {
+        return nodosEliminados;
+    }
+
+    /**
+     * @return nombres de las variables en el orden en que se pasan sus
+     *         valores; vacía si la expresión no tiene variables
+     */
+    public List<String> getVariables() {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+}
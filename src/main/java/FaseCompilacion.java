@@ -0,0 +1,16 @@
+/**
+ * Fases de una petición de compilación cuya latencia se mide por separado.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public enum FaseCompilacion {
+    LECTURA_CUERPO,       // Lectura del cuerpo de la petición
+    DECODIFICACION_JSON,  // JSON a SolicitudCompilacion (en /columnas incluye la lectura)
+    LEXICO,               // analizarLexico (sólo en fallos de caché)
+    PARSEO,               // Construcción del AST (sólo en fallos de caché)
+    OPTIMIZACION,         // OptimizadorExpresiones (sólo en fallos de caché)
+    EVALUACION,           // Recorrido del AST
+    ESCRITURA_RESPUESTA   // RespuestaCompilacion a JSON y envío
+}
@@ -0,0 +1,642 @@
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga HTTP para encontrar el punto de saturación de
+ * {@link ServicioCompilador}.
+ *
+ * <p>Tiene dos modos:</p>
+ * <ul>
+ *   <li><b>TASA</b> (ciclo abierto): las peticiones se programan a una tasa
+ *       constante sin importar cuánto tarde el servidor y las envía la
+ *       primera de {@code --conexiones} conexiones que esté libre. La
+ *       latencia se mide desde el instante programado, así que el tiempo
+ *       que una petición esperó conexión también cuenta y no hay omisión
+ *       coordinada.</li>
+ *   <li><b>CONCURRENCIA</b> (ciclo cerrado): {@code --conexiones} clientes
+ *       envían una petición tras otra. Con {@code --rps} cada cliente sigue
+ *       un ritmo y la latencia se mide desde el instante programado; sin
+ *       ritmo se corrige con {@link HistogramaLatencia#registrarCorregido}
+ *       usando como intervalo esperado la latencia media del cliente.</li>
+ * </ul>
+ *
+ * <p>Los cuerpos se toman en orden circular de un archivo JSONL con una
+ * {@link SolicitudCompilacion} por línea, o de un conjunto de expresiones
+ * de ejemplo. Se pueden indicar varios niveles separados por comas; se
+ * ejecutan en orden y se reporta uno por renglón, marcando con * los que
+ * no alcanzaron el 95% de la tasa objetivo.</p>
+ *
+ * <p>Cada conexión es un socket HTTP/1.1 persistente con TCP_NODELAY que
+ * escribe cada petición en una sola llamada, para que el propio cliente no
+ * agregue retrasos de Nagle.</p>
+ *
+ * <pre>
+ * java -cp target/compilador-telemetria-1.0.jar GeneradorCarga \
+ *   --modo tasa --rps 500,1000,2000,4000 --duracion 20 --archivo solicitudes.jsonl
+ *
+ * java -cp target/compilador-telemetria-1.0.jar GeneradorCarga \
+ *   --modo concurrencia --conexiones 1,4,16,64 --json resultados.json
+ * </pre>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class GeneradorCarga {
+
+    /**
+     * Forma en que se generan las peticiones.
+     */
+    public enum Modo {
+        /** Ciclo abierto a tasa de llegada constante. */
+        TASA,
+        /** Ciclo cerrado con una cantidad fija de clientes. */
+        CONCURRENCIA
+    }
+
+    private static final String URL_DEFECTO = "http://localhost:8080/api/compilar";
+    private static final int CONEXIONES_DEFECTO = 256;
+    private static final int DURACION_DEFECTO = 30;
+    private static final int CALENTAMIENTO_DEFECTO = 5;
+    private static final int PAUSA_DEFECTO = 2;
+    private static final int TIMEOUT_DEFECTO = 10;
+
+    /** Fracción de la tasa objetivo por debajo de la cual un nivel se marca como saturado. */
+    private static final double UMBRAL_SATURACION = 0.95;
+
+    private static final String[] EXPRESIONES_DEFECTO = {
+        "2 + 3",
+        "2 + 3 * 4",
+        "(2 + 3) * 4",
+        "10 / (5 - 3)",
+        "((1.5 + 2.25) * (3 - 0.75)) / 4",
+        "1 + 2 * 3 - 4 / 5 + (6 - 7) * 8",
+        "3.14159 * 2 * 2",
+        "(((1 + 2) * 3) - ((4 - 5) * 6)) / 7",
+        "10 / 0",
+        "2 + * 3"
+    };
+
+    private final InetSocketAddress direccion;
+    private final int timeoutMs;
+    private final List<byte[]> peticiones;
+
+    /**
+     * @param destino URL http del endpoint
+     * @param cuerpos cuerpos JSON que se envían en orden circular
+     * @param timeout tiempo máximo de conexión y de espera de cada respuesta
+     */
+    public GeneradorCarga(URI destino, List<String> cuerpos, Duration timeout) {
+        if (cuerpos.isEmpty()) {
+            throw new IllegalArgumentException("No hay solicitudes que enviar");
+        }
+        if (!"http".equals(destino.getScheme()) || destino.getHost() == null) {
+            throw new IllegalArgumentException("Sólo se admiten URLs http://host[:puerto]/ruta: " + destino);
+        }
+        int puerto = destino.getPort() > 0 ? destino.getPort() : 80;
+        String ruta = destino.getRawPath() == null || destino.getRawPath().isEmpty() ? "/" : destino.getRawPath();
+        if (destino.getRawQuery() != null) {
+            ruta += "?" + destino.getRawQuery();
+        }
+
+        this.direccion = new InetSocketAddress(destino.getHost(), puerto);
+        this.timeoutMs = (int) timeout.toMillis();
+        this.peticiones = new ArrayList<>(cuerpos.size());
+        for (String cuerpo : cuerpos) {
+            byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+            String encabezados = "POST " + ruta + " HTTP/1.1\r\n"
+                + "Host: " + destino.getHost() + ":" + puerto + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + bytes.length + "\r\n\r\n";
+            byte[] cabecera = encabezados.getBytes(StandardCharsets.US_ASCII);
+            byte[] peticion = new byte[cabecera.length + bytes.length];
+            System.arraycopy(cabecera, 0, peticion, 0, cabecera.length);
+            System.arraycopy(bytes, 0, peticion, cabecera.length, bytes.length);
+            peticiones.add(peticion);
+        }
+    }
+
+    /**
+     * Ejecuta un nivel en ciclo abierto.
+     *
+     * @param rps tasa de llegada en peticiones por segundo
+     * @param conexiones peticiones simultáneas máximas; si todas están
+     *                   ocupadas, las siguientes salen tarde y ese retraso
+     *                   cuenta en la latencia
+     * @param calentamientoSegundos segundos iniciales que no se miden
+     * @param duracionSegundos segundos medidos
+     * @return resultado del nivel
+     * @throws InterruptedException si se interrumpe la espera de las conexiones
+     */
+    public ResultadoCarga ejecutarTasa(double rps, int conexiones,
+                                       int calentamientoSegundos, int duracionSegundos)
+            throws InterruptedException {
+        if (rps <= 0) {
+            throw new IllegalArgumentException("La tasa debe ser positiva: " + rps);
+        }
+        Medicion medicion = new Medicion(calentamientoSegundos, duracionSegundos);
+        AtomicLong siguiente = new AtomicLong();
+        double nanosPorPeticion = 1e9 / rps;
+
+        ejecutarClientes(conexiones, id -> {
+            try (ConexionHttp conexion = new ConexionHttp(direccion, timeoutMs)) {
+                while (true) {
+                    long i = siguiente.getAndIncrement();
+                    long intencion = medicion.inicioNs + (long) (i * nanosPorPeticion);
+                    if (intencion >= medicion.finNs) {
+                        return;
+                    }
+                    esperarHasta(intencion);
+                    enviar(conexion, i, intencion, medicion, 0);
+                }
+            }
+        });
+        return medicion.resultado(Modo.TASA, rps, conexiones);
+    }
+
+    /**
+     * Ejecuta un nivel en ciclo cerrado. Con ritmo, cada cliente envía cada
+     * conexiones / rps y los clientes se escalonan dentro del intervalo para
+     * no salir todos a la vez.
+     *
+     * @param conexiones cantidad de clientes, cada uno con una petición a la vez
+     * @param rps tasa total a repartir entre los clientes; 0 para enviar sin pausa
+     * @param calentamientoSegundos segundos iniciales que no se miden
+     * @param duracionSegundos segundos medidos
+     * @return resultado del nivel
+     * @throws InterruptedException si se interrumpe la espera de los clientes
+     */
+    public ResultadoCarga ejecutarConcurrencia(int conexiones, double rps,
+                                               int calentamientoSegundos, int duracionSegundos)
+            throws InterruptedException {
+        Medicion medicion = new Medicion(calentamientoSegundos, duracionSegundos);
+        long intervalo = rps > 0 ? (long) (conexiones * 1e9 / rps) : 0;
+
+        ejecutarClientes(conexiones, id -> {
+            long programada = medicion.inicioNs + intervalo * id / conexiones;
+            long sumaServicioNs = 0;
+            long respuestas = 0;
+
+            try (ConexionHttp conexion = new ConexionHttp(direccion, timeoutMs)) {
+                for (long i = id; ; i += conexiones) {
+                    long intencion = intervalo > 0 ? programada : System.nanoTime();
+                    if (intencion >= medicion.finNs) {
+                        return;
+                    }
+                    esperarHasta(intencion);
+
+                    long intervaloCorreccion = intervalo > 0 || respuestas == 0
+                        ? 0 : sumaServicioNs / respuestas;
+                    sumaServicioNs += enviar(conexion, i, intencion, medicion, intervaloCorreccion);
+                    respuestas++;
+                    programada += intervalo;
+                }
+            }
+        });
+        return medicion.resultado(Modo.CONCURRENCIA, rps, conexiones);
+    }
+
+    /**
+     * Arranca un hilo por conexión y espera a que todos terminen.
+     */
+    private static void ejecutarClientes(int conexiones, Cliente cliente) throws InterruptedException {
+        Thread[] hilos = new Thread[conexiones];
+        for (int c = 0; c < conexiones; c++) {
+            final int id = c;
+            hilos[c] = new Thread(() -> cliente.ejecutar(id), "carga-" + c);
+            hilos[c].setDaemon(true);
+            hilos[c].start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+    }
+
+    /**
+     * Envía la petición i por la conexión y registra su resultado.
+     *
+     * @return tiempo de servicio en nanosegundos, desde el envío real
+     */
+    private long enviar(ConexionHttp conexion, long i, long intencion,
+                        Medicion medicion, long intervaloCorreccion) {
+        long envio = System.nanoTime();
+        medicion.registrarEnvio(intencion);
+        int codigo;
+        try {
+            codigo = conexion.enviar(peticiones.get((int) (i % peticiones.size())));
+        } catch (IOException e) {
+            codigo = -1;
+        }
+        long fin = System.nanoTime();
+        medicion.registrarRespuesta(intencion, envio, fin, codigo, intervaloCorreccion);
+        return fin - envio;
+    }
+
+    private static void esperarHasta(long instanteNs) {
+        long restante;
+        while ((restante = instanteNs - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+
+    /**
+     * Lee un archivo JSONL con una {@link SolicitudCompilacion} por línea.
+     * Las líneas vacías se ignoran; las demás se envían tal cual.
+     *
+     * @param archivo ruta del archivo
+     * @return cuerpos de las peticiones
+     * @throws IOException si no se puede leer el archivo
+     * @throws IllegalArgumentException si una línea no es una solicitud válida
+     */
+    public static List<String> leerSolicitudes(Path archivo) throws IOException {
+        Gson gson = new Gson();
+        List<String> cuerpos = new ArrayList<>();
+        int numero = 0;
+        for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+            numero++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            SolicitudCompilacion solicitud;
+            try {
+                solicitud = gson.fromJson(linea, SolicitudCompilacion.class);
+            } catch (JsonParseException e) {
+                throw new IllegalArgumentException(archivo + ":" + numero + ": JSON inválido", e);
+            }
+            if (solicitud == null || solicitud.getExpresion() == null) {
+                throw new IllegalArgumentException(archivo + ":" + numero + ": falta 'expresion'");
+            }
+            cuerpos.add(linea);
+        }
+        return cuerpos;
+    }
+
+    /**
+     * @return cuerpos con las expresiones de ejemplo, incluidas dos inválidas
+     */
+    public static List<String> solicitudesDeEjemplo() {
+        Gson gson = new Gson();
+        List<String> cuerpos = new ArrayList<>();
+        for (String expresion : EXPRESIONES_DEFECTO) {
+            cuerpos.add(gson.toJson(new SolicitudCompilacion(expresion, "ARITMETICA")));
+        }
+        return cuerpos;
+    }
+
+    /**
+     * Punto de entrada. Opciones: --url, --modo (tasa|concurrencia), --rps,
+     * --conexiones, --duracion, --calentamiento, --pausa, --timeout (en
+     * segundos), --archivo (JSONL) y --json (archivo de resultados).
+     *
+     * @param args opciones de la forma --nombre valor
+     */
+    public static void main(String[] args) {
+        try {
+            Map<String, String> opciones = leerOpciones(args);
+            Modo modo = Modo.valueOf(opciones.getOrDefault("modo", "tasa").toUpperCase(Locale.ROOT));
+            int duracion = entero(opciones, "duracion", DURACION_DEFECTO);
+            int calentamiento = entero(opciones, "calentamiento", CALENTAMIENTO_DEFECTO);
+            int pausa = entero(opciones, "pausa", PAUSA_DEFECTO);
+            Duration timeout = Duration.ofSeconds(entero(opciones, "timeout", TIMEOUT_DEFECTO));
+
+            List<String> cuerpos = opciones.containsKey("archivo")
+                ? leerSolicitudes(Path.of(opciones.get("archivo")))
+                : solicitudesDeEjemplo();
+            GeneradorCarga generador = new GeneradorCarga(
+                URI.create(opciones.getOrDefault("url", URL_DEFECTO)), cuerpos, timeout);
+
+            System.out.printf("Modo %s, %d solicitudes distintas, %d s de calentamiento y %d s medidos por nivel%n",
+                modo, cuerpos.size(), calentamiento, duracion);
+            imprimirEncabezado();
+
+            List<ResultadoCarga> resultados = new ArrayList<>();
+            if (modo == Modo.TASA) {
+                int conexiones = entero(opciones, "conexiones", CONEXIONES_DEFECTO);
+                for (String rps : lista(opciones, "rps", "1000")) {
+                    resultados.add(generador.ejecutarTasa(
+                        Double.parseDouble(rps), conexiones, calentamiento, duracion));
+                    imprimir(resultados.get(resultados.size() - 1));
+                    Thread.sleep(pausa * 1000L);
+                }
+            } else {
+                double rps = Double.parseDouble(opciones.getOrDefault("rps", "0"));
+                for (String conexiones : lista(opciones, "conexiones", "16")) {
+                    resultados.add(generador.ejecutarConcurrencia(
+                        Integer.parseInt(conexiones), rps, calentamiento, duracion));
+                    imprimir(resultados.get(resultados.size() - 1));
+                    Thread.sleep(pausa * 1000L);
+                }
+            }
+
+            if (opciones.containsKey("json")) {
+                Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                try (Writer escritor = Files.newBufferedWriter(Path.of(opciones.get("json")),
+                                                                StandardCharsets.UTF_8)) {
+                    gson.toJson(resultados, escritor);
+                }
+                System.out.println("Resultados guardados en " + opciones.get("json"));
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.println("Uso: GeneradorCarga [--modo tasa|concurrencia] [--rps N[,N...]] "
+                + "[--conexiones N[,N...]] [--duracion s] [--calentamiento s] [--pausa s] "
+                + "[--timeout s] [--archivo solicitudes.jsonl] [--json resultados.json] [--url URL]");
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Error al generar carga: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> leerOpciones(String[] args) {
+        Map<String, String> opciones = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Opción inválida: " + args[i]);
+            }
+            opciones.put(args[i].substring(2), args[i + 1]);
+        }
+        return opciones;
+    }
+
+    private static int entero(Map<String, String> opciones, String nombre, int defecto) {
+        String valor = opciones.get(nombre);
+        return valor == null ? defecto : Integer.parseInt(valor);
+    }
+
+    private static String[] lista(Map<String, String> opciones, String nombre, String defecto) {
+        return opciones.getOrDefault(nombre, defecto).split(",");
+    }
+
+    private static void imprimirEncabezado() {
+        System.out.printf("%-12s %9s %6s %9s %10s %9s %9s %9s %9s %9s %10s %s%n",
+            "modo", "rps obj", "conex", "enviadas", "rps real", "p50 ms", "p90 ms",
+            "p99 ms", "p99.9 ms", "max ms", "p99 serv", "códigos");
+    }
+
+    private static void imprimir(ResultadoCarga r) {
+        ResumenLatencia l = r.getLatencia();
+        boolean saturado = r.getRpsObjetivo() > 0
+            && r.getRpsLogrado() < r.getRpsObjetivo() * UMBRAL_SATURACION;
+        System.out.printf(Locale.ROOT, "%-12s %9.0f %6d %9d %9.1f%s %9.3f %9.3f %9.3f %9.3f %9.3f %10.3f %s%s%n",
+            r.getModo(), r.getRpsObjetivo(), r.getConexiones(), r.getEnviadas(), r.getRpsLogrado(),
+            saturado ? "*" : " ", l.getP50Ms(), l.getP90Ms(), l.getP99Ms(), l.getP999Ms(),
+            l.getMaxMs(), r.getLatenciaServicio().getP99Ms(), r.getCodigos(),
+            r.getFallosTransporte() > 0 ? " sin respuesta=" + r.getFallosTransporte() : "");
+    }
+
+    /**
+     * Trabajo de un hilo cliente.
+     */
+    @FunctionalInterface
+    private interface Cliente {
+        void ejecutar(int id);
+    }
+
+    /**
+     * Conexión HTTP/1.1 persistente y bloqueante. Se reabre si el servidor
+     * la cierra; una petición que falla sobre una conexión reutilizada antes
+     * de recibir respuesta se reintenta una vez en una conexión nueva.
+     */
+    private static final class ConexionHttp implements Closeable {
+        private final InetSocketAddress direccion;
+        private final int timeoutMs;
+        private final ByteArrayOutputStream linea = new ByteArrayOutputStream(128);
+        private Socket socket;
+        private InputStream entrada;
+        private OutputStream salida;
+
+        ConexionHttp(InetSocketAddress direccion, int timeoutMs) {
+            this.direccion = direccion;
+            this.timeoutMs = timeoutMs;
+        }
+
+        /**
+         * @param peticion petición completa: encabezados y cuerpo
+         * @return código de estado de la respuesta
+         */
+        int enviar(byte[] peticion) throws IOException {
+            boolean reutilizada = socket != null;
+            try {
+                return intentar(peticion);
+            } catch (IOException e) {
+                close();
+                if (!reutilizada) {
+                    throw e;
+                }
+                try {
+                    return intentar(peticion);
+                } catch (IOException otra) {
+                    close();
+                    throw otra;
+                }
+            }
+        }
+
+        private int intentar(byte[] peticion) throws IOException {
+            if (socket == null) {
+                socket = new Socket();
+                socket.setTcpNoDelay(true);
+                socket.connect(direccion, timeoutMs);
+                socket.setSoTimeout(timeoutMs);
+                entrada = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+                salida = socket.getOutputStream();
+            }
+            salida.write(peticion);
+            salida.flush();
+            return leerRespuesta();
+        }
+
+        /**
+         * Lee la línea de estado y los encabezados y descarta el cuerpo,
+         * delimitado por Content-Length, chunked o el cierre de la conexión.
+         */
+        private int leerRespuesta() throws IOException {
+            String estado = leerLinea();
+            int codigo = Integer.parseInt(estado.substring(9, 12));
+            long longitud = -1;
+            boolean chunked = false;
+            boolean cerrar = estado.startsWith("HTTP/1.0");
+
+            String encabezado;
+            while (!(encabezado = leerLinea()).isEmpty()) {
+                int separador = encabezado.indexOf(':');
+                if (separador < 0) {
+                    continue;
+                }
+                String nombre = encabezado.substring(0, separador).trim();
+                String valor = encabezado.substring(separador + 1).trim();
+                if (nombre.equalsIgnoreCase("Content-Length")) {
+                    longitud = Long.parseLong(valor);
+                } else if (nombre.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = valor.toLowerCase(Locale.ROOT).contains("chunked");
+                } else if (nombre.equalsIgnoreCase("Connection")) {
+                    cerrar = valor.equalsIgnoreCase("close");
+                }
+            }
+
+            if (chunked) {
+                long tamano;
+                while ((tamano = Long.parseLong(leerLinea().split(";")[0].trim(), 16)) > 0) {
+                    descartar(tamano);
+                    leerLinea();
+                }
+                while (!leerLinea().isEmpty()) {
+                    // trailers
+                }
+            } else if (longitud >= 0) {
+                descartar(longitud);
+            } else {
+                while (entrada.read() >= 0) {
+                    // cuerpo delimitado por el cierre
+                }
+                cerrar = true;
+            }
+
+            if (cerrar) {
+                close();
+            }
+            return codigo;
+        }
+
+        private String leerLinea() throws IOException {
+            linea.reset();
+            int b;
+            while ((b = entrada.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException("Conexión cerrada por el servidor");
+                }
+                if (b != '\r') {
+                    linea.write(b);
+                }
+            }
+            return linea.toString(StandardCharsets.ISO_8859_1);
+        }
+
+        private void descartar(long bytes) throws IOException {
+            while (bytes > 0) {
+                long saltados = entrada.skip(bytes);
+                if (saltados <= 0) {
+                    if (entrada.read() < 0) {
+                        throw new EOFException("Cuerpo incompleto");
+                    }
+                    saltados = 1;
+                }
+                bytes -= saltados;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // ya no se usa
+                }
+                socket = null;
+            }
+        }
+    }
+
+    /**
+     * Contadores e histogramas de un nivel. Sólo cuentan las peticiones
+     * programadas después del calentamiento.
+     */
+    private static final class Medicion {
+        final long inicioNs;
+        final long inicioMedicionNs;
+        final long finNs;
+
+        final HistogramaLatencia latencia = new HistogramaLatencia();
+        final HistogramaLatencia latenciaServicio = new HistogramaLatencia();
+        final LongAdder enviadas = new LongAdder();
+        final LongAdder completadas = new LongAdder();
+        final LongAdder fallosTransporte = new LongAdder();
+        final Map<Integer, LongAdder> codigos = new ConcurrentHashMap<>();
+        final AtomicLong ultimaRespuestaNs = new AtomicLong();
+
+        Medicion(int calentamientoSegundos, int duracionSegundos) {
+            this.inicioNs = System.nanoTime();
+            this.inicioMedicionNs = inicioNs + calentamientoSegundos * 1_000_000_000L;
+            this.finNs = inicioMedicionNs + duracionSegundos * 1_000_000_000L;
+        }
+
+        void registrarEnvio(long intencionNs) {
+            if (intencionNs >= inicioMedicionNs) {
+                enviadas.increment();
+            }
+        }
+
+        /**
+         * @param codigo código HTTP, o -1 si no hubo respuesta
+         * @param intervaloCorreccionNs intervalo esperado para corregir la
+         *        omisión coordinada; 0 si la intención ya es el instante programado
+         */
+        void registrarRespuesta(long intencionNs, long envioNs, long finRespuestaNs,
+                                int codigo, long intervaloCorreccionNs) {
+            if (intencionNs < inicioMedicionNs) {
+                return;
+            }
+            latencia.registrarCorregido(finRespuestaNs - intencionNs, intervaloCorreccionNs);
+            latenciaServicio.registrar(finRespuestaNs - envioNs);
+            ultimaRespuestaNs.accumulateAndGet(finRespuestaNs, Math::max);
+
+            if (codigo < 0) {
+                fallosTransporte.increment();
+                return;
+            }
+            completadas.increment();
+            codigos.computeIfAbsent(codigo, k -> new LongAdder()).increment();
+        }
+
+        ResultadoCarga resultado(Modo modo, double rpsObjetivo, int conexiones) {
+            double segundos = (Math.max(finNs, ultimaRespuestaNs.get()) - inicioMedicionNs) / 1e9;
+
+            Map<String, Long> porCodigo = new TreeMap<>();
+            codigos.forEach((codigo, cuenta) -> porCodigo.put(String.valueOf(codigo), cuenta.sum()));
+
+            ResultadoCarga resultado = new ResultadoCarga();
+            resultado.setModo(modo.name());
+            resultado.setRpsObjetivo(rpsObjetivo);
+            resultado.setConexiones(conexiones);
+            resultado.setDuracionSegundos(segundos);
+            resultado.setEnviadas(enviadas.sum());
+            resultado.setCompletadas(completadas.sum());
+            resultado.setFallosTransporte(fallosTransporte.sum());
+            resultado.setCodigos(porCodigo);
+            resultado.setRpsLogrado(segundos > 0 ? completadas.sum() / segundos : 0);
+            resultado.setLatencia(latencia.resumen());
+            resultado.setLatenciaServicio(latenciaServicio.resumen());
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Grabación de Flight Recorder que se controla en tiempo de ejecución,
+ * para perfilar el servicio en producción sin reiniciarlo ni conectarle
+ * un profiler.
+ *
+ * <p>Hay a lo sumo una grabación a la vez. {@link #iniciar(String)}
+ * habilita {@link EventoCompilacion} y, opcionalmente, una configuración
+ * del JDK ({@code default} o {@code profile}) para tener también muestras
+ * de CPU, GC y bloqueos. {@link #detener()} la guarda en un archivo .jfr
+ * del directorio configurado, que se abre con JDK Mission Control o
+ * {@code jfr print}, y devuelve un resumen de sus compilaciones. Si nadie
+ * la detiene, se detiene sola al cumplir la duración máxima; el archivo se
+ * guarda igual al llamar a {@link #detener()}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class GrabacionJfr {
+
+    /** Compilaciones más lentas que se incluyen en el resumen. */
+    static final int MAX_LENTAS = 10;
+
+    private static final DateTimeFormatter FORMATO_ARCHIVO =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.ROOT);
+
+    private static final FaseCompilacion[] FASES = FaseCompilacion.values();
+    private static final String[] CAMPOS = {
+        "lecturaCuerpo", "decodificacionJson", "lexico", "parseo",
+        "optimizacion", "evaluacion", "escrituraRespuesta"
+    };
+
+    private final Path directorio;
+    private final Duration duracionMaxima;
+
+    private Recording grabacion;
+    private String configuracion;
+
+    /**
+     * @param directorio directorio donde se guardan los archivos .jfr; se
+     *                   crea al guardar la primera grabación
+     * @param duracionMaxima tiempo tras el cual la grabación se detiene sola
+     */
+    public GrabacionJfr(Path directorio, Duration duracionMaxima) {
+        this.directorio = directorio;
+        this.duracionMaxima = duracionMaxima;
+        if (FASES.length != CAMPOS.length) {
+            throw new IllegalStateException("Cada fase necesita su campo en EventoCompilacion");
+        }
+    }
+
+    /**
+     * Inicia una grabación con el evento de compilación habilitado.
+     *
+     * @param configuracion nombre de una configuración del JDK a grabar
+     *                      también, o null para grabar sólo las compilaciones
+     * @return estado de la grabación iniciada
+     * @throws IllegalStateException si ya hay una grabación o la JVM no
+     *                               tiene Flight Recorder
+     * @throws IllegalArgumentException si la configuración no existe
+     */
+    public synchronized ResumenGrabacion iniciar(String configuracion) {
+        if (grabacion != null) {
+            throw new IllegalStateException("Ya hay una grabación en curso");
+        }
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight Recorder no está disponible en esta JVM");
+        }
+        Recording nueva;
+        if (configuracion == null) {
+            nueva = new Recording();
+        } else {
+            try {
+                nueva = new Recording(Configuration.getConfiguration(configuracion));
+            } catch (IOException | ParseException e) {
+                throw new IllegalArgumentException("Configuración desconocida: " + configuracion);
+            }
+        }
+        nueva.setName("caas");
+        nueva.setToDisk(true);
+        nueva.setDuration(duracionMaxima);
+        nueva.enable(EventoCompilacion.class);
+        nueva.start();
+        this.grabacion = nueva;
+        this.configuracion = configuracion;
+        return estado();
+    }
+
+    /**
+     * Detiene la grabación, la guarda en un archivo y resume sus eventos
+     * de compilación.
+     *
+     * @return resumen de la grabación con la ruta del archivo
+     * @throws IllegalStateException si no hay grabación
+     * @throws IOException si no se puede guardar o leer el archivo
+     */
+    public synchronized ResumenGrabacion detener() throws IOException {
+        if (grabacion == null) {
+            throw new IllegalStateException("No hay una grabación en curso");
+        }
+        Recording terminada = grabacion;
+        ResumenGrabacion resumen = estado();
+        grabacion = null;
+        configuracion = null;
+        try {
+            if (terminada.getState() == RecordingState.RUNNING) {
+                terminada.stop();
+            }
+            Files.createDirectories(directorio);
+            String nombre = "caas-" + FORMATO_ARCHIVO.format(
+                LocalDateTime.ofInstant(terminada.getStartTime(), ZoneId.systemDefault())) + ".jfr";
+            Path archivo = directorio.resolve(nombre);
+            terminada.dump(archivo);
+            resumen.setEstado("detenida");
+            resumen.setArchivo(archivo.toAbsolutePath().toString());
+            resumen.setBytesArchivo(Files.size(archivo));
+            resumir(archivo, resumen);
+            return resumen;
+        } finally {
+            terminada.close();
+        }
+    }
+
+    /**
+     * @return estado de la grabación actual, sin resumen de eventos
+     */
+    public synchronized ResumenGrabacion estado() {
+        ResumenGrabacion resumen = new ResumenGrabacion();
+        if (grabacion == null) {
+            resumen.setEstado("inactiva");
+            return resumen;
+        }
+        resumen.setEstado(grabacion.getState() == RecordingState.RUNNING ? "grabando" : "detenida");
+        resumen.setConfiguracion(configuracion);
+        if (grabacion.getStartTime() != null) {
+            resumen.setInicio(grabacion.getStartTime().toString());
+        }
+        return resumen;
+    }
+
+    /**
+     * Descarta la grabación en curso, si la hay, sin guardarla.
+     */
+    public synchronized void cerrar() {
+        if (grabacion != null) {
+            grabacion.close();
+            grabacion = null;
+            configuracion = null;
+        }
+    }
+
+    /**
+     * Lee los eventos de compilación del archivo y llena el resumen:
+     * cuentas, percentiles de la petición y de cada fase, y las
+     * compilaciones más lentas.
+     *
+     * @param archivo grabación guardada
+     * @param resumen resumen a llenar
+     * @throws IOException si no se puede leer el archivo
+     */
+    static void resumir(Path archivo, ResumenGrabacion resumen) throws IOException {
+        HistogramaLatencia latencia = new HistogramaLatencia();
+        Map<FaseCompilacion, HistogramaLatencia> fases = new EnumMap<>(FaseCompilacion.class);
+        PriorityQueue<RecordedEvent> lentas = new PriorityQueue<>(
+            MAX_LENTAS + 1, Comparator.comparing(RecordedEvent::getDuration));
+        long compilaciones = 0;
+        long exitosas = 0;
+        long aciertos = 0;
+        long fallos = 0;
+
+        try (RecordingFile grabacion = new RecordingFile(archivo)) {
+            while (grabacion.hasMoreEvents()) {
+                RecordedEvent evento = grabacion.readEvent();
+                if (!EventoCompilacion.NOMBRE.equals(evento.getEventType().getName())) {
+                    continue;
+                }
+                compilaciones++;
+                if (evento.getBoolean("exitosa")) {
+                    exitosas++;
+                }
+                String cache = evento.getString("cache");
+                if ("acierto".equals(cache)) {
+                    aciertos++;
+                } else if ("fallo".equals(cache)) {
+                    fallos++;
+                }
+                latencia.registrar(evento.getDuration().toNanos());
+                for (int i = 0; i < FASES.length; i++) {
+                    long duracionNs = evento.getLong(CAMPOS[i]);
+                    if (duracionNs > 0) {
+                        fases.computeIfAbsent(FASES[i], f -> new HistogramaLatencia()).registrar(duracionNs);
+                    }
+                }
+                lentas.add(evento);
+                if (lentas.size() > MAX_LENTAS) {
+                    lentas.poll();
+                }
+            }
+        }
+
+        resumen.setCompilaciones(compilaciones);
+        resumen.setExitosas(exitosas);
+        resumen.setFallidas(compilaciones - exitosas);
+        resumen.setAciertosCache(aciertos);
+        resumen.setFallosCache(fallos);
+        resumen.setLatencia(latencia.resumen());
+        Map<String, ResumenLatencia> porFase = new LinkedHashMap<>();
+        for (Map.Entry<FaseCompilacion, HistogramaLatencia> fase : fases.entrySet()) {
+            porFase.put(fase.getKey().name().toLowerCase(Locale.ROOT), fase.getValue().resumen());
+        }
+        resumen.setFases(porFase);
+        List<CompilacionLenta> masLentas = new ArrayList<>(lentas.size());
+        while (!lentas.isEmpty()) {
+            masLentas.add(0, aCompilacionLenta(lentas.poll()));
+        }
+        resumen.setMasLentas(masLentas);
+    }
+
+    private static CompilacionLenta aCompilacionLenta(RecordedEvent evento) {
+        CompilacionLenta lenta = new CompilacionLenta();
+        lenta.setExpresion(evento.getString("expresion"));
+        lenta.setLongitudExpresion(evento.getInt("longitudExpresion"));
+        lenta.setTokens(evento.getInt("tokens"));
+        lenta.setProfundidad(evento.getInt("profundidad"));
+        lenta.setExitosa(evento.getBoolean("exitosa"));
+        lenta.setCache(evento.getString("cache"));
+        lenta.setDuracionMs(evento.getDuration().toNanos() / 1e6);
+        long maximaNs = 0;
+        for (int i = 0; i < FASES.length; i++) {
+            long duracionNs = evento.getLong(CAMPOS[i]);
+            if (duracionNs > maximaNs) {
+                maximaNs = duracionNs;
+                lenta.setFaseMasLenta(FASES[i].name().toLowerCase(Locale.ROOT));
+            }
+        }
+        lenta.setFaseMasLentaMs(maximaNs / 1e6);
+        return lenta;
+    }
+}
@@ -0,0 +1,300 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias con cubetas logarítmicas, al estilo HDR.
+ *
+ * <p>Cada potencia de dos se divide en 2^bitsPrecision cubetas lineales, de
+ * modo que el error relativo de un percentil es menor a 2^-bitsPrecision
+ * (3% con la precisión por defecto) para cualquier valor entre 1 ns y
+ * 2^62 ns. Registrar un valor es un incremento atómico y no bloquea ni
+ * reserva memoria.</p>
+ *
+ * <p>Las cubetas pueden repartirse en varias franjas, cada una un arreglo
+ * propio, y cada hilo escribe en la de su id; así hilos distintos que
+ * registran la misma latencia no compiten por la misma línea de caché.</p>
+ *
+ * <p>La cantidad de muestras no se guarda aparte sino que se obtiene de las
+ * cubetas: el resumen copia las cubetas una sola vez y calcula total y
+ * percentiles sobre esa copia, de modo que siempre son coherentes entre sí.
+ * Con escrituras concurrentes la copia puede diferir en unas cuantas
+ * muestras del estado exacto; para métricas esto es suficiente.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class HistogramaLatencia {
+
+    /** Precisión por defecto: 32 cubetas por potencia de dos. */
+    public static final int BITS_PRECISION_DEFECTO = 5;
+
+    private final int bitsPrecision;
+    private final int tamano;
+    private final AtomicLongArray[] franjas;
+    private final AtomicLong maximo;
+
+    /**
+     * Crea un histograma con la precisión por defecto y una sola franja.
+     */
+    public HistogramaLatencia() {
+        this(BITS_PRECISION_DEFECTO);
+    }
+
+    /**
+     * @param bitsPrecision bits de sub-cubeta por potencia de dos (1 a 10)
+     */
+    public HistogramaLatencia(int bitsPrecision) {
+        this(bitsPrecision, 1);
+    }
+
+    /**
+     * @param bitsPrecision bits de sub-cubeta por potencia de dos (1 a 10)
+     * @param franjas cantidad de copias de las cubetas; se redondea a
+     *                potencia de dos
+     */
+    public HistogramaLatencia(int bitsPrecision, int franjas) {
+        if (bitsPrecision < 1 || bitsPrecision > 10) {
+            throw new IllegalArgumentException("bitsPrecision fuera de rango: " + bitsPrecision);
+        }
+        this.bitsPrecision = bitsPrecision;
+        this.tamano = (64 - bitsPrecision) << bitsPrecision;
+        this.franjas = new AtomicLongArray[Integer.highestOneBit(Math.max(1, franjas))];
+        for (int f = 0; f < this.franjas.length; f++) {
+            this.franjas[f] = new AtomicLongArray(tamano);
+        }
+        this.maximo = new AtomicLong();
+    }
+
+    /**
+     * Cantidad de franjas recomendada para contadores escritos por todos los
+     * hilos: una por hilo probable, hasta 8.
+     *
+     * @return potencia de dos entre 1 y 8
+     */
+    public static int franjasPorNucleos() {
+        return Math.min(8, Integer.highestOneBit(
+            Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+    }
+
+    /**
+     * Registra una latencia.
+     *
+     * @param valorNs latencia en nanosegundos; los negativos cuentan como 0
+     */
+    public void registrar(long valorNs) {
+        long valor = Math.max(0, valorNs);
+        int franja = (int) Thread.currentThread().getId() & (franjas.length - 1);
+        franjas[franja].incrementAndGet(indice(valor));
+
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+            actual = maximo.get();
+        }
+    }
+
+    /**
+     * Registra una latencia corrigiendo la omisión coordinada: si la
+     * petición tardó más que el intervalo con el que debían salir, se
+     * agregan las muestras de las peticiones que no se enviaron mientras
+     * tanto (latencia - intervalo, latencia - 2·intervalo, ...).
+     *
+     * @param valorNs latencia en nanosegundos
+     * @param intervaloEsperadoNs tiempo esperado entre peticiones; si es 0
+     *                            o negativo no se corrige
+     */
+    public void registrarCorregido(long valorNs, long intervaloEsperadoNs) {
+        registrar(valorNs);
+        if (intervaloEsperadoNs <= 0) {
+            return;
+        }
+        for (long faltante = valorNs - intervaloEsperadoNs;
+             faltante >= intervaloEsperadoNs;
+             faltante -= intervaloEsperadoNs) {
+            registrar(faltante);
+        }
+    }
+
+    /**
+     * @return cantidad de muestras registradas
+     */
+    public long getMuestras() {
+        return total(copiarCubetas());
+    }
+
+    /**
+     * @return mayor latencia registrada en nanosegundos
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Calcula un percentil.
+     *
+     * @param percentil valor entre 0 y 100
+     * @return cota superior de la cubeta que contiene el percentil, en
+     *         nanosegundos, acotada por el máximo; 0 si no hay muestras
+     */
+    public long percentil(double percentil) {
+        long[] cubetas = copiarCubetas();
+        return percentil(cubetas, total(cubetas), maximo.get(), percentil);
+    }
+
+    /**
+     * Cuenta las muestras acumuladas hasta cada límite, como las cubetas
+     * {@code le} de Prometheus, sin copiar las cubetas ni reservar memoria.
+     * Una cubeta cuenta para un límite si su cota superior no lo excede,
+     * así que los conteos tienen el mismo error relativo que los percentiles.
+     *
+     * @param limitesNs límites en nanosegundos, en orden creciente
+     * @param destino recibe en cada posición las muestras hasta el límite
+     *                correspondiente; al menos tan largo como limitesNs
+     * @return cantidad total de muestras
+     */
+    public long acumular(long[] limitesNs, long[] destino) {
+        // Las cubetas por encima del máximo están vacías.
+        int ultima = Math.min(tamano - 1, indice(maximo.get()));
+        long acumulado = 0;
+        int j = 0;
+        for (int i = 0; i <= ultima; i++) {
+            long cubeta = 0;
+            for (AtomicLongArray franja : franjas) {
+                cubeta += franja.get(i);
+            }
+            if (cubeta == 0) {
+                continue;
+            }
+            long cota = limiteSuperior(i);
+            while (j < limitesNs.length && cota > limitesNs[j]) {
+                destino[j++] = acumulado;
+            }
+            acumulado += cubeta;
+        }
+        while (j < limitesNs.length) {
+            destino[j++] = acumulado;
+        }
+        return acumulado;
+    }
+
+    /**
+     * Suma las muestras de este histograma a otro con la misma precisión.
+     *
+     * @param destino histograma que acumula las muestras
+     */
+    public void sumarA(HistogramaLatencia destino) {
+        if (destino.bitsPrecision != bitsPrecision) {
+            throw new IllegalArgumentException("Precisiones distintas");
+        }
+        long[] cubetas = copiarCubetas();
+        for (int i = 0; i < tamano; i++) {
+            if (cubetas[i] != 0) {
+                destino.franjas[0].addAndGet(i, cubetas[i]);
+            }
+        }
+        destino.maximo.accumulateAndGet(maximo.get(), Math::max);
+    }
+
+    /**
+     * Pone el histograma en cero. No es atómico respecto a escrituras
+     * concurrentes: una muestra registrada durante el reinicio puede perderse.
+     */
+    public void reiniciar() {
+        for (AtomicLongArray cubetas : franjas) {
+            for (int i = 0; i < tamano; i++) {
+                cubetas.set(i, 0);
+            }
+        }
+        maximo.set(0);
+    }
+
+    /**
+     * @return bits de sub-cubeta por potencia de dos
+     */
+    public int getBitsPrecision() {
+        return bitsPrecision;
+    }
+
+    /**
+     * Genera el resumen de percentiles del histograma.
+     *
+     * @return resumen con p50, p90, p99, p99.9 y máximo en milisegundos
+     */
+    public ResumenLatencia resumen() {
+        long[] cubetas = copiarCubetas();
+        long total = total(cubetas);
+        long max = total > 0 ? maximo.get() : 0;
+
+        ResumenLatencia resumen = new ResumenLatencia();
+        resumen.setMuestras(total);
+        resumen.setP50Ms(aMs(percentil(cubetas, total, max, 50)));
+        resumen.setP90Ms(aMs(percentil(cubetas, total, max, 90)));
+        resumen.setP99Ms(aMs(percentil(cubetas, total, max, 99)));
+        resumen.setP999Ms(aMs(percentil(cubetas, total, max, 99.9)));
+        resumen.setMaxMs(aMs(max));
+        return resumen;
+    }
+
+    /**
+     * Suma las franjas en un solo arreglo; es la única lectura de las cubetas
+     * que hacen los métodos de consulta.
+     */
+    private long[] copiarCubetas() {
+        long[] cubetas = new long[tamano];
+        for (AtomicLongArray franja : franjas) {
+            for (int i = 0; i < tamano; i++) {
+                cubetas[i] += franja.get(i);
+            }
+        }
+        return cubetas;
+    }
+
+    private static long total(long[] cubetas) {
+        long total = 0;
+        for (long cuenta : cubetas) {
+            total += cuenta;
+        }
+        return total;
+    }
+
+    private long percentil(long[] cubetas, long total, long max, double percentil) {
+        if (total == 0) {
+            return 0;
+        }
+
+        long objetivo = Math.max(1, (long) Math.ceil(percentil / 100.0 * total));
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(limiteSuperior(i), max);
+            }
+        }
+        return max;
+    }
+
+    private int indice(long valor) {
+        int subCubetas = 1 << bitsPrecision;
+        if (valor < subCubetas) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - bitsPrecision;
+        int mantisa = (int) (valor >>> desplazamiento) - subCubetas;
+        return ((desplazamiento + 1) << bitsPrecision) + mantisa;
+    }
+
+    private long limiteSuperior(int indice) {
+        int subCubetas = 1 << bitsPrecision;
+        if (indice < subCubetas) {
+            return indice;
+        }
+        int desplazamiento = (indice >>> bitsPrecision) - 1;
+        long mantisa = subCubetas + (indice & (subCubetas - 1));
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+
+    private static double aMs(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
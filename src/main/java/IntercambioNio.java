@@ -0,0 +1,468 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HttpExchange} de {@link ServidorNio}, para que los handlers de
+ * {@code com.sun.net.httpserver} funcionen sin cambios sobre NIO.
+ *
+ * <p>Los encabezados de la petición y la URI se construyen sólo si el
+ * handler los pide. La respuesta se escribe en buffers del pool que el
+ * hilo del selector envía:</p>
+ * <ul>
+ *   <li>longitud mayor a 0: Content-Length fijo</li>
+ *   <li>longitud 0: Transfer-Encoding chunked; cada flush() envía un trozo</li>
+ *   <li>longitud -1: sin cuerpo</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+final class IntercambioNio extends HttpExchange {
+
+    private static final byte[] FIN_TROZOS = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static volatile long segundoFecha;
+    private static volatile String fecha = "";
+
+    private final ServidorNio.Conexion conexion;
+    private final HttpContext contexto;
+    private final String metodo;
+    private final String destino;
+    private final String protocolo;
+    private final byte[] encabezadosCrudos;
+    private final Headers encabezadosRespuesta;
+    private final boolean mantenerHttp10;
+    private final CuerpoNio cuerpo;
+
+    private Headers encabezadosPeticion;
+    private URI uri;
+    private Map<String, Object> atributos;
+    private InputStream entrada;
+    private OutputStream salidaFiltrada;
+    private SalidaNio salida;
+    private int codigo = -1;
+    private boolean terminado;
+
+    IntercambioNio(ServidorNio.Conexion conexion, HttpContext contexto, String metodo,
+                   String destino, String protocolo, byte[] encabezadosCrudos,
+                   Headers encabezadosRespuesta, CuerpoNio cuerpo, boolean mantenerHttp10) {
+        this.conexion = conexion;
+        this.contexto = contexto;
+        this.metodo = metodo;
+        this.destino = destino;
+        this.protocolo = protocolo;
+        this.encabezadosCrudos = encabezadosCrudos;
+        this.encabezadosRespuesta = encabezadosRespuesta;
+        this.mantenerHttp10 = mantenerHttp10;
+        this.cuerpo = cuerpo;
+        this.entrada = cuerpo;
+    }
+
+    /**
+     * Ejecuta el handler del contexto. Si falla antes de responder se envía
+     * un 400 cuando el cuerpo de la petición es inválido y un 500 en otro
+     * caso; si falla a media respuesta se cierra la conexión al terminar.
+     */
+    void ejecutar() {
+        try {
+            contexto.getHandler().handle(this);
+        } catch (Throwable e) {
+            conexion.cerrarAlTerminar = true;
+            if (codigo < 0) {
+                rechazar(cuerpo.fallo() ? 400 : 500);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Responde con un código sin cuerpo y termina el intercambio.
+     *
+     * @param codigo código de estado HTTP
+     */
+    void rechazar(int codigo) {
+        try {
+            sendResponseHeaders(codigo, -1);
+        } catch (IOException e) {
+            conexion.cerrarAlTerminar = true;
+        }
+        close();
+    }
+
+    /**
+     * Responde con un código y un cuerpo JSON y termina el intercambio.
+     *
+     * @param codigo código de estado HTTP
+     * @param json cuerpo de la respuesta
+     */
+    void responder(int codigo, String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        try {
+            encabezadosRespuesta.set("Content-Type", "application/json");
+            sendResponseHeaders(codigo, bytes.length);
+            getResponseBody().write(bytes);
+        } catch (IOException e) {
+            conexion.cerrarAlTerminar = true;
+        }
+        close();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        if (encabezadosPeticion == null) {
+            encabezadosPeticion = new Headers();
+            String texto = new String(encabezadosCrudos, StandardCharsets.ISO_8859_1);
+            int inicio = 0;
+            while (inicio < texto.length()) {
+                int fin = texto.indexOf("\r\n", inicio);
+                if (fin < 0) {
+                    fin = texto.length();
+                }
+                int dosPuntos = texto.indexOf(':', inicio);
+                if (dosPuntos > inicio && dosPuntos < fin) {
+                    encabezadosPeticion.add(texto.substring(inicio, dosPuntos),
+                        texto.substring(dosPuntos + 1, fin).trim());
+                }
+                inicio = fin + 2;
+            }
+        }
+        return encabezadosPeticion;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return encabezadosRespuesta;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        if (uri == null) {
+            uri = URI.create(destino);
+        }
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return metodo;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return contexto;
+    }
+
+    /**
+     * Termina el intercambio: cierra el cuerpo de la respuesta, o la
+     * conexión si el handler nunca respondió.
+     */
+    @Override
+    public void close() {
+        if (terminado) {
+            return;
+        }
+        if (codigo < 0) {
+            conexion.cerrarAlTerminar = true;
+            terminado = true;
+            conexion.terminarRespuesta();
+            return;
+        }
+        try {
+            getResponseBody().close();
+        } catch (IOException e) {
+            conexion.cerrarAlTerminar = true;
+            terminado = true;
+            conexion.terminarRespuesta();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return entrada;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        if (salidaFiltrada == null) {
+            salida = new SalidaNio();
+            salidaFiltrada = salida;
+        }
+        return salidaFiltrada;
+    }
+
+    @Override
+    public void sendResponseHeaders(int codigo, long longitud) throws IOException {
+        if (this.codigo >= 0) {
+            throw new IOException("Los encabezados ya se enviaron");
+        }
+        this.codigo = codigo;
+        getResponseBody();
+        boolean sinCuerpo = longitud < 0 || codigo == 204 || codigo == 304 || "HEAD".equals(metodo);
+        // HTTP/1.0 no conoce chunked: el fin del cuerpo lo marca el cierre.
+        boolean porCierre = longitud == 0 && !sinCuerpo && "HTTP/1.0".equals(protocolo);
+        if (porCierre) {
+            conexion.cerrarAlTerminar = true;
+        }
+
+        StringBuilder texto = new StringBuilder(128);
+        texto.append("HTTP/1.1 ").append(codigo).append(' ').append(frase(codigo)).append("\r\n");
+        texto.append("Date: ").append(fechaHttp()).append("\r\n");
+        for (Map.Entry<String, List<String>> encabezado : encabezadosRespuesta.entrySet()) {
+            for (String valor : encabezado.getValue()) {
+                texto.append(encabezado.getKey()).append(": ").append(valor).append("\r\n");
+            }
+        }
+        if (sinCuerpo) {
+            if (codigo != 204 && codigo != 304) {
+                texto.append("Content-Length: ").append(Math.max(0, longitud)).append("\r\n");
+            }
+        } else if (longitud > 0) {
+            texto.append("Content-Length: ").append(longitud).append("\r\n");
+        } else if (!porCierre) {
+            texto.append("Transfer-Encoding: chunked\r\n");
+        }
+        if (conexion.cerrarAlTerminar) {
+            texto.append("Connection: close\r\n");
+        } else if (mantenerHttp10) {
+            texto.append("Connection: keep-alive\r\n");
+        }
+        texto.append("\r\n");
+
+        PoolBuffers pool = conexion.pool();
+        ByteBuffer buffer = texto.length() <= pool.getTamanoBuffer()
+            ? pool.obtener() : ByteBuffer.allocate(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            buffer.put((byte) texto.charAt(i));
+        }
+        buffer.flip();
+        conexion.encolar(buffer);
+
+        if (sinCuerpo) {
+            salida.restante = 0;
+            salida.sinCuerpo = true;
+        } else {
+            salida.restante = longitud > 0 ? longitud : -1;
+            salida.trozos = longitud == 0 && !porCierre;
+        }
+        if (longitud < 0 || codigo == 204 || codigo == 304) {
+            salida.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        try {
+            return (InetSocketAddress) conexion.canal.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getResponseCode() {
+        return codigo;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) conexion.canal.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocolo;
+    }
+
+    @Override
+    public Object getAttribute(String nombre) {
+        return atributos == null ? null : atributos.get(nombre);
+    }
+
+    @Override
+    public void setAttribute(String nombre, Object valor) {
+        if (atributos == null) {
+            atributos = new HashMap<>();
+        }
+        atributos.put(nombre, valor);
+    }
+
+    @Override
+    public void setStreams(InputStream entrada, OutputStream salida) {
+        if (entrada != null) {
+            this.entrada = entrada;
+        }
+        if (salida != null) {
+            getResponseBody();
+            this.salidaFiltrada = salida;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * @param codigo código de estado HTTP
+     * @return frase de razón estándar del código
+     */
+    static String frase(int codigo) {
+        switch (codigo) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 403: return "Forbidden";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 409: return "Conflict";
+            case 413: return "Payload Too Large";
+            case 422: return "Unprocessable Entity";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            case 505: return "HTTP Version Not Supported";
+            default: return codigo < 400 ? "OK" : "Error";
+        }
+    }
+
+    /**
+     * Encabezado Date; se formatea a lo más una vez por segundo.
+     */
+    private static String fechaHttp() {
+        long segundo = System.currentTimeMillis() / 1000;
+        if (segundo != segundoFecha) {
+            fecha = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            segundoFecha = segundo;
+        }
+        return fecha;
+    }
+
+    /**
+     * Cuerpo de la respuesta. Copia lo escrito a buffers del pool y los
+     * entrega a la conexión; sólo pide al selector que los envíe cuando un
+     * buffer se llena, en flush() o al cerrar, de modo que una respuesta
+     * pequeña sale en una sola escritura junto con sus encabezados.
+     */
+    private final class SalidaNio extends OutputStream {
+
+        private ByteBuffer actual;
+        private long restante = -1;
+        private boolean trozos;
+        private boolean sinCuerpo;
+        private boolean cerrada;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] datos, int desde, int longitud) throws IOException {
+            if (codigo < 0) {
+                throw new IOException("Se debe llamar sendResponseHeaders antes de escribir");
+            }
+            if (cerrada) {
+                throw new IOException("El cuerpo de la respuesta ya se cerró");
+            }
+            if (sinCuerpo) {
+                return;
+            }
+            if (restante >= 0 && longitud > restante) {
+                throw new IOException("Se escribieron más bytes de los declarados");
+            }
+            if (restante >= 0) {
+                restante -= longitud;
+            }
+            while (longitud > 0) {
+                if (actual == null) {
+                    actual = conexion.pool().obtener();
+                }
+                int n = Math.min(longitud, actual.remaining());
+                actual.put(datos, desde, n);
+                desde += n;
+                longitud -= n;
+                if (!actual.hasRemaining()) {
+                    entregar();
+                    conexion.senalar();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (cerrada) {
+                return;
+            }
+            if (actual != null && actual.position() > 0) {
+                entregar();
+            }
+            conexion.senalar();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            terminado = true;
+            try {
+                if (actual != null && actual.position() > 0) {
+                    entregar();
+                }
+                if (trozos) {
+                    conexion.encolar(ByteBuffer.wrap(FIN_TROZOS));
+                }
+                if (restante > 0 && !sinCuerpo) {
+                    conexion.cerrarAlTerminar = true;
+                    throw new IOException("Faltaron " + restante + " bytes del cuerpo declarado");
+                }
+            } finally {
+                if (actual != null) {
+                    conexion.pool().liberar(actual);
+                    actual = null;
+                }
+                conexion.terminarRespuesta();
+            }
+        }
+
+        private void entregar() throws IOException {
+            ByteBuffer buffer = actual;
+            actual = null;
+            buffer.flip();
+            if (trozos) {
+                conexion.encolar(ByteBuffer.wrap(
+                    (Integer.toHexString(buffer.remaining()) + "\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+                conexion.encolar(buffer);
+                conexion.encolar(ByteBuffer.wrap(CRLF));
+            } else {
+                conexion.encolar(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.Collection;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+
+/**
+ * Lector de métricas que no exporta: las recolecta cuando se le piden con
+ * {@link #recolectar()}. Sirve para revisar en memoria lo que registran
+ * los instrumentos de {@link MetricasOpenTelemetry}, sin archivo ni
+ * receptor.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class LectorMetricasMemoria implements MetricReader {
+
+    private volatile CollectionRegistration registro = CollectionRegistration.noop();
+
+    @Override
+    public void register(CollectionRegistration registro) {
+        this.registro = registro;
+    }
+
+    /**
+     * @return todas las métricas acumuladas desde que se creó el proveedor
+     */
+    public Collection<MetricData> recolectar() {
+        return registro.collectAllMetrics();
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType tipo) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        registro = CollectionRegistration.noop();
+        return CompletableResultCode.ofSuccess();
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador adaptativo de concurrencia con política AIMD.
+ *
+ * <p>Admite una petición sólo si hay menos peticiones en vuelo que el límite
+ * actual; el resto se rechaza de inmediato en lugar de encolarse. Al terminar
+ * cada petición se ajusta el límite según su latencia:</p>
+ * <ul>
+ *   <li>si superó la latencia objetivo, el límite se multiplica por
+ *       {@link #FACTOR_REDUCCION} (a lo más una vez por intervalo objetivo,
+ *       para que una ráfaga de respuestas lentas no lo colapse)</li>
+ *   <li>si no, y el límite se estaba aprovechando, crece en 1/límite, es
+ *       decir, aproximadamente uno por cada "ventana" de peticiones</li>
+ * </ul>
+ *
+ * <p>Thread-safe y sin bloqueos.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class LimitadorConcurrencia {
+
+    private static final double FACTOR_REDUCCION = 0.9;
+
+    private final int limiteMinimo;
+    private final int limiteMaximo;
+    private final long latenciaObjetivoNs;
+
+    private final AtomicInteger enVuelo;
+    private final AtomicLong limiteBits;
+    private final AtomicLong ultimaReduccionNs;
+
+    /**
+     * @param limiteInicial límite de concurrencia al arrancar
+     * @param limiteMinimo límite mínimo; nunca se baja de aquí
+     * @param limiteMaximo límite máximo; nunca se sube de aquí
+     * @param latenciaObjetivoMs latencia por encima de la cual se reduce el límite
+     */
+    public LimitadorConcurrencia(int limiteInicial, int limiteMinimo, int limiteMaximo,
+                                 long latenciaObjetivoMs) {
+        this.limiteMinimo = Math.max(1, limiteMinimo);
+        this.limiteMaximo = Math.max(this.limiteMinimo, limiteMaximo);
+        this.latenciaObjetivoNs = latenciaObjetivoMs * 1_000_000L;
+        this.enVuelo = new AtomicInteger();
+        this.limiteBits = new AtomicLong(Double.doubleToRawLongBits(
+            Math.min(this.limiteMaximo, Math.max(this.limiteMinimo, limiteInicial))));
+        this.ultimaReduccionNs = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Intenta admitir una petición.
+     *
+     * @return true si se admitió; en ese caso debe llamarse a {@link #liberar(long)}
+     */
+    public boolean intentarAdquirir() {
+        while (true) {
+            int actual = enVuelo.get();
+            if (actual >= getLimite()) {
+                return false;
+            }
+            if (enVuelo.compareAndSet(actual, actual + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera una petición admitida y ajusta el límite según su latencia.
+     *
+     * @param latenciaNs latencia observada de la petición en nanosegundos
+     */
+    public void liberar(long latenciaNs) {
+        int enVueloAntes = enVuelo.getAndDecrement();
+        boolean reducir = latenciaNs > latenciaObjetivoNs;
+
+        if (reducir) {
+            long ahora = System.nanoTime();
+            long ultima = ultimaReduccionNs.get();
+            if (ahora - ultima < latenciaObjetivoNs
+                    || !ultimaReduccionNs.compareAndSet(ultima, ahora)) {
+                return;
+            }
+        }
+
+        while (true) {
+            long bits = limiteBits.get();
+            double limite = Double.longBitsToDouble(bits);
+            double nuevo;
+
+            if (reducir) {
+                nuevo = Math.max(limiteMinimo, limite * FACTOR_REDUCCION);
+            } else if (enVueloAntes * 2 >= limite) {
+                nuevo = Math.min(limiteMaximo, limite + 1.0 / limite);
+            } else {
+                return;
+            }
+
+            if (nuevo == limite
+                    || limiteBits.compareAndSet(bits, Double.doubleToRawLongBits(nuevo))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Libera una petición admitida sin ajustar el límite, para las que
+     * resultaron no ser de una ruta cuya latencia lo gobierna.
+     */
+    public void liberarSinMuestra() {
+        enVuelo.decrementAndGet();
+    }
+
+    /**
+     * @return límite de concurrencia actual, truncado a entero
+     */
+    public int getLimite() {
+        return (int) Double.longBitsToDouble(limiteBits.get());
+    }
+
+    /**
+     * @return peticiones admitidas que no han terminado
+     */
+    public int getEnVuelo() {
+        return enVuelo.get();
+    }
+}
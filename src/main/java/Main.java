@@ -1,26 +1,21 @@
 /**
- * main de la aplicación CaaS compiler as a service, o compilador como servicio
- * 
- * @author Guzmán Bucio Luis Antonio
- * @author Espinosa Roque Rebeca  
- * @author Morales Martínez Edgar Jesús
- */
-
-public class Main {    
-    private static final int PUERTO_DEFECTO = 8080;
-
-    /**
  * Clase principal de la aplicación CaaS (Compiler as a Service).
  * 
  * <p>CaaS es un servicio de compilación que expone un API REST para evaluar
  * expresiones aritméticas y proporcionar telemetría del sistema. Esta aplicación
  * implementa el patrón de arquitectura de microservicios para compilación.</p>
  * 
- * <p>El servicio proporciona tres endpoints principales:</p>
+ * <p>El servicio proporciona los siguientes endpoints:</p>
  * <ul>
  *   <li><b>POST /api/compilar</b> - Compila y evalúa expresiones aritméticas</li>
+ *   <li><b>POST /api/compilar/lote</b> - Compila un arreglo de expresiones en paralelo</li>
+ *   <li><b>POST /api/compilar/stream</b> - Compila expresiones NDJSON en streaming</li>
+ *   <li><b>POST /api/compilar/columnas</b> - Evalúa una expresión con variables por columnas</li>
  *   <li><b>GET /api/metricas</b> - Obtiene métricas de uso y rendimiento</li>
+ *   <li><b>GET /metrics</b> - Las mismas métricas en formato OpenMetrics (Prometheus)</li>
  *   <li><b>GET /api/salud</b> - Verifica el estado del servicio (health check)</li>
+ *   <li><b>GET, POST /api/admin/jfr</b> - Controla una grabación de Flight Recorder;
+ *       sólo con CAAS_JFR_ADMIN=true y sólo desde loopback</li>
  * </ul>
  * 
  * <p><b>Ejemplo de uso desde línea de comandos:</b></p>
@@ -30,6 +25,12 @@ public class Main {
  * 
  * // Iniciar en puerto personalizado
  * java Main 9090
+ * 
+ * // Iniciar con un hilo virtual por petición (VIRTUAL, POOL o UNICO)
+ * java Main 9090 VIRTUAL
+ * 
+ * // Iniciar con el servidor NIO (HTTPSERVER o NIO)
+ * java Main 9090 POOL NIO
  * </pre>
  * 
  * <p><b>Ejemplo de petición HTTP:</b></p>
@@ -60,7 +61,7 @@ public class Main {
      * Este método inicializa y arranca el servicio de compilación, configurando
      * el puerto de escucha y mostrando información relevante sobre los endpoints
      * disponibles y ejemplos de uso.
-     * @param args argumentos de línea de comandos.
+     * @param args argumentos de línea de comandos: [puerto] [modo de ejecución] [transporte].
      * @throws InterruptedException si el hilo principal es interrumpido mientras espera.                             
      * @throws Exception si ocurre un error al inicializar o arrancar el servicio.
      */
@@ -76,18 +77,32 @@ public class Main {
             }
         }
         
+        ModoEjecucion modo = ModoEjecucion.resolver(args.length > 1 ? args[1] : null);
+        TipoTransporte transporte = TipoTransporte.resolver(args.length > 2 ? args[2] : null);
+        
         try {
-            ServicioCompilador servicio = new ServicioCompilador(puerto);
+            ServicioCompilador servicio = new ServicioCompilador(puerto, modo, transporte);
             servicio.iniciar();
             System.out.println("Compilador como Servicio con Telemetría");
             System.out.println("Proyecto 02 - Compiladores");
             System.out.println();
             System.out.println("Servidor escuchando en puerto: " + puerto);
+            System.out.println("Modo de ejecución: " + modo);
+            System.out.println("Transporte: " + transporte);
             System.out.println();
             System.out.println("Endpoints disponibles:");
             System.out.println("  POST http://localhost:" + puerto + "/api/compilar");
+            System.out.println("  POST http://localhost:" + puerto + "/api/compilar/lote");
+            System.out.println("  POST http://localhost:" + puerto + "/api/compilar/stream");
+            System.out.println("  POST http://localhost:" + puerto + "/api/compilar/columnas");
             System.out.println("  GET  http://localhost:" + puerto + "/api/metricas");
+            System.out.println("  GET  http://localhost:" + puerto + "/metrics");
             System.out.println("  GET  http://localhost:" + puerto + "/api/salud");
+            if (servicio.isAdminJfrHabilitado()) {
+                System.out.println("  GET, POST http://localhost:" + puerto + "/api/admin/jfr (sólo loopback)");
+            } else {
+                System.out.println("  /api/admin/jfr deshabilitado (CAAS_JFR_ADMIN=true para habilitarlo)");
+            }
             System.out.println();
             System.out.println("Ejemplo de uso:");
             System.out.println("  curl -X POST http://localhost:" + puerto + "/api/compilar \\");
@@ -1,24 +1,82 @@
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 
 /**
  * Recolector de métricas específicas del dominio de compilación.
  * Thread-safe usando estructuras concurrentes.
+ * 
+ * <p>Las latencias se registran en nanosegundos en histogramas
+ * ({@link HistogramaLatencia}): uno global, uno por lenguaje y uno por
+ * cada {@link FaseCompilacion}.</p>
+ *
+ * <p>Todas las peticiones escriben en los mismos contadores, así que éstos
+ * son {@link LongAdder}: cada hilo incrementa su propia celda, separada de
+ * las demás por relleno de línea de caché, y las celdas sólo se suman al
+ * generar el snapshot. Los histogramas globales y por fase también están
+ * repartidos en franjas.</p>
+ *
+ * <p>El snapshot deriva los totales de sus componentes (total = exitosos +
+ * fallidos, muestras = suma de las cubetas) para que las tasas y
+ * porcentajes sean coherentes aunque se lea mientras otros hilos escriben.</p>
  */
 public class MetricasCompilacion {
     
+    /**
+     * Lenguajes con contador e histograma propios; el resto se agrupa en
+     * OTRO. El lenguaje viene del cliente, así que sin límite cada valor
+     * nuevo sería una serie más en la exposición.
+     */
+    private static final int MAX_LENGUAJES = 32;
+    private static final String LENGUAJE_OTRO = "OTRO";
+    
+    private static final FaseCompilacion[] FASES = FaseCompilacion.values();
+    
+    /** Ventanas deslizantes disponibles, en segundos. */
+    private static final Map<String, Integer> VENTANAS = Map.of(
+        "1s", 1, "10s", 10, "1m", 60, "5m", 300);
+    
     private final long tiempoInicioMs;
     
-    private final AtomicLong totalRequests;
-    private final AtomicLong requestsExitosos;
-    private final AtomicLong requestsFallidos;
-    private final AtomicLong sumaLatenciasMs;
+    private final LongAdder requestsExitosos;
+    private final LongAdder requestsFallidos;
+    private final LongAdder sumaLatenciasNs;
+    private final HistogramaLatencia histogramaLatencia;
+    private final Map<String, HistogramaLatencia> histogramasPorLenguaje;
+    private final Map<FaseCompilacion, HistogramaLatencia> histogramasPorFase;
+    private final VentanaDeslizante ventana;
+    
+    private final Map<String, LongAdder> lenguajesUtilizados;
+    private final LongAdder totalTokensProcesados;
+    
+    private final LongAdder cacheAciertos;
+    private final LongAdder cacheFallos;
+    private final LongAdder cacheDesalojos;
+    
+    private final LongAdder totalLotes;
+    private final LongAdder elementosEnLotes;
+    private final LongAdder sumaLatenciasLotesNs;
     
-    private final Map<String, AtomicLong> lenguajesUtilizados;
-    private final AtomicLong totalTokensProcesados;
-    private final AtomicLong erroresSintacticos;
+    private final LongAdder tareasEnCola;
+    private final LongAdder handlersActivos;
+    
+    private final LongAdder solicitudesRechazadas;
+    private volatile IntSupplier solicitudesEnVuelo = () -> 0;
+    private volatile IntSupplier limiteConcurrencia = () -> 0;
+    
+    private volatile IntSupplier colaTrazas = () -> 0;
+    private volatile LongSupplier spansDescartados = () -> 0;
+    private volatile LongSupplier spansExportados = () -> 0;
+    private volatile LongSupplier spansFallidos = () -> 0;
+    private volatile LongSupplier trazasNoConservadas = () -> 0;
+    
+    private volatile LongSupplier logsDescartados = () -> 0;
+    private volatile LongSupplier logsEscritos = () -> 0;
 
     /**
      * Constructor que inicializa todas las métricas en cero.
@@ -26,13 +84,27 @@ public class MetricasCompilacion {
      */
     public MetricasCompilacion() {
         this.tiempoInicioMs = System.currentTimeMillis();
-        this.totalRequests = new AtomicLong(0);
-        this.requestsExitosos = new AtomicLong(0);
-        this.requestsFallidos = new AtomicLong(0);
-        this.sumaLatenciasMs = new AtomicLong(0);
+        this.requestsExitosos = new LongAdder();
+        this.requestsFallidos = new LongAdder();
+        this.sumaLatenciasNs = new LongAdder();
+        this.histogramaLatencia = nuevoHistograma();
+        this.histogramasPorLenguaje = new ConcurrentHashMap<>();
+        this.histogramasPorFase = new EnumMap<>(FaseCompilacion.class);
+        for (FaseCompilacion fase : FASES) {
+            histogramasPorFase.put(fase, nuevoHistograma());
+        }
+        this.ventana = new VentanaDeslizante(300);
         this.lenguajesUtilizados = new ConcurrentHashMap<>();
-        this.totalTokensProcesados = new AtomicLong(0);
-        this.erroresSintacticos = new AtomicLong(0);
+        this.totalTokensProcesados = new LongAdder();
+        this.cacheAciertos = new LongAdder();
+        this.cacheFallos = new LongAdder();
+        this.cacheDesalojos = new LongAdder();
+        this.totalLotes = new LongAdder();
+        this.elementosEnLotes = new LongAdder();
+        this.sumaLatenciasLotesNs = new LongAdder();
+        this.tareasEnCola = new LongAdder();
+        this.handlersActivos = new LongAdder();
+        this.solicitudesRechazadas = new LongAdder();
     }
 
     /**
@@ -41,17 +113,14 @@ public class MetricasCompilacion {
      * 
      * @param lenguaje nombre del lenguaje utilizado para la compilación
      * @param tokens cantidad de tokens procesados en la expresión
-     * @param latenciaMs tiempo en milisegundos que tomó la compilación
+     * @param latenciaNs tiempo en nanosegundos que tomó la compilación
      */
-    public void registrarCompilacionExitosa(String lenguaje, int tokens, long latenciaMs) {
-        totalRequests.incrementAndGet();
-        requestsExitosos.incrementAndGet();
-        sumaLatenciasMs.addAndGet(latenciaMs);
-        totalTokensProcesados.addAndGet(tokens);
-        
-        lenguajesUtilizados
-            .computeIfAbsent(lenguaje, k -> new AtomicLong(0))
-            .incrementAndGet();
+    public void registrarCompilacionExitosa(String lenguaje, int tokens, long latenciaNs) {
+        requestsExitosos.increment();
+        totalTokensProcesados.add(tokens);
+        registrarLatencia(lenguaje, latenciaNs);
+        ventana.registrar(latenciaNs, false);
+        contadorDeLenguaje(lenguaje).increment();
     }
 
     /**
@@ -59,17 +128,280 @@ public class MetricasCompilacion {
      * Incrementa contadores de error y uso de lenguaje.
      * 
      * @param lenguaje nombre del lenguaje donde ocurrió el error
-     * @param latenciaMs tiempo en milisegundos que tomó hasta el fallo
+     * @param latenciaNs tiempo en nanosegundos que tomó hasta el fallo
+     */
+    public void registrarCompilacionFallida(String lenguaje, long latenciaNs) {
+        requestsFallidos.increment();
+        registrarLatencia(lenguaje, latenciaNs);
+        ventana.registrar(latenciaNs, true);
+        contadorDeLenguaje(lenguaje).increment();
+    }
+
+    /**
+     * Registra la duración de una fase de una compilación.
+     * 
+     * @param fase fase medida
+     * @param latenciaNs duración de la fase en nanosegundos
+     */
+    public void registrarFase(FaseCompilacion fase, long latenciaNs) {
+        histogramasPorFase.get(fase).registrar(latenciaNs);
+    }
+
+    private void registrarLatencia(String lenguaje, long latenciaNs) {
+        sumaLatenciasNs.add(latenciaNs);
+        histogramaLatencia.registrar(latenciaNs);
+        histogramaDeLenguaje(lenguaje).registrar(latenciaNs);
+    }
+
+    /**
+     * Obtiene el contador de un lenguaje, creándolo si hace falta, con el
+     * mismo límite que {@link #histogramaDeLenguaje(String)}. El get previo
+     * evita que el caso común, un lenguaje ya visto, bloquee el nodo del
+     * mapa como lo hace computeIfAbsent.
+     */
+    private LongAdder contadorDeLenguaje(String lenguaje) {
+        LongAdder contador = lenguajesUtilizados.get(lenguaje);
+        if (contador != null) {
+            return contador;
+        }
+        if (lenguajesUtilizados.size() >= MAX_LENGUAJES) {
+            return lenguajesUtilizados.computeIfAbsent(LENGUAJE_OTRO, k -> new LongAdder());
+        }
+        return lenguajesUtilizados.computeIfAbsent(lenguaje, k -> new LongAdder());
+    }
+
+    /**
+     * Obtiene el histograma de un lenguaje, creándolo si hace falta. A
+     * partir de {@link #MAX_LENGUAJES} los lenguajes nuevos van a OTRO.
      */
-    public void registrarCompilacionFallida(String lenguaje, long latenciaMs) {
-        totalRequests.incrementAndGet();
-        requestsFallidos.incrementAndGet();
-        sumaLatenciasMs.addAndGet(latenciaMs);
-        erroresSintacticos.incrementAndGet();
+    private HistogramaLatencia histogramaDeLenguaje(String lenguaje) {
+        HistogramaLatencia histograma = histogramasPorLenguaje.get(lenguaje);
+        if (histograma != null) {
+            return histograma;
+        }
+        if (histogramasPorLenguaje.size() >= MAX_LENGUAJES) {
+            return histogramasPorLenguaje.computeIfAbsent(
+                LENGUAJE_OTRO, k -> nuevoHistograma());
+        }
+        return histogramasPorLenguaje.computeIfAbsent(lenguaje, k -> nuevoHistograma());
+    }
+
+    private static HistogramaLatencia nuevoHistograma() {
+        return new HistogramaLatencia(HistogramaLatencia.BITS_PRECISION_DEFECTO,
+            HistogramaLatencia.franjasPorNucleos());
+    }
+
+    /**
+     * Registra que una expresión se encontró ya compilada en la caché.
+     */
+    public void registrarAciertoCache() {
+        cacheAciertos.increment();
+    }
+
+    /**
+     * Registra que una expresión no estaba en la caché y tuvo que compilarse.
+     */
+    public void registrarFalloCache() {
+        cacheFallos.increment();
+    }
+
+    /**
+     * Registra que una entrada fue desalojada de la caché por falta de espacio.
+     */
+    public void registrarDesalojoCache() {
+        cacheDesalojos.increment();
+    }
+
+    /**
+     * Registra un lote procesado. Cada elemento del lote se registra además
+     * como compilación individual.
+     * 
+     * @param tamano cantidad de solicitudes del lote
+     * @param latenciaNs tiempo total del lote en nanosegundos
+     */
+    public void registrarLote(int tamano, long latenciaNs) {
+        totalLotes.increment();
+        elementosEnLotes.add(tamano);
+        sumaLatenciasLotesNs.add(latenciaNs);
+    }
+
+    /**
+     * Registra que una petición HTTP fue entregada al executor y espera hilo.
+     */
+    public void registrarTareaEncolada() {
+        tareasEnCola.increment();
+    }
+
+    /**
+     * Registra que una petición en espera empezó a ejecutarse.
+     */
+    public void registrarTareaIniciada() {
+        tareasEnCola.decrement();
+        handlersActivos.increment();
+    }
+
+    /**
+     * Registra que un handler terminó de atender su petición.
+     */
+    public void registrarTareaTerminada() {
+        handlersActivos.decrement();
+    }
+
+    /**
+     * Registra una petición rechazada por el control de admisión.
+     */
+    public void registrarRechazo() {
+        solicitudesRechazadas.increment();
+    }
+
+    /**
+     * Registra las fuentes de los gauges del control de admisión; se
+     * consultan sólo al generar el snapshot.
+     * 
+     * @param enVuelo peticiones admitidas que no han terminado
+     * @param limite límite de concurrencia actual
+     */
+    public void registrarGaugesConcurrencia(IntSupplier enVuelo, IntSupplier limite) {
+        this.solicitudesEnVuelo = enVuelo;
+        this.limiteConcurrencia = limite;
+    }
+
+    /**
+     * Registra las fuentes de los gauges de exportación de spans; se
+     * consultan sólo al generar el snapshot.
+     * 
+     * @param cola spans que esperan exportación
+     * @param descartados spans descartados por cola llena
+     * @param exportados spans exportados
+     * @param fallidos spans cuya exportación falló
+     * @param noConservadas trazas que el muestreo en cola no conservó
+     */
+    public void registrarGaugesTrazas(IntSupplier cola, LongSupplier descartados,
+                                      LongSupplier exportados, LongSupplier fallidos,
+                                      LongSupplier noConservadas) {
+        this.colaTrazas = cola;
+        this.spansDescartados = descartados;
+        this.spansExportados = exportados;
+        this.spansFallidos = fallidos;
+        this.trazasNoConservadas = noConservadas;
+    }
+
+    /**
+     * Registra las fuentes de los contadores del log asíncrono; se
+     * consultan sólo al generar el snapshot.
+     * 
+     * @param descartados entradas perdidas por buffer lleno
+     * @param escritos entradas escritas
+     */
+    public void registrarGaugesLog(LongSupplier descartados, LongSupplier escritos) {
+        this.logsDescartados = descartados;
+        this.logsEscritos = escritos;
+    }
+
+    /**
+     * Indica si un nombre de ventana es válido para {@link #generarSnapshot(String)}.
+     * 
+     * @param nombre nombre de la ventana
+     * @return true si es 1s, 10s, 1m o 5m
+     */
+    public static boolean esVentanaValida(String nombre) {
+        return VENTANAS.containsKey(nombre);
+    }
+
+    /**
+     * Genera un snapshot que incluye además las métricas de una ventana
+     * deslizante.
+     * 
+     * @param nombreVentana 1s, 10s, 1m o 5m
+     * @return objeto ResultadoMetricas con todos los valores calculados
+     * @throws IllegalArgumentException si la ventana no es válida
+     */
+    public ResultadoMetricas generarSnapshot(String nombreVentana) {
+        Integer segundos = VENTANAS.get(nombreVentana);
+        if (segundos == null) {
+            throw new IllegalArgumentException("Ventana inválida: " + nombreVentana);
+        }
+        ResultadoMetricas resultado = generarSnapshot();
+        resultado.setVentana(ventana.resumen(nombreVentana, segundos));
+        return resultado;
+    }
+
+    /**
+     * Escribe todas las métricas en formato OpenMetrics: los contadores,
+     * los gauges, las solicitudes por lenguaje y los histogramas global,
+     * por lenguaje y por fase. A diferencia de {@link #generarSnapshot()},
+     * lee los contadores directamente sin construir un DTO. Los mapas por
+     * lenguaje se recorren con forEach, que a diferencia de entrySet() no
+     * crea un objeto por serie.
+     * 
+     * @param expositor escritor donde se agrega la exposición, ya iniciado
+     */
+    public void exponer(ExpositorOpenMetrics expositor) {
+        expositor.familia("caas_solicitudes", "counter", "Compilaciones atendidas por resultado.");
+        expositor.muestra("caas_solicitudes_total", "resultado", "exitoso", requestsExitosos.sum());
+        expositor.muestra("caas_solicitudes_total", "resultado", "fallido", requestsFallidos.sum());
+        
+        expositor.familia("caas_solicitudes_lenguaje", "counter", "Compilaciones atendidas por lenguaje.");
+        lenguajesUtilizados.forEach((lenguaje, contador) ->
+            expositor.muestra("caas_solicitudes_lenguaje_total", "lenguaje", lenguaje, contador.sum()));
         
-        lenguajesUtilizados
-            .computeIfAbsent(lenguaje, k -> new AtomicLong(0))
-            .incrementAndGet();
+        expositor.familia("caas_tokens_procesados", "counter", "Tokens de las compilaciones exitosas.");
+        expositor.muestra("caas_tokens_procesados_total", totalTokensProcesados.sum());
+        
+        expositor.familia("caas_cache_aciertos", "counter", "Expresiones encontradas en la cache.");
+        expositor.muestra("caas_cache_aciertos_total", cacheAciertos.sum());
+        expositor.familia("caas_cache_fallos", "counter", "Expresiones compiladas por no estar en la cache.");
+        expositor.muestra("caas_cache_fallos_total", cacheFallos.sum());
+        expositor.familia("caas_cache_desalojos", "counter", "Entradas desalojadas de la cache.");
+        expositor.muestra("caas_cache_desalojos_total", cacheDesalojos.sum());
+        
+        expositor.familia("caas_lotes", "counter", "Lotes procesados.");
+        expositor.muestra("caas_lotes_total", totalLotes.sum());
+        expositor.familia("caas_lote_elementos", "counter", "Elementos de los lotes procesados.");
+        expositor.muestra("caas_lote_elementos_total", elementosEnLotes.sum());
+        expositor.familia("caas_lote_duracion_segundos", "counter", "Tiempo total procesando lotes.");
+        expositor.segundos("caas_lote_duracion_segundos_total", sumaLatenciasLotesNs.sum());
+        
+        expositor.familia("caas_tareas_en_cola", "gauge", "Tareas esperando un hilo del ejecutor.");
+        expositor.muestra("caas_tareas_en_cola", Math.max(0, tareasEnCola.sum()));
+        expositor.familia("caas_handlers_activos", "gauge", "Handlers en ejecucion.");
+        expositor.muestra("caas_handlers_activos", Math.max(0, handlersActivos.sum()));
+        expositor.familia("caas_solicitudes_rechazadas", "counter", "Solicitudes rechazadas por el control de admision.");
+        expositor.muestra("caas_solicitudes_rechazadas_total", solicitudesRechazadas.sum());
+        expositor.familia("caas_solicitudes_en_vuelo", "gauge", "Solicitudes admitidas sin terminar.");
+        expositor.muestra("caas_solicitudes_en_vuelo", solicitudesEnVuelo.getAsInt());
+        expositor.familia("caas_limite_concurrencia", "gauge", "Limite actual del control de admision.");
+        expositor.muestra("caas_limite_concurrencia", limiteConcurrencia.getAsInt());
+        
+        expositor.familia("caas_trazas_cola", "gauge", "Spans esperando exportacion.");
+        expositor.muestra("caas_trazas_cola", colaTrazas.getAsInt());
+        expositor.familia("caas_spans", "counter", "Spans terminados por destino.");
+        expositor.muestra("caas_spans_total", "estado", "exportado", spansExportados.getAsLong());
+        expositor.muestra("caas_spans_total", "estado", "descartado", spansDescartados.getAsLong());
+        expositor.muestra("caas_spans_total", "estado", "fallido", spansFallidos.getAsLong());
+        expositor.familia("caas_trazas_no_conservadas", "counter",
+            "Trazas rapidas y sin error que el muestreo en cola no conservo.");
+        expositor.muestra("caas_trazas_no_conservadas_total", trazasNoConservadas.getAsLong());
+        expositor.familia("caas_logs", "counter", "Entradas de log por destino.");
+        expositor.muestra("caas_logs_total", "estado", "escrito", logsEscritos.getAsLong());
+        expositor.muestra("caas_logs_total", "estado", "descartado", logsDescartados.getAsLong());
+        
+        expositor.familia("caas_tiempo_activo_segundos", "gauge", "Tiempo desde el inicio del servicio.");
+        expositor.segundos("caas_tiempo_activo_segundos",
+            (System.currentTimeMillis() - tiempoInicioMs) * 1_000_000L);
+        
+        expositor.familia("caas_latencia_segundos", "histogram", "Latencia de las compilaciones.");
+        expositor.histograma("caas_latencia_segundos", null, null,
+            histogramaLatencia, sumaLatenciasNs.sum());
+        expositor.familia("caas_latencia_lenguaje_segundos", "histogram",
+            "Latencia de las compilaciones por lenguaje.");
+        histogramasPorLenguaje.forEach((lenguaje, histograma) ->
+            expositor.histograma("caas_latencia_lenguaje_segundos", "lenguaje", lenguaje, histograma, -1));
+        expositor.familia("caas_fase_segundos", "histogram", "Duracion de cada fase de la compilacion.");
+        for (FaseCompilacion fase : FASES) {
+            expositor.histograma("caas_fase_segundos", "fase",
+                fase.name(), histogramasPorFase.get(fase), -1);
+        }
     }
 
     /**
@@ -84,9 +416,11 @@ public class MetricasCompilacion {
         long tiempoActivoMs = System.currentTimeMillis() - tiempoInicioMs;
         resultado.setTiempoActivoMs(tiempoActivoMs);
         
-        long total = totalRequests.get();
+        long fallidos = requestsFallidos.sum();
+        long exitosos = requestsExitosos.sum();
+        long total = exitosos + fallidos;
         if (total > 0) {
-            double latenciaPromedio = (double) sumaLatenciasMs.get() / total;
+            double latenciaPromedio = sumaLatenciasNs.sum() / 1_000_000.0 / total;
             resultado.setLatenciaPromedioMs(latenciaPromedio);
             
             double segundos = tiempoActivoMs / 1000.0;
@@ -98,21 +432,57 @@ public class MetricasCompilacion {
         }
         
         resultado.setTotalRequests(total);
-        resultado.setRequestsExitosos(requestsExitosos.get());
-        resultado.setRequestsFallidos(requestsFallidos.get());
+        resultado.setRequestsExitosos(exitosos);
+        resultado.setRequestsFallidos(fallidos);
         
         double tasaError = total > 0 
-            ? (double) requestsFallidos.get() / total * 100 
+            ? (double) fallidos / total * 100 
             : 0;
         resultado.setTasaError(tasaError);
         
         Map<String, Long> distribucionLenguajes = new HashMap<>();
         lenguajesUtilizados.forEach((lenguaje, contador) -> 
-            distribucionLenguajes.put(lenguaje, contador.get()));
+            distribucionLenguajes.put(lenguaje, contador.sum()));
         resultado.setLenguajesUtilizados(distribucionLenguajes);
         
-        resultado.setTotalTokensProcesados(totalTokensProcesados.get());
-        resultado.setErroresSintacticos(erroresSintacticos.get());
+        resultado.setTotalTokensProcesados(totalTokensProcesados.sum());
+        resultado.setErroresSintacticos(fallidos);
+        
+        resultado.setCacheAciertos(cacheAciertos.sum());
+        resultado.setCacheFallos(cacheFallos.sum());
+        resultado.setCacheDesalojos(cacheDesalojos.sum());
+        
+        long lotes = totalLotes.sum();
+        resultado.setTotalLotes(lotes);
+        resultado.setTamanoPromedioLote(lotes > 0 ? (double) elementosEnLotes.sum() / lotes : 0);
+        resultado.setLatenciaPromedioLoteMs(lotes > 0 ? sumaLatenciasLotesNs.sum() / 1_000_000.0 / lotes : 0);
+        
+        resultado.setLatencia(histogramaLatencia.resumen());
+        
+        Map<String, ResumenLatencia> latenciaPorLenguaje = new HashMap<>();
+        histogramasPorLenguaje.forEach((lenguaje, histograma) ->
+            latenciaPorLenguaje.put(lenguaje, histograma.resumen()));
+        resultado.setLatenciaPorLenguaje(latenciaPorLenguaje);
+        
+        Map<String, ResumenLatencia> latenciaPorFase = new LinkedHashMap<>();
+        histogramasPorFase.forEach((fase, histograma) ->
+            latenciaPorFase.put(fase.name(), histograma.resumen()));
+        resultado.setLatenciaPorFase(latenciaPorFase);
+        
+        // Un decremento puede sumarse antes que su incremento; se acota en cero.
+        resultado.setTareasEnCola(Math.max(0, tareasEnCola.sum()));
+        resultado.setHandlersActivos(Math.max(0, handlersActivos.sum()));
+        resultado.setSolicitudesRechazadas(solicitudesRechazadas.sum());
+        resultado.setSolicitudesEnVuelo(solicitudesEnVuelo.getAsInt());
+        resultado.setLimiteConcurrencia(limiteConcurrencia.getAsInt());
+        
+        resultado.setColaTrazas(colaTrazas.getAsInt());
+        resultado.setSpansDescartados(spansDescartados.getAsLong());
+        resultado.setSpansExportados(spansExportados.getAsLong());
+        resultado.setSpansFallidos(spansFallidos.getAsLong());
+        resultado.setTrazasNoConservadas(trazasNoConservadas.getAsLong());
+        resultado.setLogsDescartados(logsDescartados.getAsLong());
+        resultado.setLogsEscritos(logsEscritos.getAsLong());
         
         return resultado;
     }
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.MeterProvider;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentSelector;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.SdkMeterProviderBuilder;
+import io.opentelemetry.sdk.metrics.View;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+import io.opentelemetry.sdk.resources.Resource;
+
+/**
+ * Instrumentos de OpenTelemetry para las compilaciones: latencia, tokens
+ * y fallos, además de los que lleva {@link MetricasCompilacion}.
+ *
+ * <ul>
+ *   <li><b>caas.compilacion.duracion</b> - histograma en segundos, por
+ *       lenguaje y resultado, con las cubetas de
+ *       {@link ExpositorOpenMetrics}</li>
+ *   <li><b>caas.compilacion.tokens</b> - histograma de tokens por
+ *       compilación exitosa, por lenguaje</li>
+ *   <li><b>caas.compilacion.fallos</b> - contador de compilaciones
+ *       fallidas, por lenguaje</li>
+ * </ul>
+ *
+ * <p>Las mediciones se registran con un contexto: si lleva un span
+ * muestreado, el SDK guarda su trace id y span id como exemplar de la
+ * cubeta. {@link TelemetriaManager} pasa el span de la petición sólo si
+ * {@link MuestreoCola} conservó su traza, para que los exemplars no
+ * apunten a trazas que no se exportaron.</p>
+ *
+ * <p>La API de Java no tiene instrumentos ligados a atributos, así que
+ * los {@link Attributes} de cada lenguaje se crean una vez y se
+ * reutilizan; registrar no crea atributos nuevos. Después de
+ * {@link #MAX_LENGUAJES} lenguajes distintos, el resto se agrupa en
+ * {@code OTRO} para acotar las series.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class MetricasOpenTelemetry {
+
+    /** Lenguajes con series propias; los demás van a {@code OTRO}. */
+    public static final int MAX_LENGUAJES = 64;
+
+    static final String DURACION = "caas.compilacion.duracion";
+    static final String TOKENS = "caas.compilacion.tokens";
+    static final String FALLOS = "caas.compilacion.fallos";
+
+    private static final AttributeKey<String> LENGUAJE = AttributeKey.stringKey("lenguaje");
+    private static final AttributeKey<String> RESULTADO = AttributeKey.stringKey("resultado");
+
+    private final DoubleHistogram duracion;
+    private final LongHistogram tokens;
+    private final LongCounter fallos;
+
+    private final ConcurrentHashMap<String, AtributosLenguaje> atributos = new ConcurrentHashMap<>();
+    private final AtributosLenguaje otro = new AtributosLenguaje("OTRO");
+
+    /**
+     * Atributos de un lenguaje, creados una vez.
+     */
+    private static final class AtributosLenguaje {
+        final Attributes lenguaje;
+        final Attributes exitoso;
+        final Attributes fallido;
+
+        AtributosLenguaje(String nombre) {
+            this.lenguaje = Attributes.of(LENGUAJE, nombre);
+            this.exitoso = Attributes.of(LENGUAJE, nombre, RESULTADO, "exitoso");
+            this.fallido = Attributes.of(LENGUAJE, nombre, RESULTADO, "fallido");
+        }
+    }
+
+    /**
+     * Crea los instrumentos en el proveedor dado.
+     *
+     * @param proveedor proveedor de medidores, normalmente el de
+     *                  {@link #crearProveedor}
+     */
+    public MetricasOpenTelemetry(MeterProvider proveedor) {
+        Meter medidor = proveedor.get("compiladores");
+        this.duracion = medidor.histogramBuilder(DURACION)
+            .setDescription("Duración de las compilaciones")
+            .setUnit("s")
+            .build();
+        this.tokens = medidor.histogramBuilder(TOKENS)
+            .setDescription("Tokens por compilación exitosa")
+            .setUnit("{token}")
+            .ofLongs()
+            .build();
+        this.fallos = medidor.counterBuilder(FALLOS)
+            .setDescription("Compilaciones fallidas")
+            .setUnit("{compilacion}")
+            .build();
+    }
+
+    /**
+     * Crea un proveedor de medidores con las cubetas de
+     * {@link ExpositorOpenMetrics} para el histograma de duración.
+     *
+     * @param recurso recurso que identifica al servicio
+     * @param lectores lectores que recolectan las métricas; sin lectores
+     *                 los instrumentos no registran nada
+     * @return proveedor nuevo; quien lo crea lo cierra
+     */
+    public static SdkMeterProvider crearProveedor(Resource recurso, MetricReader... lectores) {
+        List<Double> limites = new ArrayList<>(ExpositorOpenMetrics.LIMITES_NS.length);
+        for (long limiteNs : ExpositorOpenMetrics.LIMITES_NS) {
+            limites.add(limiteNs / 1e9);
+        }
+        SdkMeterProviderBuilder constructor = SdkMeterProvider.builder()
+            .setResource(recurso)
+            .registerView(
+                InstrumentSelector.builder().setName(DURACION).build(),
+                View.builder().setAggregation(Aggregation.explicitBucketHistogram(limites)).build());
+        for (MetricReader lector : lectores) {
+            constructor.registerMetricReader(lector);
+        }
+        return constructor.build();
+    }
+
+    /**
+     * Registra una compilación exitosa con el contexto actual.
+     *
+     * @param lenguaje lenguaje de la expresión
+     * @param cantidadTokens tokens procesados
+     * @param latenciaNs duración de la compilación en nanosegundos
+     */
+    public void registrarExitosa(String lenguaje, int cantidadTokens, long latenciaNs) {
+        registrarExitosa(lenguaje, cantidadTokens, latenciaNs, Context.current());
+    }
+
+    /**
+     * Registra una compilación exitosa con el contexto dado.
+     *
+     * @param lenguaje lenguaje de la expresión
+     * @param cantidadTokens tokens procesados
+     * @param latenciaNs duración de la compilación en nanosegundos
+     * @param contexto contexto cuyo span, si está muestreado, queda como exemplar
+     */
+    public void registrarExitosa(String lenguaje, int cantidadTokens, long latenciaNs, Context contexto) {
+        AtributosLenguaje a = atributos(lenguaje);
+        duracion.record(latenciaNs / 1e9, a.exitoso, contexto);
+        tokens.record(cantidadTokens, a.lenguaje, contexto);
+    }
+
+    /**
+     * Registra una compilación fallida con el contexto actual.
+     *
+     * @param lenguaje lenguaje de la expresión
+     * @param latenciaNs tiempo hasta el fallo en nanosegundos
+     */
+    public void registrarFallida(String lenguaje, long latenciaNs) {
+        registrarFallida(lenguaje, latenciaNs, Context.current());
+    }
+
+    /**
+     * Registra una compilación fallida con el contexto dado.
+     *
+     * @param lenguaje lenguaje de la expresión
+     * @param latenciaNs tiempo hasta el fallo en nanosegundos
+     * @param contexto contexto cuyo span, si está muestreado, queda como exemplar
+     */
+    public void registrarFallida(String lenguaje, long latenciaNs, Context contexto) {
+        AtributosLenguaje a = atributos(lenguaje);
+        duracion.record(latenciaNs / 1e9, a.fallido, contexto);
+        fallos.add(1, a.lenguaje, contexto);
+    }
+
+    private AtributosLenguaje atributos(String lenguaje) {
+        AtributosLenguaje a = atributos.get(lenguaje);
+        if (a != null) {
+            return a;
+        }
+        if (atributos.size() >= MAX_LENGUAJES) {
+            return otro;
+        }
+        return atributos.computeIfAbsent(lenguaje, AtributosLenguaje::new);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * DTO con las métricas de una ventana deslizante de tiempo.
+ * A diferencia de los totales de {@link ResultadoMetricas}, sólo considera
+ * las peticiones de los últimos segundos.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class MetricasVentana {
+
+    private String ventana;
+    private int segundos;
+    private long totalRequests;
+    private long requestsFallidos;
+    private double throughput;
+    private double tasaError;
+    private ResumenLatencia latencia;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public MetricasVentana() {}
+
+    /**
+     * @return nombre de la ventana (1s, 10s, 1m o 5m)
+     */
+    public String getVentana() {
+        return ventana;
+    }
+
+    /**
+     * @param ventana establece el nombre de la ventana
+     */
+    public void setVentana(String ventana) {
+        this.ventana = ventana;
+    }
+
+    /**
+     * @return duración de la ventana en segundos
+     */
+    public int getSegundos() {
+        return segundos;
+    }
+
+    /**
+     * @param segundos establece la duración de la ventana
+     */
+    public void setSegundos(int segundos) {
+        this.segundos = segundos;
+    }
+
+    /**
+     * @return requests recibidos dentro de la ventana
+     */
+    public long getTotalRequests() {
+        return totalRequests;
+    }
+
+    /**
+     * @param totalRequests establece los requests de la ventana
+     */
+    public void setTotalRequests(long totalRequests) {
+        this.totalRequests = totalRequests;
+    }
+
+    /**
+     * @return requests fallidos dentro de la ventana
+     */
+    public long getRequestsFallidos() {
+        return requestsFallidos;
+    }
+
+    /**
+     * @param requestsFallidos establece los fallos de la ventana
+     */
+    public void setRequestsFallidos(long requestsFallidos) {
+        this.requestsFallidos = requestsFallidos;
+    }
+
+    /**
+     * @return requests por segundo dentro de la ventana
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * @param throughput establece el throughput de la ventana
+     */
+    public void setThroughput(double throughput) {
+        this.throughput = throughput;
+    }
+
+    /**
+     * @return tasa de error de la ventana en porcentaje (0-100)
+     */
+    public double getTasaError() {
+        return tasaError;
+    }
+
+    /**
+     * @param tasaError establece la tasa de error de la ventana
+     */
+    public void setTasaError(double tasaError) {
+        this.tasaError = tasaError;
+    }
+
+    /**
+     * @return percentiles de latencia dentro de la ventana
+     */
+    public ResumenLatencia getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * @param latencia establece los percentiles de la ventana
+     */
+    public void setLatencia(ResumenLatencia latencia) {
+        this.latencia = latencia;
+    }
+}
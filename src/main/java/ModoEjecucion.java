@@ -0,0 +1,142 @@
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modos de ejecución de los handlers del servidor HTTP.
+ *
+ * <ul>
+ *   <li><b>VIRTUAL</b> - un hilo virtual por petición (Java 21+; en versiones
+ *       anteriores se usa POOL). Cada petición estrena hilo, así que lo que
+ *       el servicio guarda en un {@link ThreadLocal} para reutilizarlo entre
+ *       peticiones (el {@link CompiladorExpresiones}, el buffer de
+ *       {@link CodecJson} y la {@link TrazaPeticion}) se crea de nuevo en
+ *       cada una; lo dicho sobre peticiones sin asignar memoria vale sólo
+ *       para POOL y UNICO.</li>
+ *   <li><b>POOL</b> - pool acotado de hilos de plataforma con cola acotada</li>
+ *   <li><b>UNICO</b> - todas las peticiones en el hilo despachador del servidor,
+ *       como el comportamiento original; útil como referencia</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public enum ModoEjecucion {
+    VIRTUAL,
+    POOL,
+    UNICO;
+
+    /** Modo usado si no se especifica otro. */
+    public static final ModoEjecucion DEFECTO = POOL;
+
+    /**
+     * Hilos que responden a las peticiones rechazadas del transporte
+     * HTTPSERVER. Cada una sólo lee sus encabezados y escribe un 503; el
+     * segundo hilo evita que un cliente lento los retenga a todos.
+     */
+    static final int HILOS_RECHAZO = 2;
+
+    /**
+     * Resuelve el modo a partir de un argumento de línea de comandos o,
+     * si es nulo, de la variable de entorno CAAS_MODO_EJECUCION.
+     *
+     * @param argumento nombre del modo (sin distinguir mayúsculas) o null
+     * @return modo configurado, o {@link #DEFECTO} si no se reconoce
+     */
+    public static ModoEjecucion resolver(String argumento) {
+        String valor = argumento != null ? argumento : System.getenv("CAAS_MODO_EJECUCION");
+        if (valor == null) {
+            return DEFECTO;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Modo de ejecución inválido: " + valor);
+            System.err.println("Usando modo por defecto: " + DEFECTO);
+            return DEFECTO;
+        }
+    }
+
+    /**
+     * Crea el executor correspondiente a este modo.
+     *
+     * <p>El tamaño del pool se lee de CAAS_HILOS (por defecto, el doble de
+     * procesadores) y la capacidad de su cola de CAAS_COLA (por defecto 1024).
+     * Con la cola llena, la tarea se ejecuta en el hilo despachador, lo que
+     * frena la aceptación de nuevas conexiones.</p>
+     *
+     * @return executor nuevo, o null en modo UNICO
+     */
+    public ExecutorService crearEjecutor() {
+        switch (this) {
+            case UNICO:
+                return null;
+            case VIRTUAL:
+                ExecutorService virtual = crearEjecutorVirtual();
+                if (virtual != null) {
+                    return virtual;
+                }
+                System.err.println("Hilos virtuales no disponibles en Java "
+                    + Runtime.version().feature() + "; usando modo POOL");
+                return POOL.crearEjecutor();
+            default:
+                int hilos = ServicioCompilador.configuracionEntera(
+                    "CAAS_HILOS", 2 * Runtime.getRuntime().availableProcessors());
+                int cola = ServicioCompilador.configuracionEntera("CAAS_COLA", 1024);
+                return new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(cola), fabricaHilos("caas-http-"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    /**
+     * Crea el executor que atiende las peticiones sin permiso del control
+     * de admisión, aparte del de los handlers para que su respuesta 503 no
+     * espere en la misma cola que las peticiones admitidas.
+     *
+     * <p>Sólo lo usa el transporte HTTPSERVER, que no conoce la petición
+     * hasta interpretarla en la tarea; NIO responde el 503 en el hilo del
+     * selector. Usa {@link #HILOS_RECHAZO} hilos y una cola sin límite: una
+     * tarea rechazada nunca se ejecuta en el hilo despachador, que en NIO
+     * es el único que atiende los sockets. Cada tarea en cola ocupa unos
+     * cuantos bytes más que la conexión que ya tiene abierta.</p>
+     *
+     * @return executor nuevo, sin importar el modo
+     */
+    static ExecutorService crearEjecutorRechazos() {
+        return new ThreadPoolExecutor(HILOS_RECHAZO, HILOS_RECHAZO, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), fabricaHilos("caas-rechazo-"));
+    }
+
+    /**
+     * Obtiene Executors.newVirtualThreadPerTaskExecutor() por reflexión para
+     * seguir compilando con Java 17.
+     *
+     * @return executor de hilos virtuales, o null si la JVM no los soporta
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            Method metodo = java.util.concurrent.Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) metodo.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory fabricaHilos(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return tarea -> {
+            Thread hilo = new Thread(tarea, prefijo + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+/**
+ * Muestreo en cola: la decisión de conservar una traza se toma cuando
+ * termina su span raíz, cuando ya se sabe si falló y cuánto tardó.
+ *
+ * <ul>
+ *   <li>Las trazas con error se conservan siempre</li>
+ *   <li>Las que tardan al menos el umbral se conservan siempre</li>
+ *   <li>De las demás se conserva la fracción {@code fraccion}, decidida
+ *       por el trace id como en {@code Sampler.traceIdRatioBased}</li>
+ * </ul>
+ *
+ * <p>{@link TelemetriaManager} decide con {@link #decidir} antes de
+ * terminar la raíz y, si la conserva, le pone el atributo
+ * {@link #RAZON}. Como procesador de spans, esta clase pasa al siguiente
+ * procesador sólo las raíces con ese atributo y los hijos, que sólo se
+ * crean en trazas conservadas; el resto no llega a la cola de
+ * exportación.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class MuestreoCola implements SpanProcessor {
+
+    /** Atributo de la raíz con el motivo por el que se conservó la traza. */
+    public static final AttributeKey<String> RAZON = AttributeKey.stringKey("muestreo.razon");
+
+    private final SpanProcessor siguiente;
+    private final long umbralNs;
+    private final double fraccion;
+    private final long limiteTraceId;
+    private final LongAdder descartadas = new LongAdder();
+
+    /**
+     * @param siguiente procesador que recibe los spans conservados
+     * @param umbralMs duración a partir de la cual una traza se conserva siempre
+     * @param fraccion fracción de 0 a 1 de las trazas rápidas y sin error
+     *                 que se conservan
+     */
+    public MuestreoCola(SpanProcessor siguiente, long umbralMs, double fraccion) {
+        this.siguiente = siguiente;
+        this.umbralNs = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+        this.fraccion = Math.max(0.0, Math.min(1.0, fraccion));
+        this.limiteTraceId = this.fraccion >= 1.0 ? Long.MAX_VALUE : (long) (this.fraccion * Long.MAX_VALUE);
+    }
+
+    /**
+     * @param error si la petición terminó con error
+     * @param latenciaNs duración de la petición en nanosegundos
+     * @param contexto contexto del span raíz
+     * @return "error", "lenta" o "muestra" si la traza se conserva, o null
+     *         si se descarta
+     */
+    public String decidir(boolean error, long latenciaNs, SpanContext contexto) {
+        if (!contexto.isSampled()) {
+            return null;
+        }
+        if (error) {
+            return "error";
+        }
+        if (latenciaNs >= umbralNs) {
+            return "lenta";
+        }
+        // Los 63 bits bajos del trace id son aleatorios.
+        String traceId = contexto.getTraceId();
+        long aleatorio = Long.parseUnsignedLong(traceId, 16, 32, 16) & Long.MAX_VALUE;
+        if (aleatorio < limiteTraceId) {
+            return "muestra";
+        }
+        descartadas.increment();
+        return null;
+    }
+
+    /**
+     * @return trazas rápidas y sin error que no se conservaron
+     */
+    public long getDescartadas() {
+        return descartadas.sum();
+    }
+
+    @Override
+    public void onStart(Context contexto, ReadWriteSpan span) {
+        siguiente.onStart(contexto, span);
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return siguiente.isStartRequired();
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        boolean raiz = !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote();
+        if (raiz && span.getAttribute(RAZON) == null) {
+            return;
+        }
+        siguiente.onEnd(span);
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return siguiente.forceFlush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return siguiente.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "muestreo en cola: errores, lentas desde " + TimeUnit.NANOSECONDS.toMillis(umbralNs)
+            + " ms y " + fraccion + " del resto";
+    }
+}
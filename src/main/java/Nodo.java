@@ -0,0 +1,420 @@
+/**
+ * Nodo del árbol de sintaxis abstracta (AST) generado por el compilador.
+ * Los nodos son inmutables, por lo que un mismo árbol puede evaluarse
+ * muchas veces y desde varios hilos sin volver a parsear la expresión,
+ * cada vez con distintos valores para sus variables.
+ *
+ * <p>Una suma de n términos sin paréntesis es un árbol cargado a la
+ * izquierda de n niveles, así que ningún recorrido puede usar una llamada
+ * por nivel. {@link Binario} guarda su altura y su cantidad de nodos al
+ * construirse, y evalúa con una pila explícita los subárboles de más de
+ * {@link Binario#ALTURA_RECURSIVA} niveles; los más bajos se evalúan
+ * recursivamente, sin reservar memoria.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public abstract class Nodo {
+
+    private static final double[] SIN_VARIABLES = new double[0];
+
+    /**
+     * Evalúa el subárbol que inicia en este nodo sin valores de variables.
+     *
+     * @return el resultado numérico del subárbol
+     * @throws Exception si ocurre una división por cero o hay variables
+     */
+    public double evaluar() throws Exception {
+        return evaluar(SIN_VARIABLES);
+    }
+
+    /**
+     * Evalúa el subárbol que inicia en este nodo.
+     *
+     * @param variables valor de cada variable, indexado por
+     *                  {@link Variable#getIndice()}
+     * @return el resultado numérico del subárbol
+     * @throws Exception si ocurre una división por cero o falta una variable
+     */
+    public abstract double evaluar(double[] variables) throws Exception;
+
+    /**
+     * Evalúa el subárbol sin lanzar excepciones. El primer error, en el
+     * mismo orden en que {@link #evaluar(double[])} lo lanzaría, queda en
+     * {@code fallo[0]}: -1 por una división por cero, o el índice de la
+     * variable sin valor más uno. Si ya había un error no se reemplaza.
+     *
+     * @param variables valor de cada variable, indexado por
+     *                  {@link Variable#getIndice()}
+     * @param fallo arreglo de al menos un elemento, en 0 antes de evaluar
+     * @return el resultado numérico del subárbol; sin significado si
+     *         {@code fallo[0]} no es 0
+     */
+    public abstract double evaluar(double[] variables, int[] fallo);
+
+    /**
+     * @return cantidad de nodos del subárbol, incluyendo este nodo
+     */
+    public abstract int contarNodos();
+
+    /**
+     * @return niveles del subárbol; 1 para una hoja
+     */
+    public abstract int altura();
+
+    /**
+     * Hoja del árbol que contiene una literal numérica.
+     */
+    public static final class Numero extends Nodo {
+
+        private final double valor;
+
+        /**
+         * @param valor valor numérico de la literal
+         */
+        public Numero(double valor) {
+            this.valor = valor;
+        }
+
+        /**
+         * @return valor numérico de la literal
+         */
+        public double getValor() {
+            return valor;
+        }
+
+        @Override
+        public double evaluar() {
+            return valor;
+        }
+
+        @Override
+        public double evaluar(double[] variables) {
+            return valor;
+        }
+
+        @Override
+        public double evaluar(double[] variables, int[] fallo) {
+            return valor;
+        }
+
+        @Override
+        public int contarNodos() {
+            return 1;
+        }
+
+        @Override
+        public int altura() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(valor);
+        }
+    }
+
+    /**
+     * Hoja del árbol que hace referencia a una variable. El compilador
+     * asigna los índices en orden de primera aparición.
+     */
+    public static final class Variable extends Nodo {
+
+        private final String nombre;
+        private final int indice;
+
+        /**
+         * @param nombre identificador de la variable
+         * @param indice posición de su valor en el arreglo de variables
+         */
+        public Variable(String nombre, int indice) {
+            this.nombre = nombre;
+            this.indice = indice;
+        }
+
+        /**
+         * @return identificador de la variable
+         */
+        public String getNombre() {
+            return nombre;
+        }
+
+        /**
+         * @return posición de su valor en el arreglo de variables
+         */
+        public int getIndice() {
+            return indice;
+        }
+
+        @Override
+        public double evaluar(double[] variables) throws Exception {
+            if (indice >= variables.length) {
+                throw new Exception("Variable sin valor: " + nombre);
+            }
+            return variables[indice];
+        }
+
+        @Override
+        public double evaluar(double[] variables, int[] fallo) {
+            if (indice >= variables.length) {
+                if (fallo[0] == 0) {
+                    fallo[0] = indice + 1;
+                }
+                return Double.NaN;
+            }
+            return variables[indice];
+        }
+
+        @Override
+        public int contarNodos() {
+            return 1;
+        }
+
+        @Override
+        public int altura() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return nombre;
+        }
+    }
+
+    /**
+     * Nodo interno que aplica un operador binario (+, -, *, /) a dos subárboles.
+     */
+    public static final class Binario extends Nodo {
+
+        /** Altura hasta la que un subárbol se recorre con recursión. */
+        static final int ALTURA_RECURSIVA = 64;
+
+        private final char operador;
+        private final Nodo izquierdo;
+        private final Nodo derecho;
+        private final int nodos;
+        private final int altura;
+
+        /**
+         * @param operador uno de '+', '-', '*', '/'
+         * @param izquierdo operando izquierdo
+         * @param derecho operando derecho
+         */
+        public Binario(char operador, Nodo izquierdo, Nodo derecho) {
+            this.operador = operador;
+            this.izquierdo = izquierdo;
+            this.derecho = derecho;
+            this.nodos = 1 + izquierdo.contarNodos() + derecho.contarNodos();
+            this.altura = 1 + Math.max(izquierdo.altura(), derecho.altura());
+        }
+
+        /**
+         * @return operador del nodo
+         */
+        public char getOperador() {
+            return operador;
+        }
+
+        /**
+         * @return operando izquierdo
+         */
+        public Nodo getIzquierdo() {
+            return izquierdo;
+        }
+
+        /**
+         * @return operando derecho
+         */
+        public Nodo getDerecho() {
+            return derecho;
+        }
+
+        /**
+         * Evalúa ambos operandos y aplica el operador. Conserva la semántica
+         * del parser original: dividir entre cero es un error, no infinito.
+         */
+        @Override
+        public double evaluar(double[] variables) throws Exception {
+            if (altura > ALTURA_RECURSIVA) {
+                return evaluarConPila(variables);
+            }
+            return aplicar(izquierdo.evaluar(variables), derecho.evaluar(variables));
+        }
+
+        @Override
+        public double evaluar(double[] variables, int[] fallo) {
+            if (altura > ALTURA_RECURSIVA) {
+                return evaluarConPila(variables, fallo);
+            }
+            return aplicar(izquierdo.evaluar(variables, fallo), derecho.evaluar(variables, fallo), fallo);
+        }
+
+        /**
+         * Evalúa con pilas explícitas como {@link #evaluar(double[])}.
+         */
+        private double evaluarConPila(double[] variables) throws Exception {
+            Postorden recorrido = new Postorden(this);
+            for (Nodo nodo = recorrido.siguiente(); nodo != null; nodo = recorrido.siguiente()) {
+                if (recorrido.esOperador()) {
+                    recorrido.reducir(((Binario) nodo).aplicar(recorrido.izquierdo(), recorrido.derecho()));
+                } else {
+                    recorrido.apilar(nodo.evaluar(variables));
+                }
+            }
+            return recorrido.resultado();
+        }
+
+        /**
+         * Evalúa con pilas explícitas como {@link #evaluar(double[], int[])}.
+         */
+        private double evaluarConPila(double[] variables, int[] fallo) {
+            Postorden recorrido = new Postorden(this);
+            for (Nodo nodo = recorrido.siguiente(); nodo != null; nodo = recorrido.siguiente()) {
+                if (recorrido.esOperador()) {
+                    recorrido.reducir(((Binario) nodo).aplicar(recorrido.izquierdo(), recorrido.derecho(), fallo));
+                } else {
+                    recorrido.apilar(nodo.evaluar(variables, fallo));
+                }
+            }
+            return recorrido.resultado();
+        }
+
+        private double aplicar(double a, double b) throws Exception {
+            if (operador == '/' && b == 0) {
+                throw new Exception("División por cero");
+            }
+            return aplicar(a, b, null);
+        }
+
+        /**
+         * @param fallo recibe -1 si se divide entre cero y no había error
+         *              previo; puede ser null si ya se revisó
+         */
+        private double aplicar(double a, double b, int[] fallo) {
+            switch (operador) {
+                case '+':
+                    return a + b;
+                case '-':
+                    return a - b;
+                case '*':
+                    return a * b;
+                default:
+                    if (b == 0 && fallo != null && fallo[0] == 0) {
+                        fallo[0] = -1;
+                    }
+                    return a / b;
+            }
+        }
+
+        /**
+         * Recorrido en postorden con pilas explícitas, en el mismo orden que
+         * la recursión: primero el operando izquierdo, luego el derecho y
+         * luego el operador, así que el primer error es el mismo. Sólo
+         * expande los binarios de más de {@link #ALTURA_RECURSIVA} niveles;
+         * los demás nodos se entregan para evaluarse recursivamente.
+         */
+        private static final class Postorden {
+
+            private final Nodo[] pendientes;
+            private final boolean[] operar;
+            private final double[] valores;
+            private int cima;
+            private int cimaValores;
+            private boolean operador;
+
+            Postorden(Binario raiz) {
+                // Cada nivel expandido saca un nodo y mete tres.
+                pendientes = new Nodo[2 * raiz.altura + 1];
+                operar = new boolean[pendientes.length];
+                valores = new double[raiz.altura + 1];
+                pendientes[cima++] = raiz;
+            }
+
+            /**
+             * @return el siguiente binario cuyo operador aplicar o nodo que
+             *         evaluar, según {@link #esOperador()}; null al terminar
+             */
+            Nodo siguiente() {
+                while (cima > 0) {
+                    Nodo nodo = pendientes[--cima];
+                    operador = operar[cima];
+                    if (operador || !(nodo instanceof Binario)
+                            || ((Binario) nodo).altura <= ALTURA_RECURSIVA) {
+                        return nodo;
+                    }
+                    Binario binario = (Binario) nodo;
+                    pendientes[cima] = binario;
+                    operar[cima++] = true;
+                    pendientes[cima] = binario.derecho;
+                    operar[cima++] = false;
+                    pendientes[cima] = binario.izquierdo;
+                    operar[cima++] = false;
+                }
+                return null;
+            }
+
+            boolean esOperador() {
+                return operador;
+            }
+
+            double izquierdo() {
+                return valores[cimaValores - 2];
+            }
+
+            double derecho() {
+                return valores[cimaValores - 1];
+            }
+
+            /** Reemplaza ambos operandos por el resultado del operador. */
+            void reducir(double valor) {
+                valores[--cimaValores - 1] = valor;
+            }
+
+            void apilar(double valor) {
+                valores[cimaValores++] = valor;
+            }
+
+            double resultado() {
+                return valores[0];
+            }
+        }
+
+        @Override
+        public int contarNodos() {
+            return nodos;
+        }
+
+        @Override
+        public int altura() {
+            return altura;
+        }
+
+        /**
+         * Escribe el árbol con paréntesis con una pila explícita.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            // Cada nivel expandido saca un elemento y mete cuatro.
+            Object[] pendientes = new Object[3 * altura + 1];
+            int cima = 0;
+            pendientes[cima++] = this;
+            while (cima > 0) {
+                Object elemento = pendientes[--cima];
+                pendientes[cima] = null;
+                if (elemento instanceof Binario) {
+                    Binario binario = (Binario) elemento;
+                    sb.append('(');
+                    pendientes[cima++] = ")";
+                    pendientes[cima++] = binario.derecho;
+                    pendientes[cima++] = " " + binario.operador + " ";
+                    pendientes[cima++] = binario.izquierdo;
+                } else {
+                    sb.append(elemento);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Optimizaciones sobre el AST que no cambian el resultado de evaluarlo.
+ *
+ * <ul>
+ *   <li><b>Plegado de constantes</b>: un operador con dos literales se
+ *       reemplaza por su resultado, salvo una división entre cero, que se
+ *       conserva para que el error ocurra al evaluar como antes.</li>
+ *   <li><b>Identidades</b>: {@code x*1}, {@code 1*x}, {@code x/1},
+ *       {@code x-0}, {@code x+0} y {@code 0+x} se reemplazan por {@code x}.</li>
+ *   <li><b>Reducción de fuerza</b>: {@code x/c} con c potencia de dos pasa
+ *       a {@code x*(1/c)}, que no revisa división entre cero.</li>
+ * </ul>
+ *
+ * <p>Todas las transformaciones dan exactamente el mismo double, incluido
+ * el signo del cero: {@code x+0} sólo se simplifica si x no puede ser -0.0
+ * (porque -0.0 + 0 es +0.0), y 1/c es exacto cuando c es potencia de dos.
+ * No se reasocian operaciones porque eso sí cambia el redondeo.</p>
+ *
+ * <p>El árbol se recorre con una pila explícita, porque una suma larga sin
+ * paréntesis tiene un nivel por término. Los análisis de signo se cortan
+ * después de {@link #PROFUNDIDAD_ANALISIS} niveles con la respuesta
+ * conservadora, que sólo deja de aplicar alguna identidad.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class OptimizadorExpresiones {
+
+    /** Niveles que revisan los análisis de signo antes de ser conservadores. */
+    static final int PROFUNDIDAD_ANALISIS = 64;
+
+    private OptimizadorExpresiones() {}
+
+    /**
+     * Optimiza un árbol en postorden. Los subárboles que no cambian se
+     * reutilizan.
+     *
+     * @param raiz raíz del árbol
+     * @return raíz del árbol optimizado; el mismo nodo si no hubo cambios
+     */
+    public static Nodo optimizar(Nodo raiz) {
+        if (!(raiz instanceof Nodo.Binario)) {
+            return raiz;
+        }
+        // Cada nivel expandido saca un nodo y mete tres.
+        Nodo[] pendientes = new Nodo[2 * raiz.altura() + 1];
+        boolean[] combinar = new boolean[pendientes.length];
+        Nodo[] resultados = new Nodo[raiz.altura() + 1];
+        int cima = 0;
+        int cimaResultados = 0;
+        pendientes[cima++] = raiz;
+        while (cima > 0) {
+            Nodo nodo = pendientes[--cima];
+            pendientes[cima] = null;
+            if (combinar[cima]) {
+                Nodo derecho = resultados[--cimaResultados];
+                resultados[cimaResultados] = null;
+                resultados[cimaResultados - 1] = combinar(
+                    (Nodo.Binario) nodo, resultados[cimaResultados - 1], derecho);
+            } else if (nodo instanceof Nodo.Binario) {
+                Nodo.Binario binario = (Nodo.Binario) nodo;
+                pendientes[cima] = binario;
+                combinar[cima++] = true;
+                pendientes[cima] = binario.getDerecho();
+                combinar[cima++] = false;
+                pendientes[cima] = binario.getIzquierdo();
+                combinar[cima++] = false;
+            } else {
+                resultados[cimaResultados++] = nodo;
+            }
+        }
+        return resultados[0];
+    }
+
+    /**
+     * Optimiza un nodo cuyos operandos ya están optimizados.
+     *
+     * @param binario nodo original
+     * @param izquierdo operando izquierdo optimizado
+     * @param derecho operando derecho optimizado
+     * @return el nodo optimizado; el original si no hubo cambios
+     */
+    private static Nodo combinar(Nodo.Binario binario, Nodo izquierdo, Nodo derecho) {
+        char operador = binario.getOperador();
+
+        if (izquierdo instanceof Nodo.Numero && derecho instanceof Nodo.Numero) {
+            double a = ((Nodo.Numero) izquierdo).getValor();
+            double b = ((Nodo.Numero) derecho).getValor();
+            if (operador != '/' || b != 0) {
+                return new Nodo.Numero(aplicar(operador, a, b));
+            }
+        }
+
+        switch (operador) {
+            case '+':
+                if (esCero(derecho) && sumarCeroEsIdentidad(derecho, izquierdo)) {
+                    return izquierdo;
+                }
+                if (esCero(izquierdo) && sumarCeroEsIdentidad(izquierdo, derecho)) {
+                    return derecho;
+                }
+                break;
+            case '-':
+                // x - (+0) = x siempre; x - (-0) es x + 0.
+                if (esCero(derecho)
+                        && (!esCeroNegativo(derecho) || !puedeSerCeroNegativo(izquierdo, PROFUNDIDAD_ANALISIS))) {
+                    return izquierdo;
+                }
+                break;
+            case '*':
+                if (esUno(derecho)) {
+                    return izquierdo;
+                }
+                if (esUno(izquierdo)) {
+                    return derecho;
+                }
+                break;
+            default:
+                if (esUno(derecho)) {
+                    return izquierdo;
+                }
+                if (derecho instanceof Nodo.Numero) {
+                    double divisor = ((Nodo.Numero) derecho).getValor();
+                    if (esPotenciaDeDos(divisor)) {
+                        return new Nodo.Binario('*', izquierdo, new Nodo.Numero(1.0 / divisor));
+                    }
+                }
+                break;
+        }
+
+        if (izquierdo == binario.getIzquierdo() && derecho == binario.getDerecho()) {
+            return binario;
+        }
+        return new Nodo.Binario(operador, izquierdo, derecho);
+    }
+
+    private static double aplicar(char operador, double a, double b) {
+        switch (operador) {
+            case '+':
+                return a + b;
+            case '-':
+                return a - b;
+            case '*':
+                return a * b;
+            default:
+                return a / b;
+        }
+    }
+
+    /**
+     * x + (-0) = x para todo x; x + (+0) = x salvo x = -0.0.
+     */
+    private static boolean sumarCeroEsIdentidad(Nodo cero, Nodo otro) {
+        return esCeroNegativo(cero) || !puedeSerCeroNegativo(otro, PROFUNDIDAD_ANALISIS);
+    }
+
+    private static boolean esCero(Nodo nodo) {
+        return nodo instanceof Nodo.Numero && ((Nodo.Numero) nodo).getValor() == 0;
+    }
+
+    private static boolean esCeroNegativo(Nodo nodo) {
+        return nodo instanceof Nodo.Numero
+            && Double.doubleToRawLongBits(((Nodo.Numero) nodo).getValor()) == Long.MIN_VALUE;
+    }
+
+    private static boolean esUno(Nodo nodo) {
+        return nodo instanceof Nodo.Numero && ((Nodo.Numero) nodo).getValor() == 1;
+    }
+
+    /**
+     * @return true si c y 1/c son potencias de dos normales, así que
+     *         x * (1/c) es exactamente x / c
+     */
+    private static boolean esPotenciaDeDos(double c) {
+        int exponente = Math.getExponent(c);
+        return exponente > Double.MIN_EXPONENT && exponente < Double.MAX_EXPONENT
+            && (Double.doubleToRawLongBits(c) & 0x000F_FFFF_FFFF_FFFFL) == 0;
+    }
+
+    /**
+     * Análisis conservador: false sólo si el subárbol nunca da -0.0.
+     *
+     * @param niveles niveles que quedan por revisar; sin niveles se
+     *                responde true
+     */
+    private static boolean puedeSerCeroNegativo(Nodo nodo, int niveles) {
+        if (nodo instanceof Nodo.Numero) {
+            return esCeroNegativo(nodo);
+        }
+        if (!(nodo instanceof Nodo.Binario) || niveles == 0) {
+            return true;
+        }
+        Nodo.Binario binario = (Nodo.Binario) nodo;
+        switch (binario.getOperador()) {
+            case '+':
+                // Sólo -0 + -0 da -0.
+                return puedeSerCeroNegativo(binario.getIzquierdo(), niveles - 1)
+                    && puedeSerCeroNegativo(binario.getDerecho(), niveles - 1);
+            case '-':
+                // a - b = -0 sólo con a = -0 y b = +0.
+                return puedeSerCeroNegativo(binario.getIzquierdo(), niveles - 1);
+            default:
+                // El producto o cociente de no negativos no es negativo.
+                return !(noNegativo(binario.getIzquierdo(), niveles - 1)
+                    && noNegativo(binario.getDerecho(), niveles - 1));
+        }
+    }
+
+    /**
+     * Análisis conservador: true sólo si el subárbol nunca tiene el bit de
+     * signo encendido (ni negativos ni -0.0).
+     *
+     * @param niveles niveles que quedan por revisar; sin niveles se
+     *                responde false
+     */
+    private static boolean noNegativo(Nodo nodo, int niveles) {
+        if (nodo instanceof Nodo.Numero) {
+            return Double.doubleToRawLongBits(((Nodo.Numero) nodo).getValor()) >= 0;
+        }
+        if (!(nodo instanceof Nodo.Binario) || niveles == 0) {
+            return false;
+        }
+        Nodo.Binario binario = (Nodo.Binario) nodo;
+        return binario.getOperador() != '-'
+            && noNegativo(binario.getIzquierdo(), niveles - 1)
+            && noNegativo(binario.getDerecho(), niveles - 1);
+    }
+}
@@ -0,0 +1,68 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool de {@link ByteBuffer} directos de tamaño fijo.
+ *
+ * <p>Crear un buffer directo es caro y su memoria sólo se libera con el
+ * GC, así que los buffers de lectura y de respuesta se devuelven aquí al
+ * terminar. El pool retiene a lo sumo {@code maxRetenidos}; si se pide más
+ * de lo que hay se crean buffers nuevos y los sobrantes se dejan al GC.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class PoolBuffers {
+
+    private final int tamanoBuffer;
+    private final int maxRetenidos;
+    private final ConcurrentLinkedQueue<ByteBuffer> libres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger retenidos = new AtomicInteger();
+
+    /**
+     * @param tamanoBuffer capacidad de cada buffer en bytes
+     * @param maxRetenidos buffers libres que se conservan como máximo
+     */
+    public PoolBuffers(int tamanoBuffer, int maxRetenidos) {
+        this.tamanoBuffer = tamanoBuffer;
+        this.maxRetenidos = maxRetenidos;
+    }
+
+    /**
+     * @return un buffer vacío en modo escritura
+     */
+    public ByteBuffer obtener() {
+        ByteBuffer buffer = libres.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(tamanoBuffer);
+        }
+        retenidos.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Devuelve un buffer al pool. Los que no salieron de este pool se ignoran.
+     *
+     * @param buffer buffer que ya no se usa
+     */
+    public void liberar(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != tamanoBuffer) {
+            return;
+        }
+        if (retenidos.incrementAndGet() > maxRetenidos) {
+            retenidos.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        libres.offer(buffer);
+    }
+
+    /**
+     * @return capacidad de cada buffer en bytes
+     */
+    public int getTamanoBuffer() {
+        return tamanoBuffer;
+    }
+}
@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Procesador de spans que exporta por lotes desde un hilo propio.
+ *
+ * <p>El hilo que termina un span sólo lo agrega a una cola acotada; si la
+ * cola está llena el span se descarta y se cuenta, en lugar de bloquear la
+ * petición. Un hilo daemon convierte los spans a {@link SpanData} y los
+ * exporta en lotes de hasta {@code tamanoLote}, cuando el lote se llena o
+ * cuando pasa {@code intervaloMs} desde la última exportación.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ProcesadorSpansPorLotes implements SpanProcessor {
+
+    private final SpanExporter exportador;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final long intervaloNs;
+    private final long timeoutExportacionMs;
+
+    private final ArrayBlockingQueue<ReadableSpan> cola;
+    /** Despierta al hilo exportador antes de que venza el intervalo. */
+    private final ArrayBlockingQueue<Boolean> aviso = new ArrayBlockingQueue<>(1);
+    private final ConcurrentLinkedQueue<CompletableResultCode> vaciados =
+        new ConcurrentLinkedQueue<>();
+
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder exportados = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+
+    private final Thread hilo;
+    private volatile boolean cerrado;
+
+    /**
+     * Crea el procesador e inicia su hilo exportador.
+     *
+     * @param exportador destino de los lotes
+     * @param capacidad spans que pueden esperar exportación; los demás se descartan
+     * @param tamanoLote spans máximos por llamada al exportador
+     * @param intervaloMs tiempo máximo que un span espera a que se llene su lote
+     * @param timeoutExportacionMs tiempo máximo que se espera a cada exportación
+     */
+    public ProcesadorSpansPorLotes(SpanExporter exportador, int capacidad, int tamanoLote,
+                                   long intervaloMs, long timeoutExportacionMs) {
+        this.exportador = exportador;
+        this.capacidad = capacidad;
+        this.tamanoLote = Math.min(tamanoLote, capacidad);
+        this.intervaloNs = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        this.timeoutExportacionMs = timeoutExportacionMs;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+
+        this.hilo = new Thread(this::ejecutar, "exportador-spans");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void onStart(Context contexto, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    /**
+     * Encola el span sin bloquear; lo descarta si la cola está llena o el
+     * procesador ya se cerró.
+     */
+    @Override
+    public void onEnd(ReadableSpan span) {
+        if (!span.getSpanContext().isSampled()) {
+            return;
+        }
+        if (cerrado || !cola.offer(span)) {
+            descartados.increment();
+            return;
+        }
+        if (cola.size() >= tamanoLote) {
+            aviso.offer(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    /**
+     * Exporta todo lo que esté en la cola al momento de la llamada.
+     *
+     * @return resultado que se completa cuando el exportador terminó
+     */
+    @Override
+    public CompletableResultCode forceFlush() {
+        if (cerrado) {
+            return CompletableResultCode.ofSuccess();
+        }
+        CompletableResultCode resultado = new CompletableResultCode();
+        vaciados.add(resultado);
+        aviso.offer(Boolean.TRUE);
+        return resultado;
+    }
+
+    /**
+     * Deja de aceptar spans, exporta los que quedan en la cola y cierra el
+     * exportador.
+     *
+     * @return resultado del cierre del exportador, o fallido si el hilo no
+     *         terminó a tiempo
+     */
+    @Override
+    public CompletableResultCode shutdown() {
+        if (cerrado) {
+            return CompletableResultCode.ofSuccess();
+        }
+        cerrado = true;
+        aviso.offer(Boolean.TRUE);
+        try {
+            hilo.join(2 * timeoutExportacionMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        CompletableResultCode resultado = exportador.shutdown();
+        return hilo.isAlive() ? CompletableResultCode.ofFailure() : resultado;
+    }
+
+    /**
+     * @return spans que esperan exportación
+     */
+    public int getProfundidadCola() {
+        return cola.size();
+    }
+
+    /**
+     * @return spans que caben en la cola
+     */
+    public int getCapacidadCola() {
+        return capacidad;
+    }
+
+    /**
+     * @return spans descartados porque la cola estaba llena
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * @return spans que el exportador aceptó
+     */
+    public long getExportados() {
+        return exportados.sum();
+    }
+
+    /**
+     * @return spans de lotes cuya exportación falló o excedió el timeout
+     */
+    public long getFallidos() {
+        return fallidos.sum();
+    }
+
+    private void ejecutar() {
+        List<SpanData> lote = new ArrayList<>(tamanoLote);
+        long siguienteNs = System.nanoTime() + intervaloNs;
+
+        while (true) {
+            // Sólo se completan los vaciados pedidos antes de vaciar la cola.
+            int pendientes = vaciados.size();
+            boolean vaciar = pendientes > 0 || cerrado;
+
+            ReadableSpan span;
+            while (lote.size() < tamanoLote && (span = cola.poll()) != null) {
+                lote.add(span.toSpanData());
+            }
+
+            long ahora = System.nanoTime();
+            if (!lote.isEmpty()
+                    && (lote.size() >= tamanoLote || vaciar || ahora - siguienteNs >= 0)) {
+                exportar(lote);
+                lote = new ArrayList<>(tamanoLote);
+                siguienteNs = System.nanoTime() + intervaloNs;
+                continue;
+            }
+
+            if (vaciar) {
+                exportador.flush().join(timeoutExportacionMs, TimeUnit.MILLISECONDS);
+                for (int i = 0; i < pendientes; i++) {
+                    vaciados.poll().succeed();
+                }
+                if (cerrado) {
+                    return;
+                }
+            }
+
+            if (ahora - siguienteNs >= 0) {
+                siguienteNs = ahora + intervaloNs;
+            }
+            try {
+                aviso.poll(siguienteNs - ahora, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void exportar(List<SpanData> lote) {
+        try {
+            CompletableResultCode resultado = exportador.export(lote)
+                .join(timeoutExportacionMs, TimeUnit.MILLISECONDS);
+            if (resultado.isSuccess()) {
+                exportados.add(lote.size());
+            } else {
+                fallidos.add(lote.size());
+            }
+        } catch (RuntimeException e) {
+            fallidos.add(lote.size());
+        }
+    }
+}
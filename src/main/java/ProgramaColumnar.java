@@ -0,0 +1,221 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Forma de tres direcciones de un AST para evaluarlo por columnas.
+ *
+ * <p>Cada operador binario es una instrucción que combina dos operandos
+ * sobre un bloque de filas y deja el resultado en un arreglo temporal. Un
+ * operando es un temporal, una columna de variable o un arreglo lleno con
+ * una constante, así que las hojas nunca se copian. Los temporales se
+ * asignan como en una pila: el de cada instrucción es su profundidad, por
+ * lo que un árbol cargado a la izquierda necesita sólo uno o dos.</p>
+ *
+ * <p>Codificación de operandos: un valor negativo {@code -(v + 1)} es la
+ * variable v; de 0 a {@link #getTemporales()} - 1 es un temporal; a partir
+ * de ahí, la constante {@code o - getTemporales()}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ProgramaColumnar {
+
+    /** Marca provisional de las constantes mientras no se conoce la cantidad de temporales. */
+    private static final int BASE_CONSTANTE = 1 << 30;
+
+    private final char[] operadores;
+    private final int[] destinos;
+    private final int[] izquierdos;
+    private final int[] derechos;
+    private final double[] constantes;
+    private final int temporales;
+    private final int raiz;
+
+    private ProgramaColumnar(char[] operadores, int[] destinos, int[] izquierdos, int[] derechos,
+                             double[] constantes, int temporales, int raiz) {
+        this.operadores = operadores;
+        this.destinos = destinos;
+        this.izquierdos = izquierdos;
+        this.derechos = derechos;
+        this.constantes = constantes;
+        this.temporales = temporales;
+        this.raiz = raiz;
+    }
+
+    /**
+     * Traduce un AST a instrucciones en orden postfijo.
+     *
+     * @param raiz raíz del AST
+     * @return el programa equivalente
+     */
+    public static ProgramaColumnar compilar(Nodo raiz) {
+        Traductor traductor = new Traductor(raiz.contarNodos());
+        int operando = traductor.traducir(raiz);
+        return traductor.terminar(operando);
+    }
+
+    /**
+     * Acumula instrucciones y constantes durante la traducción.
+     */
+    private static final class Traductor {
+        private final char[] operadores;
+        private final int[] destinos;
+        private final int[] izquierdos;
+        private final int[] derechos;
+        private final double[] constantes;
+        private final Map<Long, Integer> indiceConstantes = new HashMap<>();
+        private int instrucciones;
+        private int cantidadConstantes;
+        private int temporales;
+
+        Traductor(int nodos) {
+            int binarios = nodos / 2;
+            operadores = new char[binarios];
+            destinos = new int[binarios];
+            izquierdos = new int[binarios];
+            derechos = new int[binarios];
+            constantes = new double[nodos - binarios];
+        }
+
+        /**
+         * Traduce el árbol en postorden con una pila explícita de marcos,
+         * ya que una suma sin paréntesis tiene un nivel por término. Cada
+         * marco es un operador binario con el primer temporal libre para
+         * su subárbol y, una vez traducido, su operando izquierdo.
+         *
+         * @return operando con el valor del árbol
+         */
+        int traducir(Nodo raiz) {
+            int niveles = raiz.altura();
+            Nodo.Binario[] marcos = new Nodo.Binario[niveles];
+            int[] profundidades = new int[niveles];
+            int[] izquierdosMarco = new int[niveles];
+            boolean[] conIzquierdo = new boolean[niveles];
+            int cima = 0;
+
+            Nodo nodo = raiz;
+            int profundidad = 0;
+            while (true) {
+                // Desciende por la izquierda hasta una hoja.
+                while (nodo instanceof Nodo.Binario) {
+                    marcos[cima] = (Nodo.Binario) nodo;
+                    profundidades[cima] = profundidad;
+                    conIzquierdo[cima] = false;
+                    cima++;
+                    nodo = ((Nodo.Binario) nodo).getIzquierdo();
+                }
+                int operando = hoja(nodo);
+
+                // Sube mientras los marcos tengan ambos operandos.
+                while (true) {
+                    if (cima == 0) {
+                        return operando;
+                    }
+                    int m = cima - 1;
+                    if (!conIzquierdo[m]) {
+                        izquierdosMarco[m] = operando;
+                        conIzquierdo[m] = true;
+                        nodo = marcos[m].getDerecho();
+                        profundidad = operando == profundidades[m]
+                            ? profundidades[m] + 1
+                            : profundidades[m];
+                        break;
+                    }
+                    operando = emitir(marcos[m].getOperador(), profundidades[m], izquierdosMarco[m], operando);
+                    marcos[m] = null;
+                    cima--;
+                }
+            }
+        }
+
+        private int hoja(Nodo nodo) {
+            if (nodo instanceof Nodo.Variable) {
+                return -(((Nodo.Variable) nodo).getIndice() + 1);
+            }
+            return BASE_CONSTANTE + constante(((Nodo.Numero) nodo).getValor());
+        }
+
+        /**
+         * @param profundidad temporal donde queda el resultado
+         * @return operando con el resultado de la instrucción
+         */
+        private int emitir(char operador, int profundidad, int izquierdo, int derecho) {
+            temporales = Math.max(temporales, profundidad + 1);
+            int i = instrucciones++;
+            operadores[i] = operador;
+            destinos[i] = profundidad;
+            izquierdos[i] = izquierdo;
+            derechos[i] = derecho;
+            return profundidad;
+        }
+
+        private int constante(double valor) {
+            Integer indice = indiceConstantes.putIfAbsent(
+                Double.doubleToRawLongBits(valor), cantidadConstantes);
+            if (indice != null) {
+                return indice;
+            }
+            constantes[cantidadConstantes] = valor;
+            return cantidadConstantes++;
+        }
+
+        ProgramaColumnar terminar(int raiz) {
+            for (int i = 0; i < instrucciones; i++) {
+                izquierdos[i] = reubicar(izquierdos[i]);
+                derechos[i] = reubicar(derechos[i]);
+            }
+            return new ProgramaColumnar(operadores, destinos, izquierdos, derechos,
+                Arrays.copyOf(constantes, cantidadConstantes), temporales, reubicar(raiz));
+        }
+
+        private int reubicar(int operando) {
+            return operando >= BASE_CONSTANTE ? operando - BASE_CONSTANTE + temporales : operando;
+        }
+    }
+
+    /**
+     * @return cantidad de instrucciones
+     */
+    public int getInstrucciones() {
+        return operadores.length;
+    }
+
+    /**
+     * @return cantidad de arreglos temporales que necesita el programa
+     */
+    public int getTemporales() {
+        return temporales;
+    }
+
+    /**
+     * @return valores de las constantes, en el orden de sus operandos
+     */
+    double[] getConstantes() {
+        return constantes;
+    }
+
+    char operador(int instruccion) {
+        return operadores[instruccion];
+    }
+
+    int destino(int instruccion) {
+        return destinos[instruccion];
+    }
+
+    int izquierdo(int instruccion) {
+        return izquierdos[instruccion];
+    }
+
+    int derecho(int instruccion) {
+        return derechos[instruccion];
+    }
+
+    /**
+     * @return operando con el resultado de la expresión
+     */
+    int raiz() {
+        return raiz;
+    }
+}
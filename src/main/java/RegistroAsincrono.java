@@ -0,0 +1,287 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log asíncrono: los hilos que registran sólo copian la entrada a un
+ * buffer circular acotado y un hilo escritor la codifica y la escribe.
+ *
+ * <p>El buffer es una cola MPSC sin locks (el algoritmo acotado de
+ * Vyukov): cada ranura tiene un número de secuencia que indica si está
+ * libre para la vuelta actual del productor o lista para el consumidor,
+ * y los productores reservan ranuras con un CAS sobre un solo contador.
+ * Con el buffer lleno la entrada se descarta y se cuenta, o el productor
+ * espera, según la {@link Politica}.</p>
+ *
+ * <p>El escritor vacía el buffer por lotes en un {@link FileChannel}, una
+ * línea JSON por entrada:
+ * {@code {"ts":"...","nivel":"INFO","hilo":"main","mensaje":"..."}}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class RegistroAsincrono {
+
+    /**
+     * Qué hacer cuando el buffer está lleno.
+     */
+    public enum Politica {
+        /** La entrada se pierde y se cuenta en {@link #getDescartados()}. */
+        DESCARTAR,
+        /** El productor espera a que el escritor libere una ranura. */
+        BLOQUEAR;
+
+        /**
+         * @return la política de CAAS_LOG_POLITICA, o DESCARTAR si no se
+         *         reconoce
+         */
+        public static Politica resolver() {
+            String valor = System.getenv("CAAS_LOG_POLITICA");
+            if (valor == null) {
+                return DESCARTAR;
+            }
+            try {
+                return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Política de log inválida: " + valor);
+                return DESCARTAR;
+            }
+        }
+    }
+
+    /** Espera del escritor cuando el buffer está vacío. */
+    private static final long ESPERA_NS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /** Bytes codificados que se acumulan antes de escribir al canal. */
+    private static final int LOTE_BYTES = 64 * 1024;
+
+    private final int mascara;
+    private final AtomicLongArray secuencias;
+    private final long[] instantes;
+    private final String[] niveles;
+    private final String[] hilos;
+    private final String[] mensajes;
+
+    private final AtomicLong productor = new AtomicLong();
+    /** Siguiente ranura a leer; sólo la usa el escritor. */
+    private long consumidor;
+
+    private final Politica politica;
+    private final FileChannel canal;
+    private final boolean esArchivo;
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder escritos = new LongAdder();
+
+    private final Thread escritor;
+    private volatile boolean esperando;
+    private volatile boolean cerrado;
+
+    /**
+     * Crea el log e inicia su hilo escritor.
+     *
+     * @param capacidad entradas que caben en el buffer; se redondea a la
+     *                  siguiente potencia de dos
+     * @param politica qué hacer con el buffer lleno
+     * @param archivo archivo donde se agregan las entradas, o null para la
+     *                salida estándar
+     * @throws IOException si no se puede abrir el archivo
+     */
+    public RegistroAsincrono(int capacidad, Politica politica, Path archivo) throws IOException {
+        int ranuras = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        this.mascara = ranuras - 1;
+        this.secuencias = new AtomicLongArray(ranuras);
+        for (int i = 0; i < ranuras; i++) {
+            secuencias.set(i, i);
+        }
+        this.instantes = new long[ranuras];
+        this.niveles = new String[ranuras];
+        this.hilos = new String[ranuras];
+        this.mensajes = new String[ranuras];
+        this.politica = politica;
+        this.esArchivo = archivo != null;
+        this.canal = archivo == null
+            ? new FileOutputStream(FileDescriptor.out).getChannel()
+            : FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        this.escritor = new Thread(this::ejecutar, "escritor-log");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Agrega una entrada al buffer. No bloquea salvo con
+     * {@link Politica#BLOQUEAR} y el buffer lleno.
+     *
+     * @param nivel nivel del log (INFO, ERROR, WARN, etc.)
+     * @param mensaje contenido del mensaje
+     * @return false si la entrada se descartó
+     */
+    public boolean registrar(String nivel, String mensaje) {
+        if (cerrado) {
+            descartados.increment();
+            return false;
+        }
+        long instante = System.currentTimeMillis();
+        String hilo = Thread.currentThread().getName();
+        while (!ofrecer(instante, nivel, hilo, mensaje)) {
+            if (politica == Politica.DESCARTAR) {
+                descartados.increment();
+                return false;
+            }
+            LockSupport.unpark(escritor);
+            LockSupport.parkNanos(50_000);
+        }
+        if (esperando) {
+            LockSupport.unpark(escritor);
+        }
+        return true;
+    }
+
+    private boolean ofrecer(long instante, String nivel, String hilo, String mensaje) {
+        long posicion = productor.get();
+        while (true) {
+            int i = (int) posicion & mascara;
+            long diferencia = secuencias.getAcquire(i) - posicion;
+            if (diferencia == 0) {
+                if (productor.compareAndSet(posicion, posicion + 1)) {
+                    instantes[i] = instante;
+                    niveles[i] = nivel;
+                    hilos[i] = hilo;
+                    mensajes[i] = mensaje;
+                    secuencias.setRelease(i, posicion + 1);
+                    return true;
+                }
+                posicion = productor.get();
+            } else if (diferencia < 0) {
+                // La ranura aún tiene la entrada de la vuelta anterior: lleno.
+                return false;
+            } else {
+                posicion = productor.get();
+            }
+        }
+    }
+
+    /**
+     * Deja de aceptar entradas, escribe las pendientes y cierra el canal.
+     */
+    public void cerrar() {
+        cerrado = true;
+        LockSupport.unpark(escritor);
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return entradas perdidas porque el buffer estaba lleno
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * @return entradas escritas al canal
+     */
+    public long getEscritos() {
+        return escritos.sum();
+    }
+
+    private void ejecutar() {
+        while (true) {
+            boolean terminar = cerrado;
+            int leidas = vaciar();
+            if (terminar) {
+                // Lo que se haya publicado antes de cerrar ya se escribió.
+                cerrarCanal();
+                return;
+            }
+            if (leidas == 0) {
+                esperando = true;
+                if (!hayPendientes() && !cerrado) {
+                    LockSupport.parkNanos(this, ESPERA_NS);
+                }
+                esperando = false;
+            }
+        }
+    }
+
+    private boolean hayPendientes() {
+        return secuencias.getAcquire((int) consumidor & mascara) == consumidor + 1;
+    }
+
+    /**
+     * Codifica y escribe todas las entradas publicadas.
+     *
+     * @return cantidad de entradas escritas
+     */
+    private int vaciar() {
+        CodecJson.Buffer buffer = CodecJson.buffer();
+        int leidas = 0;
+        while (hayPendientes()) {
+            int i = (int) consumidor & mascara;
+            buffer.ascii("{\"ts\":\"").ascii(Instant.ofEpochMilli(instantes[i]).toString())
+                .ascii("\",\"nivel\":");
+            CodecJson.escribirCadena(niveles[i], buffer);
+            buffer.ascii(",\"hilo\":");
+            CodecJson.escribirCadena(hilos[i], buffer);
+            buffer.ascii(",\"mensaje\":");
+            CodecJson.escribirCadena(mensajes[i], buffer);
+            buffer.ascii("}\n");
+
+            niveles[i] = null;
+            hilos[i] = null;
+            mensajes[i] = null;
+            secuencias.setRelease(i, consumidor + mascara + 1);
+            consumidor++;
+            leidas++;
+
+            if (buffer.getTamano() >= LOTE_BYTES) {
+                escribir(buffer);
+                buffer = CodecJson.buffer();
+            }
+        }
+        if (buffer.getTamano() > 0) {
+            escribir(buffer);
+        }
+        escritos.add(leidas);
+        return leidas;
+    }
+
+    private void escribir(CodecJson.Buffer buffer) {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.getDatos(), 0, buffer.getTamano());
+        try {
+            while (bytes.hasRemaining()) {
+                canal.write(bytes);
+            }
+        } catch (IOException e) {
+            System.err.println("No se pudo escribir el log: " + e.getMessage());
+        }
+    }
+
+    private void cerrarCanal() {
+        // La salida estándar se queda abierta para el resto del proceso.
+        if (!esArchivo) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            System.err.println("No se pudo cerrar el log: " + e.getMessage());
+        }
+    }
+}
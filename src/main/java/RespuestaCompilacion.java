@@ -6,7 +6,11 @@ public class RespuestaCompilacion {
     private boolean exitoso;
     private Double resultado;
     private String mensaje;
+    private String codigoError;
+    private Integer posicionError;
+    private String esperado;
     private int tokensGenerados;
+    private Integer nodosEliminados;
     private long tiempoMs;
 
     /**
@@ -48,6 +52,22 @@ public class RespuestaCompilacion {
         return resp;
     }
 
+    /**
+     * Método para crear una respuesta fallida a partir del diagnóstico del
+     * compilador, con el código, la posición y lo que se esperaba.
+     *
+     * @param diagnostico error detectado al compilar o evaluar
+     * @param tiempo tiempo en milisegundos hasta que ocurrió el fallo
+     * @return instancia de RespuestaCompilacion configurada como error
+     */
+    public static RespuestaCompilacion error(DiagnosticoCompilacion diagnostico, long tiempo) {
+        RespuestaCompilacion resp = error("Error: " + diagnostico.getMensaje(), tiempo);
+        resp.codigoError = diagnostico.getCodigo().name();
+        resp.posicionError = diagnostico.getPosicion() >= 0 ? diagnostico.getPosicion() : null;
+        resp.esperado = diagnostico.getEsperado();
+        return resp;
+    }
+
     /**
      * @return true si la compilación fue exitosa, false en caso contrario
      */
@@ -90,6 +110,50 @@ public class RespuestaCompilacion {
         this.mensaje = mensaje;
     }
 
+    /**
+     * @return código del error del compilador, null si no hubo error o no
+     *         provino del compilador
+     */
+    public String getCodigoError() {
+        return codigoError;
+    }
+
+    /**
+     * @param codigoError establece el código del error
+     */
+    public void setCodigoError(String codigoError) {
+        this.codigoError = codigoError;
+    }
+
+    /**
+     * @return posición en la expresión donde se detectó el error, null si
+     *         no aplica
+     */
+    public Integer getPosicionError() {
+        return posicionError;
+    }
+
+    /**
+     * @param posicionError establece la posición del error
+     */
+    public void setPosicionError(Integer posicionError) {
+        this.posicionError = posicionError;
+    }
+
+    /**
+     * @return lo que se esperaba en la posición del error, null si no aplica
+     */
+    public String getEsperado() {
+        return esperado;
+    }
+
+    /**
+     * @param esperado establece lo que se esperaba en la posición del error
+     */
+    public void setEsperado(String esperado) {
+        this.esperado = esperado;
+    }
+
     /**
      * @return cantidad de tokens generados durante el análisis
      */
@@ -104,6 +168,20 @@ public class RespuestaCompilacion {
         this.tokensGenerados = tokensGenerados;
     }
 
+    /**
+     * @return nodos del AST que quitó la optimización, null si no se compiló
+     */
+    public Integer getNodosEliminados() {
+        return nodosEliminados;
+    }
+
+    /**
+     * @param nodosEliminados establece los nodos que quitó la optimización
+     */
+    public void setNodosEliminados(Integer nodosEliminados) {
+        this.nodosEliminados = nodosEliminados;
+    }
+
     /**
      * @return tiempo en milisegundos de la operación
      */
@@ -0,0 +1,143 @@
+/**
+ * DTO para respuestas de evaluación por columnas. Contiene un resultado por
+ * fila y los índices de las filas cuya evaluación falló.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class RespuestaEvaluacion {
+
+    private boolean exitoso;
+    private double[] resultados;
+    private int[] filasConError;
+    private String mensaje;
+    private int tokensGenerados;
+    private Integer nodosEliminados;
+    private long tiempoMs;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public RespuestaEvaluacion() {}
+
+    /**
+     * Método para crear una respuesta de evaluación exitosa.
+     *
+     * @param resultados un resultado por fila; NaN en las filas con error
+     * @param filasConError índices de las filas cuya evaluación falló
+     * @param tokens cantidad de tokens generados en el análisis
+     * @param tiempo tiempo en milisegundos de la operación
+     * @return instancia de RespuestaEvaluacion configurada como exitosa
+     */
+    public static RespuestaEvaluacion exito(double[] resultados, int[] filasConError,
+                                            int tokens, long tiempo) {
+        RespuestaEvaluacion resp = new RespuestaEvaluacion();
+        resp.exitoso = true;
+        resp.resultados = resultados;
+        resp.filasConError = filasConError;
+        resp.tokensGenerados = tokens;
+        resp.tiempoMs = tiempo;
+        resp.mensaje = "Evaluación exitosa";
+        return resp;
+    }
+
+    /**
+     * @return true si la evaluación fue exitosa, false en caso contrario
+     */
+    public boolean isExitoso() {
+        return exitoso;
+    }
+
+    /**
+     * @param exitoso establece si la evaluación fue exitosa
+     */
+    public void setExitoso(boolean exitoso) {
+        this.exitoso = exitoso;
+    }
+
+    /**
+     * @return un resultado por fila
+     */
+    public double[] getResultados() {
+        return resultados;
+    }
+
+    /**
+     * @param resultados establece los resultados por fila
+     */
+    public void setResultados(double[] resultados) {
+        this.resultados = resultados;
+    }
+
+    /**
+     * @return índices de las filas cuya evaluación falló
+     */
+    public int[] getFilasConError() {
+        return filasConError;
+    }
+
+    /**
+     * @param filasConError establece los índices de las filas con error
+     */
+    public void setFilasConError(int[] filasConError) {
+        this.filasConError = filasConError;
+    }
+
+    /**
+     * @return mensaje descriptivo del resultado
+     */
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    /**
+     * @param mensaje establece el mensaje descriptivo
+     */
+    public void setMensaje(String mensaje) {
+        this.mensaje = mensaje;
+    }
+
+    /**
+     * @return cantidad de tokens generados al compilar la expresión
+     */
+    public int getTokensGenerados() {
+        return tokensGenerados;
+    }
+
+    /**
+     * @param tokensGenerados establece la cantidad de tokens
+     */
+    public void setTokensGenerados(int tokensGenerados) {
+        this.tokensGenerados = tokensGenerados;
+    }
+
+    /**
+     * @return nodos que quitó la optimización, null si no se reporta
+     */
+    public Integer getNodosEliminados() {
+        return nodosEliminados;
+    }
+
+    /**
+     * @param nodosEliminados establece los nodos que quitó la optimización
+     */
+    public void setNodosEliminados(Integer nodosEliminados) {
+        this.nodosEliminados = nodosEliminados;
+    }
+
+    /**
+     * @return tiempo total de la operación en milisegundos
+     */
+    public long getTiempoMs() {
+        return tiempoMs;
+    }
+
+    /**
+     * @param tiempoMs establece el tiempo de la operación
+     */
+    public void setTiempoMs(long tiempoMs) {
+        this.tiempoMs = tiempoMs;
+    }
+}
@@ -0,0 +1,189 @@
+import java.util.Map;
+
+/**
+ * DTO con el resultado de un nivel de carga de {@link GeneradorCarga}.
+ *
+ * <p>{@code latencia} es la que vería un usuario: se mide desde que la
+ * petición debía enviarse según el ritmo, de modo que el tiempo que pasó
+ * esperando a que el generador o el servidor se desocuparan también cuenta.
+ * {@code latenciaServicio} se mide desde el envío real y subestima la cola
+ * cuando el servidor está saturado.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class ResultadoCarga {
+
+    private String modo;
+    private double rpsObjetivo;
+    private int conexiones;
+    private double duracionSegundos;
+    private long enviadas;
+    private long completadas;
+    private long fallosTransporte;
+    private Map<String, Long> codigos;
+    private double rpsLogrado;
+    private ResumenLatencia latencia;
+    private ResumenLatencia latenciaServicio;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public ResultadoCarga() {}
+
+    /**
+     * @return modo de carga: TASA o CONCURRENCIA
+     */
+    public String getModo() {
+        return modo;
+    }
+
+    /**
+     * @param modo establece el modo de carga
+     */
+    public void setModo(String modo) {
+        this.modo = modo;
+    }
+
+    /**
+     * @return tasa de llegada objetivo en requests por segundo; 0 si el modo CONCURRENCIA no tiene ritmo
+     */
+    public double getRpsObjetivo() {
+        return rpsObjetivo;
+    }
+
+    /**
+     * @param rpsObjetivo establece la tasa objetivo
+     */
+    public void setRpsObjetivo(double rpsObjetivo) {
+        this.rpsObjetivo = rpsObjetivo;
+    }
+
+    /**
+     * @return peticiones simultáneas máximas (TASA) o clientes en ciclo cerrado (CONCURRENCIA)
+     */
+    public int getConexiones() {
+        return conexiones;
+    }
+
+    /**
+     * @param conexiones establece las conexiones
+     */
+    public void setConexiones(int conexiones) {
+        this.conexiones = conexiones;
+    }
+
+    /**
+     * @return segundos medidos, sin contar el calentamiento
+     */
+    public double getDuracionSegundos() {
+        return duracionSegundos;
+    }
+
+    /**
+     * @param duracionSegundos establece la duración medida
+     */
+    public void setDuracionSegundos(double duracionSegundos) {
+        this.duracionSegundos = duracionSegundos;
+    }
+
+    /**
+     * @return peticiones medidas que se enviaron
+     */
+    public long getEnviadas() {
+        return enviadas;
+    }
+
+    /**
+     * @param enviadas establece las peticiones enviadas
+     */
+    public void setEnviadas(long enviadas) {
+        this.enviadas = enviadas;
+    }
+
+    /**
+     * @return peticiones medidas que recibieron respuesta HTTP
+     */
+    public long getCompletadas() {
+        return completadas;
+    }
+
+    /**
+     * @param completadas establece las peticiones completadas
+     */
+    public void setCompletadas(long completadas) {
+        this.completadas = completadas;
+    }
+
+    /**
+     * @return peticiones sin respuesta por error de conexión o timeout
+     */
+    public long getFallosTransporte() {
+        return fallosTransporte;
+    }
+
+    /**
+     * @param fallosTransporte establece los fallos de transporte
+     */
+    public void setFallosTransporte(long fallosTransporte) {
+        this.fallosTransporte = fallosTransporte;
+    }
+
+    /**
+     * @return respuestas por código de estado HTTP
+     */
+    public Map<String, Long> getCodigos() {
+        return codigos;
+    }
+
+    /**
+     * @param codigos establece las respuestas por código
+     */
+    public void setCodigos(Map<String, Long> codigos) {
+        this.codigos = codigos;
+    }
+
+    /**
+     * @return respuestas por segundo recibidas durante la medición
+     */
+    public double getRpsLogrado() {
+        return rpsLogrado;
+    }
+
+    /**
+     * @param rpsLogrado establece el throughput logrado
+     */
+    public void setRpsLogrado(double rpsLogrado) {
+        this.rpsLogrado = rpsLogrado;
+    }
+
+    /**
+     * @return percentiles medidos desde el instante en que la petición debía salir, corregidos por omisión coordinada
+     */
+    public ResumenLatencia getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * @param latencia establece los percentiles corregidos
+     */
+    public void setLatencia(ResumenLatencia latencia) {
+        this.latencia = latencia;
+    }
+
+    /**
+     * @return percentiles medidos desde el envío real, sin corregir
+     */
+    public ResumenLatencia getLatenciaServicio() {
+        return latenciaServicio;
+    }
+
+    /**
+     * @param latenciaServicio establece los percentiles sin corregir
+     */
+    public void setLatenciaServicio(ResumenLatencia latenciaServicio) {
+        this.latenciaServicio = latenciaServicio;
+    }
+}
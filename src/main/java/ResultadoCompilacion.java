@@ -0,0 +1,77 @@
+/**
+ * Resultado de compilar o evaluar una expresión sin excepciones: la
+ * expresión compilada y, si se evaluó, su valor; o el diagnóstico del
+ * error.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class ResultadoCompilacion {
+
+    private final ExpresionCompilada expresion;
+    private final double valor;
+    private final DiagnosticoCompilacion diagnostico;
+
+    private ResultadoCompilacion(ExpresionCompilada expresion, double valor,
+                                 DiagnosticoCompilacion diagnostico) {
+        this.expresion = expresion;
+        this.valor = valor;
+        this.diagnostico = diagnostico;
+    }
+
+    /**
+     * @param expresion expresión compilada, sin evaluar
+     * @return resultado exitoso sin valor
+     */
+    public static ResultadoCompilacion compilada(ExpresionCompilada expresion) {
+        return new ResultadoCompilacion(expresion, Double.NaN, null);
+    }
+
+    /**
+     * @param expresion expresión compilada
+     * @param valor resultado de evaluarla
+     * @return resultado exitoso con valor
+     */
+    public static ResultadoCompilacion evaluada(ExpresionCompilada expresion, double valor) {
+        return new ResultadoCompilacion(expresion, valor, null);
+    }
+
+    /**
+     * @param expresion expresión compilada, o null si el error fue al compilar
+     * @param diagnostico descripción del error
+     * @return resultado fallido
+     */
+    public static ResultadoCompilacion fallida(ExpresionCompilada expresion,
+                                               DiagnosticoCompilacion diagnostico) {
+        return new ResultadoCompilacion(expresion, Double.NaN, diagnostico);
+    }
+
+    /**
+     * @return true si no hubo error
+     */
+    public boolean esExitoso() {
+        return diagnostico == null;
+    }
+
+    /**
+     * @return la expresión compilada, o null si no compiló
+     */
+    public ExpresionCompilada getExpresion() {
+        return expresion;
+    }
+
+    /**
+     * @return valor de la evaluación; NaN si no se evaluó o hubo error
+     */
+    public double getValor() {
+        return valor;
+    }
+
+    /**
+     * @return diagnóstico del error, o null si fue exitoso
+     */
+    public DiagnosticoCompilacion getDiagnostico() {
+        return diagnostico;
+    }
+}
@@ -12,6 +12,9 @@ public class ResultadoMetricas {
     
     private long tiempoActivoMs;
     private double latenciaPromedioMs;
+    private ResumenLatencia latencia;
+    private Map<String, ResumenLatencia> latenciaPorLenguaje;
+    private Map<String, ResumenLatencia> latenciaPorFase;
     private double throughput;
     
     private long totalRequests;
@@ -22,6 +25,32 @@ public class ResultadoMetricas {
     private Map<String, Long> lenguajesUtilizados;
     private long totalTokensProcesados;
     private long erroresSintacticos;
+    
+    private long cacheAciertos;
+    private long cacheFallos;
+    private long cacheDesalojos;
+    
+    private long totalLotes;
+    private double tamanoPromedioLote;
+    private double latenciaPromedioLoteMs;
+    
+    private long tareasEnCola;
+    private long handlersActivos;
+    
+    private long solicitudesRechazadas;
+    private int solicitudesEnVuelo;
+    private int limiteConcurrencia;
+    
+    private int colaTrazas;
+    private long spansDescartados;
+    private long spansExportados;
+    private long spansFallidos;
+    private long trazasNoConservadas;
+    
+    private long logsDescartados;
+    private long logsEscritos;
+    
+    private MetricasVentana ventana;
 
     /**
      * Constructor por defecto sin parámetros.
@@ -57,6 +86,48 @@ public class ResultadoMetricas {
         this.latenciaPromedioMs = latenciaPromedioMs;
     }
 
+    /**
+     * @return percentiles de latencia de todas las compilaciones
+     */
+    public ResumenLatencia getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * @param latencia establece los percentiles de latencia globales
+     */
+    public void setLatencia(ResumenLatencia latencia) {
+        this.latencia = latencia;
+    }
+
+    /**
+     * @return percentiles de latencia por lenguaje
+     */
+    public Map<String, ResumenLatencia> getLatenciaPorLenguaje() {
+        return latenciaPorLenguaje;
+    }
+
+    /**
+     * @param latenciaPorLenguaje establece los percentiles por lenguaje
+     */
+    public void setLatenciaPorLenguaje(Map<String, ResumenLatencia> latenciaPorLenguaje) {
+        this.latenciaPorLenguaje = latenciaPorLenguaje;
+    }
+
+    /**
+     * @return percentiles de latencia por fase de compilación
+     */
+    public Map<String, ResumenLatencia> getLatenciaPorFase() {
+        return latenciaPorFase;
+    }
+
+    /**
+     * @param latenciaPorFase establece los percentiles por fase
+     */
+    public void setLatenciaPorFase(Map<String, ResumenLatencia> latenciaPorFase) {
+        this.latenciaPorFase = latenciaPorFase;
+    }
+
     /**
      * @return throughput en requests por segundo
      */
@@ -168,4 +239,270 @@ public class ResultadoMetricas {
     public void setErroresSintacticos(long erroresSintacticos) {
         this.erroresSintacticos = erroresSintacticos;
     }
+
+    /**
+     * @return cantidad de expresiones encontradas en la caché
+     */
+    public long getCacheAciertos() {
+        return cacheAciertos;
+    }
+
+    /**
+     * @param cacheAciertos establece los aciertos de la caché
+     */
+    public void setCacheAciertos(long cacheAciertos) {
+        this.cacheAciertos = cacheAciertos;
+    }
+
+    /**
+     * @return cantidad de expresiones que tuvieron que compilarse
+     */
+    public long getCacheFallos() {
+        return cacheFallos;
+    }
+
+    /**
+     * @param cacheFallos establece los fallos de la caché
+     */
+    public void setCacheFallos(long cacheFallos) {
+        this.cacheFallos = cacheFallos;
+    }
+
+    /**
+     * @return cantidad de entradas desalojadas de la caché
+     */
+    public long getCacheDesalojos() {
+        return cacheDesalojos;
+    }
+
+    /**
+     * @param cacheDesalojos establece los desalojos de la caché
+     */
+    public void setCacheDesalojos(long cacheDesalojos) {
+        this.cacheDesalojos = cacheDesalojos;
+    }
+
+    /**
+     * @return cantidad de lotes procesados
+     */
+    public long getTotalLotes() {
+        return totalLotes;
+    }
+
+    /**
+     * @param totalLotes establece la cantidad de lotes
+     */
+    public void setTotalLotes(long totalLotes) {
+        this.totalLotes = totalLotes;
+    }
+
+    /**
+     * @return cantidad promedio de solicitudes por lote
+     */
+    public double getTamanoPromedioLote() {
+        return tamanoPromedioLote;
+    }
+
+    /**
+     * @param tamanoPromedioLote establece el tamaño promedio de lote
+     */
+    public void setTamanoPromedioLote(double tamanoPromedioLote) {
+        this.tamanoPromedioLote = tamanoPromedioLote;
+    }
+
+    /**
+     * @return latencia promedio por lote en milisegundos
+     */
+    public double getLatenciaPromedioLoteMs() {
+        return latenciaPromedioLoteMs;
+    }
+
+    /**
+     * @param latenciaPromedioLoteMs establece la latencia promedio por lote
+     */
+    public void setLatenciaPromedioLoteMs(double latenciaPromedioLoteMs) {
+        this.latenciaPromedioLoteMs = latenciaPromedioLoteMs;
+    }
+
+    /**
+     * @return peticiones HTTP que esperan un hilo del executor
+     */
+    public long getTareasEnCola() {
+        return tareasEnCola;
+    }
+
+    /**
+     * @param tareasEnCola establece las peticiones en espera
+     */
+    public void setTareasEnCola(long tareasEnCola) {
+        this.tareasEnCola = tareasEnCola;
+    }
+
+    /**
+     * @return handlers atendiendo peticiones en este momento
+     */
+    public long getHandlersActivos() {
+        return handlersActivos;
+    }
+
+    /**
+     * @param handlersActivos establece los handlers activos
+     */
+    public void setHandlersActivos(long handlersActivos) {
+        this.handlersActivos = handlersActivos;
+    }
+
+    /**
+     * @return peticiones rechazadas con 503 por el control de admisión
+     */
+    public long getSolicitudesRechazadas() {
+        return solicitudesRechazadas;
+    }
+
+    /**
+     * @param solicitudesRechazadas establece las peticiones rechazadas
+     */
+    public void setSolicitudesRechazadas(long solicitudesRechazadas) {
+        this.solicitudesRechazadas = solicitudesRechazadas;
+    }
+
+    /**
+     * @return peticiones de compilación admitidas que no han terminado
+     */
+    public int getSolicitudesEnVuelo() {
+        return solicitudesEnVuelo;
+    }
+
+    /**
+     * @param solicitudesEnVuelo establece las peticiones en vuelo
+     */
+    public void setSolicitudesEnVuelo(int solicitudesEnVuelo) {
+        this.solicitudesEnVuelo = solicitudesEnVuelo;
+    }
+
+    /**
+     * @return límite de concurrencia actual del control de admisión
+     */
+    public int getLimiteConcurrencia() {
+        return limiteConcurrencia;
+    }
+
+    /**
+     * @param limiteConcurrencia establece el límite de concurrencia
+     */
+    public void setLimiteConcurrencia(int limiteConcurrencia) {
+        this.limiteConcurrencia = limiteConcurrencia;
+    }
+
+    /**
+     * @return spans que esperan ser exportados
+     */
+    public int getColaTrazas() {
+        return colaTrazas;
+    }
+
+    /**
+     * @param colaTrazas establece los spans que esperan ser exportados
+     */
+    public void setColaTrazas(int colaTrazas) {
+        this.colaTrazas = colaTrazas;
+    }
+
+    /**
+     * @return spans descartados porque la cola de exportación estaba llena
+     */
+    public long getSpansDescartados() {
+        return spansDescartados;
+    }
+
+    /**
+     * @param spansDescartados establece los spans descartados
+     */
+    public void setSpansDescartados(long spansDescartados) {
+        this.spansDescartados = spansDescartados;
+    }
+
+    /**
+     * @return spans que el exportador aceptó
+     */
+    public long getSpansExportados() {
+        return spansExportados;
+    }
+
+    /**
+     * @param spansExportados establece los spans exportados
+     */
+    public void setSpansExportados(long spansExportados) {
+        this.spansExportados = spansExportados;
+    }
+
+    /**
+     * @return spans cuya exportación falló
+     */
+    public long getSpansFallidos() {
+        return spansFallidos;
+    }
+
+    /**
+     * @param spansFallidos establece los spans cuya exportación falló
+     */
+    public void setSpansFallidos(long spansFallidos) {
+        this.spansFallidos = spansFallidos;
+    }
+
+    /**
+     * @return trazas que el muestreo en cola no conservó
+     */
+    public long getTrazasNoConservadas() {
+        return trazasNoConservadas;
+    }
+
+    /**
+     * @param trazasNoConservadas establece las trazas que el muestreo en cola no conservó
+     */
+    public void setTrazasNoConservadas(long trazasNoConservadas) {
+        this.trazasNoConservadas = trazasNoConservadas;
+    }
+
+    /**
+     * @return entradas de log perdidas porque su buffer estaba lleno
+     */
+    public long getLogsDescartados() {
+        return logsDescartados;
+    }
+
+    /**
+     * @param logsDescartados establece las entradas de log descartadas
+     */
+    public void setLogsDescartados(long logsDescartados) {
+        this.logsDescartados = logsDescartados;
+    }
+
+    /**
+     * @return entradas de log escritas
+     */
+    public long getLogsEscritos() {
+        return logsEscritos;
+    }
+
+    /**
+     * @param logsEscritos establece las entradas de log escritas
+     */
+    public void setLogsEscritos(long logsEscritos) {
+        this.logsEscritos = logsEscritos;
+    }
+
+    /**
+     * @return métricas de la ventana deslizante solicitada, o null si no se pidió
+     */
+    public MetricasVentana getVentana() {
+        return ventana;
+    }
+
+    /**
+     * @param ventana establece las métricas de la ventana deslizante
+     */
+    public void setVentana(MetricasVentana ventana) {
+        this.ventana = ventana;
+    }
 }
@@ -0,0 +1,217 @@
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO con el estado de la grabación de Flight Recorder de
+ * {@link GrabacionJfr} y, al detenerla, el resumen de sus eventos de
+ * compilación.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class ResumenGrabacion {
+
+    private String estado;
+    private String configuracion;
+    private String inicio;
+    private String archivo;
+    private long bytesArchivo;
+    private long compilaciones;
+    private long exitosas;
+    private long fallidas;
+    private long aciertosCache;
+    private long fallosCache;
+    private ResumenLatencia latencia;
+    private Map<String, ResumenLatencia> fases;
+    private List<CompilacionLenta> masLentas;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public ResumenGrabacion() {}
+
+    /**
+     * @return grabando, detenida o inactiva
+     */
+    public String getEstado() {
+        return estado;
+    }
+
+    /**
+     * @param estado establece el estado de la grabación
+     */
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    /**
+     * @return configuración del JDK usada además del evento de compilación,
+     *         o null si sólo se graba ese evento
+     */
+    public String getConfiguracion() {
+        return configuracion;
+    }
+
+    /**
+     * @param configuracion establece la configuración del JDK
+     */
+    public void setConfiguracion(String configuracion) {
+        this.configuracion = configuracion;
+    }
+
+    /**
+     * @return instante de inicio de la grabación en ISO-8601
+     */
+    public String getInicio() {
+        return inicio;
+    }
+
+    /**
+     * @param inicio establece el instante de inicio
+     */
+    public void setInicio(String inicio) {
+        this.inicio = inicio;
+    }
+
+    /**
+     * @return ruta del archivo .jfr donde se guardó la grabación
+     */
+    public String getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * @param archivo establece la ruta del archivo
+     */
+    public void setArchivo(String archivo) {
+        this.archivo = archivo;
+    }
+
+    /**
+     * @return tamaño del archivo en bytes
+     */
+    public long getBytesArchivo() {
+        return bytesArchivo;
+    }
+
+    /**
+     * @param bytesArchivo establece el tamaño del archivo
+     */
+    public void setBytesArchivo(long bytesArchivo) {
+        this.bytesArchivo = bytesArchivo;
+    }
+
+    /**
+     * @return eventos de compilación grabados
+     */
+    public long getCompilaciones() {
+        return compilaciones;
+    }
+
+    /**
+     * @param compilaciones establece los eventos de compilación grabados
+     */
+    public void setCompilaciones(long compilaciones) {
+        this.compilaciones = compilaciones;
+    }
+
+    /**
+     * @return compilaciones exitosas
+     */
+    public long getExitosas() {
+        return exitosas;
+    }
+
+    /**
+     * @param exitosas establece las compilaciones exitosas
+     */
+    public void setExitosas(long exitosas) {
+        this.exitosas = exitosas;
+    }
+
+    /**
+     * @return compilaciones fallidas
+     */
+    public long getFallidas() {
+        return fallidas;
+    }
+
+    /**
+     * @param fallidas establece las compilaciones fallidas
+     */
+    public void setFallidas(long fallidas) {
+        this.fallidas = fallidas;
+    }
+
+    /**
+     * @return compilaciones cuya expresión estaba en la caché
+     */
+    public long getAciertosCache() {
+        return aciertosCache;
+    }
+
+    /**
+     * @param aciertosCache establece los aciertos de caché
+     */
+    public void setAciertosCache(long aciertosCache) {
+        this.aciertosCache = aciertosCache;
+    }
+
+    /**
+     * @return compilaciones cuya expresión no estaba en la caché
+     */
+    public long getFallosCache() {
+        return fallosCache;
+    }
+
+    /**
+     * @param fallosCache establece los fallos de caché
+     */
+    public void setFallosCache(long fallosCache) {
+        this.fallosCache = fallosCache;
+    }
+
+    /**
+     * @return percentiles de la duración de las peticiones
+     */
+    public ResumenLatencia getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * @param latencia establece los percentiles de la duración
+     */
+    public void setLatencia(ResumenLatencia latencia) {
+        this.latencia = latencia;
+    }
+
+    /**
+     * @return percentiles de cada fase medida, por nombre de fase
+     */
+    public Map<String, ResumenLatencia> getFases() {
+        return fases;
+    }
+
+    /**
+     * @param fases establece los percentiles por fase
+     */
+    public void setFases(Map<String, ResumenLatencia> fases) {
+        this.fases = fases;
+    }
+
+    /**
+     * @return compilaciones más lentas, de la más lenta a la más rápida
+     */
+    public List<CompilacionLenta> getMasLentas() {
+        return masLentas;
+    }
+
+    /**
+     * @param masLentas establece las compilaciones más lentas
+     */
+    public void setMasLentas(List<CompilacionLenta> masLentas) {
+        this.masLentas = masLentas;
+    }
+}
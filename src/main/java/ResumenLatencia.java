@@ -0,0 +1,107 @@
+/**
+ * DTO con los percentiles de latencia de un histograma.
+ * Todos los valores están en milisegundos con resolución de nanosegundos.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class ResumenLatencia {
+
+    private long muestras;
+    private double p50Ms;
+    private double p90Ms;
+    private double p99Ms;
+    private double p999Ms;
+    private double maxMs;
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public ResumenLatencia() {}
+
+    /**
+     * @return cantidad de muestras del histograma
+     */
+    public long getMuestras() {
+        return muestras;
+    }
+
+    /**
+     * @param muestras establece la cantidad de muestras
+     */
+    public void setMuestras(long muestras) {
+        this.muestras = muestras;
+    }
+
+    /**
+     * @return mediana de la latencia
+     */
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    /**
+     * @param p50Ms establece la mediana
+     */
+    public void setP50Ms(double p50Ms) {
+        this.p50Ms = p50Ms;
+    }
+
+    /**
+     * @return percentil 90 de la latencia
+     */
+    public double getP90Ms() {
+        return p90Ms;
+    }
+
+    /**
+     * @param p90Ms establece el percentil 90
+     */
+    public void setP90Ms(double p90Ms) {
+        this.p90Ms = p90Ms;
+    }
+
+    /**
+     * @return percentil 99 de la latencia
+     */
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    /**
+     * @param p99Ms establece el percentil 99
+     */
+    public void setP99Ms(double p99Ms) {
+        this.p99Ms = p99Ms;
+    }
+
+    /**
+     * @return percentil 99.9 de la latencia
+     */
+    public double getP999Ms() {
+        return p999Ms;
+    }
+
+    /**
+     * @param p999Ms establece el percentil 99.9
+     */
+    public void setP999Ms(double p999Ms) {
+        this.p999Ms = p999Ms;
+    }
+
+    /**
+     * @return latencia máxima observada
+     */
+    public double getMaxMs() {
+        return maxMs;
+    }
+
+    /**
+     * @param maxMs establece la latencia máxima
+     */
+    public void setMaxMs(double maxMs) {
+        this.maxMs = maxMs;
+    }
+}
@@ -1,16 +1,36 @@
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
 
 import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Scope;
 
+import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Servicio REST que expone endpoints HTTP para compilación de expresiones.
@@ -22,40 +42,156 @@ import java.nio.charset.StandardCharsets;
  */
 public class ServicioCompilador {
     
-    private final HttpServer servidor;
+    private static final int CACHE_MAX_ENTRADAS = 10_000;
+    private static final long CACHE_MAX_BYTES = 16L * 1024 * 1024;
+    
+    private static final int LOTE_MAX_ELEMENTOS = 100_000;
+    private static final int LOTE_UMBRAL_PARALELO = 64;
+    
+    private static final int STREAM_MAX_LINEA = 1024 * 1024;
+    
+    private static final int COLUMNAS_MAX_FILAS = 1_000_000;
+    private static final int COLUMNAS_MAX_VARIABLES = 256;
+    private static final int COLUMNAS_MAX_VALORES = 8_000_000;
+    
+    private static final int BACKLOG_DEFECTO = 128;
+    private static final int RETRY_AFTER_SEGUNDOS = 1;
+    
+    private static final String RESPUESTA_SATURADO = "{\"error\":\"Servicio saturado\"}";
+    
+    /** Única ruta sujeta al control de admisión. */
+    private static final String RUTA_ADMISION = "/api/compilar";
+    
+    private static final String RUTA_ADMIN_JFR = "/api/admin/jfr";
+    
+    private final Transporte servidor;
     private final Gson gson;
     private final TelemetriaManager telemetria;
+    private final CacheExpresiones cache;
+    /** Uno por hilo; en modo VIRTUAL, uno por petición. */
+    private final ThreadLocal<CompiladorExpresiones> compiladores;
+    private final ForkJoinPool poolLote;
+    private final ModoEjecucion modo;
+    private final ExecutorService ejecutor;
+    private final ExecutorService ejecutorRechazos;
+    private final LimitadorConcurrencia limitador;
+    private final EjecutorInstrumentado admision;
+    private final GrabacionJfr grabacionJfr;
+    /** Si se registra /api/admin/jfr; se habilita con CAAS_JFR_ADMIN=true. */
+    private final boolean adminJfr;
 
     /**
-     * Constructor que crea e inicializa el servidor HTTP.
+     * Constructor que crea e inicializa el servidor HTTP con el modo de
+     * ejecución y el transporte indicados por las variables de entorno
+     * CAAS_MODO_EJECUCION y CAAS_TRANSPORTE.
      * 
      * @param puerto número de puerto donde escuchará el servidor
      * @throws IOException si no se puede crear el servidor en el puerto especificado
      */
     public ServicioCompilador(int puerto) throws IOException {
-        this.servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+        this(puerto, ModoEjecucion.resolver(null));
+    }
+
+    /**
+     * Constructor que crea e inicializa el servidor HTTP con el transporte
+     * indicado por la variable de entorno CAAS_TRANSPORTE.
+     * 
+     * @param puerto número de puerto donde escuchará el servidor
+     * @param modo modo de ejecución de los handlers
+     * @throws IOException si no se puede crear el servidor en el puerto especificado
+     */
+    public ServicioCompilador(int puerto, ModoEjecucion modo) throws IOException {
+        this(puerto, modo, TipoTransporte.resolver(null));
+    }
+
+    /**
+     * Constructor que crea e inicializa el servidor HTTP.
+     * 
+     * @param puerto número de puerto donde escuchará el servidor
+     * @param modo modo de ejecución de los handlers
+     * @param transporte implementación del servidor HTTP
+     * @throws IOException si no se puede crear el servidor en el puerto especificado
+     */
+    public ServicioCompilador(int puerto, ModoEjecucion modo, TipoTransporte transporte)
+            throws IOException {
+        this.servidor = transporte.crear(new InetSocketAddress(puerto),
+            configuracionEntera("CAAS_BACKLOG", BACKLOG_DEFECTO));
         this.gson = new Gson();
         this.telemetria = TelemetriaManager.getInstance();
+        this.cache = new CacheExpresiones(
+            CACHE_MAX_ENTRADAS, CACHE_MAX_BYTES, telemetria.getMetricas());
+        this.compiladores = ThreadLocal.withInitial(CompiladorExpresiones::new);
+        this.poolLote = new ForkJoinPool(configuracionEntera(
+            "CAAS_LOTE_PARALELISMO", Runtime.getRuntime().availableProcessors()));
+        this.modo = modo;
+        this.ejecutor = modo.crearEjecutor();
+        this.limitador = new LimitadorConcurrencia(
+            configuracionEntera("CAAS_LIMITE_INICIAL", 32),
+            1,
+            configuracionEntera("CAAS_LIMITE_MAXIMO", 1000),
+            configuracionEntera("CAAS_LATENCIA_OBJETIVO_MS", 50));
+        telemetria.getMetricas().registrarGaugesConcurrencia(
+            limitador::getEnVuelo, limitador::getLimite);
+        String directorioJfr = System.getenv("CAAS_JFR_DIRECTORIO");
+        this.grabacionJfr = new GrabacionJfr(
+            Paths.get(directorioJfr == null || directorioJfr.isBlank() ? "grabaciones" : directorioJfr.trim()),
+            Duration.ofSeconds(configuracionEntera("CAAS_JFR_DURACION_MAXIMA_S", 600)));
+        this.adminJfr = "true".equalsIgnoreCase(String.valueOf(System.getenv("CAAS_JFR_ADMIN")).trim());
+        
+        this.ejecutorRechazos = ModoEjecucion.crearEjecutorRechazos();
+        
+        Executor base = ejecutor != null ? ejecutor : Runnable::run;
+        this.admision = new EjecutorInstrumentado(
+            base, ejecutorRechazos, limitador, telemetria.getMetricas());
+        servidor.setEjecutor(admision);
         
         configurarEndpoints();
-        telemetria.log("INFO", "Servicio inicializado en puerto " + puerto);
+        telemetria.log("INFO", "Servicio inicializado en puerto " + puerto
+            + " (modo " + modo + ", transporte " + transporte
+            + ", evaluador columnar " + EvaluadorColumnar.predeterminado().getNombre()
+            + ", trazas " + telemetria.getDescripcionTrazas()
+            + ", métricas OTel " + telemetria.getDescripcionMetricas() + ")");
+        String motivoEscalar = EvaluadorColumnar.motivoEscalar();
+        if (motivoEscalar != null) {
+            telemetria.log("INFO", "Evaluador columnar escalar: " + motivoEscalar);
+        }
     }
 
     /**
-     * Configura los tres endpoints REST del servicio.
-     * POST /api/compilar, GET /api/metricas, GET /api/salud
+     * Configura los endpoints REST del servicio.
+     * POST /api/compilar, POST /api/compilar/lote, POST /api/compilar/stream,
+     * POST /api/compilar/columnas, GET /api/metricas, GET /metrics, GET /api/salud,
+     * y GET y POST /api/admin/jfr si CAAS_JFR_ADMIN=true
      */
     private void configurarEndpoints() {
-        servidor.createContext("/api/compilar", new HandlerCompilar());
-        servidor.createContext("/api/metricas", new HandlerMetricas());
-        servidor.createContext("/api/salud", new HandlerSalud());
+        registrar(RUTA_ADMISION, new HandlerCompilar());
+        registrar("/api/compilar/lote", new HandlerLote());
+        registrar("/api/compilar/stream", new HandlerStream());
+        registrar("/api/compilar/columnas", new HandlerColumnas());
+        registrar("/api/metricas", new HandlerMetricas());
+        registrar("/metrics", new HandlerOpenMetrics());
+        registrar("/api/salud", new HandlerSalud());
+        if (adminJfr) {
+            registrar(RUTA_ADMIN_JFR, new HandlerJfr());
+        }
+    }
+    
+    /**
+     * @return true si /api/admin/jfr está registrado (CAAS_JFR_ADMIN=true)
+     */
+    public boolean isAdminJfrHabilitado() {
+        return adminJfr;
+    }
+
+    private void registrar(String ruta, HttpHandler handler) {
+        servidor.registrar(ruta, new HandlerAdmision(handler, RUTA_ADMISION.equals(ruta)));
     }
 
     /**
      * Inicia el servidor HTTP y comienza a aceptar peticiones.
      */
     public void iniciar() {
-        servidor.start();
+        servidor.iniciar();
         telemetria.log("INFO", "Servidor iniciado");
     }
 
@@ -63,10 +199,236 @@ public class ServicioCompilador {
      * Detiene el servidor HTTP inmediatamente.
      */
     public void detener() {
-        servidor.stop(0);
+        servidor.detener();
+        poolLote.shutdown();
+        grabacionJfr.cerrar();
+        if (ejecutor != null) {
+            ejecutor.shutdown();
+        }
+        ejecutorRechazos.shutdown();
         telemetria.log("INFO", "Servidor detenido");
     }
 
+    /**
+     * @return modo de ejecución de los handlers
+     */
+    public ModoEjecucion getModo() {
+        return modo;
+    }
+
+    /**
+     * Executor que envuelve al del modo configurado, aplica el control de
+     * admisión y reporta en las métricas cuántas peticiones esperan en cola
+     * y cuántas se atienden.
+     *
+     * <p>Sólo {@link #RUTA_ADMISION} está sujeta al control de admisión: su
+     * permiso del {@link LimitadorConcurrencia} se toma al despachar la
+     * petición, antes de encolarla, así que el límite acota las peticiones
+     * en cola más las que se atienden, y la latencia con la que se ajusta
+     * va de que se encola a que termina. Las demás rutas no toman permiso,
+     * de modo que un stream o un lote lento no reduce el límite.</p>
+     *
+     * <p>Si la tarea es una {@link TareaPeticion} (transporte NIO) la ruta
+     * se conoce al despachar, y sin permiso la tarea responde 503 ahí
+     * mismo sin leer el cuerpo. Con el {@code HttpServer} del JDK no: el
+     * permiso se toma para toda petición, y {@link HandlerAdmision} lo
+     * devuelve sin muestra de latencia en cuanto ve que la ruta no es
+     * controlada. Una petición sin permiso se ejecuta en el executor de
+     * rechazos, donde {@link HandlerAdmision} responde 503 si la ruta es
+     * controlada o la regresa al executor de los handlers si no.</p>
+     */
+    private static final class EjecutorInstrumentado implements Executor {
+        
+        private static final ThreadLocal<Boolean> SIN_PERMISO = new ThreadLocal<>();
+        private static final ThreadLocal<Permiso> PERMISO = new ThreadLocal<>();
+
+        private final Executor delegado;
+        private final Executor rechazos;
+        private final LimitadorConcurrencia limitador;
+        private final MetricasCompilacion metricas;
+
+        EjecutorInstrumentado(Executor delegado, Executor rechazos,
+                              LimitadorConcurrencia limitador, MetricasCompilacion metricas) {
+            this.delegado = delegado;
+            this.rechazos = rechazos;
+            this.limitador = limitador;
+            this.metricas = metricas;
+        }
+
+        /**
+         * @return true si la petición del hilo actual se despachó sin
+         *         permiso del control de admisión
+         */
+        static boolean sinPermiso() {
+            return SIN_PERMISO.get() != null;
+        }
+
+        /**
+         * Indica que la petición del hilo actual es de una ruta controlada:
+         * su latencia ajustará el límite al terminar.
+         */
+        static void medirLatencia() {
+            Permiso permiso = PERMISO.get();
+            if (permiso != null) {
+                permiso.conMuestra = true;
+            }
+        }
+
+        /**
+         * Devuelve ya el permiso de la petición del hilo actual, si tiene,
+         * sin ajustar el límite.
+         */
+        static void liberarPermiso() {
+            Permiso permiso = PERMISO.get();
+            if (permiso != null) {
+                permiso.liberar();
+            }
+        }
+
+        @Override
+        public void execute(Runnable tarea) {
+            if (tarea instanceof TareaPeticion
+                    && !RUTA_ADMISION.equals(((TareaPeticion) tarea).getRuta())) {
+                ejecutar(tarea, null);
+                return;
+            }
+            if (!limitador.intentarAdquirir()) {
+                if (tarea instanceof TareaPeticion) {
+                    metricas.registrarRechazo();
+                    ((TareaPeticion) tarea).rechazar(RETRY_AFTER_SEGUNDOS, RESPUESTA_SATURADO);
+                    return;
+                }
+                rechazos.execute(() -> {
+                    SIN_PERMISO.set(Boolean.TRUE);
+                    try {
+                        tarea.run();
+                    } finally {
+                        SIN_PERMISO.remove();
+                    }
+                });
+                return;
+            }
+            ejecutar(tarea, new Permiso(tarea instanceof TareaPeticion));
+        }
+
+        /**
+         * Ejecuta en el executor de los handlers una tarea que no requiere
+         * permiso.
+         */
+        void ejecutarSinPermiso(Runnable tarea) {
+            ejecutar(tarea, null);
+        }
+
+        private void ejecutar(Runnable tarea, Permiso permiso) {
+            metricas.registrarTareaEncolada();
+            try {
+                delegado.execute(() -> {
+                    metricas.registrarTareaIniciada();
+                    if (permiso != null) {
+                        PERMISO.set(permiso);
+                    }
+                    try {
+                        tarea.run();
+                    } finally {
+                        metricas.registrarTareaTerminada();
+                        if (permiso != null) {
+                            PERMISO.remove();
+                            permiso.liberar();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                metricas.registrarTareaIniciada();
+                metricas.registrarTareaTerminada();
+                if (permiso != null) {
+                    permiso.liberar();
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Permiso de una petición admitida. Sólo lo usa el hilo que la
+         * atiende.
+         */
+        private final class Permiso {
+
+            private final long encoladaNs = System.nanoTime();
+            private boolean conMuestra;
+            private boolean liberado;
+
+            /**
+             * @param conMuestra true si ya se sabe que la ruta es controlada
+             */
+            Permiso(boolean conMuestra) {
+                this.conMuestra = conMuestra;
+            }
+
+            void liberar() {
+                if (liberado) {
+                    return;
+                }
+                liberado = true;
+                if (conMuestra) {
+                    limitador.liberar(System.nanoTime() - encoladaNs);
+                } else {
+                    limitador.liberarSinMuestra();
+                }
+            }
+        }
+    }
+
+    /**
+     * Envuelve el handler de cada ruta para completar el control de
+     * admisión de {@link EjecutorInstrumentado} una vez conocida la ruta.
+     *
+     * <ul>
+     *   <li>Ruta controlada: sin permiso responde 503 con Retry-After de
+     *       inmediato; con permiso, su latencia ajusta el límite.</li>
+     *   <li>Otra ruta: devuelve sin muestra el permiso tomado al despachar,
+     *       y si se despachó sin permiso pasa la petición al executor de
+     *       los handlers, fuera del de rechazos.</li>
+     * </ul>
+     */
+    private class HandlerAdmision implements HttpHandler {
+        
+        private final HttpHandler delegado;
+        private final boolean controlada;
+
+        HandlerAdmision(HttpHandler delegado, boolean controlada) {
+            this.delegado = delegado;
+            this.controlada = controlada;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (controlada) {
+                if (EjecutorInstrumentado.sinPermiso()) {
+                    telemetria.getMetricas().registrarRechazo();
+                    exchange.getResponseHeaders().set("Retry-After",
+                        String.valueOf(RETRY_AFTER_SEGUNDOS));
+                    enviarRespuesta(exchange, 503, RESPUESTA_SATURADO);
+                    return;
+                }
+                EjecutorInstrumentado.medirLatencia();
+                delegado.handle(exchange);
+                return;
+            }
+            if (EjecutorInstrumentado.sinPermiso()) {
+                admision.ejecutarSinPermiso(() -> {
+                    try {
+                        delegado.handle(exchange);
+                    } catch (IOException | RuntimeException e) {
+                        exchange.close();
+                    }
+                });
+                return;
+            }
+            EjecutorInstrumentado.liberarPermiso();
+            delegado.handle(exchange);
+        }
+    }
+
     /**
      * Handler interno para el endpoint POST /api/compilar.
      * Recibe expresiones aritméticas, las compila y retorna el resultado.
@@ -86,57 +448,570 @@ public class ServicioCompilador {
                 return;
             }
             
-            long inicioMs = System.currentTimeMillis();
-            Span span = telemetria.iniciarSpan("compilar_expresion");
+            long inicioNs = System.nanoTime();
+            Span span = telemetria.iniciarSpanConFases("compilar_expresion");
             
-            try {
-                String cuerpo = leerCuerpo(exchange.getRequestBody());
-                SolicitudCompilacion solicitud = gson.fromJson(cuerpo, SolicitudCompilacion.class);
+            try (Scope alcance = span.makeCurrent()) {
+                SolicitudCompilacion solicitud = leerSolicitud(exchange.getRequestBody());
                 
                 if (solicitud == null || !solicitud.esValida()) {
-                    long tiempoMs = System.currentTimeMillis() - inicioMs;
+                    long tiempoNs = System.nanoTime() - inicioNs;
                     RespuestaCompilacion resp = RespuestaCompilacion.error(
-                        "Solicitud inválida", tiempoMs);
-                    telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoMs);
-                    enviarRespuesta(exchange, 400, gson.toJson(resp));
+                        "Solicitud inválida", aMilisegundos(tiempoNs));
+                    telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                    enviarRespuestaMedida(exchange, 400, resp);
                     telemetria.finalizarSpanExitoso(span);
                     return;
                 }
                 
-                CompiladorExpresiones compilador = new CompiladorExpresiones();
-                double resultado = compilador.compilar(solicitud.getExpresion());
+                RespuestaCompilacion resp = compilarSolicitud(solicitud, inicioNs);
+                if (resp.isExitoso()) {
+                    enviarRespuestaMedida(exchange, 200, resp);
+                    telemetria.finalizarSpanExitoso(span);
+                } else {
+                    enviarRespuestaMedida(exchange, 422, resp);
+                    telemetria.finalizarSpanConError(span, resp.getCodigoError(), resp.getMensaje());
+                }
+                
+            } catch (JsonSyntaxException e) {
+                long tiempoNs = System.nanoTime() - inicioNs;
+                RespuestaCompilacion resp = RespuestaCompilacion.error(
+                    "JSON mal formado", aMilisegundos(tiempoNs));
+                telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                enviarRespuestaMedida(exchange, 400, resp);
+                telemetria.finalizarSpanConError(span, e);
+            }
+        }
+    }
+
+    /**
+     * Handler interno para el endpoint POST /api/compilar/lote.
+     * Recibe un arreglo de solicitudes, las compila en paralelo y retorna
+     * un arreglo de respuestas en el mismo orden, con errores por elemento.
+     * El arreglo se lee elemento por elemento y un lote con más de
+     * {@link #LOTE_MAX_ELEMENTOS} se rechaza con 413 sin leerlo completo.
+     */
+    private class HandlerLote implements HttpHandler {
+
+        /**
+         * Procesa peticiones POST de compilación por lotes.
+         * 
+         * @param exchange objeto HttpExchange con la petición y respuesta HTTP
+         * @throws IOException si hay error al leer o escribir la respuesta
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            
+            long inicioNs = System.nanoTime();
+            Span span = telemetria.iniciarSpan("compilar_lote");
+            
+            try (Scope alcance = span.makeCurrent()) {
+                JsonReader lector = new JsonReader(new InputStreamReader(
+                    exchange.getRequestBody(), StandardCharsets.UTF_8));
+                
+                if (lector.peek() != JsonToken.BEGIN_ARRAY) {
+                    rechazarLote(exchange, span, 400, inicioNs);
+                    return;
+                }
+                List<SolicitudCompilacion> leidas = new ArrayList<>();
+                if (!leerLote(lector, leidas)) {
+                    rechazarLote(exchange, span, 413, inicioNs);
+                    return;
+                }
+                SolicitudCompilacion[] solicitudes = leidas.toArray(new SolicitudCompilacion[0]);
+                
+                span.setAttribute("lote.tamano", solicitudes.length);
+                RespuestaCompilacion[] respuestas = compilarLote(solicitudes);
+                
+                long tiempoNs = System.nanoTime() - inicioNs;
+                telemetria.registrarLote(solicitudes.length, tiempoNs);
+                
+                enviarRespuesta(exchange, 200, gson.toJson(respuestas));
+                telemetria.finalizarSpanExitoso(span);
                 
-                long tiempoMs = System.currentTimeMillis() - inicioMs;
-                int tokens = compilador.getTokens().size();
+            } catch (JsonSyntaxException | MalformedJsonException | EOFException e) {
+                long tiempoNs = System.nanoTime() - inicioNs;
+                RespuestaCompilacion resp = RespuestaCompilacion.error(
+                    "JSON mal formado", aMilisegundos(tiempoNs));
+                telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                enviarRespuesta(exchange, 400, gson.toJson(resp));
+                telemetria.finalizarSpanConError(span, e);
                 
+            } catch (Exception e) {
+                long tiempoNs = System.nanoTime() - inicioNs;
+                RespuestaCompilacion resp = RespuestaCompilacion.error(
+                    "Error interno: " + e.getMessage(), aMilisegundos(tiempoNs));
+                telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                enviarRespuesta(exchange, 500, gson.toJson(resp));
+                telemetria.finalizarSpanConError(span, e);
+            }
+        }
+        
+        /**
+         * Lee los elementos de un arreglo JSON uno por uno y se detiene al
+         * pasar de {@link #LOTE_MAX_ELEMENTOS}, sin leer el resto del cuerpo.
+         * 
+         * @param lector lector posicionado al inicio del arreglo
+         * @param destino lista donde se agregan los elementos leídos
+         * @return false si el arreglo tiene más elementos que el máximo
+         * @throws IOException si hay error al leer el stream o el JSON está mal formado
+         */
+        private boolean leerLote(JsonReader lector, List<SolicitudCompilacion> destino)
+                throws IOException {
+            lector.beginArray();
+            while (lector.hasNext()) {
+                if (destino.size() == LOTE_MAX_ELEMENTOS) {
+                    return false;
+                }
+                destino.add(gson.fromJson(lector, SolicitudCompilacion.class));
+            }
+            lector.endArray();
+            if (lector.peek() != JsonToken.END_DOCUMENT) {
+                throw new MalformedJsonException("Contenido después del arreglo");
+            }
+            return true;
+        }
+        
+        /**
+         * Responde que el cuerpo no es un arreglo de hasta
+         * {@link #LOTE_MAX_ELEMENTOS} solicitudes y lo registra como fallo.
+         */
+        private void rechazarLote(HttpExchange exchange, Span span, int codigo, long inicioNs)
+                throws IOException {
+            long tiempoNs = System.nanoTime() - inicioNs;
+            RespuestaCompilacion resp = RespuestaCompilacion.error(
+                "Lote inválido: se esperaba un arreglo de hasta "
+                    + LOTE_MAX_ELEMENTOS + " solicitudes", aMilisegundos(tiempoNs));
+            telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+            enviarRespuesta(exchange, codigo, gson.toJson(resp));
+            telemetria.finalizarSpanExitoso(span);
+        }
+    }
+
+    /**
+     * Handler interno para el endpoint POST /api/compilar/columnas.
+     * Compila una expresión con variables una sola vez y la evalúa por
+     * cada fila de las columnas recibidas. Una fila que falla no detiene
+     * las demás: se reporta en filasConError.
+     */
+    private class HandlerColumnas implements HttpHandler {
+
+        /**
+         * Procesa peticiones POST de evaluación por columnas.
+         * 
+         * @param exchange objeto HttpExchange con la petición y respuesta HTTP
+         * @throws IOException si hay error al leer o escribir la respuesta
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            
+            long inicioNs = System.nanoTime();
+            Span span = telemetria.iniciarSpanConFases("compilar_columnas");
+            SolicitudEvaluacion solicitud = null;
+            
+            try (Scope alcance = span.makeCurrent()) {
+                long inicioDecodificacionNs = System.nanoTime();
+                solicitud = CodecJson.leerSolicitudEvaluacion(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8),
+                    COLUMNAS_MAX_FILAS, COLUMNAS_MAX_VARIABLES, COLUMNAS_MAX_VALORES);
+                telemetria.registrarFase(FaseCompilacion.DECODIFICACION_JSON,
+                    System.nanoTime() - inicioDecodificacionNs);
+                
+                if (solicitud == null || !solicitud.esValida()) {
+                    long tiempoNs = System.nanoTime() - inicioNs;
+                    RespuestaCompilacion resp = RespuestaCompilacion.error(
+                        "Solicitud inválida: se esperaban expresión, lenguaje y columnas de igual longitud",
+                        aMilisegundos(tiempoNs));
+                    telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                    enviarRespuestaMedida(exchange, 400, resp);
+                    telemetria.finalizarSpanExitoso(span);
+                    return;
+                }
+                
+                TrazaPeticion.actual().setExpresion(solicitud.getExpresion());
+                ResultadoCompilacion resultado = cache.analizar(
+                    solicitud.getLenguaje(), solicitud.getExpresion(), compiladores.get());
+                if (!resultado.esExitoso()) {
+                    long tiempoNs = System.nanoTime() - inicioNs;
+                    RespuestaCompilacion resp = RespuestaCompilacion.error(
+                        resultado.getDiagnostico(), aMilisegundos(tiempoNs));
+                    telemetria.registrarCompilacionFallida(solicitud.getLenguaje(), tiempoNs);
+                    enviarRespuestaMedida(exchange, 422, resp);
+                    telemetria.finalizarSpanConError(span, resp.getCodigoError(), resp.getMensaje());
+                    return;
+                }
+                ExpresionCompilada compilada = resultado.getExpresion();
+                TrazaPeticion.actual().setCompilada(compilada);
+                
+                List<String> nombres = compilada.getVariables();
+                double[][] columnas = new double[nombres.size()][];
+                for (int i = 0; i < columnas.length; i++) {
+                    columnas[i] = solicitud.getVariables().get(nombres.get(i));
+                    if (columnas[i] == null) {
+                        long tiempoNs = System.nanoTime() - inicioNs;
+                        RespuestaCompilacion resp = RespuestaCompilacion.error(
+                            "Variable sin valor: " + nombres.get(i), aMilisegundos(tiempoNs));
+                        telemetria.registrarCompilacionFallida(solicitud.getLenguaje(), tiempoNs);
+                        enviarRespuestaMedida(exchange, 400, resp);
+                        telemetria.finalizarSpanExitoso(span);
+                        return;
+                    }
+                }
+                
+                int filas = solicitud.getFilas();
+                span.setAttribute("columnas.filas", filas);
+                long inicioEvaluacionNs = System.nanoTime();
+                BitSet errores = new BitSet();
+                double[] resultados = compilada.evaluarColumnas(columnas, filas, errores);
+                telemetria.registrarFase(FaseCompilacion.EVALUACION,
+                    System.nanoTime() - inicioEvaluacionNs);
+                
+                long tiempoNs = System.nanoTime() - inicioNs;
                 telemetria.registrarCompilacionExitosa(
-                    solicitud.getLenguaje(), tokens, tiempoMs);
+                    solicitud.getLenguaje(), compilada.getTokens(), tiempoNs);
                 
-                RespuestaCompilacion resp = RespuestaCompilacion.exito(
-                    resultado, tokens, tiempoMs);
+                RespuestaEvaluacion resp = RespuestaEvaluacion.exito(resultados,
+                    errores.stream().toArray(), compilada.getTokens(), aMilisegundos(tiempoNs));
+                resp.setNodosEliminados(compilada.getNodosEliminados());
                 
-                enviarRespuesta(exchange, 200, gson.toJson(resp));
+                long inicioEscrituraNs = System.nanoTime();
+                CodecJson.Buffer buffer = CodecJson.buffer();
+                CodecJson.escribirRespuestaEvaluacion(resp, buffer);
+                enviarRespuesta(exchange, 200, buffer);
+                telemetria.registrarFase(FaseCompilacion.ESCRITURA_RESPUESTA,
+                    System.nanoTime() - inicioEscrituraNs);
                 telemetria.finalizarSpanExitoso(span);
                 
             } catch (JsonSyntaxException e) {
-                long tiempoMs = System.currentTimeMillis() - inicioMs;
+                long tiempoNs = System.nanoTime() - inicioNs;
+                boolean excedido = CodecJson.esLimiteExcedido(e);
                 RespuestaCompilacion resp = RespuestaCompilacion.error(
-                    "JSON mal formado", tiempoMs);
-                telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoMs);
-                enviarRespuesta(exchange, 400, gson.toJson(resp));
+                    excedido ? "Solicitud demasiado grande: " + e.getMessage() : "JSON mal formado",
+                    aMilisegundos(tiempoNs));
+                telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+                enviarRespuestaMedida(exchange, excedido ? 413 : 400, resp);
                 telemetria.finalizarSpanConError(span, e);
                 
             } catch (Exception e) {
-                long tiempoMs = System.currentTimeMillis() - inicioMs;
+                long tiempoNs = System.nanoTime() - inicioNs;
                 RespuestaCompilacion resp = RespuestaCompilacion.error(
-                    "Error: " + e.getMessage(), tiempoMs);
-                telemetria.registrarCompilacionFallida("ARITMETICA", tiempoMs);
-                enviarRespuesta(exchange, 422, gson.toJson(resp));
+                    "Error: " + e.getMessage(), aMilisegundos(tiempoNs));
+                telemetria.registrarCompilacionFallida(
+                    solicitud != null && solicitud.esValida() ? solicitud.getLenguaje() : "DESCONOCIDO",
+                    tiempoNs);
+                enviarRespuestaMedida(exchange, 422, resp);
                 telemetria.finalizarSpanConError(span, e);
             }
         }
     }
 
+    /**
+     * Handler interno para el endpoint POST /api/compilar/stream.
+     * Lee solicitudes en NDJSON (una por línea) conforme llegan y escribe
+     * cada respuesta en NDJSON con transferencia chunked, sin cargar el
+     * cuerpo completo en memoria.
+     */
+    private class HandlerStream implements HttpHandler {
+
+        /**
+         * Procesa peticiones POST de compilación en streaming.
+         * 
+         * @param exchange objeto HttpExchange con la petición y respuesta HTTP
+         * @throws IOException si hay error al leer o escribir el stream
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            
+            Span span = telemetria.iniciarSpan("compilar_stream");
+            long lineas = 0;
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+            exchange.sendResponseHeaders(200, 0);
+            
+            LectorNdjson lector = new LectorNdjson(exchange.getRequestBody());
+            try (Scope alcance = span.makeCurrent();
+                 Writer escritor = new BufferedWriter(new OutputStreamWriter(
+                     exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+                
+                while (lector.siguienteLinea()) {
+                    if (lector.esVacia()) {
+                        continue;
+                    }
+                    
+                    RespuestaCompilacion resp = lector.esDemasiadoLarga()
+                        ? RespuestaCompilacion.error("Línea demasiado larga", 0)
+                        : compilarLinea(lector.texto());
+                    gson.toJson(resp, escritor);
+                    escritor.write('\n');
+                    lineas++;
+                    
+                    // Si la siguiente lectura puede bloquear, se entregan
+                    // antes las respuestas acumuladas.
+                    if (!lector.hayDatosEnBuffer()) {
+                        escritor.flush();
+                    }
+                }
+                
+                span.setAttribute("stream.lineas", lineas);
+                telemetria.finalizarSpanExitoso(span);
+                
+            } catch (IOException e) {
+                span.setAttribute("stream.lineas", lineas);
+                telemetria.finalizarSpanConError(span, e);
+                throw e;
+            }
+        }
+
+        /**
+         * Decodifica y compila una línea NDJSON.
+         * 
+         * @param json contenido de la línea
+         * @return respuesta de la línea
+         */
+        private RespuestaCompilacion compilarLinea(String json) {
+            SolicitudCompilacion solicitud;
+            try {
+                solicitud = gson.fromJson(json, SolicitudCompilacion.class);
+            } catch (JsonSyntaxException e) {
+                telemetria.registrarCompilacionFallida("DESCONOCIDO", 0);
+                return RespuestaCompilacion.error("JSON mal formado", 0);
+            }
+            return compilarElemento(solicitud);
+        }
+    }
+
+    /**
+     * Lector de líneas NDJSON sobre un InputStream con buffer propio.
+     * Permite saber si la siguiente línea ya está en memoria o si leerla
+     * puede bloquear, y limita cada línea a {@link #STREAM_MAX_LINEA} bytes
+     * para que una sola línea no pueda agotar la memoria.
+     */
+    private static final class LectorNdjson {
+        
+        private final InputStream entrada;
+        private final byte[] buffer = new byte[8192];
+        private int posicion;
+        private int limite;
+        
+        private byte[] linea = new byte[256];
+        private int longitud;
+        private boolean demasiadoLarga;
+        private boolean vacia;
+
+        LectorNdjson(InputStream entrada) {
+            this.entrada = entrada;
+        }
+
+        /**
+         * Avanza a la siguiente línea del stream.
+         * 
+         * @return false si se alcanzó el fin del stream
+         * @throws IOException si hay error al leer el stream
+         */
+        boolean siguienteLinea() throws IOException {
+            longitud = 0;
+            demasiadoLarga = false;
+            vacia = true;
+            boolean leyoAlgo = false;
+            
+            while (true) {
+                if (posicion == limite) {
+                    limite = entrada.read(buffer);
+                    posicion = 0;
+                    if (limite <= 0) {
+                        limite = 0;
+                        return leyoAlgo;
+                    }
+                }
+                leyoAlgo = true;
+                
+                byte b = buffer[posicion++];
+                if (b == '\n') {
+                    return true;
+                }
+                if (b != ' ' && b != '\t' && b != '\r') {
+                    vacia = false;
+                }
+                if (longitud == STREAM_MAX_LINEA) {
+                    demasiadoLarga = true;
+                    continue;
+                }
+                if (longitud == linea.length) {
+                    linea = Arrays.copyOf(linea,
+                        Math.min(linea.length * 2, STREAM_MAX_LINEA));
+                }
+                linea[longitud++] = b;
+            }
+        }
+
+        /**
+         * @return true si quedan bytes leídos sin procesar
+         */
+        boolean hayDatosEnBuffer() {
+            return posicion < limite;
+        }
+
+        /**
+         * @return true si la línea actual sólo contiene espacios
+         */
+        boolean esVacia() {
+            return vacia;
+        }
+
+        /**
+         * @return true si la línea actual excedió el tamaño máximo
+         */
+        boolean esDemasiadoLarga() {
+            return demasiadoLarga;
+        }
+
+        /**
+         * @return contenido de la línea actual decodificado en UTF-8
+         */
+        String texto() {
+            return new String(linea, 0, longitud, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Compila una solicitud ya validada y registra el resultado en las
+     * métricas. Nunca lanza excepción: los errores de compilación y de
+     * evaluación se devuelven como respuesta fallida con su diagnóstico.
+     * 
+     * @param solicitud solicitud válida
+     * @param inicioNs instante, según System.nanoTime(), en que empezó a atenderse la solicitud
+     * @return respuesta exitosa con el resultado, o fallida con el diagnóstico
+     */
+    private RespuestaCompilacion compilarSolicitud(SolicitudCompilacion solicitud, long inicioNs) {
+        TrazaPeticion traza = TrazaPeticion.actual();
+        traza.setExpresion(solicitud.getExpresion());
+        ResultadoCompilacion resultado = cache.analizar(
+            solicitud.getLenguaje(), solicitud.getExpresion(),
+            compiladores.get());
+        if (resultado.esExitoso()) {
+            traza.setCompilada(resultado.getExpresion());
+            long inicioEvaluacionNs = System.nanoTime();
+            resultado = resultado.getExpresion().intentarEvaluar();
+            telemetria.registrarFase(FaseCompilacion.EVALUACION,
+                System.nanoTime() - inicioEvaluacionNs);
+        }
+        
+        long tiempoNs = System.nanoTime() - inicioNs;
+        if (!resultado.esExitoso()) {
+            telemetria.registrarCompilacionFallida(solicitud.getLenguaje(), tiempoNs);
+            return RespuestaCompilacion.error(resultado.getDiagnostico(), aMilisegundos(tiempoNs));
+        }
+        
+        ExpresionCompilada compilada = resultado.getExpresion();
+        int tokens = compilada.getTokens();
+        
+        telemetria.registrarCompilacionExitosa(
+            solicitud.getLenguaje(), tokens, tiempoNs);
+        
+        RespuestaCompilacion respuesta =
+            RespuestaCompilacion.exito(resultado.getValor(), tokens, aMilisegundos(tiempoNs));
+        respuesta.setNodosEliminados(compilada.getNodosEliminados());
+        return respuesta;
+    }
+
+    /**
+     * Compila un elemento de un lote. Nunca lanza excepción: los errores
+     * se devuelven como respuesta fallida del propio elemento.
+     * 
+     * @param solicitud elemento del lote, posiblemente nulo o inválido
+     * @return respuesta del elemento
+     */
+    private RespuestaCompilacion compilarElemento(SolicitudCompilacion solicitud) {
+        long inicioNs = System.nanoTime();
+        
+        if (solicitud == null || !solicitud.esValida()) {
+            long tiempoNs = System.nanoTime() - inicioNs;
+            telemetria.registrarCompilacionFallida("DESCONOCIDO", tiempoNs);
+            return RespuestaCompilacion.error("Solicitud inválida", aMilisegundos(tiempoNs));
+        }
+        
+        return compilarSolicitud(solicitud, inicioNs);
+    }
+
+    /**
+     * Compila todos los elementos de un lote conservando su orden.
+     * Los lotes pequeños se procesan en el hilo actual; los grandes se
+     * reparten en el pool fork-join del servicio.
+     * 
+     * @param solicitudes elementos del lote
+     * @return respuestas en el mismo orden que las solicitudes
+     * @throws Exception si el procesamiento paralelo es interrumpido
+     */
+    private RespuestaCompilacion[] compilarLote(SolicitudCompilacion[] solicitudes)
+            throws Exception {
+        RespuestaCompilacion[] respuestas = new RespuestaCompilacion[solicitudes.length];
+        
+        if (solicitudes.length < LOTE_UMBRAL_PARALELO) {
+            for (int i = 0; i < solicitudes.length; i++) {
+                respuestas[i] = compilarElemento(solicitudes[i]);
+            }
+            return respuestas;
+        }
+        
+        poolLote.submit(() -> IntStream.range(0, solicitudes.length).parallel()
+            .forEach(i -> respuestas[i] = compilarElemento(solicitudes[i])))
+            .get();
+        return respuestas;
+    }
+
+    /**
+     * Lee un entero de una variable de entorno.
+     * 
+     * @param variable nombre de la variable de entorno
+     * @param defecto valor a usar si no está definida o no es un entero positivo
+     * @return valor configurado
+     */
+    static int configuracionEntera(String variable, int defecto) {
+        String valor = System.getenv(variable);
+        if (valor == null) {
+            return defecto;
+        }
+        try {
+            int numero = Integer.parseInt(valor.trim());
+            return numero > 0 ? numero : defecto;
+        } catch (NumberFormatException e) {
+            return defecto;
+        }
+    }
+
+    /**
+     * Lee un número decimal de una variable de entorno.
+     * 
+     * @param variable nombre de la variable de entorno
+     * @param defecto valor a usar si no está definida o no es un número
+     *                finito no negativo
+     * @return valor configurado
+     */
+    static double configuracionDecimal(String variable, double defecto) {
+        String valor = System.getenv(variable);
+        if (valor == null) {
+            return defecto;
+        }
+        try {
+            double numero = Double.parseDouble(valor.trim());
+            return Double.isFinite(numero) && numero >= 0 ? numero : defecto;
+        } catch (NumberFormatException e) {
+            return defecto;
+        }
+    }
+
     /**
      * Handler interno para el endpoint GET /api/metricas.
      * Retorna estadísticas acumuladas del sistema.
@@ -156,11 +1031,120 @@ public class ServicioCompilador {
                 return;
             }
             
-            ResultadoMetricas metricas = telemetria.getMetricas().generarSnapshot();
+            String ventana = parametroConsulta(exchange, "ventana");
+            if (ventana != null && !MetricasCompilacion.esVentanaValida(ventana)) {
+                enviarRespuesta(exchange, 400,
+                    "{\"error\":\"Ventana inválida, use 1s, 10s, 1m o 5m\"}");
+                return;
+            }
+            
+            ResultadoMetricas metricas = ventana == null
+                ? telemetria.getMetricas().generarSnapshot()
+                : telemetria.getMetricas().generarSnapshot(ventana);
             enviarRespuesta(exchange, 200, gson.toJson(metricas));
         }
     }
 
+    /**
+     * Handler interno para el endpoint GET /metrics.
+     * Expone las métricas en formato OpenMetrics para Prometheus. Las
+     * exposiciones se serializan y reutilizan un solo buffer.
+     */
+    private class HandlerOpenMetrics implements HttpHandler {
+
+        private final ExpositorOpenMetrics expositor = new ExpositorOpenMetrics();
+
+        /**
+         * Procesa peticiones GET de métricas en OpenMetrics.
+         * 
+         * @param exchange objeto HttpExchange con la petición y respuesta HTTP
+         * @throws IOException si hay error al escribir la respuesta
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            
+            synchronized (expositor) {
+                expositor.iniciar();
+                telemetria.getMetricas().exponer(expositor);
+                CodecJson.Buffer cuerpo = expositor.terminar();
+                exchange.getResponseHeaders().set("Content-Type", ExpositorOpenMetrics.TIPO_CONTENIDO);
+                exchange.sendResponseHeaders(200, cuerpo.getTamano());
+                try (OutputStream os = exchange.getResponseBody()) {
+                    cuerpo.escribirEn(os);
+                }
+            }
+        }
+    }
+
+    /**
+     * Handler interno para el endpoint /api/admin/jfr.
+     * GET responde el estado de la grabación de Flight Recorder.
+     * POST ?accion=iniciar la inicia, con &configuracion=default o profile
+     * para grabar también los eventos del JDK; POST ?accion=detener la
+     * detiene, la guarda en un archivo .jfr y responde su resumen.
+     * 
+     * <p>Escribe archivos en el servidor y expone las expresiones de los
+     * clientes, así que sólo se registra con CAAS_JFR_ADMIN=true y sólo
+     * atiende conexiones desde la interfaz de loopback; las demás reciben
+     * 403.</p>
+     */
+    private class HandlerJfr implements HttpHandler {
+
+        /**
+         * Procesa peticiones de control de la grabación.
+         * 
+         * @param exchange objeto HttpExchange con la petición y respuesta HTTP
+         * @throws IOException si hay error al escribir la respuesta
+         */
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            InetSocketAddress remota = exchange.getRemoteAddress();
+            if (remota == null || remota.getAddress() == null
+                    || !remota.getAddress().isLoopbackAddress()) {
+                telemetria.log("WARN", "Acceso a " + RUTA_ADMIN_JFR + " rechazado desde " + remota);
+                enviarRespuesta(exchange, 403, "{\"error\":\"Sólo se permite desde loopback\"}");
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 200, gson.toJson(grabacionJfr.estado()));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                enviarRespuesta(exchange, 405, "{\"error\":\"Método no permitido\"}");
+                return;
+            }
+            
+            String accion = parametroConsulta(exchange, "accion");
+            try {
+                ResumenGrabacion resumen;
+                if ("iniciar".equals(accion)) {
+                    resumen = grabacionJfr.iniciar(parametroConsulta(exchange, "configuracion"));
+                    telemetria.log("INFO", "Grabación JFR iniciada");
+                } else if ("detener".equals(accion)) {
+                    resumen = grabacionJfr.detener();
+                    telemetria.log("INFO", "Grabación JFR guardada en " + resumen.getArchivo());
+                } else {
+                    enviarRespuesta(exchange, 400,
+                        "{\"error\":\"Acción inválida, use iniciar o detener\"}");
+                    return;
+                }
+                enviarRespuesta(exchange, 200, gson.toJson(resumen));
+                
+            } catch (IllegalArgumentException e) {
+                enviarRespuesta(exchange, 400, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))));
+            } catch (IllegalStateException e) {
+                enviarRespuesta(exchange, 409, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))));
+            } catch (IOException e) {
+                telemetria.log("ERROR", "No se pudo guardar la grabación JFR: " + e.getMessage());
+                enviarRespuesta(exchange, 500, gson.toJson(Map.of("error", String.valueOf(e.getMessage()))));
+            }
+        }
+    }
+
     /**
      * Handler interno para el endpoint GET /api/salud.
      * Verifica que el servicio esté activo (health check).
@@ -180,14 +1164,82 @@ public class ServicioCompilador {
     }
 
     /**
-     * Lee el cuerpo completo de una petición HTTP.
+     * Obtiene el valor de un parámetro de la cadena de consulta.
+     * 
+     * @param exchange objeto HttpExchange de la petición
+     * @param nombre nombre del parámetro
+     * @return valor decodificado del parámetro, o null si no está presente
+     */
+    private static String parametroConsulta(HttpExchange exchange, String nombre) {
+        String consulta = exchange.getRequestURI().getRawQuery();
+        if (consulta == null) {
+            return null;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            if (clave.equals(nombre)) {
+                return igual < 0 ? "" : URLDecoder.decode(
+                    par.substring(igual + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lee y decodifica el cuerpo de una solicitud de compilación con
+     * {@link CodecJson}, sin crear el String del cuerpo. Si el codec no
+     * cubre la entrada se decodifica con Gson. Registra la lectura y la
+     * decodificación como fases separadas.
      * 
      * @param input stream de entrada de la petición HTTP
-     * @return string con el contenido del cuerpo en UTF-8
+     * @return la solicitud, o null si el cuerpo es vacío o el literal null
      * @throws IOException si hay error al leer el stream
+     * @throws JsonSyntaxException si el cuerpo no es JSON válido
      */
-    private String leerCuerpo(InputStream input) throws IOException {
-        return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+    private SolicitudCompilacion leerSolicitud(InputStream input) throws IOException {
+        long inicioNs = System.nanoTime();
+        CodecJson.Buffer buffer = CodecJson.buffer().leerDe(input);
+        long finLecturaNs = System.nanoTime();
+        telemetria.registrarFase(FaseCompilacion.LECTURA_CUERPO, finLecturaNs - inicioNs);
+        TrazaPeticion.actual().setBytesCuerpo(buffer.getTamano());
+        
+        SolicitudCompilacion solicitud = CodecJson.leerSolicitud(buffer.getDatos(), buffer.getTamano());
+        if (solicitud == null) {
+            solicitud = gson.fromJson(buffer.comoTexto(), SolicitudCompilacion.class);
+        }
+        telemetria.registrarFase(FaseCompilacion.DECODIFICACION_JSON, System.nanoTime() - finLecturaNs);
+        return solicitud;
+    }
+
+    /**
+     * Serializa y envía una respuesta de compilación, registrando la
+     * duración de la fase de escritura. Se codifica con {@link CodecJson}
+     * en el buffer del hilo y con Gson sólo si el codec no la cubre.
+     * 
+     * @param exchange objeto HttpExchange para enviar la respuesta
+     * @param codigo código de estado HTTP
+     * @param respuesta respuesta a serializar
+     * @throws IOException si hay error al escribir la respuesta
+     */
+    private void enviarRespuestaMedida(HttpExchange exchange, int codigo,
+                                       RespuestaCompilacion respuesta) throws IOException {
+        long inicioNs = System.nanoTime();
+        CodecJson.Buffer buffer = CodecJson.buffer();
+        if (CodecJson.escribirRespuesta(respuesta, buffer)) {
+            enviarRespuesta(exchange, codigo, buffer);
+        } else {
+            enviarRespuesta(exchange, codigo, gson.toJson(respuesta));
+        }
+        telemetria.registrarFase(FaseCompilacion.ESCRITURA_RESPUESTA, System.nanoTime() - inicioNs);
+    }
+
+    /**
+     * @param nanos duración en nanosegundos
+     * @return duración en milisegundos completos, como se reporta en las respuestas
+     */
+    private static long aMilisegundos(long nanos) {
+        return nanos / 1_000_000;
     }
 
     /**
@@ -209,4 +1261,22 @@ public class ServicioCompilador {
             os.write(bytes);
         }
     }
+
+    /**
+     * Envía una respuesta HTTP JSON ya codificada en un buffer.
+     * 
+     * @param exchange objeto HttpExchange para enviar la respuesta
+     * @param codigo código de estado HTTP
+     * @param json buffer con el JSON en UTF-8
+     * @throws IOException si hay error al escribir la respuesta
+     */
+    private void enviarRespuesta(HttpExchange exchange, int codigo, CodecJson.Buffer json)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(codigo, json.getTamano());
+        
+        try (OutputStream os = exchange.getResponseBody()) {
+            json.escribirEn(os);
+        }
+    }
 }
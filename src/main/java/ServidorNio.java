@@ -0,0 +1,1021 @@
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Servidor HTTP/1.1 no bloqueante sobre {@link Selector}, alternativo al
+ * {@code HttpServer} del JDK.
+ *
+ * <p>Un solo hilo atiende todos los sockets: acepta conexiones, lee en
+ * buffers directos del {@link PoolBuffers}, interpreta los encabezados sin
+ * copiarlos a cadenas y escribe las respuestas. Los handlers corren en el
+ * executor configurado y reciben un {@link IntercambioNio}, de modo que son
+ * los mismos que usa {@link TransporteHttpServer}.</p>
+ *
+ * <ul>
+ *   <li>El cuerpo de la petición se entrega al handler conforme llega
+ *       (Content-Length o chunked); si el handler no lo consume, la lectura
+ *       del socket se pausa hasta que lo haga.</li>
+ *   <li>La respuesta se acumula en buffers del pool y se envía con una sola
+ *       escritura de varios buffers (encabezados y cuerpo juntos) desde el
+ *       hilo del selector.</li>
+ *   <li>Las conexiones son persistentes salvo Connection: close o HTTP/1.0
+ *       sin keep-alive. Las peticiones encadenadas (pipelining) se atienden
+ *       en orden, una a la vez por conexión.</li>
+ *   <li>Las conexiones sin petición en curso se cierran tras
+ *       CAAS_NIO_INACTIVIDAD_S segundos (60 por defecto).</li>
+ *   <li>Si el handler corre en el hilo del selector, el cuerpo se guarda
+ *       completo antes de ejecutarlo; uno de más de CAAS_NIO_MAX_CUERPO_MB
+ *       megabytes (64 por defecto) se rechaza con 413.</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class ServidorNio implements Transporte {
+
+    /** Tamaño de los buffers de lectura y de respuesta; limita los encabezados. */
+    static final int TAMANO_BUFFER = 16 * 1024;
+    private static final int MAX_BUFFERS_RETENIDOS = 1024;
+    private static final int MAX_BUFFERS_POR_ESCRITURA = 16;
+    private static final long REVISION_INACTIVAS_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final byte[] CONTINUAR =
+        "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final PoolBuffers pool = new PoolBuffers(TAMANO_BUFFER, MAX_BUFFERS_RETENIDOS);
+    private final List<ContextoNio> contextos = new ArrayList<>();
+    private final ContextoNio noEncontrado = new ContextoNio("", ServidorNio::responderNoEncontrado);
+    private final ConcurrentLinkedQueue<Conexion> senaladas = new ConcurrentLinkedQueue<>();
+    private final Selector selector;
+    private final ServerSocketChannel canalServidor;
+    private final long inactividadNs;
+    /** Bytes de cuerpo que se guardan a lo más para un handler pospuesto. */
+    private final long maxCuerpoDiferido;
+    private volatile Executor ejecutor = Runnable::run;
+    private volatile boolean activo;
+    private Thread hilo;
+
+    /**
+     * Abre el puerto; las conexiones se aceptan a partir de {@link #iniciar()}.
+     *
+     * @param direccion dirección donde escuchará
+     * @param backlog conexiones pendientes de aceptar que admite el socket
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public ServidorNio(InetSocketAddress direccion, int backlog) throws IOException {
+        this.inactividadNs = TimeUnit.SECONDS.toNanos(
+            ServicioCompilador.configuracionEntera("CAAS_NIO_INACTIVIDAD_S", 60));
+        this.maxCuerpoDiferido = ServicioCompilador.configuracionEntera("CAAS_NIO_MAX_CUERPO_MB", 64)
+            * 1024L * 1024;
+        this.selector = Selector.open();
+        this.canalServidor = ServerSocketChannel.open();
+        canalServidor.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        canalServidor.bind(direccion, backlog);
+        canalServidor.configureBlocking(false);
+        canalServidor.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    @Override
+    public void registrar(String ruta, HttpHandler handler) {
+        contextos.add(new ContextoNio(ruta, handler));
+        contextos.sort(Comparator.comparingInt((ContextoNio c) -> c.getPath().length()).reversed());
+    }
+
+    @Override
+    public void setEjecutor(Executor ejecutor) {
+        this.ejecutor = ejecutor != null ? ejecutor : Runnable::run;
+    }
+
+    @Override
+    public void iniciar() {
+        activo = true;
+        hilo = new Thread(this::atenderSelector, "caas-nio-selector");
+        hilo.start();
+    }
+
+    @Override
+    public void detener() {
+        activo = false;
+        selector.wakeup();
+        if (hilo != null && hilo != Thread.currentThread()) {
+            try {
+                hilo.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Ciclo del hilo del selector.
+     */
+    private void atenderSelector() {
+        long siguienteRevision = System.nanoTime() + REVISION_INACTIVAS_NS;
+        while (activo) {
+            try {
+                selector.select(TimeUnit.NANOSECONDS.toMillis(REVISION_INACTIVAS_NS));
+                atenderSenaladas();
+
+                Iterator<SelectionKey> listas = selector.selectedKeys().iterator();
+                while (listas.hasNext()) {
+                    SelectionKey clave = listas.next();
+                    listas.remove();
+                    atender(clave);
+                }
+
+                long ahora = System.nanoTime();
+                if (ahora - siguienteRevision >= 0) {
+                    cerrarInactivas(ahora);
+                    siguienteRevision = ahora + REVISION_INACTIVAS_NS;
+                }
+            } catch (IOException e) {
+                TelemetriaManager.getInstance().log("ERROR", "Error en el selector NIO: " + e.getMessage());
+            }
+        }
+        cerrarTodo();
+    }
+
+    private void atender(SelectionKey clave) {
+        if (!clave.isValid()) {
+            return;
+        }
+        if (clave.isAcceptable()) {
+            aceptar();
+            return;
+        }
+        Conexion conexion = (Conexion) clave.attachment();
+        try {
+            if (clave.isWritable()) {
+                conexion.escribir();
+            }
+            if (clave.isValid() && clave.isReadable()) {
+                conexion.leer();
+            }
+        } catch (IOException | CancelledKeyException e) {
+            conexion.cerrar();
+        }
+    }
+
+    /**
+     * Atiende las conexiones que los hilos de los handlers marcaron porque
+     * dejaron datos por enviar o consumieron cuerpo pendiente.
+     */
+    private void atenderSenaladas() {
+        Conexion conexion;
+        while ((conexion = senaladas.poll()) != null) {
+            conexion.enCola.set(false);
+            try {
+                conexion.atenderSenal();
+            } catch (IOException | CancelledKeyException e) {
+                conexion.cerrar();
+            }
+        }
+    }
+
+    private void aceptar() {
+        try {
+            SocketChannel canal;
+            while ((canal = canalServidor.accept()) != null) {
+                canal.configureBlocking(false);
+                canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey clave = canal.register(selector, SelectionKey.OP_READ);
+                clave.attach(new Conexion(canal, clave));
+            }
+        } catch (IOException e) {
+            TelemetriaManager.getInstance().log("WARN", "Error al aceptar conexión: " + e.getMessage());
+        }
+    }
+
+    private void cerrarInactivas(long ahora) {
+        for (SelectionKey clave : selector.keys()) {
+            if (clave.attachment() instanceof Conexion) {
+                Conexion conexion = (Conexion) clave.attachment();
+                if (conexion.actual == null && ahora - conexion.ultimaActividadNs > inactividadNs) {
+                    conexion.cerrar();
+                }
+            }
+        }
+    }
+
+    private void cerrarTodo() {
+        for (SelectionKey clave : selector.keys()) {
+            if (clave.attachment() instanceof Conexion) {
+                ((Conexion) clave.attachment()).cerrar();
+            }
+        }
+        try {
+            canalServidor.close();
+            selector.close();
+        } catch (IOException e) {
+            TelemetriaManager.getInstance().log("WARN", "Error al cerrar el servidor NIO: " + e.getMessage());
+        }
+    }
+
+    private ContextoNio buscarContexto(String destino) {
+        for (ContextoNio contexto : contextos) {
+            if (destino.startsWith(contexto.getPath())) {
+                return contexto;
+            }
+        }
+        return noEncontrado;
+    }
+
+    private static void responderNoEncontrado(com.sun.net.httpserver.HttpExchange exchange)
+            throws IOException {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+    }
+
+    /**
+     * Estado de una conexión. Salvo los métodos marcados, sólo lo usa el
+     * hilo del selector.
+     */
+    final class Conexion {
+
+        private static final int LONGITUD = 0;
+        private static final int TROZO_TAMANO = 1;
+        private static final int TROZO_DATOS = 2;
+        private static final int TROZO_FIN = 3;
+        private static final int TROZO_TRAILER = 4;
+        private static final int COMPLETO = 5;
+
+        final SocketChannel canal;
+        private final SelectionKey clave;
+        private final ConcurrentLinkedQueue<ByteBuffer> salida = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer[] lote = new ByteBuffer[MAX_BUFFERS_POR_ESCRITURA];
+        private final AtomicBoolean enCola = new AtomicBoolean();
+        private final Headers encabezadosRespuesta = new Headers();
+
+        /** Datos leídos sin procesar en [0, position). */
+        private ByteBuffer lectura;
+        private IntercambioNio actual;
+        private CuerpoNio cuerpo;
+        private int encuadre = COMPLETO;
+        private long restante;
+        /** Bytes de cuerpo de la petición en curso entregados hasta ahora. */
+        private long recibidos;
+        private boolean entradaCerrada;
+        private boolean cerrarTrasEscribir;
+        private boolean ejecutarAlCompletar;
+        private long ultimaActividadNs = System.nanoTime();
+
+        private volatile boolean respuestaTerminada;
+        private volatile boolean reanudarLectura;
+        volatile boolean cerrada;
+        volatile boolean cerrarAlTerminar;
+
+        Conexion(SocketChannel canal, SelectionKey clave) {
+            this.canal = canal;
+            this.clave = clave;
+            this.lectura = pool.obtener();
+        }
+
+        void leer() throws IOException {
+            int leidos = canal.read(lectura);
+            if (leidos < 0) {
+                finEntrada();
+                return;
+            }
+            ultimaActividadNs = System.nanoTime();
+            procesar();
+        }
+
+        /**
+         * Interpreta los datos leídos: encabezados de una petición nueva o
+         * cuerpo de la petición en curso.
+         */
+        private void procesar() throws IOException {
+            lectura.flip();
+            try {
+                while (!cerrada) {
+                    if (actual == null) {
+                        if (!iniciarPeticion()) {
+                            return;
+                        }
+                    } else if (encuadre != COMPLETO) {
+                        if (!avanzarCuerpo()) {
+                            return;
+                        }
+                    } else {
+                        // Petición completa y respuesta en curso: lo que siga
+                        // en el buffer es la siguiente petición encadenada.
+                        quitarInteres(SelectionKey.OP_READ);
+                        return;
+                    }
+                }
+            } finally {
+                if (lectura != null) {
+                    lectura.compact();
+                }
+            }
+        }
+
+        private boolean iniciarPeticion() throws IOException {
+            while (lectura.remaining() >= 2 && lectura.get(lectura.position()) == '\r'
+                    && lectura.get(lectura.position() + 1) == '\n') {
+                lectura.position(lectura.position() + 2);
+            }
+            int finEncabezados = buscarFinEncabezados();
+            if (finEncabezados < 0) {
+                if (lectura.position() == 0 && lectura.limit() == lectura.capacity()) {
+                    rechazar(431);
+                } else if (entradaCerrada) {
+                    cerrar();
+                } else {
+                    agregarInteres(SelectionKey.OP_READ);
+                }
+                return false;
+            }
+
+            int inicio = lectura.position();
+            int finLinea = buscar('\r', inicio, finEncabezados);
+            int espacio1 = buscar(' ', inicio, finLinea);
+            int espacio2 = espacio1 < 0 ? -1 : buscar(' ', espacio1 + 1, finLinea);
+            if (espacio2 < 0) {
+                rechazar(400);
+                return false;
+            }
+            String protocolo = ascii(espacio2 + 1, finLinea);
+            if (!protocolo.startsWith("HTTP/1.")) {
+                rechazar(505);
+                return false;
+            }
+            boolean http10 = protocolo.equals("HTTP/1.0");
+            String metodo = metodo(inicio, espacio1);
+            String destino = ascii(espacio1 + 1, espacio2);
+
+            long longitud = -1;
+            boolean trozos = false;
+            boolean cerrarConexion = http10;
+            boolean continuar = false;
+            int linea = finLinea + 2;
+            int finBloque = finEncabezados - 2;
+            while (linea < finBloque) {
+                int fin = buscar('\r', linea, finBloque);
+                int dosPuntos = buscar(':', linea, fin);
+                if (dosPuntos <= linea) {
+                    rechazar(400);
+                    return false;
+                }
+                int valor = saltarEspacios(dosPuntos + 1, fin);
+                int finValor = fin;
+                while (finValor > valor && lectura.get(finValor - 1) == ' ') {
+                    finValor--;
+                }
+                if (nombreEs("content-length", linea, dosPuntos)) {
+                    longitud = numero(valor, finValor);
+                    if (longitud < 0) {
+                        rechazar(400);
+                        return false;
+                    }
+                } else if (nombreEs("transfer-encoding", linea, dosPuntos)) {
+                    trozos = contiene("chunked", valor, finValor);
+                } else if (nombreEs("connection", linea, dosPuntos)) {
+                    if (contiene("close", valor, finValor)) {
+                        cerrarConexion = true;
+                    } else if (contiene("keep-alive", valor, finValor)) {
+                        cerrarConexion = false;
+                    }
+                } else if (nombreEs("expect", linea, dosPuntos)) {
+                    continuar = contiene("100-continue", valor, finValor);
+                }
+                linea = fin + 2;
+            }
+            if (trozos && longitud >= 0) {
+                rechazar(400);
+                return false;
+            }
+
+            byte[] encabezadosCrudos = new byte[Math.max(0, finBloque - (finLinea + 2))];
+            lectura.get(finLinea + 2, encabezadosCrudos);
+            lectura.position(finEncabezados);
+
+            if (trozos) {
+                encuadre = TROZO_TAMANO;
+            } else if (longitud > 0) {
+                encuadre = LONGITUD;
+                restante = longitud;
+            } else {
+                encuadre = COMPLETO;
+            }
+            cerrarAlTerminar = cerrarConexion;
+            respuestaTerminada = false;
+            ejecutarAlCompletar = false;
+            recibidos = 0;
+            encabezadosRespuesta.clear();
+            cuerpo = new CuerpoNio(this::solicitarLectura);
+            if (encuadre == COMPLETO) {
+                cuerpo.terminar();
+            } else if (continuar && !lectura.hasRemaining()) {
+                salida.add(ByteBuffer.wrap(CONTINUAR));
+                escribir();
+            }
+
+            int consulta = destino.indexOf('?');
+            ContextoNio contexto = buscarContexto(consulta < 0 ? destino : destino.substring(0, consulta));
+            actual = new IntercambioNio(this, contexto, metodo, destino, protocolo,
+                encabezadosCrudos, encabezadosRespuesta, cuerpo, http10 && !cerrarConexion);
+            despachar(actual);
+            return true;
+        }
+
+        /**
+         * Entrega el intercambio al executor. Si el executor lo corre en el
+         * hilo del selector (modo UNICO, o un pool saturado que ejecuta en el
+         * hilo que llama) y el cuerpo aún no llega, el handler se pospone
+         * hasta tener el cuerpo completo: bloquearse aquí esperándolo
+         * detendría al único hilo que lo puede leer. Como ese cuerpo se
+         * guarda completo, uno de más de {@link #maxCuerpoDiferido} bytes se
+         * rechaza con 413.
+         *
+         * <p>La tarea es una {@link TareaPeticion}, así el executor conoce
+         * la ruta antes de encolarla.</p>
+         */
+        private void despachar(IntercambioNio intercambio) {
+            try {
+                ejecutor.execute(new TareaNio(intercambio));
+            } catch (RejectedExecutionException e) {
+                intercambio.rechazar(503);
+            }
+        }
+
+        /**
+         * Tarea que ejecuta el handler de un intercambio.
+         */
+        private final class TareaNio implements TareaPeticion {
+
+            private final IntercambioNio intercambio;
+
+            TareaNio(IntercambioNio intercambio) {
+                this.intercambio = intercambio;
+            }
+
+            @Override
+            public String getRuta() {
+                return intercambio.getHttpContext().getPath();
+            }
+
+            @Override
+            public void run() {
+                if (Thread.currentThread() == hilo && intercambio == actual && encuadre != COMPLETO) {
+                    if (encuadre == LONGITUD && recibidos + restante > maxCuerpoDiferido) {
+                        rechazarCuerpoGrande();
+                        return;
+                    }
+                    ejecutarAlCompletar = true;
+                    cuerpo.sinLimite();
+                    return;
+                }
+                intercambio.ejecutar();
+            }
+
+            /**
+             * Responde desde el hilo del selector. El cuerpo que siga
+             * llegando se descarta sin guardarse y la conexión queda lista
+             * para la siguiente petición.
+             */
+            @Override
+            public void rechazar(int reintentarSegundos, String cuerpoJson) {
+                cuerpo.descartar();
+                intercambio.getResponseHeaders().set("Retry-After", String.valueOf(reintentarSegundos));
+                intercambio.responder(503, cuerpoJson);
+            }
+        }
+
+        /**
+         * Pasa al cuerpo de la petición los bytes disponibles según su
+         * encuadre.
+         *
+         * @return true si el cuerpo quedó completo; false si faltan datos o
+         *         el handler aún no consume lo anterior
+         */
+        private boolean avanzarCuerpo() throws IOException {
+            while (encuadre != COMPLETO) {
+                switch (encuadre) {
+                    case LONGITUD:
+                    case TROZO_DATOS: {
+                        int n = (int) Math.min(restante, lectura.remaining());
+                        if (n == 0) {
+                            return esperarDatos();
+                        }
+                        boolean admite = cuerpo.alimentar(lectura, n);
+                        restante -= n;
+                        recibidos += n;
+                        if (ejecutarAlCompletar && recibidos > maxCuerpoDiferido) {
+                            rechazarCuerpoGrande();
+                            return false;
+                        }
+                        if (restante == 0) {
+                            encuadre = encuadre == LONGITUD ? COMPLETO : TROZO_FIN;
+                        } else if (!admite) {
+                            quitarInteres(SelectionKey.OP_READ);
+                            return false;
+                        }
+                        break;
+                    }
+                    case TROZO_TAMANO: {
+                        int fin = buscarLinea();
+                        if (fin < 0) {
+                            return esperarDatos();
+                        }
+                        long tamano = hexadecimal(lectura.position(), fin);
+                        if (tamano < 0) {
+                            cuerpoInvalido("Tamaño de trozo inválido");
+                            return false;
+                        }
+                        lectura.position(fin + 2);
+                        restante = tamano;
+                        encuadre = tamano == 0 ? TROZO_TRAILER : TROZO_DATOS;
+                        break;
+                    }
+                    case TROZO_FIN: {
+                        if (lectura.remaining() < 2) {
+                            return esperarDatos();
+                        }
+                        lectura.position(lectura.position() + 2);
+                        encuadre = TROZO_TAMANO;
+                        break;
+                    }
+                    default: {
+                        int fin = buscarLinea();
+                        if (fin < 0) {
+                            return esperarDatos();
+                        }
+                        boolean vacia = fin == lectura.position();
+                        lectura.position(fin + 2);
+                        if (vacia) {
+                            encuadre = COMPLETO;
+                        }
+                        break;
+                    }
+                }
+            }
+            cuerpo.terminar();
+            if (ejecutarAlCompletar) {
+                ejecutarAlCompletar = false;
+                actual.ejecutar();
+            }
+            if (respuestaTerminada && salida.isEmpty()) {
+                liberarIntercambio();
+            }
+            return true;
+        }
+
+        /**
+         * El encuadre del cuerpo es inválido: deja de leerlo y hace fallar
+         * la lectura del handler, que responde 400 si aún no respondió. La
+         * conexión se cierra al terminar la respuesta.
+         */
+        private void cuerpoInvalido(String mensaje) {
+            cuerpo.fallar(new IOException(mensaje));
+            encuadre = COMPLETO;
+            lectura.position(lectura.limit());
+            quitarInteres(SelectionKey.OP_READ);
+            cerrarAlTerminar = true;
+            if (ejecutarAlCompletar) {
+                ejecutarAlCompletar = false;
+                actual.ejecutar();
+            }
+        }
+
+        /**
+         * Responde 413 sin ejecutar el handler pospuesto, deja de leer el
+         * cuerpo y cierra la conexión al terminar de enviar la respuesta.
+         */
+        private void rechazarCuerpoGrande() {
+            ejecutarAlCompletar = false;
+            encuadre = COMPLETO;
+            cuerpo.descartar();
+            lectura.position(lectura.limit());
+            quitarInteres(SelectionKey.OP_READ);
+            cerrarAlTerminar = true;
+            cerrarTrasEscribir = true;
+            actual.rechazar(413);
+        }
+
+        private boolean esperarDatos() throws IOException {
+            if (entradaCerrada) {
+                cuerpo.fallar(new EOFException("Conexión cerrada antes de terminar el cuerpo"));
+                cerrarAlTerminar = true;
+                return false;
+            }
+            if (lectura.position() == 0 && lectura.limit() == lectura.capacity()) {
+                // Una línea de tamaño de trozo o de trailer más larga que el buffer.
+                cuerpoInvalido("Línea de encuadre demasiado larga");
+                return false;
+            }
+            agregarInteres(SelectionKey.OP_READ);
+            return false;
+        }
+
+        private void finEntrada() throws IOException {
+            entradaCerrada = true;
+            quitarInteres(SelectionKey.OP_READ);
+            if (actual == null) {
+                cerrar();
+                return;
+            }
+            cerrarAlTerminar = true;
+            if (encuadre != COMPLETO) {
+                cuerpo.fallar(new EOFException("Conexión cerrada antes de terminar el cuerpo"));
+                if (ejecutarAlCompletar) {
+                    ejecutarAlCompletar = false;
+                    actual.ejecutar();
+                }
+            }
+        }
+
+        /**
+         * Atiende lo que pidió el hilo del handler: enviar datos, reanudar
+         * la lectura del cuerpo o terminar la respuesta.
+         */
+        void atenderSenal() throws IOException {
+            if (cerrada) {
+                return;
+            }
+            if (reanudarLectura) {
+                reanudarLectura = false;
+                procesar();
+                if (cerrada) {
+                    return;
+                }
+            }
+            escribir();
+        }
+
+        /**
+         * Envía lo que haya en la cola de salida con escrituras de varios
+         * buffers a la vez. Si el socket no admite más, espera OP_WRITE.
+         */
+        void escribir() throws IOException {
+            // Se lee antes de vaciar la cola: el handler encola todo antes
+            // de marcar la respuesta como terminada.
+            boolean terminada = respuestaTerminada;
+            while (true) {
+                int n = 0;
+                for (ByteBuffer buffer : salida) {
+                    lote[n++] = buffer;
+                    if (n == lote.length) {
+                        break;
+                    }
+                }
+                if (n == 0) {
+                    break;
+                }
+                canal.write(lote, 0, n);
+                int escritos = 0;
+                while (escritos < n && !lote[escritos].hasRemaining()) {
+                    pool.liberar(salida.poll());
+                    escritos++;
+                }
+                java.util.Arrays.fill(lote, 0, n, null);
+                if (escritos < n) {
+                    ultimaActividadNs = System.nanoTime();
+                    agregarInteres(SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            ultimaActividadNs = System.nanoTime();
+            quitarInteres(SelectionKey.OP_WRITE);
+
+            if (cerrarTrasEscribir) {
+                cerrar();
+            } else if (terminada && actual != null) {
+                if (encuadre == COMPLETO || entradaCerrada) {
+                    liberarIntercambio();
+                    if (!cerrada) {
+                        procesar();
+                    }
+                } else {
+                    // El handler respondió sin leer todo el cuerpo: se descarta
+                    // el resto para encontrar la siguiente petición.
+                    cuerpo.descartar();
+                    procesar();
+                }
+            }
+        }
+
+        /**
+         * Da por terminado el intercambio en curso; la siguiente petición se
+         * interpreta en el próximo {@link #procesar()}.
+         */
+        private void liberarIntercambio() {
+            actual = null;
+            cuerpo = null;
+            respuestaTerminada = false;
+            if (cerrarAlTerminar || entradaCerrada) {
+                cerrar();
+                return;
+            }
+            agregarInteres(SelectionKey.OP_READ);
+        }
+
+        /**
+         * Responde un error sin pasar por un handler y cierra la conexión
+         * al terminar de enviarlo.
+         */
+        private void rechazar(int codigo) throws IOException {
+            String respuesta = "HTTP/1.1 " + codigo + " " + IntercambioNio.frase(codigo)
+                + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+            lectura.position(lectura.limit());
+            cerrarTrasEscribir = true;
+            quitarInteres(SelectionKey.OP_READ);
+            if (actual == null) {
+                salida.add(ByteBuffer.wrap(respuesta.getBytes(StandardCharsets.ISO_8859_1)));
+            }
+            escribir();
+        }
+
+        /**
+         * Cierra el socket y devuelve los buffers al pool. El handler que
+         * siga en curso recibe IOException al leer o escribir.
+         */
+        void cerrar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            clave.cancel();
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // Se descarta; el socket ya no se usa.
+            }
+            if (cuerpo != null) {
+                cuerpo.fallar(new IOException("Conexión cerrada"));
+            }
+            ByteBuffer buffer;
+            while ((buffer = salida.poll()) != null) {
+                pool.liberar(buffer);
+            }
+            if (lectura != null) {
+                pool.liberar(lectura);
+                lectura = null;
+            }
+        }
+
+        // Métodos usados desde los hilos de los handlers.
+
+        /**
+         * Agrega buffers a la cola de salida. Sólo se envían cuando se llama
+         * a {@link #senalar()}, así los encabezados salen junto con el cuerpo.
+         */
+        void encolar(ByteBuffer buffer) throws IOException {
+            if (cerrada) {
+                pool.liberar(buffer);
+                throw new IOException("Conexión cerrada");
+            }
+            salida.add(buffer);
+        }
+
+        /**
+         * Marca la respuesta en curso como terminada.
+         */
+        void terminarRespuesta() {
+            respuestaTerminada = true;
+            senalar();
+        }
+
+        /**
+         * Pide al selector que atienda la conexión.
+         */
+        void senalar() {
+            if (!cerrada && enCola.compareAndSet(false, true)) {
+                senaladas.add(this);
+                selector.wakeup();
+            }
+        }
+
+        PoolBuffers pool() {
+            return pool;
+        }
+
+        private void solicitarLectura() {
+            reanudarLectura = true;
+            senalar();
+        }
+
+        // Utilidades de interpretación sobre el buffer de lectura.
+
+        private void agregarInteres(int operacion) {
+            if (clave.isValid() && (clave.interestOps() & operacion) == 0) {
+                clave.interestOps(clave.interestOps() | operacion);
+            }
+        }
+
+        private void quitarInteres(int operacion) {
+            if (clave.isValid() && (clave.interestOps() & operacion) != 0) {
+                clave.interestOps(clave.interestOps() & ~operacion);
+            }
+        }
+
+        /**
+         * @return posición siguiente al CRLF CRLF que cierra los encabezados, o -1
+         */
+        private int buscarFinEncabezados() {
+            for (int i = lectura.position() + 3; i < lectura.limit(); i++) {
+                if (lectura.get(i) == '\n' && lectura.get(i - 1) == '\r'
+                        && lectura.get(i - 2) == '\n' && lectura.get(i - 3) == '\r') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return posición del CRLF que termina la línea actual, o -1
+         */
+        private int buscarLinea() {
+            for (int i = lectura.position() + 1; i < lectura.limit(); i++) {
+                if (lectura.get(i) == '\n' && lectura.get(i - 1) == '\r') {
+                    return i - 1;
+                }
+            }
+            return -1;
+        }
+
+        private int buscar(char caracter, int desde, int hasta) {
+            for (int i = desde; i < hasta; i++) {
+                if (lectura.get(i) == caracter) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int saltarEspacios(int desde, int hasta) {
+            while (desde < hasta && (lectura.get(desde) == ' ' || lectura.get(desde) == '\t')) {
+                desde++;
+            }
+            return desde;
+        }
+
+        private boolean nombreEs(String nombre, int desde, int hasta) {
+            if (hasta - desde != nombre.length()) {
+                return false;
+            }
+            for (int i = 0; i < nombre.length(); i++) {
+                if ((lectura.get(desde + i) | 0x20) != nombre.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean contiene(String token, int desde, int hasta) {
+            for (int i = desde; i + token.length() <= hasta; i++) {
+                if (nombreEs(token, i, i + token.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long numero(int desde, int hasta) {
+            if (desde == hasta || hasta - desde > 18) {
+                return -1;
+            }
+            long valor = 0;
+            for (int i = desde; i < hasta; i++) {
+                int digito = lectura.get(i) - '0';
+                if (digito < 0 || digito > 9) {
+                    return -1;
+                }
+                valor = valor * 10 + digito;
+            }
+            return valor;
+        }
+
+        private long hexadecimal(int desde, int hasta) {
+            long valor = 0;
+            int i = desde;
+            for (; i < hasta && i - desde < 15; i++) {
+                int digito = Character.digit(lectura.get(i), 16);
+                if (digito < 0) {
+                    break;
+                }
+                valor = valor * 16 + digito;
+            }
+            boolean extension = i < hasta && (lectura.get(i) == ';' || lectura.get(i) == ' ');
+            return i == desde || (i < hasta && !extension) ? -1 : valor;
+        }
+
+        private String ascii(int desde, int hasta) {
+            byte[] bytes = new byte[hasta - desde];
+            lectura.get(desde, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        private String metodo(int desde, int hasta) {
+            if (nombreIgual("POST", desde, hasta)) {
+                return "POST";
+            }
+            if (nombreIgual("GET", desde, hasta)) {
+                return "GET";
+            }
+            return ascii(desde, hasta);
+        }
+
+        private boolean nombreIgual(String texto, int desde, int hasta) {
+            if (hasta - desde != texto.length()) {
+                return false;
+            }
+            for (int i = 0; i < texto.length(); i++) {
+                if (lectura.get(desde + i) != texto.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Contexto registrado: una ruta con su handler.
+     */
+    static final class ContextoNio extends HttpContext {
+
+        private final String ruta;
+        private HttpHandler handler;
+        private final Map<String, Object> atributos = new HashMap<>();
+        private final List<Filter> filtros = new ArrayList<>();
+        private Authenticator autenticador;
+
+        ContextoNio(String ruta, HttpHandler handler) {
+            this.ruta = ruta;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return ruta;
+        }
+
+        /**
+         * @return siempre null: este contexto no pertenece a un HttpServer
+         */
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return atributos;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filtros;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator autenticador) {
+            Authenticator anterior = this.autenticador;
+            this.autenticador = autenticador;
+            return anterior;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return autenticador;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DTO para solicitudes de evaluación por columnas: una expresión con
+ * variables y, por cada variable, una columna con sus valores. La
+ * expresión se compila una vez y se evalúa una vez por fila.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class SolicitudEvaluacion {
+
+    private String expresion;
+    private String lenguaje;
+    private Map<String, double[]> variables = new LinkedHashMap<>();
+
+    /**
+     * Constructor por defecto sin parámetros.
+     * Requerido para serialización/deserialización JSON.
+     */
+    public SolicitudEvaluacion() {}
+
+    /**
+     * @return expresión aritmética a evaluar
+     */
+    public String getExpresion() {
+        return expresion;
+    }
+
+    /**
+     * @param expresion establece la expresión a evaluar
+     */
+    public void setExpresion(String expresion) {
+        this.expresion = expresion;
+    }
+
+    /**
+     * @return lenguaje de la expresión
+     */
+    public String getLenguaje() {
+        return lenguaje;
+    }
+
+    /**
+     * @param lenguaje establece el lenguaje
+     */
+    public void setLenguaje(String lenguaje) {
+        this.lenguaje = lenguaje;
+    }
+
+    /**
+     * @return columnas de valores por nombre de variable
+     */
+    public Map<String, double[]> getVariables() {
+        return variables;
+    }
+
+    /**
+     * @param variables establece las columnas de valores por nombre de variable
+     */
+    public void setVariables(Map<String, double[]> variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Valida que la solicitud tenga expresión y lenguaje no vacíos y que
+     * todas las columnas tengan la misma cantidad de valores.
+     *
+     * @return true si la solicitud es válida, false en caso contrario
+     */
+    public boolean esValida() {
+        if (expresion == null || expresion.trim().isEmpty()
+                || lenguaje == null || lenguaje.trim().isEmpty() || variables == null) {
+            return false;
+        }
+        int filas = -1;
+        for (double[] columna : variables.values()) {
+            if (columna == null || (filas >= 0 && columna.length != filas)) {
+                return false;
+            }
+            filas = columna.length;
+        }
+        return true;
+    }
+
+    /**
+     * @return cantidad de filas: la longitud de las columnas, o 1 si no hay
+     *         variables
+     */
+    public int getFilas() {
+        if (variables == null || variables.isEmpty()) {
+            return 1;
+        }
+        return variables.values().iterator().next().length;
+    }
+}
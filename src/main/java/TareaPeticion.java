@@ -0,0 +1,30 @@
+/**
+ * Tarea que un {@link Transporte} entrega a su executor cuando ya conoce
+ * la ruta de la petición, de modo que el control de admisión decida antes
+ * de encolarla si requiere permiso.
+ *
+ * <p>El {@code HttpServer} del JDK interpreta la petición dentro de la
+ * tarea, así que sus tareas no implementan esta interfaz y la ruta se
+ * conoce hasta que corre el handler.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+interface TareaPeticion extends Runnable {
+
+    /**
+     * @return ruta del contexto que atenderá la petición, por ejemplo
+     *         /api/compilar
+     */
+    String getRuta();
+
+    /**
+     * Responde 503 sin ejecutar el handler ni guardar el cuerpo de la
+     * petición. Se llama en el hilo que despacha, así que no bloquea.
+     *
+     * @param reintentarSegundos valor del encabezado Retry-After
+     * @param cuerpoJson cuerpo de la respuesta
+     */
+    void rechazar(int reintentarSegundos, String cuerpoJson);
+}
@@ -1,18 +1,57 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
 import io.opentelemetry.api.OpenTelemetry;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.Tracer;
 import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
 import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.ReadableSpan;
 import io.opentelemetry.sdk.trace.SdkTracerProvider;
-import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
-import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.ResourceAttributes;
 
 /**
  * Gestor centralizado de telemetría usando OpenTelemetry.
  * Implementa Singleton y proporciona traces, métricas y logs para el sistema.
+ *
+ * <p>Los spans se exportan fuera del hilo de la petición con
+ * {@link ProcesadorSpansPorLotes}, al destino de {@link ExportadorTrazas}.
+ * El muestreo es en la cola ({@link MuestreoCola}): al terminar cada
+ * petición se conservan las trazas con error, las que tardaron al menos
+ * CAAS_TRAZAS_LENTA_MS (10) y la fracción CAAS_TRAZAS_MUESTREO (0.01) de
+ * las demás, decidida por su trace id. La cola admite CAAS_TRAZAS_COLA
+ * spans (2048) y se exporta en lotes de CAAS_TRAZAS_LOTE (512) al menos
+ * cada CAAS_TRAZAS_INTERVALO_MS (1000).</p>
+ *
+ * <p>Las peticiones iniciadas con {@link #iniciarSpanConFases(String)}
+ * registran sus fases en {@link TrazaPeticion}; los spans hijos de las
+ * fases sólo se crean si la traza se conserva.</p>
+ *
+ * <p>Si una grabación de Flight Recorder habilita {@link EventoCompilacion},
+ * esas peticiones también dejan un evento con sus fases, independiente
+ * del muestreo.</p>
+ *
+ * <p>Las compilaciones también se registran en los instrumentos de
+ * {@link MetricasOpenTelemetry}, que se exportan cada
+ * CAAS_METRICAS_INTERVALO_MS (60000) al destino de
+ * {@link ExportadorMetricas} (por defecto ninguno). Los histogramas llevan
+ * como exemplars los spans de las peticiones cuya traza se conservó.</p>
+ *
+ * <p>{@link #log(String, String)} no escribe en el hilo que llama: pasa la
+ * entrada a {@link RegistroAsincrono}, con capacidad CAAS_LOG_CAPACIDAD
+ * (8192), política CAAS_LOG_POLITICA (DESCARTAR o BLOQUEAR) y destino
+ * CAAS_LOG_ARCHIVO (por defecto la salida estándar).</p>
  * 
  * @author Guzmán Bucio Luis Antonio
  * @author Espinosa Roque Rebeca  
@@ -25,10 +64,17 @@ public class TelemetriaManager {
     private final OpenTelemetry openTelemetry;
     private final Tracer tracer;
     private final MetricasCompilacion metricas;
+    private final MetricasOpenTelemetry instrumentos;
+    private final String descripcionMetricas;
+    private final ProcesadorSpansPorLotes procesador;
+    private final MuestreoCola muestreo;
+    private final String descripcionTrazas;
+    private final RegistroAsincrono registro;
 
     /**
      * Constructor privado para patrón Singleton.
-     * Configura OpenTelemetry con recursos, tracer provider y shutdown hook.
+     * Configura OpenTelemetry con recursos, tracer y meter provider y
+     * shutdown hook.
      */
     private TelemetriaManager() {
         Resource recurso = Resource.getDefault()
@@ -37,24 +83,91 @@ public class TelemetriaManager {
                 ResourceAttributes.SERVICE_VERSION, "1.0"
             )));
         
-        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
-            .addSpanProcessor(SimpleSpanProcessor.create(
-                LoggingSpanExporter.create()))
-            .setResource(recurso)
-            .build();
+        double fraccion = Math.min(1.0,
+            ServicioCompilador.configuracionDecimal("CAAS_TRAZAS_MUESTREO", 0.01));
+        Duration timeout = Duration.ofMillis(
+            ServicioCompilador.configuracionEntera("CAAS_TRAZAS_TIMEOUT_MS", 10_000));
+        SpanExporter exportador = ExportadorTrazas.resolver().crear(timeout);
+        
+        SdkTracerProviderBuilder constructor = SdkTracerProvider.builder()
+            // Todo se registra; MuestreoCola decide qué se exporta.
+            .setSampler(Sampler.parentBased(Sampler.alwaysOn()))
+            .setResource(recurso);
+        if (exportador != null) {
+            this.procesador = new ProcesadorSpansPorLotes(exportador,
+                ServicioCompilador.configuracionEntera("CAAS_TRAZAS_COLA", 2048),
+                ServicioCompilador.configuracionEntera("CAAS_TRAZAS_LOTE", 512),
+                ServicioCompilador.configuracionEntera("CAAS_TRAZAS_INTERVALO_MS", 1000),
+                timeout.toMillis());
+            this.muestreo = new MuestreoCola(procesador,
+                ServicioCompilador.configuracionEntera("CAAS_TRAZAS_LENTA_MS", 10), fraccion);
+            constructor.addSpanProcessor(muestreo);
+            this.descripcionTrazas = exportador + ", " + muestreo;
+        } else {
+            this.procesador = null;
+            this.muestreo = null;
+            this.descripcionTrazas = "sin exportar";
+        }
+        SdkTracerProvider tracerProvider = constructor.build();
+        
+        MetricExporter exportadorMetricas = ExportadorMetricas.resolver().crear(timeout);
+        SdkMeterProvider meterProvider;
+        if (exportadorMetricas != null) {
+            MetricReader lector = PeriodicMetricReader.builder(exportadorMetricas)
+                .setInterval(Duration.ofMillis(
+                    ServicioCompilador.configuracionEntera("CAAS_METRICAS_INTERVALO_MS", 60_000)))
+                .build();
+            meterProvider = MetricasOpenTelemetry.crearProveedor(recurso, lector);
+            this.descripcionMetricas = exportadorMetricas.toString();
+        } else {
+            meterProvider = MetricasOpenTelemetry.crearProveedor(recurso);
+            this.descripcionMetricas = "sin exportar";
+        }
         
         this.openTelemetry = OpenTelemetrySdk.builder()
             .setTracerProvider(tracerProvider)
+            .setMeterProvider(meterProvider)
             .build();
         
         this.tracer = openTelemetry.getTracer("compiladores", "1.0");
+        this.instrumentos = new MetricasOpenTelemetry(openTelemetry.getMeterProvider());
         this.metricas = new MetricasCompilacion();
+        this.registro = crearRegistro();
+        if (registro != null) {
+            metricas.registrarGaugesLog(registro::getDescartados, registro::getEscritos);
+        }
+        if (procesador != null) {
+            metricas.registrarGaugesTrazas(procesador::getProfundidadCola,
+                procesador::getDescartados, procesador::getExportados, procesador::getFallidos,
+                muestreo::getDescartadas);
+        }
         
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             tracerProvider.close();
+            meterProvider.close();
+            if (registro != null) {
+                registro.cerrar();
+            }
         }));
     }
 
+    /**
+     * @return log asíncrono configurado, o null si no se pudo abrir su
+     *         archivo y se escribirá directamente en la salida estándar
+     */
+    private static RegistroAsincrono crearRegistro() {
+        String archivo = System.getenv("CAAS_LOG_ARCHIVO");
+        try {
+            return new RegistroAsincrono(
+                ServicioCompilador.configuracionEntera("CAAS_LOG_CAPACIDAD", 8192),
+                RegistroAsincrono.Politica.resolver(),
+                archivo == null || archivo.isBlank() ? null : Paths.get(archivo.trim()));
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el log " + archivo + ": " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Obtiene la instancia única del TelemetriaManager (Singleton).
      * Crea la instancia si no existe, thread-safe.
@@ -75,9 +188,24 @@ public class TelemetriaManager {
      * @return span iniciado para la operación
      */
     public Span iniciarSpan(String operacion) {
+        TrazaPeticion.actual().terminar();
         return tracer.spanBuilder(operacion).startSpan();
     }
 
+    /**
+     * Inicia el span de una petición y empieza a registrar sus fases en la
+     * {@link TrazaPeticion} del hilo, para crear sus spans hijos si la
+     * traza se conserva. La petición debe terminar en el mismo hilo.
+     *
+     * @param operacion nombre de la operación a rastrear
+     * @return span iniciado para la operación
+     */
+    public Span iniciarSpanConFases(String operacion) {
+        Span span = tracer.spanBuilder(operacion).startSpan();
+        TrazaPeticion.actual().iniciar(span, operacion);
+        return span;
+    }
+
     /**
      * Finaliza un span marcándolo como exitoso.
      * 
@@ -85,7 +213,7 @@ public class TelemetriaManager {
      */
     public void finalizarSpanExitoso(Span span) {
         span.setStatus(StatusCode.OK);
-        span.end();
+        terminar(span, null);
     }
 
     /**
@@ -97,28 +225,102 @@ public class TelemetriaManager {
     public void finalizarSpanConError(Span span, Exception error) {
         span.setStatus(StatusCode.ERROR, error.getMessage());
         span.recordException(error);
+        terminar(span, error.getClass().getSimpleName());
+    }
+
+    /**
+     * Finaliza un span marcándolo como error sin una excepción asociada,
+     * para los errores que el compilador reporta como diagnóstico.
+     *
+     * @param span span a finalizar con estado ERROR
+     * @param codigo código del error, guardado en el atributo error.codigo
+     * @param mensaje descripción del error
+     */
+    public void finalizarSpanConError(Span span, String codigo, String mensaje) {
+        span.setAttribute("error.codigo", codigo);
+        span.setStatus(StatusCode.ERROR, mensaje);
+        terminar(span, codigo);
+    }
+
+    /**
+     * Decide si la traza se conserva y termina el span. Si se conserva, se
+     * crean los spans de sus fases y sus mediciones pospuestas quedan con
+     * el span como exemplar.
+     *
+     * @param codigoError código del error, o null si la petición no falló
+     */
+    private void terminar(Span span, String codigoError) {
+        TrazaPeticion traza = TrazaPeticion.actual();
+        boolean conFases = traza.esDe(span);
+        String razon = null;
+        if (muestreo != null) {
+            long latenciaNs = span instanceof ReadableSpan ? ((ReadableSpan) span).getLatencyNanos() : 0;
+            razon = muestreo.decidir(codigoError != null, latenciaNs, span.getSpanContext());
+        }
+        if (razon != null) {
+            span.setAttribute(MuestreoCola.RAZON, razon);
+            if (conFases) {
+                traza.crearSpans(tracer);
+            }
+        }
+        if (conFases) {
+            traza.registrarEvento(codigoError);
+            traza.registrarMedicion(instrumentos,
+                razon != null ? Context.root().with(span) : Context.root());
+            traza.terminar();
+        }
         span.end();
     }
 
     /**
-     * Registra una compilación exitosa en las métricas.
+     * Registra una compilación exitosa en las métricas. Dentro de una
+     * petición con fases, la medición de OpenTelemetry se pospone hasta
+     * saber si la traza se conserva y puede ser exemplar.
      * 
      * @param lenguaje lenguaje de la expresión compilada
      * @param tokens cantidad de tokens procesados
-     * @param latenciaMs tiempo de compilación en milisegundos
+     * @param latenciaNs tiempo de compilación en nanosegundos
      */
-    public void registrarCompilacionExitosa(String lenguaje, int tokens, long latenciaMs) {
-        metricas.registrarCompilacionExitosa(lenguaje, tokens, latenciaMs);
+    public void registrarCompilacionExitosa(String lenguaje, int tokens, long latenciaNs) {
+        metricas.registrarCompilacionExitosa(lenguaje, tokens, latenciaNs);
+        if (!TrazaPeticion.actual().posponerMedicion(true, lenguaje, tokens, latenciaNs)) {
+            instrumentos.registrarExitosa(lenguaje, tokens, latenciaNs, Context.root());
+        }
     }
 
     /**
      * Registra una compilación fallida en las métricas.
      * 
      * @param lenguaje lenguaje donde ocurrió el error
-     * @param latenciaMs tiempo hasta el fallo en milisegundos
+     * @param latenciaNs tiempo hasta el fallo en nanosegundos
+     */
+    public void registrarCompilacionFallida(String lenguaje, long latenciaNs) {
+        metricas.registrarCompilacionFallida(lenguaje, latenciaNs);
+        if (!TrazaPeticion.actual().posponerMedicion(false, lenguaje, 0, latenciaNs)) {
+            instrumentos.registrarFallida(lenguaje, latenciaNs, Context.root());
+        }
+    }
+
+    /**
+     * Registra un lote de compilaciones procesado completo.
+     * 
+     * @param tamano cantidad de solicitudes del lote
+     * @param latenciaNs tiempo total del lote en nanosegundos
+     */
+    public void registrarLote(int tamano, long latenciaNs) {
+        metricas.registrarLote(tamano, latenciaNs);
+    }
+
+    /**
+     * Registra la duración de una fase de una compilación que acaba de
+     * terminar, en las métricas y en la traza de la petición.
+     * 
+     * @param fase fase medida
+     * @param latenciaNs duración de la fase en nanosegundos
      */
-    public void registrarCompilacionFallida(String lenguaje, long latenciaMs) {
-        metricas.registrarCompilacionFallida(lenguaje, latenciaMs);
+    public void registrarFase(FaseCompilacion fase, long latenciaNs) {
+        metricas.registrarFase(fase, latenciaNs);
+        TrazaPeticion.actual().fase(fase, latenciaNs);
     }
 
     /**
@@ -131,12 +333,32 @@ public class TelemetriaManager {
     }
 
     /**
-     * Registra un mensaje de log con timestamp y nivel.
+     * @return destino y muestreo de los spans, para el log de inicio
+     */
+    public String getDescripcionTrazas() {
+        return descripcionTrazas;
+    }
+
+    /**
+     * @return destino de las métricas de OpenTelemetry, para el log de inicio
+     */
+    public String getDescripcionMetricas() {
+        return descripcionMetricas;
+    }
+
+    /**
+     * Registra un mensaje de log con timestamp y nivel. La entrada se
+     * escribe después, en el hilo de {@link RegistroAsincrono}; si el
+     * buffer está lleno puede descartarse.
      * 
      * @param nivel nivel del log (INFO, ERROR, WARN, etc.)
      * @param mensaje contenido del mensaje de log
      */
     public void log(String nivel, String mensaje) {
+        if (registro != null) {
+            registro.registrar(nivel, mensaje);
+            return;
+        }
         String timestamp = java.time.Instant.now().toString();
         System.out.printf("[%s] %s: %s%n", timestamp, nivel, mensaje);
     }
@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+/**
+ * Implementaciones de {@link Transporte} disponibles.
+ *
+ * <ul>
+ *   <li><b>HTTPSERVER</b> - {@code com.sun.net.httpserver.HttpServer} del JDK</li>
+ *   <li><b>NIO</b> - {@link ServidorNio}: un selector, buffers directos
+ *       reutilizables, keep-alive y pipelining</li>
+ * </ul>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public enum TipoTransporte {
+    HTTPSERVER,
+    NIO;
+
+    /** Transporte usado si no se especifica otro. */
+    public static final TipoTransporte DEFECTO = HTTPSERVER;
+
+    /**
+     * Resuelve el transporte a partir de un argumento de línea de comandos
+     * o, si es nulo, de la variable de entorno CAAS_TRANSPORTE.
+     *
+     * @param argumento nombre del transporte (sin distinguir mayúsculas) o null
+     * @return transporte configurado, o {@link #DEFECTO} si no se reconoce
+     */
+    public static TipoTransporte resolver(String argumento) {
+        String valor = argumento != null ? argumento : System.getenv("CAAS_TRANSPORTE");
+        if (valor == null) {
+            return DEFECTO;
+        }
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Transporte inválido: " + valor);
+            System.err.println("Usando transporte por defecto: " + DEFECTO);
+            return DEFECTO;
+        }
+    }
+
+    /**
+     * Crea el transporte sin iniciarlo.
+     *
+     * @param direccion dirección donde escuchará
+     * @param backlog conexiones pendientes de aceptar que admite el socket
+     * @return transporte nuevo
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public Transporte crear(InetSocketAddress direccion, int backlog) throws IOException {
+        switch (this) {
+            case NIO:
+                return new ServidorNio(direccion, backlog);
+            default:
+                return new TransporteHttpServer(direccion, backlog);
+        }
+    }
+}
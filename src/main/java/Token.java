@@ -13,6 +13,7 @@ public class Token {
      */
     public enum Tipo {
         NUMERO,      // 0-9+
+        IDENTIFICADOR, // letra o _, seguida de letras, dígitos o _
         OPERADOR,    // +, -, *, /
         PARENTESIS,  // (, )
         FIN          // Finaliza la entrada.
@@ -0,0 +1,42 @@
+import com.sun.net.httpserver.HttpHandler;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Capa de transporte HTTP del servicio: acepta conexiones, interpreta las
+ * peticiones y las entrega a los handlers registrados.
+ *
+ * <p>Los handlers son los de {@code com.sun.net.httpserver} para que los
+ * mismos endpoints funcionen sobre cualquier implementación; ver
+ * {@link TipoTransporte}.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public interface Transporte {
+
+    /**
+     * Registra un handler para las rutas que empiezan con el prefijo dado.
+     * Gana el prefijo más largo. Debe llamarse antes de {@link #iniciar()}.
+     *
+     * @param ruta prefijo de la ruta, por ejemplo /api/compilar
+     * @param handler handler que atiende las peticiones
+     */
+    void registrar(String ruta, HttpHandler handler);
+
+    /**
+     * @param ejecutor executor donde se ejecutan los handlers
+     */
+    void setEjecutor(Executor ejecutor);
+
+    /**
+     * Empieza a aceptar conexiones.
+     */
+    void iniciar();
+
+    /**
+     * Deja de aceptar conexiones y cierra las abiertas.
+     */
+    void detener();
+}
@@ -0,0 +1,53 @@
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Transporte} sobre el {@code HttpServer} del JDK.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class TransporteHttpServer implements Transporte {
+
+    private final HttpServer servidor;
+
+    /**
+     * @param direccion dirección donde escuchará
+     * @param backlog conexiones pendientes de aceptar que admite el socket
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public TransporteHttpServer(InetSocketAddress direccion, int backlog) throws IOException {
+        // Sin TCP_NODELAY el cuerpo de la respuesta espera el ACK retrasado
+        // de los encabezados y cada petición en una conexión persistente
+        // tarda ~40 ms. Se respeta si ya viene definido con -D.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.servidor = HttpServer.create(direccion, backlog);
+    }
+
+    @Override
+    public void registrar(String ruta, HttpHandler handler) {
+        servidor.createContext(ruta, handler);
+    }
+
+    @Override
+    public void setEjecutor(Executor ejecutor) {
+        servidor.setExecutor(ejecutor);
+    }
+
+    @Override
+    public void iniciar() {
+        servidor.start();
+    }
+
+    @Override
+    public void detener() {
+        servidor.stop(0);
+    }
+}
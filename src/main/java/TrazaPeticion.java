@@ -0,0 +1,327 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.Clock;
+
+/**
+ * Fases y atributos de la petición que atiende el hilo actual, para crear
+ * sus spans hijos sólo si la traza se conserva.
+ *
+ * <p>Durante la petición sólo se guardan instantes de {@link System#nanoTime()}
+ * y unos cuantos valores en un objeto por hilo que se reutiliza, así que
+ * una petición cuya traza se descarta no crea spans hijos ni atributos.
+ * Con {@link ModoEjecucion#VIRTUAL} el hilo es nuevo en cada petición y
+ * ese objeto también, aunque sigue sin crear spans ni atributos.
+ * Al terminar, si {@link MuestreoCola} conserva la traza,
+ * {@link #crearSpans(Tracer)} crea un span por fase medida con sus
+ * tiempos reales, hijo del span de la petición.</p>
+ *
+ * <p>Si alguna grabación de Flight Recorder tiene habilitado
+ * {@link EventoCompilacion}, lo registrado se guarda también en un evento
+ * por petición, se conserve o no la traza. Con el evento deshabilitado no
+ * se crea.</p>
+ *
+ * <p>Fuera de una petición iniciada con
+ * {@link TelemetriaManager#iniciarSpanConFases(String)} los métodos de
+ * registro no hacen nada.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public final class TrazaPeticion {
+
+    private static final ThreadLocal<TrazaPeticion> ACTUAL = ThreadLocal.withInitial(TrazaPeticion::new);
+
+    private static final FaseCompilacion[] FASES = FaseCompilacion.values();
+    private static final String[] NOMBRES = new String[FASES.length];
+
+    static {
+        for (FaseCompilacion fase : FASES) {
+            NOMBRES[fase.ordinal()] = fase.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final long[] finesNs = new long[FASES.length];
+    private final long[] duracionesNs = new long[FASES.length];
+
+    private Span raiz;
+    private EventoCompilacion evento;
+    private int bytesCuerpo;
+    private String expresion;
+    private int longitudExpresion;
+    private ExpresionCompilada compilada;
+    /** 1 acierto, 0 fallo, -1 sin consultar la caché. */
+    private int aciertoCache;
+
+    private boolean medicionPendiente;
+    private boolean medicionExitosa;
+    private String lenguaje;
+    private int tokens;
+    private long latenciaNs;
+
+    private TrazaPeticion() {
+    }
+
+    /**
+     * @return la traza del hilo actual
+     */
+    public static TrazaPeticion actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * Empieza a registrar las fases de una petición.
+     *
+     * @param raiz span de la petición
+     * @param operacion nombre de la operación, para el evento de Flight Recorder
+     */
+    void iniciar(Span raiz, String operacion) {
+        this.raiz = raiz;
+        Arrays.fill(duracionesNs, -1);
+        this.evento = null;
+        if (EventoCompilacion.estaHabilitado()) {
+            this.evento = new EventoCompilacion();
+            this.evento.operacion = operacion;
+            this.evento.begin();
+        }
+        this.bytesCuerpo = -1;
+        this.expresion = null;
+        this.longitudExpresion = -1;
+        this.compilada = null;
+        this.aciertoCache = -1;
+        this.medicionPendiente = false;
+        this.lenguaje = null;
+    }
+
+    /**
+     * Deja de registrar; lo registrado se descarta.
+     */
+    void terminar() {
+        this.raiz = null;
+        this.evento = null;
+        this.expresion = null;
+        this.medicionPendiente = false;
+        this.compilada = null;
+        this.lenguaje = null;
+    }
+
+    /**
+     * @param span span a comparar
+     * @return true si esta traza registra las fases de ese span
+     */
+    boolean esDe(Span span) {
+        return raiz != null && raiz == span;
+    }
+
+    /**
+     * Registra una fase que acaba de terminar.
+     *
+     * @param fase fase medida
+     * @param duracionNs duración de la fase en nanosegundos
+     */
+    public void fase(FaseCompilacion fase, long duracionNs) {
+        if (raiz != null) {
+            fase(fase, System.nanoTime(), duracionNs);
+        }
+    }
+
+    /**
+     * Registra una fase con su instante de fin.
+     *
+     * @param fase fase medida
+     * @param finNs instante de fin, según {@link System#nanoTime()}
+     * @param duracionNs duración de la fase en nanosegundos
+     */
+    public void fase(FaseCompilacion fase, long finNs, long duracionNs) {
+        if (raiz != null) {
+            finesNs[fase.ordinal()] = finNs;
+            duracionesNs[fase.ordinal()] = duracionNs;
+        }
+    }
+
+    /**
+     * @param bytes tamaño del cuerpo de la petición
+     */
+    public void setBytesCuerpo(int bytes) {
+        if (raiz != null) {
+            this.bytesCuerpo = bytes;
+        }
+    }
+
+    /**
+     * @param expresion texto de la expresión de la solicitud
+     */
+    public void setExpresion(String expresion) {
+        if (raiz != null) {
+            this.expresion = expresion;
+            this.longitudExpresion = expresion.length();
+        }
+    }
+
+    /**
+     * @param compilada forma compilada; de ella salen los tokens y la
+     *                  profundidad, que se calcula sólo si se conserva la traza
+     */
+    public void setCompilada(ExpresionCompilada compilada) {
+        if (raiz != null) {
+            this.compilada = compilada;
+        }
+    }
+
+    /**
+     * @param acierto si la expresión estaba en la caché
+     */
+    public void setAciertoCache(boolean acierto) {
+        if (raiz != null) {
+            this.aciertoCache = acierto ? 1 : 0;
+        }
+    }
+
+    /**
+     * Guarda la medición de la compilación para registrarla en los
+     * instrumentos de OpenTelemetry al terminar la petición, cuando ya se
+     * sabe si la traza se conserva y puede ser exemplar.
+     *
+     * @return false si no hay petición en curso y hay que registrarla ya
+     */
+    boolean posponerMedicion(boolean exitosa, String lenguaje, int tokens, long latenciaNs) {
+        if (raiz == null || medicionPendiente) {
+            return false;
+        }
+        this.medicionPendiente = true;
+        this.medicionExitosa = exitosa;
+        this.lenguaje = lenguaje;
+        this.tokens = tokens;
+        this.latenciaNs = latenciaNs;
+        return true;
+    }
+
+    /**
+     * Termina y graba el evento de Flight Recorder de la petición, si se
+     * creó al iniciarla. Se llama antes de {@link #registrarMedicion}, que
+     * consume la medición pospuesta de donde sale el resultado.
+     *
+     * @param codigoError código del error de la petición, o null si no falló
+     */
+    void registrarEvento(String codigoError) {
+        EventoCompilacion e = evento;
+        if (e == null) {
+            return;
+        }
+        evento = null;
+        e.end();
+        if (!e.shouldCommit()) {
+            return;
+        }
+        if (expresion != null) {
+            e.expresion = expresion.length() > EventoCompilacion.MAX_EXPRESION
+                ? expresion.substring(0, EventoCompilacion.MAX_EXPRESION)
+                : expresion;
+        }
+        e.longitudExpresion = Math.max(0, longitudExpresion);
+        e.bytesCuerpo = Math.max(0, bytesCuerpo);
+        if (compilada != null) {
+            e.tokens = compilada.getTokens();
+            e.profundidad = compilada.getRaiz().altura();
+        }
+        e.lenguaje = medicionPendiente ? lenguaje : null;
+        e.exitosa = medicionPendiente && medicionExitosa;
+        e.codigoError = codigoError;
+        e.cache = aciertoCache < 0 ? "sin_consulta" : aciertoCache == 1 ? "acierto" : "fallo";
+        for (FaseCompilacion fase : FASES) {
+            if (duracionesNs[fase.ordinal()] >= 0) {
+                e.setFase(fase, duracionesNs[fase.ordinal()]);
+            }
+        }
+        e.commit();
+    }
+
+    /**
+     * Registra la medición pospuesta, si la hay.
+     *
+     * @param instrumentos instrumentos donde se registra
+     * @param contexto contexto con el span de la petición si la traza se
+     *                 conserva, o sin span para no dejar exemplar
+     */
+    void registrarMedicion(MetricasOpenTelemetry instrumentos, Context contexto) {
+        if (!medicionPendiente) {
+            return;
+        }
+        medicionPendiente = false;
+        if (medicionExitosa) {
+            instrumentos.registrarExitosa(lenguaje, tokens, latenciaNs, contexto);
+        } else {
+            instrumentos.registrarFallida(lenguaje, latenciaNs, contexto);
+        }
+    }
+
+    /**
+     * Agrega los atributos al span de la petición y crea un span hijo por
+     * cada fase medida, con sus instantes reales de inicio y fin.
+     *
+     * @param tracer tracer con el que se crean los hijos
+     */
+    void crearSpans(Tracer tracer) {
+        int profundidad = compilada == null ? -1 : compilada.getRaiz().altura();
+        if (longitudExpresion >= 0) {
+            raiz.setAttribute("expresion.longitud", longitudExpresion);
+        }
+        if (compilada != null) {
+            raiz.setAttribute("expresion.tokens", compilada.getTokens());
+            raiz.setAttribute("expresion.profundidad", profundidad);
+        }
+        if (aciertoCache >= 0) {
+            raiz.setAttribute("cache.acierto", aciertoCache == 1);
+        }
+
+        Clock reloj = Clock.getDefault();
+        long desfaseNs = reloj.now() - reloj.nanoTime();
+        Context padre = Context.root().with(raiz);
+        for (FaseCompilacion fase : FASES) {
+            int i = fase.ordinal();
+            if (duracionesNs[i] < 0) {
+                continue;
+            }
+            long finNs = finesNs[i] + desfaseNs;
+            Span span = tracer.spanBuilder(NOMBRES[i])
+                .setParent(padre)
+                .setStartTimestamp(finNs - duracionesNs[i], TimeUnit.NANOSECONDS)
+                .startSpan();
+            switch (fase) {
+                case LECTURA_CUERPO:
+                    if (bytesCuerpo >= 0) {
+                        span.setAttribute("cuerpo.bytes", bytesCuerpo);
+                    }
+                    break;
+                case DECODIFICACION_JSON:
+                    if (longitudExpresion >= 0) {
+                        span.setAttribute("expresion.longitud", longitudExpresion);
+                    }
+                    break;
+                case LEXICO:
+                    if (compilada != null) {
+                        span.setAttribute("expresion.tokens", compilada.getTokens());
+                    }
+                    break;
+                case PARSEO:
+                    if (compilada != null) {
+                        span.setAttribute("expresion.profundidad", profundidad);
+                    }
+                    break;
+                case EVALUACION:
+                    if (aciertoCache >= 0) {
+                        span.setAttribute("cache.acierto", aciertoCache == 1);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            span.end(finNs, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métricas en ventana deslizante sobre un buffer circular de cubetas de un
+ * segundo.
+ *
+ * <p>Cada cubeta guarda el segundo al que pertenece, contadores de peticiones
+ * y errores y un histograma de latencia de baja precisión. Los contadores
+ * están repartidos en franjas por hilo y separados por 64 bytes para que
+ * hilos distintos no compitan por la misma línea de caché. Registrar una
+ * muestra no reserva memoria.</p>
+ *
+ * <p>Cuando una cubeta se recicla para un segundo nuevo se pone en cero sin
+ * bloquear, así que una muestra que llegue justo durante el reinicio puede
+ * perderse. Las ventanas sólo consideran segundos completos: la de 1 s es
+ * el último segundo terminado.</p>
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+public class VentanaDeslizante {
+
+    /** Precisión de los histogramas por cubeta: 8 sub-cubetas, error menor a 12.5%. */
+    private static final int BITS_PRECISION = 3;
+
+    /** Longs por celda de contadores: 64 bytes, una línea de caché. */
+    private static final int RELLENO = 8;
+    private static final int PETICIONES = 0;
+    private static final int ERRORES = 1;
+
+    private final int capacidad;
+    private final int franjas;
+    private final long origenNs;
+
+    private final AtomicLongArray segundos;
+    private final AtomicLongArray contadores;
+    private final HistogramaLatencia[] latencias;
+
+    /**
+     * @param maxSegundos ventana más larga que se podrá consultar
+     */
+    public VentanaDeslizante(int maxSegundos) {
+        this.capacidad = maxSegundos + 1;
+        this.franjas = HistogramaLatencia.franjasPorNucleos();
+        this.origenNs = System.nanoTime();
+        this.segundos = new AtomicLongArray(capacidad);
+        this.contadores = new AtomicLongArray(capacidad * franjas * RELLENO);
+        this.latencias = new HistogramaLatencia[capacidad];
+
+        for (int i = 0; i < capacidad; i++) {
+            segundos.set(i, -1);
+            latencias[i] = new HistogramaLatencia(BITS_PRECISION);
+        }
+    }
+
+    /**
+     * Registra una petición en la cubeta del segundo actual.
+     *
+     * @param latenciaNs latencia de la petición en nanosegundos
+     * @param error true si la petición falló
+     */
+    public void registrar(long latenciaNs, boolean error) {
+        long segundo = segundoActual();
+        int ranura = (int) (segundo % capacidad);
+        asegurarRanura(ranura, segundo);
+
+        int celda = (ranura * franjas + franja()) * RELLENO;
+        contadores.incrementAndGet(celda + PETICIONES);
+        if (error) {
+            contadores.incrementAndGet(celda + ERRORES);
+        }
+        latencias[ranura].registrar(latenciaNs);
+    }
+
+    /**
+     * Calcula las métricas de los últimos segundos completos.
+     *
+     * @param nombre nombre de la ventana para el reporte (por ejemplo "1m")
+     * @param ventanaSegundos cantidad de segundos, entre 1 y el máximo configurado
+     * @return métricas de la ventana
+     */
+    public MetricasVentana resumen(String nombre, int ventanaSegundos) {
+        int ventana = Math.max(1, Math.min(ventanaSegundos, capacidad - 1));
+        long ahora = segundoActual();
+        long peticiones = 0;
+        long errores = 0;
+        HistogramaLatencia latencia = new HistogramaLatencia(BITS_PRECISION);
+
+        for (long segundo = ahora - ventana; segundo < ahora; segundo++) {
+            if (segundo < 0) {
+                continue;
+            }
+            int ranura = (int) (segundo % capacidad);
+            if (segundos.get(ranura) != segundo) {
+                continue;
+            }
+            for (int f = 0; f < franjas; f++) {
+                int celda = (ranura * franjas + f) * RELLENO;
+                peticiones += contadores.get(celda + PETICIONES);
+                errores += contadores.get(celda + ERRORES);
+            }
+            latencias[ranura].sumarA(latencia);
+        }
+
+        MetricasVentana resultado = new MetricasVentana();
+        resultado.setVentana(nombre);
+        resultado.setSegundos(ventana);
+        resultado.setTotalRequests(peticiones);
+        resultado.setRequestsFallidos(errores);
+        resultado.setThroughput((double) peticiones / ventana);
+        resultado.setTasaError(peticiones > 0 ? (double) errores / peticiones * 100 : 0);
+        resultado.setLatencia(latencia.resumen());
+        return resultado;
+    }
+
+    /**
+     * Si la ranura todavía pertenece a un segundo anterior, la reclama para
+     * el segundo actual y la pone en cero. Sólo el hilo que gana el CAS la
+     * reinicia.
+     */
+    private void asegurarRanura(int ranura, long segundo) {
+        long actual = segundos.get(ranura);
+        if (actual >= segundo || !segundos.compareAndSet(ranura, actual, segundo)) {
+            return;
+        }
+        for (int f = 0; f < franjas; f++) {
+            int celda = (ranura * franjas + f) * RELLENO;
+            contadores.set(celda + PETICIONES, 0);
+            contadores.set(celda + ERRORES, 0);
+        }
+        latencias[ranura].reiniciar();
+    }
+
+    private long segundoActual() {
+        return (System.nanoTime() - origenNs) / 1_000_000_000L;
+    }
+
+    private int franja() {
+        return (int) Thread.currentThread().getId() & (franjas - 1);
+    }
+}
@@ -0,0 +1,253 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link CodecJson} contra Gson con la configuración por defecto del
+ * servicio: las respuestas se codifican byte por byte igual, incluidos los
+ * doubles y los escapes, y las solicitudes se leen igual o se delegan.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class CodecJsonTest {
+
+    private static final Gson GSON = new Gson();
+
+    /** Caracteres que Gson escapa, más algunos de varios bytes en UTF-8. */
+    private static final char[] ESPECIALES = {'"', '\\', '/', '\t', '\b', '\n', '\r', '\f', '\u0000',
+        '\u001f', '\u007f', '<', '>', '&', '=', '\'', '\u2028', '\u2029', 'ñ', 'é', '\u20ac', '\uffff'};
+
+    /** Doubles en los bordes de la notación decimal de Double.toString. */
+    private static final double[] DOUBLES_BORDE = {0.0, -0.0, 1.0, -1.0, 0.1, 0.2, 0.3, 1e-3,
+        0.001 - Math.ulp(0.001), 1e7, 1e7 - Math.ulp(1e7), 9_999_999.999999998, 123456.789,
+        1.0 / 3, 2.0 / 3, 100.0, 1e15, 1e16, 1e-4, Double.MIN_VALUE, Double.MIN_NORMAL,
+        Double.MAX_VALUE, 4.35, 0.30000000000000004, 5e-324, 1.7976931348623157e308};
+
+    /**
+     * {@link CodecJson#escribirDouble} escribe lo mismo que
+     * {@link Double#toString(double)} en los bordes, en decimales cortos y
+     * en patrones de bits arbitrarios.
+     */
+    @Test
+    void doublesIgualQueDoubleToString() {
+        for (double valor : DOUBLES_BORDE) {
+            compararDouble(valor);
+            compararDouble(-valor);
+        }
+        Random azar = new Random(11L);
+        for (int i = 0; i < 200_000; i++) {
+            compararDouble(doubleAleatorio(azar));
+        }
+    }
+
+    /**
+     * Respuestas pseudoaleatorias, con y sin campos opcionales, se
+     * codifican con los mismos bytes que Gson.
+     */
+    @Test
+    void respuestasIgualQueGson() {
+        Random azar = new Random(13L);
+        for (int i = 0; i < 20_000; i++) {
+            RespuestaCompilacion respuesta = new RespuestaCompilacion();
+            respuesta.setExitoso(azar.nextBoolean());
+            double resultado = doubleAleatorio(azar);
+            if (azar.nextBoolean() && Double.isFinite(resultado)) {
+                respuesta.setResultado(resultado);
+            }
+            respuesta.setMensaje(azar.nextInt(4) == 0 ? null : cadenaAleatoria(azar));
+            respuesta.setCodigoError(azar.nextInt(3) == 0 ? cadenaAleatoria(azar) : null);
+            respuesta.setPosicionError(azar.nextBoolean() ? azar.nextInt() : null);
+            respuesta.setEsperado(azar.nextInt(3) == 0 ? cadenaAleatoria(azar) : null);
+            respuesta.setTokensGenerados(azar.nextInt());
+            respuesta.setNodosEliminados(azar.nextBoolean() ? azar.nextInt(1000) : null);
+            respuesta.setTiempoMs(azar.nextBoolean() ? azar.nextLong() : azar.nextInt(1000));
+
+            CodecJson.Buffer buffer = CodecJson.buffer();
+            assertTrue(CodecJson.escribirRespuesta(respuesta, buffer));
+            assertEquals(GSON.toJson(respuesta), buffer.comoTexto());
+            assertArrayEquals(GSON.toJson(respuesta).getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(buffer.getDatos(), buffer.getTamano()));
+        }
+    }
+
+    /**
+     * Un resultado no finito no se codifica: queda para Gson.
+     */
+    @Test
+    void resultadoNoFinitoSeDelega() {
+        for (double valor : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertFalse(CodecJson.escribirRespuesta(
+                RespuestaCompilacion.exito(valor, 3, 0), CodecJson.buffer()));
+        }
+    }
+
+    /**
+     * Las columnas finitas se escriben igual que Gson y las no finitas como
+     * null, en su posición.
+     */
+    @Test
+    void respuestaEvaluacionConColumnas() {
+        Random azar = new Random(17L);
+        for (int i = 0; i < 2_000; i++) {
+            double[] resultados = new double[azar.nextInt(20)];
+            for (int j = 0; j < resultados.length; j++) {
+                double valor = doubleAleatorio(azar);
+                resultados[j] = Double.isFinite(valor) ? valor : 0.0;
+            }
+            int[] filasConError = azar.nextBoolean() ? new int[] {azar.nextInt(100), azar.nextInt(100)} : null;
+            RespuestaEvaluacion respuesta = RespuestaEvaluacion.exito(resultados, filasConError, azar.nextInt(50), 0);
+            respuesta.setMensaje(cadenaAleatoria(azar));
+
+            CodecJson.Buffer buffer = CodecJson.buffer();
+            CodecJson.escribirRespuestaEvaluacion(respuesta, buffer);
+            assertEquals(GSON.toJson(respuesta), buffer.comoTexto());
+        }
+
+        RespuestaEvaluacion respuesta = RespuestaEvaluacion.exito(
+            new double[] {1.5, Double.NaN, Double.POSITIVE_INFINITY, -0.0, Double.NEGATIVE_INFINITY}, null, 1, 0);
+        CodecJson.Buffer buffer = CodecJson.buffer();
+        CodecJson.escribirRespuestaEvaluacion(respuesta, buffer);
+        JsonArray leidos = JsonParser.parseString(buffer.comoTexto())
+            .getAsJsonObject().getAsJsonArray("resultados");
+        assertEquals(1.5, leidos.get(0).getAsDouble());
+        assertTrue(leidos.get(1).isJsonNull());
+        assertTrue(leidos.get(2).isJsonNull());
+        assertEquals("-0.0", leidos.get(3).getAsString());
+        assertTrue(leidos.get(4).isJsonNull());
+    }
+
+    /**
+     * Lo que Gson escribe, el codec lo lee a los mismos valores, incluidos
+     * nulos, escapes y caracteres fuera del BMP.
+     */
+    @Test
+    void solicitudesEscritasPorGsonSeLeenIgual() {
+        Random azar = new Random(19L);
+        for (int i = 0; i < 20_000; i++) {
+            SolicitudCompilacion original = new SolicitudCompilacion(
+                azar.nextInt(8) == 0 ? null : cadenaAleatoria(azar),
+                azar.nextInt(8) == 0 ? null : cadenaAleatoria(azar));
+            byte[] json = GSON.toJson(original).getBytes(StandardCharsets.UTF_8);
+            SolicitudCompilacion leida = CodecJson.leerSolicitud(json, json.length);
+            SolicitudCompilacion esperada = GSON.fromJson(new String(json, StandardCharsets.UTF_8),
+                SolicitudCompilacion.class);
+            assertEquals(esperada.getExpresion(), leida.getExpresion());
+            assertEquals(esperada.getLenguaje(), leida.getLenguaje());
+        }
+    }
+
+    /**
+     * Orden de claves, espacios, escapes que Gson no emite y nulos
+     * explícitos se leen igual que con Gson.
+     */
+    @Test
+    void solicitudesEscritasAManoSeLeenIgualQueGson() {
+        String[] cuerpos = {
+            "{\"expresion\":\"1 + 2\",\"lenguaje\":\"ARITMETICA\"}",
+            " {\r\n\t\"lenguaje\" : \"ARITMETICA\" ,\n \"expresion\" : \"(3)\" } \n",
+            "{\"expresion\":\"a\\/b \\u00e9\\u20AC \\ud83d\\ude00 \\\"x\\\"\",\"lenguaje\":null}",
+            "{\"expresion\":null}",
+            "{}",
+            "{\"expresion\":\"\",\"lenguaje\":\"\"}",
+            "{\"expresion\":\"ñandú 💡\",\"lenguaje\":\"L\"}",
+        };
+        for (String cuerpo : cuerpos) {
+            byte[] json = cuerpo.getBytes(StandardCharsets.UTF_8);
+            SolicitudCompilacion leida = CodecJson.leerSolicitud(json, json.length);
+            SolicitudCompilacion esperada = GSON.fromJson(cuerpo, SolicitudCompilacion.class);
+            assertEquals(esperada.getExpresion(), leida.getExpresion(), cuerpo);
+            assertEquals(esperada.getLenguaje(), leida.getLenguaje(), cuerpo);
+        }
+    }
+
+    /**
+     * Lo que el camino rápido no cubre devuelve null para que decida Gson.
+     */
+    @Test
+    void entradasNoCubiertasSeDelegan() {
+        String[] cuerpos = {
+            "{\"expresion\":\"1\",\"otra\":\"x\"}",
+            "{\"expresion\":1}",
+            "{\"expresion\":\"1\",}",
+            "{\"expresion\":\"1\"} x",
+            "{'expresion':'1'}",
+            "{\"expresion\":\"1\\x\"}",
+            "{\"expresion\":\"1\\u00g0\"}",
+            "{\"expresion\":\"a\nb\"}",
+            "{\"expresion\":\"sin cerrar}",
+            "[]",
+            "",
+            "null",
+        };
+        for (String cuerpo : cuerpos) {
+            byte[] json = cuerpo.getBytes(StandardCharsets.UTF_8);
+            assertNull(CodecJson.leerSolicitud(json, json.length), cuerpo);
+        }
+    }
+
+    private static void compararDouble(double valor) {
+        if (!Double.isFinite(valor)) {
+            return;
+        }
+        CodecJson.Buffer buffer = CodecJson.buffer();
+        CodecJson.escribirDouble(valor, buffer);
+        assertEquals(Double.toString(valor), buffer.comoTexto(),
+            () -> "bits " + Long.toHexString(Double.doubleToRawLongBits(valor)));
+    }
+
+    /**
+     * Mezcla bits arbitrarios, enteros, decimales cortos y cocientes, que
+     * son los que aparecen como resultado de una expresión.
+     */
+    private static double doubleAleatorio(Random azar) {
+        switch (azar.nextInt(5)) {
+            case 0:
+                return Double.longBitsToDouble(azar.nextLong());
+            case 1:
+                return azar.nextInt(20_000_000) - 10_000_000;
+            case 2:
+                return (azar.nextInt(2_000_000) - 1_000_000) / Math.pow(10, azar.nextInt(10));
+            case 3:
+                return (double) (azar.nextInt(1000) + 1) / (azar.nextInt(1000) + 1);
+            default:
+                return azar.nextDouble() * Math.pow(10, azar.nextInt(24) - 8);
+        }
+    }
+
+    private static String cadenaAleatoria(Random azar) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = azar.nextInt(16); i > 0; i--) {
+            switch (azar.nextInt(6)) {
+                case 0:
+                    sb.append(ESPECIALES[azar.nextInt(ESPECIALES.length)]);
+                    break;
+                case 1:
+                    sb.append((char) azar.nextInt(0x20));
+                    break;
+                case 2:
+                    sb.appendCodePoint(0x10000 + azar.nextInt(0x100000));
+                    break;
+                case 3:
+                    sb.append((char) (0x80 + azar.nextInt(0xD800 - 0x80)));
+                    break;
+                default:
+                    sb.append((char) (0x20 + azar.nextInt(0x5f)));
+            }
+        }
+        return sb.toString();
+    }
+}
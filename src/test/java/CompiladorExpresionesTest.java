@@ -0,0 +1,257 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Propiedades de {@link CompiladorExpresiones}: el parser iterativo y el
+ * recursivo dan el mismo árbol o el mismo diagnóstico, y los árboles altos
+ * se compilan, optimizan y evalúan sin desbordar la pila.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class CompiladorExpresionesTest {
+
+    /** Términos de las sumas planas: 2 tokens por término más el de fin. */
+    private static final int TERMINOS_PLANOS = CompiladorExpresiones.TOKENS_MAXIMOS_DEFECTO / 2 - 1;
+
+    private static final int PROFUNDIDAD = CompiladorExpresiones.PROFUNDIDAD_MAXIMA_DEFECTO;
+
+    /** Pila del hilo que compara ambos parsers en el límite de anidamiento. */
+    private static final long PILA_PARSER_RECURSIVO = 64L * 1024 * 1024;
+
+    private static final char[] OPERADORES = {'+', '-', '*', '/'};
+    private static final String[] PIEZAS = {"(", "(", ")", ")", "+", "-", "*", "/", "1", "2.5", "0",
+        "x", "y_2", "1.2.3", ".", " "};
+
+    /**
+     * Sobre expresiones pseudoaleatorias, válidas e inválidas, ambos parsers
+     * dan el mismo árbol y las mismas variables, o el mismo diagnóstico
+     * (código, posición y mensaje), y la excepción de la API anterior lleva
+     * ese mensaje.
+     */
+    @Test
+    void parsersEquivalentesEnExpresionesAleatorias() {
+        CompiladorExpresiones recursivo = sinLimites(CompiladorExpresiones.ModoParseo.RECURSIVO);
+        CompiladorExpresiones iterativo = sinLimites(CompiladorExpresiones.ModoParseo.ITERATIVO);
+        Random azar = new Random(7L);
+        int validas = 0;
+        for (int i = 0; i < 20_000; i++) {
+            String expresion;
+            if (azar.nextInt(4) == 0) {
+                expresion = generarExpresion(1 + azar.nextInt(64), azar.nextInt(8), azar.nextLong());
+            } else {
+                StringBuilder sb = new StringBuilder();
+                for (int j = azar.nextInt(24); j > 0; j--) {
+                    sb.append(PIEZAS[azar.nextInt(PIEZAS.length)]);
+                }
+                expresion = sb.toString();
+            }
+            if (!compararParsers(recursivo, iterativo, expresion).startsWith("error:")) {
+                validas++;
+            }
+        }
+        assertTrue(validas > 1_000, "Muy pocas expresiones válidas: " + validas);
+    }
+
+    /**
+     * Una suma plana casi tan larga como permiten los tokens por defecto no
+     * cuenta como anidamiento: se acepta y vale lo mismo sin optimizar,
+     * optimizada y por columnas.
+     */
+    @Test
+    void sumaPlanaLargaSeEvaluaSinRecursion() {
+        StringBuilder suma = new StringBuilder(TERMINOS_PLANOS * 4).append('x');
+        for (int i = 1; i < TERMINOS_PLANOS; i++) {
+            suma.append(" + 1");
+        }
+        assertEquals(TERMINOS_PLANOS - 0.5, evaluarConLimites(suma.toString(), 0.5));
+    }
+
+    /**
+     * Lo mismo con una cadena plana pseudoaleatoria de los cuatro operadores.
+     */
+    @Test
+    void cadenaPlanaAleatoriaSeEvaluaSinRecursion() {
+        evaluarConLimites(generarExpresion(TERMINOS_PLANOS, 0, 7L), 0);
+    }
+
+    /**
+     * Exactamente {@link CompiladorExpresiones#PROFUNDIDAD_MAXIMA_DEFECTO}
+     * paréntesis anidados se aceptan con ambos parsers. El recursivo usa un
+     * marco de pila por nivel, así que corre en un hilo con pila explícita
+     * para no depender de si el JIT ya compiló sus métodos.
+     */
+    @Test
+    void anidamientoEnElLimiteSeAcepta() throws Throwable {
+        Throwable[] fallo = new Throwable[1];
+        Thread hilo = new Thread(null, () -> {
+            try {
+                evaluarConLimites(generarExpresionProfunda(PROFUNDIDAD + 1, 7L), 0);
+            } catch (Throwable t) {
+                fallo[0] = t;
+            }
+        }, "anidamiento", PILA_PARSER_RECURSIVO);
+        hilo.start();
+        hilo.join();
+        if (fallo[0] != null) {
+            throw fallo[0];
+        }
+    }
+
+    /**
+     * Un paréntesis más que el límite se rechaza en el parser iterativo.
+     */
+    @Test
+    void anidamientoExcedidoSeRechaza() {
+        ResultadoCompilacion resultado = conLimites(CompiladorExpresiones.ModoParseo.ITERATIVO)
+            .analizar(generarExpresionProfunda(PROFUNDIDAD + 2, 7L), false);
+        assertFalse(resultado.esExitoso());
+        assertEquals(DiagnosticoCompilacion.Codigo.EXPRESION_DEMASIADO_ANIDADA,
+            resultado.getDiagnostico().getCodigo());
+    }
+
+    /**
+     * Compara ambos parsers con los límites por defecto sobre una expresión
+     * válida y la evalúa sin optimizar, optimizada y por columnas.
+     *
+     * @return el valor de la expresión
+     */
+    private static double evaluarConLimites(String expresion, double valorVariables) {
+        CompiladorExpresiones iterativo = conLimites(CompiladorExpresiones.ModoParseo.ITERATIVO);
+        String descripcion = compararParsers(
+            conLimites(CompiladorExpresiones.ModoParseo.RECURSIVO), iterativo, expresion);
+        assertFalse(descripcion.startsWith("error:"), () -> "No compila con los límites por defecto: "
+            + resumir(expresion) + ": " + descripcion);
+
+        ExpresionCompilada sinOptimizar = iterativo.analizar(expresion, false).getExpresion();
+        ExpresionCompilada optimizada = iterativo.analizar(expresion, true).getExpresion();
+        double[] valores = new double[sinOptimizar.getVariables().size()];
+        Arrays.fill(valores, valorVariables);
+        double valor = evaluar(sinOptimizar, valores);
+        double[][] columnas = new double[valores.length][];
+        for (int v = 0; v < valores.length; v++) {
+            columnas[v] = new double[] {valorVariables, valorVariables};
+        }
+        double[] porColumnas = optimizada.evaluarColumnas(columnas, 2, new BitSet());
+        assertEquals(valor, evaluar(optimizada, valores), "optimizada");
+        assertEquals(valor, porColumnas[0], "por columnas");
+        assertEquals(valor, porColumnas[1], "por columnas");
+        return valor;
+    }
+
+    private static double evaluar(ExpresionCompilada expresion, double[] valores) {
+        ResultadoCompilacion resultado = expresion.intentarEvaluar(valores);
+        assertTrue(resultado.esExitoso(), () -> "No se pudo evaluar "
+            + resumir(expresion.getExpresion()) + ": " + resultado.getDiagnostico());
+        return resultado.getValor();
+    }
+
+    /**
+     * @return la descripción común del árbol o del diagnóstico
+     */
+    private static String compararParsers(CompiladorExpresiones recursivo,
+                                          CompiladorExpresiones iterativo, String expresion) {
+        String esperado = describirParseo(recursivo, expresion);
+        String obtenido = describirParseo(iterativo, expresion);
+        assertEquals(esperado, obtenido, () -> "Los parsers difieren en \"" + resumir(expresion) + "\"");
+        return esperado;
+    }
+
+    /**
+     * Describe el árbol o el diagnóstico de una expresión, y comprueba que
+     * {@link CompiladorExpresiones#compilarExpresion(String)} lance el mismo
+     * mensaje que reporta el diagnóstico.
+     */
+    private static String describirParseo(CompiladorExpresiones compilador, String expresion) {
+        ResultadoCompilacion resultado = compilador.analizar(expresion, false);
+        String mensaje;
+        try {
+            compilador.compilarExpresion(expresion, false);
+            mensaje = null;
+        } catch (Exception e) {
+            mensaje = e.getMessage();
+        }
+        if (resultado.esExitoso()) {
+            assertEquals(null, mensaje, () -> "Sólo la excepción falla en \"" + resumir(expresion) + "\"");
+            ExpresionCompilada compilada = resultado.getExpresion();
+            return compilada.getRaiz() + " " + compilada.getVariables() + " " + compilada.getTokens();
+        }
+        DiagnosticoCompilacion diagnostico = resultado.getDiagnostico();
+        assertEquals(diagnostico.getMensaje(), mensaje,
+            () -> "El diagnóstico difiere de la excepción en \"" + resumir(expresion) + "\"");
+        return "error: " + diagnostico + " esperado " + diagnostico.getEsperado();
+    }
+
+    private static String resumir(String texto) {
+        return texto.length() <= 120 ? texto
+            : texto.substring(0, 120) + "... (" + texto.length() + " caracteres)";
+    }
+
+    private static CompiladorExpresiones sinLimites(CompiladorExpresiones.ModoParseo modo) {
+        return new CompiladorExpresiones(modo, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    private static CompiladorExpresiones conLimites(CompiladorExpresiones.ModoParseo modo) {
+        return new CompiladorExpresiones(modo, CompiladorExpresiones.PROFUNDIDAD_MAXIMA_DEFECTO,
+            CompiladorExpresiones.TOKENS_MAXIMOS_DEFECTO);
+    }
+
+    /**
+     * Genera una expresión válida de forma determinista, como
+     * {@code PuenteBenchmarks.generarExpresion}: cada nivel toma una parte de
+     * los operandos y pone el resto entre paréntesis, y sólo se divide entre
+     * números literales.
+     */
+    static String generarExpresion(int operandos, int profundidad, long semilla) {
+        StringBuilder sb = new StringBuilder(operandos * 8);
+        generar(sb, Math.max(1, operandos), profundidad, new Random(semilla));
+        return sb.toString();
+    }
+
+    private static void generar(StringBuilder sb, int operandos, int profundidad, Random azar) {
+        int planos = profundidad > 0 && operandos > 1
+            ? Math.max(1, operandos / (profundidad + 1))
+            : operandos;
+        for (int i = 0; i < planos; i++) {
+            if (i > 0) {
+                sb.append(' ').append(OPERADORES[azar.nextInt(4)]).append(' ');
+            }
+            if (azar.nextBoolean()) {
+                sb.append(1 + azar.nextInt(999));
+            } else {
+                sb.append(1 + azar.nextInt(99)).append('.').append(azar.nextInt(1000));
+            }
+        }
+        if (planos < operandos) {
+            sb.append(' ').append(OPERADORES[azar.nextInt(3)]).append(" (");
+            generar(sb, operandos - planos, profundidad - 1, azar);
+            sb.append(')');
+        }
+    }
+
+    /**
+     * Genera una expresión anidada a la izquierda, {@code ((1 + 2) * 3) ...},
+     * con un nivel de paréntesis por operando.
+     */
+    static String generarExpresionProfunda(int operandos, long semilla) {
+        Random azar = new Random(semilla);
+        StringBuilder sb = new StringBuilder(operandos * 9);
+        for (int i = 1; i < operandos; i++) {
+            sb.append('(');
+        }
+        sb.append(1 + azar.nextInt(999));
+        for (int i = 1; i < operandos; i++) {
+            sb.append(' ').append(OPERADORES[azar.nextInt(3)]).append(' ')
+                .append(1 + azar.nextInt(999)).append(')');
+        }
+        return sb.toString();
+    }
+}
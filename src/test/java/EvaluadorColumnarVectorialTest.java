@@ -0,0 +1,210 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Propiedad de {@link EvaluadorColumnarVectorial}: sobre programas y
+ * columnas pseudoaleatorias da, fila por fila, el mismo double que
+ * {@link EvaluadorColumnar#escalar()} y que {@link Nodo#evaluar(double[], int[])},
+ * y marca como error exactamente las filas que dividen entre cero.
+ *
+ * <p>Necesita {@code --add-modules jdk.incubator.vector} en la JVM de las
+ * pruebas (lo pone surefire); en un procesador sin vectores de al menos
+ * dos carriles se omite.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class EvaluadorColumnarVectorialTest {
+
+    private static final char[] OPERADORES = {'+', '-', '*', '/'};
+
+    private static final int VARIABLES = 3;
+
+    /** Filas por bloque del evaluador cuando los temporales caben. */
+    private static final int BLOQUE = 1024;
+
+    /** Literales con ceros con signo, no finitos y extremos del exponente. */
+    private static final double[] LITERALES = {0.0, -0.0, 1.0, -1.0, 2.0, 0.5, 3.0, 0.1,
+        Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE,
+        Double.MAX_VALUE, 1e-300};
+
+    /** Valores de las columnas: los mismos casos más algunos ordinarios. */
+    private static final double[] VALORES = {0.0, -0.0, 1.0, -1.0, 2.0, 0.5, Double.NaN,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE,
+        -Double.MIN_VALUE, 1e308, -1e-308, 7.25};
+
+    private static EvaluadorColumnar vectorial;
+
+    @BeforeAll
+    static void cargarVectorial() {
+        vectorial = EvaluadorColumnar.vectorial();
+        assumeTrue(vectorial != null, "Sin jdk.incubator.vector o sin vectores de dos carriles");
+    }
+
+    /**
+     * Árboles pseudoaleatorios sobre filas que cruzan los bordes de vector
+     * y de bloque: los tres caminos coinciden y las divisiones entre cero y
+     * los NaN aparecen lo suficiente para que la comparación valga.
+     */
+    @Test
+    void vectorialIgualQueEscalar() {
+        int carriles = vectorial.getCarriles();
+        int[] filas = {0, 1, carriles - 1, carriles, carriles + 1, 2 * carriles + 3,
+            BLOQUE - 1, BLOQUE, BLOQUE + 1, 3000};
+        Random azar = new Random(31L);
+        long filasConError = 0;
+        long nan = 0;
+        for (int i = 0; i < 3_000; i++) {
+            Nodo raiz = generarArbol(azar, 1 + azar.nextInt(7));
+            double[][] columnas = generarColumnas(azar, 3000);
+            long[] conteos = comparar(raiz, columnas, filas[azar.nextInt(filas.length)]);
+            filasConError += conteos[0];
+            nan += conteos[1];
+        }
+        assertTrue(filasConError > 10_000, "Muy pocas divisiones entre cero: " + filasConError);
+        assertTrue(nan > 10_000, "Muy pocos NaN: " + nan);
+    }
+
+    /**
+     * Programas con tantos temporales que el bloque se reduce por memoria,
+     * y por tanto ya no es múltiplo del ancho de los bloques grandes.
+     */
+    @Test
+    void programasGrandesIgualQueEscalar() {
+        Random azar = new Random(37L);
+        for (int i = 0; i < 20; i++) {
+            Nodo raiz = generarArbol(azar, 1);
+            for (int nivel = 0; nivel < 300; nivel++) {
+                raiz = new Nodo.Binario(OPERADORES[azar.nextInt(OPERADORES.length)],
+                    generarArbol(azar, 3), raiz);
+            }
+            comparar(raiz, generarColumnas(azar, 2500), 1 + azar.nextInt(2500));
+        }
+    }
+
+    /**
+     * Casos puntuales: entre cero y entre menos cero son error en ambos, y
+     * un NaN de una columna o de 0/0 con divisor distinto de cero no lo es.
+     */
+    @Test
+    void divisionEntreCeroYNanCoinciden() {
+        Nodo x = new Nodo.Variable("x0", 0);
+        Nodo y = new Nodo.Variable("x1", 1);
+        int filas = 4 * vectorial.getCarriles() + 1;
+        double[][] columnas = new double[VARIABLES][filas];
+        for (int f = 0; f < filas; f++) {
+            columnas[0][f] = f % 3 == 0 ? Double.NaN : f;
+            columnas[1][f] = f % 2 == 0 ? 0.0 : (f % 5 == 0 ? -0.0 : Double.NaN);
+        }
+        Nodo[] arboles = {
+            new Nodo.Binario('/', x, y),
+            new Nodo.Binario('*', new Nodo.Binario('/', x, new Nodo.Numero(-0.0)), new Nodo.Numero(0)),
+            new Nodo.Binario('+', x, new Nodo.Binario('-', y, y)),
+            new Nodo.Binario('/', new Nodo.Binario('-', x, x), new Nodo.Numero(2)),
+            new Nodo.Binario('/', new Nodo.Numero(1), new Nodo.Numero(0)),
+        };
+        for (Nodo raiz : arboles) {
+            comparar(raiz, columnas, filas);
+        }
+
+        BitSet errores = new BitSet();
+        vectorial.evaluar(ProgramaColumnar.compilar(arboles[0]), columnas, filas, errores);
+        for (int f = 0; f < filas; f++) {
+            assertEquals(columnas[1][f] == 0, errores.get(f), "fila " + f);
+        }
+        errores.clear();
+        vectorial.evaluar(ProgramaColumnar.compilar(arboles[4]), columnas, filas, errores);
+        assertEquals(filas, errores.cardinality());
+    }
+
+    /**
+     * Evalúa {@code raiz} por los tres caminos y exige el mismo resultado
+     * por fila: los mismos bits salvo la carga de los NaN y las mismas
+     * filas con error.
+     *
+     * @return filas con error y filas con NaN sin error
+     */
+    private static long[] comparar(Nodo raiz, double[][] columnas, int filas) {
+        ProgramaColumnar programa = ProgramaColumnar.compilar(raiz);
+        BitSet erroresEscalar = new BitSet();
+        BitSet erroresVectorial = new BitSet();
+        double[] escalar = EvaluadorColumnar.escalar().evaluar(programa, columnas, filas, erroresEscalar);
+        double[] vectorizado = vectorial.evaluar(programa, columnas, filas, erroresVectorial);
+        assertEquals(filas, escalar.length);
+        assertEquals(filas, vectorizado.length);
+        assertEquals(erroresEscalar, erroresVectorial, () -> raiz + " con " + filas + " filas");
+
+        long[] conteos = new long[2];
+        double[] valores = new double[VARIABLES];
+        int[] fallo = new int[1];
+        for (int f = 0; f < filas; f++) {
+            for (int v = 0; v < VARIABLES; v++) {
+                valores[v] = columnas[v][f];
+            }
+            fallo[0] = 0;
+            double porFila = raiz.evaluar(valores, fallo);
+            String esperado = fallo[0] != 0 ? "error" : describir(porFila);
+            int fila = f;
+            assertEquals(esperado, erroresEscalar.get(f) ? "error" : describir(escalar[f]),
+                () -> "escalar: " + raiz + " en la fila " + fila);
+            assertEquals(esperado, erroresVectorial.get(f) ? "error" : describir(vectorizado[f]),
+                () -> "vectorial: " + raiz + " en la fila " + fila);
+            if (erroresVectorial.get(f)) {
+                assertTrue(Double.isNaN(vectorizado[f]));
+                conteos[0]++;
+            } else if (Double.isNaN(vectorizado[f])) {
+                conteos[1]++;
+            }
+        }
+        return conteos;
+    }
+
+    private static String describir(double valor) {
+        return Double.isNaN(valor) ? "NaN" : Long.toHexString(Double.doubleToRawLongBits(valor));
+    }
+
+    /**
+     * @return un árbol de a lo más {@code niveles} niveles con literales de
+     *         {@link #LITERALES}, variables y alguna literal cualquiera
+     */
+    private static Nodo generarArbol(Random azar, int niveles) {
+        if (niveles <= 1 || azar.nextInt(4) == 0) {
+            switch (azar.nextInt(5)) {
+                case 0:
+                case 1:
+                    int indice = azar.nextInt(VARIABLES);
+                    return new Nodo.Variable("x" + indice, indice);
+                case 2:
+                    return new Nodo.Numero(azar.nextInt(20) - 10);
+                default:
+                    return new Nodo.Numero(LITERALES[azar.nextInt(LITERALES.length)]);
+            }
+        }
+        return new Nodo.Binario(OPERADORES[azar.nextInt(OPERADORES.length)],
+            generarArbol(azar, niveles - 1), generarArbol(azar, niveles - 1));
+    }
+
+    /**
+     * @return columnas con valores de {@link #VALORES}, ordinarios y ceros
+     *         en proporción variable, para que haya bloques sin error
+     */
+    private static double[][] generarColumnas(Random azar, int filas) {
+        double[][] columnas = new double[VARIABLES][filas];
+        for (double[] columna : columnas) {
+            int especiales = azar.nextInt(4);
+            for (int f = 0; f < filas; f++) {
+                columna[f] = azar.nextInt(8) < especiales ? VALORES[azar.nextInt(VALORES.length)]
+                    : (azar.nextDouble() - 0.5) * Math.pow(2, azar.nextInt(40) - 20);
+            }
+        }
+        return columnas;
+    }
+}
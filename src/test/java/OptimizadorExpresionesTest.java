@@ -0,0 +1,205 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Propiedad de {@link OptimizadorExpresiones}: el árbol optimizado da
+ * exactamente el mismo double que el original, bit por bit salvo la carga
+ * de los NaN, y falla en los mismos casos (división entre cero, variable
+ * sin valor) con el mismo diagnóstico.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class OptimizadorExpresionesTest {
+
+    private static final char[] OPERADORES = {'+', '-', '*', '/'};
+
+    private static final int VARIABLES = 3;
+
+    /**
+     * Literales que disparan las identidades y el plegado, o que los
+     * rompen si se aplican de más: ceros con signo, unos, potencias de dos
+     * en los extremos del exponente, no finitos y un subnormal.
+     */
+    private static final double[] LITERALES = {0.0, -0.0, 1.0, -1.0, 2.0, 0.5, 0.25, 4.0, -8.0, 3.0,
+        0.1, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE,
+        Double.MIN_NORMAL, Math.scalb(1.0, 1023), Math.scalb(1.0, -1022), Double.MAX_VALUE, 1e-300};
+
+    /** Valores de las variables: los mismos casos más valores ordinarios. */
+    private static final double[] VALORES = {0.0, -0.0, 1.0, -1.0, 2.0, 0.5, Double.NaN,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE,
+        -Double.MIN_VALUE, 1e308, -1e-308, 7.25};
+
+    /**
+     * Sobre árboles pseudoaleatorios y asignaciones con NaN, infinitos y
+     * ceros con signo, el árbol optimizado evalúa igual que el original por
+     * las dos rutas de evaluación.
+     */
+    @Test
+    void optimizadoEsIdenticoAlOriginal() {
+        Random azar = new Random(23L);
+        int optimizados = 0;
+        int divisionesEntreCero = 0;
+        int nan = 0;
+        for (int i = 0; i < 50_000; i++) {
+            Nodo original = generarArbol(azar, 1 + azar.nextInt(7));
+            Nodo optimizado = OptimizadorExpresiones.optimizar(original);
+            if (optimizado.contarNodos() < original.contarNodos()) {
+                optimizados++;
+            }
+            for (int j = 0; j < 8; j++) {
+                double[] valores = generarValores(azar);
+                String esperado = compararEvaluaciones(original, optimizado, valores);
+                if (esperado.equals("fallo -1")) {
+                    divisionesEntreCero++;
+                } else if (esperado.equals("NaN")) {
+                    nan++;
+                }
+            }
+        }
+        assertTrue(optimizados > 10_000, "Muy pocos árboles optimizados: " + optimizados);
+        assertTrue(divisionesEntreCero > 1_000, "Muy pocas divisiones entre cero: " + divisionesEntreCero);
+        assertTrue(nan > 1_000, "Muy pocos NaN: " + nan);
+    }
+
+    /**
+     * Cadenas más altas que {@link OptimizadorExpresiones#PROFUNDIDAD_ANALISIS}
+     * y que {@link Nodo.Binario#ALTURA_RECURSIVA}: el análisis de signo se
+     * corta y la evaluación usa la pila explícita, sin cambiar el resultado.
+     */
+    @Test
+    void cadenasAltasSeOptimizanIgual() {
+        Random azar = new Random(29L);
+        for (int i = 0; i < 500; i++) {
+            Nodo original = generarArbol(azar, 1);
+            int altura = OptimizadorExpresiones.PROFUNDIDAD_ANALISIS + azar.nextInt(3 * Nodo.Binario.ALTURA_RECURSIVA);
+            for (int nivel = 0; nivel < altura; nivel++) {
+                Nodo hoja = generarArbol(azar, 1);
+                char operador = OPERADORES[azar.nextInt(OPERADORES.length)];
+                original = azar.nextBoolean()
+                    ? new Nodo.Binario(operador, original, hoja)
+                    : new Nodo.Binario(operador, hoja, original);
+            }
+            Nodo optimizado = OptimizadorExpresiones.optimizar(original);
+            for (int j = 0; j < 8; j++) {
+                compararEvaluaciones(original, optimizado, generarValores(azar));
+            }
+        }
+    }
+
+    /**
+     * Casos puntuales: una división entre una constante cero no se pliega
+     * ni la esconde una identidad, y un NaN atraviesa las identidades y la
+     * reducción de fuerza.
+     */
+    @Test
+    void divisionEntreCeroYNanSeConservan() {
+        Nodo x = new Nodo.Variable("x", 0);
+        Nodo[] arboles = {
+            binario('/', numero(1), numero(0)),
+            binario('/', x, binario('-', numero(1), numero(1))),
+            binario('*', binario('/', x, numero(-0.0)), numero(1)),
+            binario('+', numero(0), binario('/', numero(2), numero(0))),
+            binario('/', binario('/', numero(0), numero(0)), numero(4)),
+            binario('+', x, numero(0)),
+            binario('-', x, numero(-0.0)),
+            binario('/', x, numero(0.25)),
+            binario('*', numero(1), binario('+', numero(Double.NaN), numero(0))),
+            binario('-', binario('*', x, numero(Double.POSITIVE_INFINITY)), numero(Double.POSITIVE_INFINITY)),
+        };
+        for (Nodo original : arboles) {
+            Nodo optimizado = OptimizadorExpresiones.optimizar(original);
+            for (double valor : VALORES) {
+                compararEvaluaciones(original, optimizado, new double[] {valor});
+            }
+            compararEvaluaciones(original, optimizado, new double[0]);
+        }
+        assertEquals("fallo -1", compararEvaluaciones(arboles[0], OptimizadorExpresiones.optimizar(arboles[0]),
+            new double[0]));
+        assertEquals("NaN", compararEvaluaciones(arboles[7], OptimizadorExpresiones.optimizar(arboles[7]),
+            new double[] {Double.NaN}));
+    }
+
+    /**
+     * Evalúa ambos árboles con {@link Nodo#evaluar(double[], int[])} y con
+     * {@link Nodo#evaluar(double[])}, y exige el mismo resultado.
+     *
+     * @return "fallo n" con el código de fallo, "NaN" o los bits del valor
+     */
+    private static String compararEvaluaciones(Nodo original, Nodo optimizado, double[] valores) {
+        String esperado = evaluar(original, valores);
+        assertEquals(esperado, evaluar(optimizado, valores),
+            () -> original + " optimizado a " + optimizado + " con " + Arrays.toString(valores));
+        assertEquals(evaluarConExcepcion(original, valores), evaluarConExcepcion(optimizado, valores),
+            () -> original + " optimizado a " + optimizado + " con " + Arrays.toString(valores));
+        return esperado;
+    }
+
+    private static String evaluar(Nodo nodo, double[] valores) {
+        int[] fallo = new int[1];
+        double valor = nodo.evaluar(valores, fallo);
+        if (fallo[0] != 0) {
+            return "fallo " + fallo[0];
+        }
+        return Double.isNaN(valor) ? "NaN" : Long.toHexString(Double.doubleToRawLongBits(valor));
+    }
+
+    private static String evaluarConExcepcion(Nodo nodo, double[] valores) {
+        try {
+            return Long.toHexString(Double.doubleToLongBits(nodo.evaluar(valores)));
+        } catch (Exception e) {
+            return "excepción " + e.getMessage();
+        }
+    }
+
+    /**
+     * @return un árbol de a lo más {@code niveles} niveles con literales de
+     *         {@link #LITERALES}, variables y alguna literal cualquiera
+     */
+    private static Nodo generarArbol(Random azar, int niveles) {
+        if (niveles <= 1 || azar.nextInt(4) == 0) {
+            switch (azar.nextInt(5)) {
+                case 0:
+                case 1:
+                    return variable(azar.nextInt(VARIABLES));
+                case 2:
+                    return numero(azar.nextInt(20) - 10);
+                default:
+                    return numero(LITERALES[azar.nextInt(LITERALES.length)]);
+            }
+        }
+        return binario(OPERADORES[azar.nextInt(OPERADORES.length)],
+            generarArbol(azar, niveles - 1), generarArbol(azar, niveles - 1));
+    }
+
+    /**
+     * @return valores para las variables; a veces faltan los últimos, para
+     *         cubrir la variable sin valor
+     */
+    private static double[] generarValores(Random azar) {
+        double[] valores = new double[azar.nextInt(16) == 0 ? azar.nextInt(VARIABLES) : VARIABLES];
+        for (int v = 0; v < valores.length; v++) {
+            valores[v] = azar.nextBoolean() ? VALORES[azar.nextInt(VALORES.length)]
+                : (azar.nextDouble() - 0.5) * Math.pow(2, azar.nextInt(40) - 20);
+        }
+        return valores;
+    }
+
+    private static Nodo variable(int indice) {
+        return new Nodo.Variable("x" + indice, indice);
+    }
+
+    private static Nodo numero(double valor) {
+        return new Nodo.Numero(valor);
+    }
+
+    private static Nodo binario(char operador, Nodo izquierdo, Nodo derecho) {
+        return new Nodo.Binario(operador, izquierdo, derecho);
+    }
+}
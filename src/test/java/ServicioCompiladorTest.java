@@ -0,0 +1,338 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * Control de admisión de {@link ServicioCompilador} sobre ambos
+ * transportes, a través de HTTP.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class ServicioCompiladorTest {
+
+    /** Mayor que la latencia objetivo por defecto del limitador (50 ms). */
+    private static final long PAUSA_STREAM_MS = 200;
+
+    /** Igual que en {@link ServicioCompilador}. */
+    private static final int LOTE_MAX_ELEMENTOS = 100_000;
+
+    private static final String CUERPO_COMPILAR = "{\"expresion\":\"1 + 2\",\"lenguaje\":\"ARITMETICA\"}";
+
+    /**
+     * Un stream NDJSON que tarda más que la latencia objetivo no toma
+     * permiso ni reduce el límite de concurrencia.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void streamLentoNoReduceElLimite(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        try {
+            double limite = gauge(puerto, "caas_limite_concurrencia");
+
+            String respuesta = streamLento(puerto,
+                "{\"expresion\":\"1 + 2\",\"lenguaje\":\"ARITMETICA\"}",
+                "{\"expresion\":\"3 * 4\",\"lenguaje\":\"ARITMETICA\"}");
+            assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+            assertTrue(respuesta.contains("12"), respuesta);
+
+            assertEquals(limite, gauge(puerto, "caas_limite_concurrencia"));
+            assertEquals(0.0, gauge(puerto, "caas_solicitudes_en_vuelo"));
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Con todos los permisos tomados por peticiones cuyo cuerpo no llega,
+     * la siguiente recibe 503 con Retry-After sin que se cierre su
+     * conexión, y esa conexión se atiende al liberarse los permisos.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void sinPermisoResponde503YConservaLaConexion(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        List<Socket> retenidas = new ArrayList<>();
+        try {
+            int limite = (int) gauge(puerto, "caas_limite_concurrencia");
+            for (int i = 0; i < limite; i++) {
+                Socket socket = new Socket("localhost", puerto);
+                socket.setSoTimeout(10_000);
+                retenidas.add(socket);
+                socket.getOutputStream().write(encabezadosCompilar().getBytes(StandardCharsets.ISO_8859_1));
+            }
+            // Los hilos del pool quedan bloqueados leyendo esos cuerpos, así
+            // que /metrics no se atendería: se consulta en el proceso.
+            esperarEnVuelo(limite);
+
+            try (Socket socket = new Socket("localhost", puerto)) {
+                socket.setSoTimeout(10_000);
+                OutputStream salida = socket.getOutputStream();
+                InputStream entrada = socket.getInputStream();
+                salida.write((encabezadosCompilar() + CUERPO_COMPILAR).getBytes(StandardCharsets.UTF_8));
+                String rechazo = leerRespuesta(entrada);
+                assertTrue(rechazo.startsWith("HTTP/1.1 503"), rechazo);
+                assertTrue(rechazo.toLowerCase(Locale.ROOT).contains("retry-after: 1"), rechazo);
+                assertTrue(rechazo.endsWith("{\"error\":\"Servicio saturado\"}"), rechazo);
+
+                // Los handlers que corren no son necesariamente los de las
+                // primeras conexiones: todos los cuerpos van antes de leer.
+                for (Socket retenida : retenidas) {
+                    retenida.getOutputStream().write(CUERPO_COMPILAR.getBytes(StandardCharsets.UTF_8));
+                }
+                for (Socket retenida : retenidas) {
+                    String respuesta = leerRespuesta(retenida.getInputStream());
+                    assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+                }
+
+                salida.write((encabezadosCompilar() + CUERPO_COMPILAR).getBytes(StandardCharsets.UTF_8));
+                String respuesta = leerRespuesta(entrada);
+                assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+            }
+            esperarEnVuelo(0);
+        } finally {
+            for (Socket socket : retenidas) {
+                socket.close();
+            }
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Una expresión que no compila se cuenta con el lenguaje de la
+     * solicitud, igual que una exitosa.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void fallaSeRegistraConSuLenguaje(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        try {
+            String lenguaje = "FALLO_" + transporte;
+            String cuerpo = "{\"expresion\":\"1 +\",\"lenguaje\":\"" + lenguaje + "\"}";
+            try (Socket socket = new Socket("localhost", puerto)) {
+                socket.setSoTimeout(10_000);
+                socket.getOutputStream().write(("POST /api/compilar HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Content-Type: application/json\r\nContent-Length: " + cuerpo.length() + "\r\n\r\n"
+                    + cuerpo).getBytes(StandardCharsets.UTF_8));
+                String respuesta = leerRespuesta(socket.getInputStream());
+                assertTrue(respuesta.startsWith("HTTP/1.1 422"), respuesta);
+            }
+            Map<String, Long> lenguajes = TelemetriaManager.getInstance().getMetricas()
+                .generarSnapshot().getLenguajesUtilizados();
+            assertEquals(1L, lenguajes.get(lenguaje), lenguajes.toString());
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Un lote con más elementos que el máximo se rechaza con 413 al llegar
+     * al límite, sin esperar el resto de un cuerpo que nunca se envía, y
+     * cuenta como compilación fallida.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void loteExcedidoSeRechazaSinLeerElResto(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        try (Socket socket = new Socket("localhost", puerto)) {
+            socket.setSoTimeout(10_000);
+            long fallidosAntes = fallidos();
+            StringBuilder elementos = new StringBuilder("[");
+            for (int i = 0; i <= LOTE_MAX_ELEMENTOS; i++) {
+                elementos.append("null,");
+            }
+            byte[] enviados = elementos.toString().getBytes(StandardCharsets.UTF_8);
+            OutputStream salida = socket.getOutputStream();
+            salida.write(("POST /api/compilar/lote HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Type: application/json\r\nContent-Length: " + (enviados.length * 2)
+                + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            salida.write(enviados);
+            salida.flush();
+
+            String respuesta = leerRespuesta(socket.getInputStream());
+            assertTrue(respuesta.startsWith("HTTP/1.1 413"), respuesta);
+            assertEquals(fallidosAntes + 1, fallidos());
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Un lote mal formado, truncado o con contenido después del arreglo
+     * responde 400 y cuenta como compilación fallida.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void loteMalFormadoSeRegistraComoFallo(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        try {
+            for (String cuerpo : new String[] {"", "{}", "[{\"expresion\":", "[] []", "[1,,]"}) {
+                long fallidosAntes = fallidos();
+                try (Socket socket = new Socket("localhost", puerto)) {
+                    socket.setSoTimeout(10_000);
+                    byte[] datos = cuerpo.getBytes(StandardCharsets.UTF_8);
+                    socket.getOutputStream().write(("POST /api/compilar/lote HTTP/1.1\r\nHost: localhost\r\n"
+                        + "Content-Type: application/json\r\nContent-Length: " + datos.length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                    socket.getOutputStream().write(datos);
+                    String respuesta = leerRespuesta(socket.getInputStream());
+                    assertTrue(respuesta.startsWith("HTTP/1.1 400"), cuerpo + " -> " + respuesta);
+                }
+                assertEquals(fallidosAntes + 1, fallidos(), cuerpo);
+            }
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    /**
+     * Sin CAAS_JFR_ADMIN=true el endpoint de Flight Recorder no existe.
+     */
+    @ParameterizedTest
+    @EnumSource(TipoTransporte.class)
+    void adminJfrDeshabilitadoPorDefecto(TipoTransporte transporte) throws Exception {
+        int puerto = puertoLibre();
+        ServicioCompilador servicio = new ServicioCompilador(puerto, ModoEjecucion.POOL, transporte);
+        servicio.iniciar();
+        try {
+            assertFalse(servicio.isAdminJfrHabilitado());
+            HttpURLConnection conexion = (HttpURLConnection)
+                new URL("http://localhost:" + puerto + "/api/admin/jfr?accion=iniciar").openConnection();
+            conexion.setRequestMethod("POST");
+            try {
+                assertEquals(404, conexion.getResponseCode());
+            } finally {
+                conexion.disconnect();
+            }
+        } finally {
+            servicio.detener();
+        }
+    }
+
+    private static long fallidos() {
+        return TelemetriaManager.getInstance().getMetricas().generarSnapshot().getRequestsFallidos();
+    }
+
+    private static void esperarEnVuelo(int esperadas) throws InterruptedException {
+        MetricasCompilacion metricas = TelemetriaManager.getInstance().getMetricas();
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (metricas.generarSnapshot().getSolicitudesEnVuelo() != esperadas) {
+            assertTrue(System.nanoTime() < limite, "En vuelo: "
+                + metricas.generarSnapshot().getSolicitudesEnVuelo() + ", se esperaban " + esperadas);
+            Thread.sleep(10);
+        }
+    }
+
+    private static String encabezadosCompilar() {
+        return "POST /api/compilar HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+            + "Content-Length: " + CUERPO_COMPILAR.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n";
+    }
+
+    /**
+     * Lee una respuesta con Content-Length: línea de estado, encabezados y
+     * cuerpo.
+     */
+    static String leerRespuesta(InputStream entrada) throws IOException {
+        ByteArrayOutputStream encabezados = new ByteArrayOutputStream();
+        int ultimos = 0;
+        while (ultimos != 0x0D0A0D0A) {
+            int b = entrada.read();
+            if (b < 0) {
+                throw new EOFException("Respuesta incompleta: " + encabezados);
+            }
+            encabezados.write(b);
+            ultimos = ultimos << 8 | b;
+        }
+        String texto = encabezados.toString(StandardCharsets.ISO_8859_1);
+        int longitud = 0;
+        for (String linea : texto.split("\r\n")) {
+            if (linea.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                longitud = Integer.parseInt(linea.substring(15).trim());
+            }
+        }
+        return texto + new String(entrada.readNBytes(longitud), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Envía cada línea como un trozo, con una pausa antes de cada una, y
+     * lee la respuesta hasta que el servidor cierra.
+     */
+    private static String streamLento(int puerto, String... lineas)
+            throws IOException, InterruptedException {
+        try (Socket socket = new Socket("localhost", puerto)) {
+            socket.setSoTimeout(10_000);
+            OutputStream salida = socket.getOutputStream();
+            salida.write(("POST /api/compilar/stream HTTP/1.1\r\nHost: localhost\r\n"
+                + "Transfer-Encoding: chunked\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+            salida.flush();
+            for (String linea : lineas) {
+                Thread.sleep(PAUSA_STREAM_MS);
+                byte[] datos = (linea + "\n").getBytes(StandardCharsets.UTF_8);
+                salida.write((Integer.toHexString(datos.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                salida.write(datos);
+                salida.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                salida.flush();
+            }
+            salida.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            salida.flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @return valor de una muestra sin etiquetas de /metrics
+     */
+    private static double gauge(int puerto, String nombre) throws IOException {
+        HttpURLConnection conexion = (HttpURLConnection)
+            new URL("http://localhost:" + puerto + "/metrics").openConnection();
+        try (InputStream entrada = conexion.getInputStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            entrada.transferTo(bytes);
+            for (String linea : bytes.toString(StandardCharsets.UTF_8).split("\n")) {
+                if (linea.startsWith(nombre + " ")) {
+                    return Double.parseDouble(linea.substring(nombre.length() + 1).trim());
+                }
+            }
+        } finally {
+            conexion.disconnect();
+        }
+        throw new AssertionError("Sin muestra " + nombre + " en /metrics");
+    }
+
+    static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pruebas de {@link ServidorNio} a nivel de socket, con un handler que
+ * responde la longitud del cuerpo que leyó: encuadre chunked, peticiones
+ * encadenadas, Expect: 100-continue, encabezados mal formados y el máximo
+ * de cuerpo de los handlers que corren en el hilo del selector.
+ *
+ * @author Guzmán Bucio Luis Antonio
+ * @author Espinosa Roque Rebeca
+ * @author Morales Martínez Edgar Jesús
+ */
+class ServidorNioTest {
+
+    /** Igual que CAAS_NIO_MAX_CUERPO_MB por defecto. */
+    private static final long MAX_CUERPO = 64L * 1024 * 1024;
+
+    private ServidorNio servidor;
+    private ExecutorService pool;
+    private volatile int atendidas;
+
+    @AfterEach
+    void detener() {
+        if (servidor != null) {
+            servidor.detener();
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Con el handler en el hilo del selector, un Content-Length mayor que
+     * el máximo se rechaza con 413 antes de recibir el cuerpo.
+     */
+    @Test
+    void longitudExcedidaEnElSelectorResponde413() throws Exception {
+        int puerto = iniciar(Runnable::run);
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                + (MAX_CUERPO + 1) + "\r\n\r\n");
+            String respuesta = ServicioCompiladorTest.leerRespuesta(socket.getInputStream());
+            assertTrue(respuesta.startsWith("HTTP/1.1 413"), respuesta);
+            assertTrue(respuesta.contains("Connection: close"), respuesta);
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    /**
+     * Con el handler en el hilo del selector, un cuerpo chunked se rechaza
+     * con 413 en cuanto pasa del máximo, sin esperar el trozo final.
+     */
+    @Test
+    void trozosExcedidosEnElSelectorResponden413() throws Exception {
+        int puerto = iniciar(Runnable::run);
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n");
+            Thread escritor = new Thread(() -> {
+                byte[] trozo = new byte[1024 * 1024];
+                byte[] encabezado = (Integer.toHexString(trozo.length) + "\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+                try {
+                    OutputStream salida = socket.getOutputStream();
+                    for (long enviados = 0; enviados <= 2 * MAX_CUERPO; enviados += trozo.length) {
+                        salida.write(encabezado);
+                        salida.write(trozo);
+                        salida.write('\r');
+                        salida.write('\n');
+                    }
+                } catch (IOException e) {
+                    // El servidor cerró la conexión tras el 413.
+                }
+            });
+            escritor.start();
+            String respuesta = ServicioCompiladorTest.leerRespuesta(socket.getInputStream());
+            assertTrue(respuesta.startsWith("HTTP/1.1 413"), respuesta);
+            socket.close();
+            escritor.join();
+        }
+    }
+
+    /**
+     * Con un pool, el mismo cuerpo se entrega al handler conforme llega y
+     * no se limita.
+     */
+    @Test
+    void cuerpoEnPoolNoSeLimita() throws Exception {
+        int puerto = iniciar(nuevoPool());
+        try (Socket socket = conectar(puerto)) {
+            long longitud = MAX_CUERPO + 1;
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+                + longitud + "\r\n\r\n");
+            OutputStream salida = socket.getOutputStream();
+            byte[] bloque = new byte[1024 * 1024];
+            for (long enviados = 0; enviados < longitud; enviados += bloque.length) {
+                salida.write(bloque, 0, (int) Math.min(bloque.length, longitud - enviados));
+            }
+            String respuesta = ServicioCompiladorTest.leerRespuesta(socket.getInputStream());
+            assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+            assertTrue(respuesta.endsWith("\r\n\r\n" + longitud), respuesta);
+        }
+    }
+
+    /**
+     * Un cuerpo chunked, con extensiones y trailer, llega completo al
+     * handler y la conexión sigue abierta.
+     */
+    @Test
+    void cuerpoChunkedSeEntregaCompleto() throws Exception {
+        int puerto = iniciar(nuevoPool());
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;nombre=valor\r\nhola \r\n");
+            enviar(socket, "a\r\n0123456789\r\n0\r\nX-Suma: 15\r\n\r\n");
+            assertEquals("15", cuerpo(ServicioCompiladorTest.leerRespuesta(socket.getInputStream())));
+
+            enviar(socket, "GET /eco HTTP/1.1\r\nHost: localhost\r\n\r\n");
+            assertEquals("0", cuerpo(ServicioCompiladorTest.leerRespuesta(socket.getInputStream())));
+        }
+    }
+
+    /**
+     * Peticiones encadenadas en una sola escritura, con cuerpos de los dos
+     * encuadres, se responden en orden.
+     */
+    @Test
+    void peticionesEncadenadasSeRespondenEnOrden() throws Exception {
+        int puerto = iniciar(nuevoPool());
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nContent-Length: 3\r\n\r\nabc"
+                + "GET /eco HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                + "POST /eco HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "2\r\nde\r\n0\r\n\r\n"
+                + "POST /eco HTTP/1.1\r\nHost: localhost\r\nContent-Length: 7\r\nConnection: close\r\n\r\n"
+                + "1234567");
+            InputStream entrada = socket.getInputStream();
+            for (String esperado : new String[] {"3", "0", "2", "7"}) {
+                String respuesta = ServicioCompiladorTest.leerRespuesta(entrada);
+                assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+                assertEquals(esperado, cuerpo(respuesta));
+            }
+            assertEquals(-1, entrada.read());
+        }
+    }
+
+    /**
+     * Con Expect: 100-continue el servidor envía 100 Continue antes de
+     * recibir el cuerpo, y luego la respuesta del handler.
+     */
+    @Test
+    void expectContinueRespondeAntesDelCuerpo() throws Exception {
+        int puerto = iniciar(nuevoPool());
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4\r\n"
+                + "Expect: 100-continue\r\n\r\n");
+            InputStream entrada = socket.getInputStream();
+            String continuar = ServicioCompiladorTest.leerRespuesta(entrada);
+            assertEquals("HTTP/1.1 100 Continue\r\n\r\n", continuar);
+
+            enviar(socket, "abcd");
+            String respuesta = ServicioCompiladorTest.leerRespuesta(entrada);
+            assertTrue(respuesta.startsWith("HTTP/1.1 200"), respuesta);
+            assertEquals("4", cuerpo(respuesta));
+        }
+    }
+
+    /**
+     * Encabezados mal formados se rechazan sin llegar al handler y la
+     * conexión se cierra.
+     */
+    @Test
+    void encabezadosMalFormadosSeRechazan() throws Exception {
+        int puerto = iniciar(nuevoPool());
+        String[][] casos = {
+            {"BASURA\r\n\r\n", "400"},
+            {"GET /eco HTTP/1.1\r\nSinDosPuntos\r\n\r\n", "400"},
+            {"GET /eco HTTP/1.1\r\n: sin nombre\r\n\r\n", "400"},
+            {"POST /eco HTTP/1.1\r\nContent-Length: abc\r\n\r\n", "400"},
+            {"POST /eco HTTP/1.1\r\nContent-Length: -1\r\n\r\n", "400"},
+            {"POST /eco HTTP/1.1\r\nContent-Length: 3\r\nTransfer-Encoding: chunked\r\n\r\nabc", "400"},
+            {"GET /eco HTTP/2.0\r\n\r\n", "505"},
+            {"GET /eco HTTP/1.1\r\nX-Largo: " + "a".repeat(ServidorNio.TAMANO_BUFFER) + "\r\n\r\n", "431"},
+        };
+        for (String[] caso : casos) {
+            try (Socket socket = conectar(puerto)) {
+                try {
+                    enviar(socket, caso[0]);
+                } catch (IOException e) {
+                    // El servidor puede cerrar antes de recibir todo el encabezado largo.
+                }
+                InputStream entrada = socket.getInputStream();
+                String respuesta = ServicioCompiladorTest.leerRespuesta(entrada);
+                assertTrue(respuesta.startsWith("HTTP/1.1 " + caso[1]), caso[0] + " -> " + respuesta);
+                assertEquals(-1, entrada.read(), caso[0]);
+            }
+        }
+        assertEquals(0, atendidas);
+    }
+
+    /**
+     * Un tamaño de trozo inválido hace fallar la lectura del handler; se
+     * responde 400 y la conexión se cierra.
+     */
+    @Test
+    void trozoInvalidoResponde400YCierra() throws Exception {
+        String respuesta = trozoInvalido(iniciar(nuevoPool()));
+        assertTrue(respuesta.startsWith("HTTP/1.1 400"), respuesta);
+    }
+
+    /**
+     * Lo mismo cuando el handler se pospuso en el hilo del selector.
+     */
+    @Test
+    void trozoInvalidoEnElSelectorResponde400YCierra() throws Exception {
+        String respuesta = trozoInvalido(iniciar(Runnable::run));
+        assertTrue(respuesta.startsWith("HTTP/1.1 400"), respuesta);
+    }
+
+    /**
+     * @return todo lo que el servidor envía hasta cerrar la conexión
+     */
+    private static String trozoInvalido(int puerto) throws IOException {
+        try (Socket socket = conectar(puerto)) {
+            enviar(socket, "POST /eco HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "4\r\nhola\r\nzz\r\nmundo\r\n0\r\n\r\n");
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private ExecutorService nuevoPool() {
+        pool = Executors.newFixedThreadPool(2);
+        return pool;
+    }
+
+    private static String cuerpo(String respuesta) {
+        return respuesta.substring(respuesta.indexOf("\r\n\r\n") + 4);
+    }
+
+    private int iniciar(Executor ejecutor) throws IOException {
+        int puerto = ServicioCompiladorTest.puertoLibre();
+        servidor = new ServidorNio(new InetSocketAddress("localhost", puerto), 50);
+        servidor.registrar("/eco", intercambio -> {
+            atendidas++;
+            long longitud = 0;
+            try (InputStream cuerpo = intercambio.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                int n;
+                while ((n = cuerpo.read(buffer)) > 0) {
+                    longitud += n;
+                }
+            }
+            byte[] respuesta = Long.toString(longitud).getBytes(StandardCharsets.UTF_8);
+            intercambio.sendResponseHeaders(200, respuesta.length);
+            intercambio.getResponseBody().write(respuesta);
+            intercambio.close();
+        });
+        servidor.setEjecutor(ejecutor);
+        servidor.iniciar();
+        return puerto;
+    }
+
+    private static Socket conectar(int puerto) throws IOException {
+        Socket socket = new Socket("localhost", puerto);
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static void enviar(Socket socket, String texto) throws IOException {
+        socket.getOutputStream().write(texto.getBytes(StandardCharsets.ISO_8859_1));
+        socket.getOutputStream().flush();
+    }
+}